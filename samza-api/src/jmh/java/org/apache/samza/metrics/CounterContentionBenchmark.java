@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of {@link Counter} and {@link StripedCounter} when one counter is incremented by 16 and by 32
+ * threads with {@link Counter#add(long)}, as on the hot path of the run loop, and of {@link Gauge} and
+ * {@link PaddedGauge} when every thread sets its own gauge among gauges which were allocated together, as in a metrics
+ * registry.
+ * <p>
+ * Run with ./gradlew :samza-api:jmh -PjmhInclude=CounterContentionBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CounterContentionBenchmark {
+  private static final int MAX_THREADS = 32;
+
+  private final Counter counter = new Counter("counter");
+  private final Counter stripedCounter = new StripedCounter("striped-counter");
+  private final Gauge<Long>[] gauges = newGauges(false);
+  private final Gauge<Long>[] paddedGauges = newGauges(true);
+  private final AtomicInteger nextThreadIndex = new AtomicInteger();
+
+  /**
+   * The gauge of a thread, and the value it sets.
+   */
+  @State(Scope.Thread)
+  public static class ThreadGauge {
+    private int index;
+    private final Long value = Long.MAX_VALUE;
+
+    @Setup
+    public void setup(CounterContentionBenchmark benchmark) {
+      index = benchmark.nextThreadIndex.getAndIncrement() % MAX_THREADS;
+    }
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void counter16Threads() {
+    counter.add(1);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void stripedCounter16Threads() {
+    stripedCounter.add(1);
+  }
+
+  @Benchmark
+  @Threads(32)
+  public void counter32Threads() {
+    counter.add(1);
+  }
+
+  @Benchmark
+  @Threads(32)
+  public void stripedCounter32Threads() {
+    stripedCounter.add(1);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public Long gauge16Threads(ThreadGauge threadGauge) {
+    return gauges[threadGauge.index].set(threadGauge.value);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public Long paddedGauge16Threads(ThreadGauge threadGauge) {
+    return paddedGauges[threadGauge.index].set(threadGauge.value);
+  }
+
+  @Benchmark
+  @Threads(32)
+  public Long gauge32Threads(ThreadGauge threadGauge) {
+    return gauges[threadGauge.index].set(threadGauge.value);
+  }
+
+  @Benchmark
+  @Threads(32)
+  public Long paddedGauge32Threads(ThreadGauge threadGauge) {
+    return paddedGauges[threadGauge.index].set(threadGauge.value);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Gauge<Long>[] newGauges(boolean padded) {
+    Gauge<Long>[] gauges = new Gauge[MAX_THREADS];
+    for (int i = 0; i < MAX_THREADS; i++) {
+      gauges[i] = padded ? new PaddedGauge<>("gauge-" + i, 0L) : new Gauge<>("gauge-" + i, 0L);
+    }
+    return gauges;
+  }
+}
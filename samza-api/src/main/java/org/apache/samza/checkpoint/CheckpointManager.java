@@ -19,6 +19,7 @@
 
 package org.apache.samza.checkpoint;
 
+import java.util.Map;
 import org.apache.samza.container.TaskName;
 
 /**
@@ -49,6 +50,15 @@ public interface CheckpointManager {
    */
   void writeCheckpoint(TaskName taskName, Checkpoint checkpoint);
 
+  /**
+   * Writes the checkpoints of several Samza stream partitions. Implementations can override this to write all
+   * checkpoints at once, e.g. with a single flush, instead of writing each checkpoint separately.
+   * @param checkpoints Checkpoints to write, keyed by the Samza taskName they belong to.
+   */
+  default void writeCheckpoints(Map<TaskName, Checkpoint> checkpoints) {
+    checkpoints.forEach(this::writeCheckpoint);
+  }
+
   /**
    * Returns the last recorded checkpoint for a specified taskName.
    * @param taskName Specific Samza taskName for which to get the last checkpoint of.
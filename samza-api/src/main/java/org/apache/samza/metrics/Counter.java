@@ -42,6 +42,16 @@ public class Counter implements Metric {
     return count.addAndGet(n);
   }
 
+  /**
+   * Add {@code n} to the counter without returning the new count. Counters updated on a hot path should prefer it to
+   * {@link #inc(long)}, since implementations like {@link StripedCounter} don't need to read the count back.
+   *
+   * @param n the amount to add, which may be negative
+   */
+  public void add(long n) {
+    count.addAndGet(n);
+  }
+
   public long dec() {
     return dec(1);
   }
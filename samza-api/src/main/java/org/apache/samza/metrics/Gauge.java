@@ -37,6 +37,13 @@ public class Gauge<T> implements Metric {
     this.ref = new AtomicReference<T>(value);
   }
 
+  /**
+   * For subclasses which hold the value themselves, and override all methods which access it.
+   */
+  protected Gauge(String name) {
+    this.name = name;
+  }
+
   public boolean compareAndSet(T expected, T n) {
     return ref.compareAndSet(expected, n);
   }
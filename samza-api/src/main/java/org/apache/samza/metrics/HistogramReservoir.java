@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.samza.util.Clock;
+
+/**
+ * A lock-free {@link Reservoir} that records values into a histogram with log-linear buckets, in the spirit of
+ * HdrHistogram. Recording a value is a constant number of atomic updates, regardless of how many values have been
+ * recorded, which makes it suitable for timers that are updated for every message.
+ * <p>
+ * Bucket boundaries have a relative error of at most 1/32 (about 3%). Values are recorded in intervals of half the
+ * window size, and a {@link Snapshot} covers the current and the previous interval. The average, sum, min, max and
+ * size of a snapshot are exact, while its values are the bucket midpoints, downsampled to at most
+ * {@link #MAX_SNAPSHOT_VALUES} values in proportion to the bucket counts. The percentiles of a snapshot are computed
+ * from all the bucket counts, without sorting its values.
+ * <p>
+ * The buckets of each power of two range are only allocated once a value in that range is recorded, so a reservoir
+ * only holds the buckets of the magnitudes it has seen. An interval that falls out of the window is cleared and
+ * reused as the next current interval, keeping its buckets.
+ */
+public class HistogramReservoir implements Reservoir {
+
+  /**
+   * Maximum number of values returned by {@link Snapshot#getValues()}
+   */
+  static final int MAX_SNAPSHOT_VALUES = 1024;
+
+  /**
+   * default window size
+   */
+  private static final int DEFAULT_WINDOW_SIZE_MS = 300000;
+
+  /**
+   * Each power of two range is split into this amount of linear sub-buckets
+   */
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int RANGE_COUNT = Long.SIZE - SUB_BUCKET_BITS;
+
+  private final long intervalMs;
+  private final Clock clock;
+
+  /**
+   * The previous and the current interval, replaced when the current interval expires
+   */
+  private volatile Intervals intervals;
+
+  /**
+   * Default constructor using default window size
+   */
+  public HistogramReservoir() {
+    this(DEFAULT_WINDOW_SIZE_MS, new Clock() {
+      public long currentTimeMillis() {
+        return System.currentTimeMillis();
+      }
+    });
+  }
+
+  /**
+   * Construct the HistogramReservoir with window size
+   *
+   * @param windowMs the size of the window. unit is millisecond.
+   * @param clock the clock used to expire values
+   */
+  public HistogramReservoir(long windowMs, Clock clock) {
+    if (windowMs < 2) {
+      throw new IllegalArgumentException("Window size must be at least 2 ms, but is " + windowMs);
+    }
+    this.intervalMs = windowMs / 2;
+    this.clock = clock;
+    this.intervals = new Intervals(new Interval(), new Interval(), clock.currentTimeMillis());
+  }
+
+  @Override
+  public int size() {
+    Intervals intervals = getIntervals();
+    return (int) Math.min(intervals.previous.count.sum() + intervals.current.count.sum(), Integer.MAX_VALUE);
+  }
+
+  @Override
+  public void update(long value) {
+    getIntervals().current.record(value);
+  }
+
+  @Override
+  public Snapshot getSnapshot() {
+    Intervals intervals = getIntervals();
+    Interval previous = intervals.previous;
+    Interval current = intervals.current;
+
+    long[] counts = new long[RANGE_COUNT * SUB_BUCKET_COUNT];
+    long total = previous.addCounts(counts) + current.addCounts(counts);
+
+    if (total == 0) {
+      return new Snapshot(new ArrayList<>(), 0, 0, 0, 0);
+    }
+
+    // emit each bucket's value in proportion to its count, keeping the cumulative distribution of the buckets
+    List<Long> values = new ArrayList<>((int) Math.min(total, MAX_SNAPSHOT_VALUES));
+    long cumulativeCount = 0;
+    long emitted = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] > 0) {
+        cumulativeCount += counts[i];
+        long toEmit = total <= MAX_SNAPSHOT_VALUES ? cumulativeCount
+            : (long) Math.ceil((double) cumulativeCount * MAX_SNAPSHOT_VALUES / total);
+        long bucketValue = bucketValue(i);
+        for (; emitted < toEmit; emitted++) {
+          values.add(bucketValue);
+        }
+      }
+    }
+
+    return new HistogramSnapshot(values, Math.min(previous.min.get(), current.min.get()),
+        Math.max(previous.max.get(), current.max.get()), previous.sum.sum() + current.sum.sum(), counts, total);
+  }
+
+  /**
+   * Return the intervals, after starting a new interval if the current one has expired.
+   */
+  private Intervals getIntervals() {
+    Intervals intervals = this.intervals;
+    if (clock.currentTimeMillis() - intervals.currentStartMs < intervalMs) {
+      return intervals;
+    }
+    synchronized (this) {
+      intervals = this.intervals;
+      long now = clock.currentTimeMillis();
+      long elapsed = now - intervals.currentStartMs;
+      if (elapsed < intervalMs) {
+        return intervals;
+      }
+      // the expired previous interval is reused as the new current one. The current interval becomes the previous
+      // one, unless it's already outside the window too.
+      Interval previous = intervals.current;
+      if (elapsed >= 2 * intervalMs) {
+        previous.clear();
+      }
+      Interval current = intervals.previous;
+      current.clear();
+      this.intervals = new Intervals(previous, current, now);
+      return this.intervals;
+    }
+  }
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) Math.max(value, 0);
+    }
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+    return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  /**
+   * Return the midpoint of the values recorded in the bucket
+   */
+  static long bucketValue(int bucketIndex) {
+    if (bucketIndex < SUB_BUCKET_COUNT) {
+      return bucketIndex;
+    }
+    int shift = bucketIndex / SUB_BUCKET_COUNT - 1;
+    long lowestValue = (long) (SUB_BUCKET_COUNT + bucketIndex % SUB_BUCKET_COUNT) << shift;
+    return lowestValue + ((1L << shift) - 1) / 2;
+  }
+
+  /**
+   * A {@link Snapshot} which computes percentiles from the bucket counts
+   */
+  private static class HistogramSnapshot extends Snapshot {
+    private final long[] counts;
+    private final long total;
+
+    HistogramSnapshot(List<Long> values, long min, long max, double sum, long[] counts, long total) {
+      super(values, min, max, sum, (int) Math.min(total, Integer.MAX_VALUE));
+      this.counts = counts;
+      this.total = total;
+    }
+
+    @Override
+    public long[] getPercentiles(double... percentiles) {
+      long[] result = new long[percentiles.length];
+      for (int i = 0; i < percentiles.length; i++) {
+        if (percentiles[i] <= 0 || percentiles[i] > 100) {
+          throw new IllegalArgumentException("Percentile must be in (0, 100], but is " + percentiles[i]);
+        }
+        long rank = Math.max((long) Math.ceil(percentiles[i] * total / 100), 1);
+        if (rank >= total) {
+          result[i] = getMax();
+          continue;
+        }
+        long cumulativeCount = 0;
+        int bucketIndex = 0;
+        while (bucketIndex < counts.length - 1 && (cumulativeCount += counts[bucketIndex]) < rank) {
+          bucketIndex++;
+        }
+        // the midpoint of a bucket may be outside of the recorded values
+        result[i] = Math.min(Math.max(bucketValue(bucketIndex), getMin()), getMax());
+      }
+      return result;
+    }
+  }
+
+  private static class Intervals {
+    private final Interval previous;
+    private final Interval current;
+    private final long currentStartMs;
+
+    Intervals(Interval previous, Interval current, long currentStartMs) {
+      this.previous = previous;
+      this.current = current;
+      this.currentStartMs = currentStartMs;
+    }
+  }
+
+  private static class Interval {
+    /**
+     * The buckets of each power of two range, allocated when the first value in the range is recorded
+     */
+    private final AtomicReferenceArray<AtomicLongArray> ranges = new AtomicReferenceArray<>(RANGE_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    void record(long value) {
+      int bucketIndex = bucketIndex(value);
+      int rangeIndex = bucketIndex >>> SUB_BUCKET_BITS;
+      AtomicLongArray range = ranges.get(rangeIndex);
+      if (range == null) {
+        ranges.compareAndSet(rangeIndex, null, new AtomicLongArray(SUB_BUCKET_COUNT));
+        range = ranges.get(rangeIndex);
+      }
+      range.incrementAndGet(bucketIndex & (SUB_BUCKET_COUNT - 1));
+      count.increment();
+      sum.add(value);
+      min.accumulate(value);
+      max.accumulate(value);
+    }
+
+    /**
+     * Add the bucket counts of this interval to {@code counts} and return their total
+     */
+    long addCounts(long[] counts) {
+      long total = 0;
+      for (int rangeIndex = 0; rangeIndex < RANGE_COUNT; rangeIndex++) {
+        AtomicLongArray range = ranges.get(rangeIndex);
+        if (range != null) {
+          for (int i = 0; i < SUB_BUCKET_COUNT; i++) {
+            long bucketCount = range.get(i);
+            counts[rangeIndex * SUB_BUCKET_COUNT + i] += bucketCount;
+            total += bucketCount;
+          }
+        }
+      }
+      return total;
+    }
+
+    /**
+     * Reset the interval so it can be reused, keeping the allocated buckets
+     */
+    void clear() {
+      for (int rangeIndex = 0; rangeIndex < RANGE_COUNT; rangeIndex++) {
+        AtomicLongArray range = ranges.get(rangeIndex);
+        if (range != null) {
+          for (int i = 0; i < SUB_BUCKET_COUNT; i++) {
+            range.set(i, 0);
+          }
+        }
+      }
+      count.reset();
+      sum.reset();
+      min.reset();
+      max.reset();
+    }
+  }
+}
@@ -21,6 +21,7 @@ package org.apache.samza.metrics;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 
 /**
  * A statistical snapshot of a collection of values
@@ -64,6 +65,17 @@ public class Snapshot {
     }
   }
 
+  /**
+   * Construct a snapshot with precomputed statistics, e.g., if the values are a sample of the recorded values.
+   */
+  Snapshot(Collection<Long> values, long min, long max, double sum, int size) {
+    this.values = new ArrayList<>(values);
+    this.min = min;
+    this.max = max;
+    this.sum = sum;
+    this.size = size;
+  }
+
   /**
    * Get the maximum value in the collection
    *
@@ -109,6 +121,30 @@ public class Snapshot {
     return size;
   }
 
+  /**
+   * Get the values at the given percentiles of the collection, using the nearest-rank method
+   *
+   * @param percentiles percentiles in (0, 100], e.g., 50, 99 and 99.9
+   * @return the value at each percentile, or 0 for each percentile if the collection is empty
+   */
+  public long[] getPercentiles(double... percentiles) {
+    long[] result = new long[percentiles.length];
+    if (values.isEmpty()) {
+      return result;
+    }
+
+    ArrayList<Long> sortedValues = new ArrayList<>(values);
+    Collections.sort(sortedValues);
+    for (int i = 0; i < percentiles.length; i++) {
+      if (percentiles[i] <= 0 || percentiles[i] > 100) {
+        throw new IllegalArgumentException("Percentile must be in (0, 100], but is " + percentiles[i]);
+      }
+      int rank = (int) Math.ceil(percentiles[i] * sortedValues.size() / 100);
+      result[i] = sortedValues.get(Math.max(rank, 1) - 1);
+    }
+    return result;
+  }
+
   /**
    * Return the entire list of values
    *
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link Counter} which spreads concurrent updates over the cells of a {@link LongAdder}, instead of a single atomic
+ * value. Counters which are updated by many threads, e.g. from task callbacks when job.container.thread.pool.size is
+ * greater than 1, don't contend on one cache line, at the cost of {@link #getCount()} summing all the cells.
+ * <p>
+ * Hot paths should update it with {@link #add(long)}, which only updates one cell. The count returned by
+ * {@link #inc(long)} and {@link #dec(long)} is summed after the update, so it includes concurrent updates of other
+ * threads, and reading it back costs as much as {@link #getCount()}. {@link #set(long)} and {@link #clear()} are not
+ * atomic with concurrent updates.
+ */
+public class StripedCounter extends Counter {
+  private final LongAdder count = new LongAdder();
+
+  public StripedCounter(String name) {
+    super(name);
+  }
+
+  @Override
+  public void add(long n) {
+    count.add(n);
+  }
+
+  @Override
+  public long inc(long n) {
+    count.add(n);
+    return count.sum();
+  }
+
+  @Override
+  public long dec(long n) {
+    count.add(0 - n);
+    return count.sum();
+  }
+
+  @Override
+  public void set(long n) {
+    count.reset();
+    count.add(n);
+  }
+
+  @Override
+  public void clear() {
+    count.reset();
+  }
+
+  @Override
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  public String toString() {
+    return count.toString();
+  }
+}
@@ -19,6 +19,8 @@
 
 package org.apache.samza.metrics;
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.samza.util.Clock;
 
 /**
@@ -29,6 +31,9 @@ public class Timer implements Metric {
 
   private final String name;
   private final Reservoir reservoir;
+  private final double samplingRate;
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
 
   /**
    * Default constructor. It uses {@link SlidingTimeWindowReservoir} as the
@@ -70,8 +75,25 @@ public class Timer implements Metric {
    * @param reservoir the given reservoir
    */
   public Timer(String name, Reservoir reservoir) {
+    this(name, reservoir, 1.0);
+  }
+
+  /**
+   * Construct a {@link Timer} with given {@link Reservoir} that only records a random sample of the durations.
+   * Sampling keeps the average and percentiles of the durations, at a fraction of the cost of recording them.
+   *
+   * @param name name of this timer
+   * @param reservoir the given reservoir
+   * @param samplingRate the fraction of the durations to record, in (0, 1]
+   */
+  public Timer(String name, Reservoir reservoir, double samplingRate) {
+    if (samplingRate <= 0 || samplingRate > 1) {
+      throw new IllegalArgumentException(
+          String.format("Sampling rate of timer %s must be in (0, 1], but is %s", name, samplingRate));
+    }
     this.name = name;
     this.reservoir = reservoir;
+    this.samplingRate = samplingRate;
   }
 
   /**
@@ -81,10 +103,34 @@ public class Timer implements Metric {
    */
   public void update(long duration) {
     if (duration > 0) {
-      reservoir.update(duration);
+      count.increment();
+      sum.add(duration);
+      if (samplingRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < samplingRate) {
+        reservoir.update(duration);
+      }
     }
   }
 
+  /**
+   * Get the number of durations added since this timer was created, including the ones which were not sampled.
+   * Unlike the size of the {@link Snapshot}, it never decreases.
+   *
+   * @return the cumulative number of durations
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Get the sum of the durations added since this timer was created, including the ones which were not sampled.
+   * Unlike the sum of the {@link Snapshot}, it never decreases.
+   *
+   * @return the cumulative sum of durations
+   */
+  public long getSum() {
+    return sum.sum();
+  }
+
   /**
    * Get the {@link Snapshot}
    *
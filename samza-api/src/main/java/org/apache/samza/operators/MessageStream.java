@@ -27,6 +27,7 @@ import org.apache.samza.annotation.InterfaceStability;
 import org.apache.samza.operators.functions.AsyncFlatMapFunction;
 import org.apache.samza.operators.functions.FilterFunction;
 import org.apache.samza.operators.functions.FlatMapFunction;
+import org.apache.samza.operators.functions.FoldLeftFunction;
 import org.apache.samza.operators.functions.JoinFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.SinkFunction;
@@ -280,6 +281,43 @@ public interface MessageStream<M> {
   <K, V> MessageStream<KV<K, V>> partitionBy(MapFunction<? super M, ? extends K> keyExtractor,
       MapFunction<? super M, ? extends V> valueExtractor, KVSerde<K, V> serde, String id);
 
+  /**
+   * Re-partitions this {@link MessageStream} like {@link #partitionBy(MapFunction, MapFunction, KVSerde, String)},
+   * but combines the values with the same key before sending them to the intermediate stream.
+   * <p>
+   * Each task keeps a partial aggregate per key in memory, which is updated with the {@code combiner} for each
+   * message, and sends the partial aggregates to the intermediate stream when the number of keys exceeds
+   * {@code job.intermediate.stream.combiner.max.keys}, every {@code job.intermediate.stream.combiner.flush.interval.ms},
+   * before each watermark and end-of-stream, and before each commit. This reduces the volume of the intermediate
+   * stream to at most one message per key and flush, for operators like counting by key.
+   * <p>
+   * The repartitioned stream contains the partial aggregates instead of the values of the messages, so the
+   * downstream operator needs to merge them, e.g., an aggregating window with a {@code FoldLeftFunction} that merges
+   * a partial aggregate into its window value:
+   * <pre> {@code
+   *    MessageStream<KV<String, Long>> partialCounts =
+   *        pageViews.partitionBy(pv -> pv.getUserId(), pv -> 1L, (count, partial) -> partial + count,
+   *            KVSerde.of(new StringSerde(), new LongSerde()), "partial-counts");
+   *    partialCounts.window(Windows.keyedTumblingWindow(kv -> kv.getKey(), Duration.ofMinutes(1), () -> 0L,
+   *        (kv, count) -> count + kv.getValue(), new StringSerde(), new LongSerde()), "counts");
+   * }
+   * </pre>
+   *
+   * @param keyExtractor the {@link MapFunction} to extract the message and partition key from the input message.
+   *                     Messages with a null key are all sent to partition 0.
+   * @param valueExtractor the {@link MapFunction} to extract the value from the input message
+   * @param combiner the {@link FoldLeftFunction} to combine a value into the partial aggregate for its key. The first
+   *                 value for a key since the last flush is used as its partial aggregate.
+   * @param serde the {@link KVSerde} to use for (de)serializing the key and the partial aggregate.
+   * @param id the unique id of this operator in this application
+   * @param <K> the type of output key
+   * @param <V> the type of output value, i.e. the partial aggregate
+   * @return the repartitioned {@link MessageStream} of partial aggregates
+   */
+  <K, V> MessageStream<KV<K, V>> partitionBy(MapFunction<? super M, ? extends K> keyExtractor,
+      MapFunction<? super M, ? extends V> valueExtractor, FoldLeftFunction<? super V, V> combiner,
+      KVSerde<K, V> serde, String id);
+
   /**
    * Allows sending messages in this {@link MessageStream} to a {@link Table} and then propagates this
    * {@link MessageStream} to the next chained operator. The type of input message is expected to be {@link KV},
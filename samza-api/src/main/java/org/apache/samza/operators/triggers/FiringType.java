@@ -20,7 +20,8 @@ package org.apache.samza.operators.triggers;
 
 /**
  * The type of the {@link org.apache.samza.operators.triggers.Trigger} firing.
- * Firings can be either early or late or default. Late triggers are not supported currently.
+ * Firings can be either early or late or default. Late firings only happen in event-time windows, for messages
+ * which arrive after the watermark passed the end of their window.
  */
 public enum FiringType {
   EARLY,
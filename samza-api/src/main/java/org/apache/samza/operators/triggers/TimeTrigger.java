@@ -21,15 +21,21 @@ package org.apache.samza.operators.triggers;
 import java.time.Duration;
 
 /*
- * A {@link Trigger} that fires after the specified duration in processing time.
+ * A {@link Trigger} that fires after the specified duration in processing time, or in event time when the watermark
+ * passes the end of the duration.
  */
 public class TimeTrigger<M> implements Trigger<M>, TimeBasedTrigger<M> {
 
   private final Duration duration;
-  private final DurationCharacteristic characteristic = DurationCharacteristic.PROCESSING_TIME;
+  private final DurationCharacteristic characteristic;
 
   public TimeTrigger(Duration duration) {
+    this(duration, DurationCharacteristic.PROCESSING_TIME);
+  }
+
+  public TimeTrigger(Duration duration, DurationCharacteristic characteristic) {
     this.duration = duration;
+    this.characteristic = characteristic;
   }
 
   @Override
@@ -19,6 +19,7 @@
 package org.apache.samza.operators.windows;
 
 import java.io.Serializable;
+import java.time.Duration;
 import org.apache.samza.annotation.InterfaceStability;
 import org.apache.samza.operators.triggers.Trigger;
 
@@ -105,4 +106,17 @@ public interface Window<M, K, WV> extends Serializable {
    * @return the {@link Window} function with {@code mode} set as its {@link AccumulationMode}.
    */
   Window<M, K, WV> setAccumulationMode(AccumulationMode mode);
+
+  /**
+   * Set how long after the end of an event-time window late messages are still added to the window, in event time.
+   * <p> A message is late if it arrives after the watermark passed the end of its window, i.e., after the default
+   * trigger of the window fired. Late messages are emitted in late {@link WindowPane}s, either when the late trigger
+   * fires, or for every late message if there is no late trigger. Messages which arrive after the watermark passed the
+   * end of their window plus the allowed lateness are dropped. The allowed lateness is zero by default, and has no
+   * effect on processing-time windows.
+   *
+   * @param allowedLateness the allowed lateness
+   * @return the {@link Window} function with the allowed lateness
+   */
+  Window<M, K, WV> setAllowedLateness(Duration allowedLateness);
 }
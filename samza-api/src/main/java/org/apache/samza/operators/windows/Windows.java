@@ -23,6 +23,7 @@ import org.apache.samza.annotation.InterfaceStability;
 import org.apache.samza.operators.functions.FoldLeftFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.SupplierFunction;
+import org.apache.samza.operators.triggers.DurationCharacteristic;
 import org.apache.samza.operators.triggers.TimeTrigger;
 import org.apache.samza.operators.triggers.Trigger;
 import org.apache.samza.operators.triggers.Triggers;
@@ -164,6 +165,77 @@ public final class Windows {
         keySerde, null, msgSerde);
   }
 
+  /**
+   * Creates a {@link Window} that groups incoming messages into fixed-size, non-overlapping event time based windows
+   * using the provided keyFn, and applies the provided fold function to them.
+   *
+   * <p> A message belongs to the window of its event time, as returned by the eventTimeFn. The default trigger of a
+   * window fires when the watermark passes the end of the window, so the windows are the same when messages are
+   * reprocessed at a different speed. See {@link Window#setAllowedLateness(Duration)} for messages which arrive after
+   * that.
+   *
+   * <p>The below example computes the maximum value per key over fixed size 10 second windows of event time.
+   *
+   * <pre> {@code
+   *    MessageStream<UserClick> stream = ...;
+   *    MapFunction<UserClick, String> keyFn = ...;
+   *    MapFunction<UserClick, Long> eventTimeFn = ...;
+   *    SupplierFunction<Integer> initialValue = () -> 0;
+   *    FoldLeftFunction<UserClick, Integer, Integer> maxAggregator = (m, c) -> Math.max(parseInt(m), c);
+   *    MessageStream<WindowPane<String, Integer>> windowedStream = stream.window(
+   *        Windows.keyedEventTimeTumblingWindow(keyFn, eventTimeFn, Duration.ofSeconds(10), initialValue,
+   *            maxAggregator));
+   * }
+   * </pre>
+   *
+   * @param keyFn the function to extract the window key from a message
+   * @param eventTimeFn the function to extract the event time from a message, in epoch milliseconds
+   * @param interval the duration in event time
+   * @param initialValue the initial value supplier for the aggregator. Invoked when a new window is created.
+   * @param aggregator the function to incrementally update the window value. Invoked when a new message
+   *                   arrives for the window.
+   * @param keySerde the serde for the window key
+   * @param windowValueSerde the serde for the window value
+   * @param <M> the type of the input message
+   * @param <WV> the type of the {@link WindowPane} output value
+   * @param <K> the type of the key in the {@link Window}
+   * @return the created {@link Window} function.
+   */
+  public static <M, K, WV> Window<M, K, WV> keyedEventTimeTumblingWindow(MapFunction<? super M, ? extends K> keyFn,
+      MapFunction<? super M, Long> eventTimeFn, Duration interval, SupplierFunction<? extends WV> initialValue,
+      FoldLeftFunction<? super M, WV> aggregator, Serde<K> keySerde, Serde<WV> windowValueSerde) {
+
+    Trigger<M> defaultTrigger = new TimeTrigger<>(interval, DurationCharacteristic.EVENT_TIME);
+    return new WindowInternal<>(defaultTrigger, (SupplierFunction<WV>) initialValue, (FoldLeftFunction<M, WV>) aggregator,
+        (MapFunction<M, K>) keyFn, (MapFunction<M, Long>) eventTimeFn, WindowType.TUMBLING, keySerde, windowValueSerde,
+        null);
+  }
+
+  /**
+   * Creates a {@link Window} that groups incoming messages into fixed-size, non-overlapping event time based windows
+   * using the provided keyFn.
+   *
+   * <p> A message belongs to the window of its event time, as returned by the eventTimeFn. The default trigger of a
+   * window fires when the watermark passes the end of the window. See {@link Window#setAllowedLateness(Duration)} for
+   * messages which arrive after that.
+   *
+   * @param keyFn function to extract key from the message
+   * @param eventTimeFn the function to extract the event time from a message, in epoch milliseconds
+   * @param interval the duration in event time
+   * @param keySerde the serde for the window key
+   * @param msgSerde the serde for the input message
+   * @param <M> the type of the input message
+   * @param <K> the type of the key in the {@link Window}
+   * @return the created {@link Window} function
+   */
+  public static <M, K> Window<M, K, Collection<M>> keyedEventTimeTumblingWindow(MapFunction<M, K> keyFn,
+      MapFunction<M, Long> eventTimeFn, Duration interval, Serde<K> keySerde, Serde<M> msgSerde) {
+
+    Trigger<M> defaultTrigger = new TimeTrigger<>(interval, DurationCharacteristic.EVENT_TIME);
+    return new WindowInternal<>(defaultTrigger, null, null, keyFn, eventTimeFn, WindowType.TUMBLING,
+        keySerde, null, msgSerde);
+  }
+
   /**
    * Creates a {@link Window} that windows values into fixed-size processing time based windows and aggregates
    * them applying the provided function.
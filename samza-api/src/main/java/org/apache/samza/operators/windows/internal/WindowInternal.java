@@ -17,6 +17,7 @@
  * under the License.
  */
 package org.apache.samza.operators.windows.internal;
+import java.time.Duration;
 import org.apache.samza.annotation.InterfaceStability;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.SupplierFunction;
@@ -70,6 +71,7 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
   private Trigger<M> earlyTrigger;
   private Trigger<M> lateTrigger;
   private AccumulationMode mode;
+  private Duration allowedLateness = Duration.ZERO;
 
   /**
    * The following {@link Serde}s are serialized by the ExecutionPlanner when generating the store configs, and deserialized
@@ -165,6 +167,10 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
     return mode;
   }
 
+  public Duration getAllowedLateness() {
+    return allowedLateness;
+  }
+
   @Override
   public Window<M, WK, WV> setEarlyTrigger(Trigger<M> trigger) {
     this.earlyTrigger = trigger;
@@ -182,4 +188,13 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
     this.mode = mode;
     return this;
   }
+
+  @Override
+  public Window<M, WK, WV> setAllowedLateness(Duration allowedLateness) {
+    if (allowedLateness == null || allowedLateness.isNegative()) {
+      throw new IllegalArgumentException("Allowed lateness must not be null or negative");
+    }
+    this.allowedLateness = allowedLateness;
+    return this;
+  }
 }
@@ -41,4 +41,17 @@ public interface CallbackScheduler {
    * @param <K> type of the key
    */
   <K> void deleteCallback(K key);
+
+  /**
+   * Set the callback for all keys, if the callbacks are kept in a durable timer store (see task.timer.store).
+   * Such callbacks are kept without their {@link ScheduledCallback}, so they are invoked with this one, including the
+   * callbacks scheduled before a restart of the task. It should be set when the task is initialized; otherwise the
+   * {@link ScheduledCallback} of the first callback scheduled is used. Scheduling a callback with a different
+   * {@link ScheduledCallback} then fails with an {@link IllegalArgumentException}.
+   * Does nothing if callbacks are not kept in a durable timer store.
+   * @param callback callback to run for all keys
+   * @param <K> type of the keys
+   */
+  default <K> void setDurableCallback(ScheduledCallback<K> callback) {
+  }
 }
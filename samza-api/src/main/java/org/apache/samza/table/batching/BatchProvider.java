@@ -29,6 +29,24 @@ public abstract class BatchProvider<K, V> implements TablePart, Serializable {
 
   private int maxBatchSize = 100;
   private Duration maxBatchDelay = Duration.ofMillis(100);
+  private boolean adaptiveBatching = false;
+  private int minBatchSize = 1;
+  private Duration minBatchDelay = Duration.ofMillis(1);
+  private Duration targetBatchLatency = Duration.ofMillis(100);
+
+  /**
+   * Create a batch with the specified capacity and max delay. This is used by adaptive
+   * batching, where the capacity and delay of each batch are tuned at runtime.
+   * By default, the batch created by {@link #getBatch()} is closed once it reaches
+   * the specified capacity; providers can override this to create the batch directly.
+   *
+   * @param maxBatchSize The capacity of the batch.
+   * @param maxBatchDelay The max delay of the batch.
+   * @return A new batch.
+   */
+  public Batch<K, V> getBatch(int maxBatchSize, Duration maxBatchDelay) {
+    return new ResizedBatch<>(getBatch(), maxBatchSize, maxBatchDelay);
+  }
 
   public BatchProvider<K, V> withMaxBatchSize(int maxBatchSize) {
     this.maxBatchSize = maxBatchSize;
@@ -40,6 +58,46 @@ public abstract class BatchProvider<K, V> implements TablePart, Serializable {
     return this;
   }
 
+  /**
+   * Enable adaptive batching. The batch size and delay start at their configured
+   * max values and are then tuned from the observed batch latencies: the batch size is
+   * increased additively while batches fill up within the target latency, and is
+   * decreased multiplicatively when a batch takes longer than the target latency.
+   * The batch delay is decreased when batches are closed by the timer before filling up,
+   * and increased again when batches fill up. The max batch size and delay set by
+   * {@link #withMaxBatchSize(int)} and {@link #withMaxBatchDelay(Duration)} are the
+   * upper bounds.
+   *
+   * @param minBatchSize Lower bound of the batch size.
+   * @param minBatchDelay Lower bound of the batch delay.
+   * @param targetBatchLatency The batch latency above which the batch size is reduced.
+   * @return This batch provider.
+   */
+  public BatchProvider<K, V> withAdaptiveBatching(int minBatchSize, Duration minBatchDelay,
+      Duration targetBatchLatency) {
+    this.adaptiveBatching = true;
+    this.minBatchSize = minBatchSize;
+    this.minBatchDelay = minBatchDelay;
+    this.targetBatchLatency = targetBatchLatency;
+    return this;
+  }
+
+  public boolean isAdaptiveBatching() {
+    return adaptiveBatching;
+  }
+
+  public int getMinBatchSize() {
+    return minBatchSize;
+  }
+
+  public Duration getMinBatchDelay() {
+    return minBatchDelay;
+  }
+
+  public Duration getTargetBatchLatency() {
+    return targetBatchLatency;
+  }
+
   public int getMaxBatchSize() {
     return maxBatchSize;
   }
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.table.batching;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * A {@link Batch} which is closed at a smaller capacity and delay than the batch it wraps.
+ * This is used by {@link BatchProvider#getBatch(int, Duration)} for batch providers which only
+ * create batches with their configured capacity and delay.
+ *
+ * @param <K> The type of the key associated with the {@link Operation}
+ * @param <V> The type of the value associated with the {@link Operation}
+ */
+class ResizedBatch<K, V> implements Batch<K, V> {
+  private final Batch<K, V> batch;
+  private final int maxBatchSize;
+  private final Duration maxBatchDelay;
+
+  ResizedBatch(Batch<K, V> batch, int maxBatchSize, Duration maxBatchDelay) {
+    this.batch = batch;
+    this.maxBatchSize = Math.min(maxBatchSize, batch.getMaxBatchSize());
+    this.maxBatchDelay = maxBatchDelay.compareTo(batch.getMaxBatchDelay()) < 0
+        ? maxBatchDelay : batch.getMaxBatchDelay();
+  }
+
+  @Override
+  public CompletableFuture<Void> addOperation(Operation<K, V> operation) {
+    CompletableFuture<Void> future = batch.addOperation(operation);
+    if (batch.size() >= maxBatchSize) {
+      batch.close();
+    }
+    return future;
+  }
+
+  @Override
+  public void close() {
+    batch.close();
+  }
+
+  @Override
+  public boolean isClosed() {
+    return batch.isClosed();
+  }
+
+  @Override
+  public Collection<Operation<K, V>> getOperations() {
+    return batch.getOperations();
+  }
+
+  @Override
+  public Duration getMaxBatchDelay() {
+    return maxBatchDelay;
+  }
+
+  @Override
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  @Override
+  public void complete() {
+    batch.complete();
+  }
+
+  @Override
+  public void completeExceptionally(Throwable throwable) {
+    batch.completeExceptionally(throwable);
+  }
+
+  @Override
+  public int size() {
+    return batch.size();
+  }
+}
@@ -45,6 +45,9 @@ public class CachingTableDescriptor<K, V> extends HybridTableDescriptor<K, V, Ca
   public static final String WRITE_TTL_MS = "writeTtl";
   public static final String CACHE_SIZE = "cacheSize";
   public static final String WRITE_AROUND = "writeAround";
+  public static final String REFRESH_AFTER_WRITE_MS = "refreshAfterWrite";
+  public static final String NEGATIVE_TTL_MS = "negativeTtl";
+  public static final String TTL_JITTER = "ttlJitter";
 
   private Duration readTtl;
   private Duration writeTtl;
@@ -52,6 +55,9 @@ public class CachingTableDescriptor<K, V> extends HybridTableDescriptor<K, V, Ca
   private TableDescriptor<K, V, ?> cache;
   private TableDescriptor<K, V, ?> table;
   private boolean isWriteAround;
+  private Duration refreshAfterWrite;
+  private Duration negativeTtl;
+  private double ttlJitter;
 
   /**
    * Constructs a table descriptor instance with internal cache
@@ -134,6 +140,45 @@ public class CachingTableDescriptor<K, V> extends HybridTableDescriptor<K, V, Ca
     return this;
   }
 
+  /**
+   * Specify the interval after which a cached record is refreshed from the table,
+   * ie. a record read after the interval since its last write is still served
+   * from the cache while an asynchronous reload of the key is issued. This
+   * avoids paying the full table latency when a frequently read record expires.
+   * When a write TTL is specified, the refresh interval should be shorter than it.
+   * @param refreshAfterWrite refresh interval
+   * @return this descriptor
+   */
+  public CachingTableDescriptor<K, V> withRefreshAfterWrite(Duration refreshAfterWrite) {
+    this.refreshAfterWrite = refreshAfterWrite;
+    return this;
+  }
+
+  /**
+   * Specify the TTL for negative results, ie. a key that does not exist in the
+   * table is not looked up again until the TTL duration has passed, unless
+   * it is written through this table in the meantime.
+   * @param negativeTtl negative result TTL
+   * @return this descriptor
+   */
+  public CachingTableDescriptor<K, V> withNegativeTtl(Duration negativeTtl) {
+    this.negativeTtl = negativeTtl;
+    return this;
+  }
+
+  /**
+   * Specify the ratio by which refresh and negative result deadlines are randomly
+   * shortened, so that records loaded at the same time are not reloaded at the
+   * same time. For example, with a ratio of 0.1 and a refresh interval of 10 minutes
+   * each record is refreshed after 9 to 10 minutes.
+   * @param ttlJitter jitter ratio in [0, 1)
+   * @return this descriptor
+   */
+  public CachingTableDescriptor<K, V> withTtlJitter(double ttlJitter) {
+    this.ttlJitter = ttlJitter;
+    return this;
+  }
+
   @Override
   public String getProviderFactoryClassName() {
     return PROVIDER_FACTORY_CLASS_NAME;
@@ -161,6 +206,16 @@ public class CachingTableDescriptor<K, V> extends HybridTableDescriptor<K, V, Ca
     addTableConfig(REAL_TABLE_ID, table.getTableId(), tableConfig);
     addTableConfig(WRITE_AROUND, String.valueOf(isWriteAround), tableConfig);
 
+    if (refreshAfterWrite != null) {
+      addTableConfig(REFRESH_AFTER_WRITE_MS, String.valueOf(refreshAfterWrite.toMillis()), tableConfig);
+    }
+    if (negativeTtl != null) {
+      addTableConfig(NEGATIVE_TTL_MS, String.valueOf(negativeTtl.toMillis()), tableConfig);
+    }
+    if (ttlJitter > 0) {
+      addTableConfig(TTL_JITTER, String.valueOf(ttlJitter), tableConfig);
+    }
+
     return Collections.unmodifiableMap(tableConfig);
   }
 
@@ -173,5 +228,10 @@ public class CachingTableDescriptor<K, V> extends HybridTableDescriptor<K, V, Ca
       Preconditions.checkArgument(readTtl == null && writeTtl == null && cacheSize == 0,
           "Invalid to specify both {cache} and {readTtl|writeTtl|cacheSize} at the same time.");
     }
+    if (refreshAfterWrite != null && writeTtl != null) {
+      Preconditions.checkArgument(refreshAfterWrite.compareTo(writeTtl) < 0,
+          "refreshAfterWrite must be shorter than writeTtl.");
+    }
+    Preconditions.checkArgument(ttlJitter >= 0.0 && ttlJitter < 1.0, "ttlJitter must be in [0, 1).");
   }
 }
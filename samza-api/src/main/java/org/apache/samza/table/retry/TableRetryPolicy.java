@@ -37,6 +37,7 @@ import org.apache.samza.table.utils.SerdeUtils;
  *  - backoff modes: fixed, random, exponential
  *  - termination modes: by attempts, by duration
  *  - jitter
+ *  - hedged requests (read policy only)
  *
  * Retry libraries can implement a subset or all features as described by this common policy.
  */
@@ -79,6 +80,10 @@ public class TableRetryPolicy implements TablePart, Serializable {
   // By default no backoff during retries
   private BackoffType backoffType = BackoffType.NONE;
 
+  // By default no hedged requests
+  private Duration minHedgeDelay = null;
+  private double maxHedgeRatio;
+
   /**
    * Serializable adapter interface for {@link java.util.function.Predicate}.
    * This is needed because TableRetryPolicy needs to be serializable as part of the
@@ -188,6 +193,24 @@ public class TableRetryPolicy implements TablePart, Serializable {
     return this;
   }
 
+  /**
+   * Enable hedged requests. If an attempt has not completed after the observed 95th percentile
+   * latency of the table (but no earlier than {@code minHedgeDelay}), a duplicate attempt is issued
+   * and the result of whichever completes first is used, the other one is cancelled. The number of
+   * hedged requests is capped at {@code maxHedgeRatio} of all requests to bound the extra load.
+   * Hedging only applies to the read retry policy of a table, as reads are idempotent.
+   * @param minHedgeDelay minimum delay before issuing a hedged request
+   * @param maxHedgeRatio maximum ratio of hedged requests to all requests, in (0, 1]
+   * @return this policy instance
+   */
+  public TableRetryPolicy withHedging(Duration minHedgeDelay, double maxHedgeRatio) {
+    Preconditions.checkNotNull(minHedgeDelay);
+    Preconditions.checkArgument(maxHedgeRatio > 0 && maxHedgeRatio <= 1, "maxHedgeRatio must be in (0, 1]");
+    this.minHedgeDelay = minHedgeDelay;
+    this.maxHedgeRatio = maxHedgeRatio;
+    return this;
+  }
+
   /**
    * @return initial/fixed sleep time.
    */
@@ -254,6 +277,20 @@ public class TableRetryPolicy implements TablePart, Serializable {
     return backoffType;
   }
 
+  /**
+   * @return minimum delay before issuing a hedged request or null if hedging is not enabled.
+   */
+  public Duration getMinHedgeDelay() {
+    return minHedgeDelay;
+  }
+
+  /**
+   * @return maximum ratio of hedged requests to all requests.
+   */
+  public double getMaxHedgeRatio() {
+    return maxHedgeRatio;
+  }
+
   /**
    * @return Custom predicate for retriable exception identification or null if not specified.
    */
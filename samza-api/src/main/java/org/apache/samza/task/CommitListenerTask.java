@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.task;
+
+/**
+ * The CommitListenerTask augments {@link StreamTask} and {@link AsyncStreamTask} allowing the method implementor to
+ * specify code to be executed before the task commits, e.g. to send the messages it buffered in memory. Messages sent
+ * then are flushed as part of the commit, so they aren't lost if the task restarts from the committed offsets.
+ */
+public interface CommitListenerTask {
+
+  /**
+   * Invoked in a commit after the offsets of the task's input to checkpoint are captured, and before the output is
+   * flushed. Unless task.async.commit is enabled, no messages are being processed by the task when it's invoked.
+   * Otherwise, it may also send messages of processing which completed after the offsets were captured.
+   *
+   * @param collector Contains the means of sending message envelopes to an output stream.
+   *
+   * @throws Exception Any exception types encountered before the commit.
+   */
+  void beforeCommit(MessageCollector collector) throws Exception;
+}
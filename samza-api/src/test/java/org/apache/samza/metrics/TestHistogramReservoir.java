@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics;
+
+import java.util.Arrays;
+import org.apache.samza.util.Clock;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class TestHistogramReservoir {
+
+  private final Clock clock = mock(Clock.class);
+
+  @Test
+  public void testBucketValueIsWithinRelativeErrorOfValue() {
+    for (long value : Arrays.asList(0L, 1L, 31L, 32L, 33L, 100L, 1000L, 123456L, 987654321L, Long.MAX_VALUE / 3)) {
+      long bucketValue = HistogramReservoir.bucketValue(HistogramReservoir.bucketIndex(value));
+      assertTrue("value " + value + " bucket value " + bucketValue,
+          Math.abs(bucketValue - value) <= value / 32.0);
+    }
+  }
+
+  @Test
+  public void testUpdateAndGetSnapshot() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HistogramReservoir reservoir = new HistogramReservoir(300, clock);
+    reservoir.update(1L);
+    reservoir.update(2L);
+    reservoir.update(1000L);
+
+    assertEquals(3, reservoir.size());
+    Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(3, snapshot.getSize());
+    assertEquals(1, snapshot.getMin());
+    assertEquals(1000, snapshot.getMax());
+    assertEquals(1003.0 / 3, snapshot.getAverage(), 0.0001);
+    assertEquals(3, snapshot.getValues().size());
+    assertTrue(snapshot.getValues().containsAll(Arrays.asList(1L, 2L)));
+  }
+
+  @Test
+  public void testValuesExpireAfterWindow() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HistogramReservoir reservoir = new HistogramReservoir(300, clock);
+    reservoir.update(1L);
+
+    // the value stays in the previous interval
+    when(clock.currentTimeMillis()).thenReturn(200L);
+    reservoir.update(2L);
+    assertEquals(2, reservoir.size());
+
+    when(clock.currentTimeMillis()).thenReturn(360L);
+    assertEquals(1, reservoir.size());
+    assertEquals(Arrays.asList(2L), reservoir.getSnapshot().getValues());
+
+    when(clock.currentTimeMillis()).thenReturn(1000L);
+    assertEquals(0, reservoir.size());
+    assertEquals(0, reservoir.getSnapshot().getSize());
+  }
+
+  @Test
+  public void testExpiredIntervalIsReused() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HistogramReservoir reservoir = new HistogramReservoir(300, clock);
+    reservoir.update(1L);
+
+    when(clock.currentTimeMillis()).thenReturn(200L);
+    reservoir.update(2L);
+
+    // the interval holding 1 is cleared and records 3
+    when(clock.currentTimeMillis()).thenReturn(360L);
+    reservoir.update(3L);
+    assertEquals(2, reservoir.size());
+    Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(Arrays.asList(2L, 3L), snapshot.getValues());
+    assertEquals(2, snapshot.getMin());
+    assertEquals(3, snapshot.getMax());
+    assertEquals(2.5, snapshot.getAverage(), 0.0001);
+  }
+
+  @Test
+  public void testSnapshotValuesAreDownsampled() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HistogramReservoir reservoir = new HistogramReservoir(300, clock);
+    for (long value = 1; value <= 100000; value++) {
+      reservoir.update(value);
+    }
+
+    Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(100000, snapshot.getSize());
+    assertEquals(HistogramReservoir.MAX_SNAPSHOT_VALUES, snapshot.getValues().size());
+    assertEquals(50000.5, snapshot.getAverage(), 0.0001);
+    assertEquals(50000, snapshot.getValues().get(HistogramReservoir.MAX_SNAPSHOT_VALUES / 2), 50000 / 32.0);
+  }
+
+  @Test
+  public void testPercentilesAreComputedFromAllBuckets() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HistogramReservoir reservoir = new HistogramReservoir(300, clock);
+    for (long value = 1; value <= 100000; value++) {
+      reservoir.update(value);
+    }
+
+    long[] percentiles = reservoir.getSnapshot().getPercentiles(50, 99, 99.99, 100);
+    assertEquals(50000, percentiles[0], 50000 / 32.0);
+    assertEquals(99000, percentiles[1], 99000 / 32.0);
+    assertEquals(99990, percentiles[2], 99990 / 32.0);
+    // percentiles are within the recorded values
+    assertEquals(100000, percentiles[3]);
+  }
+}
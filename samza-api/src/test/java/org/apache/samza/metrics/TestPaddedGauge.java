@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestPaddedGauge {
+
+  @Test
+  public void testSetAndCompareAndSet() {
+    PaddedGauge<Long> gauge = new PaddedGauge<>("test", 1L);
+    assertEquals(Long.valueOf(1L), gauge.getValue());
+    assertEquals(Long.valueOf(1L), gauge.set(2L));
+    assertTrue(gauge.compareAndSet(2L, 3L));
+    assertFalse(gauge.compareAndSet(2L, 4L));
+    assertEquals("3", gauge.toString());
+    assertEquals("test", gauge.getName());
+  }
+}
@@ -23,6 +23,7 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -44,4 +45,16 @@ public class TestSnapshot {
     assertEquals(0, emptySnapshot.getSum(), 0);
     assertEquals(0, emptySnapshot.getSize());
   }
+
+  @Test
+  public void testGetPercentiles() {
+    List<Long> values = new ArrayList<>();
+    for (long value = 1000; value > 0; value--) {
+      values.add(value);
+    }
+    Snapshot snapshot = new Snapshot(values);
+    assertArrayEquals(new long[] {1, 500, 990, 999, 1000}, snapshot.getPercentiles(0.1, 50, 99, 99.9, 100));
+
+    assertArrayEquals(new long[] {0, 0}, new Snapshot(new ArrayList<>()).getPercentiles(50, 99));
+  }
 }
@@ -68,4 +68,31 @@ public class TestTimer {
     assertTrue(snapshot2.getValues().containsAll(Arrays.asList(3L, 4L)));
     assertEquals(2, snapshot2.getValues().size());
   }
+
+  @Test
+  public void testSamplingRateMustBeInRange() {
+    Reservoir reservoir = new SlidingTimeWindowReservoir(300, clock);
+    for (double samplingRate : new double[] {0, -0.5, 1.5}) {
+      try {
+        new Timer("test", reservoir, samplingRate);
+        fail("Expected IllegalArgumentException for sampling rate " + samplingRate);
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testSampledTimerRecordsFractionOfDurations() {
+    Timer timer = new Timer("test", new HistogramReservoir(300000, () -> 0L), 0.1);
+    for (int i = 0; i < 10000; i++) {
+      timer.update(1L);
+    }
+
+    int size = timer.getSnapshot().getSize();
+    assertTrue("recorded " + size, size > 500 && size < 1500);
+    // the cumulative count and sum include the durations which were not sampled
+    assertEquals(10000, timer.getCount());
+    assertEquals(10000, timer.getSum());
+  }
 }
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.checkpoint;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.SamzaException;
+import org.apache.samza.container.TaskName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Batches the checkpoint writes of tasks which commit concurrently, so that they are written to the
+ * {@link CheckpointManager} with a single {@link CheckpointManager#writeCheckpoints(Map)} call, e.g. with a single
+ * producer flush, instead of one flush per task.
+ * <p>
+ * {@link #write(TaskName, Checkpoint)} still blocks until the checkpoint is written, so the rest of the commit of a task
+ * only happens after its checkpoint is durable. The first task to write a checkpoint writes the batch of all pending
+ * checkpoints, after waiting up to the max wait time for more checkpoints, while tasks which commit in the meantime
+ * wait for the batch, or for the next one. Checkpoints are only batched if tasks commit in parallel, i.e. if
+ * job.container.thread.pool.size is greater than 1.
+ */
+public class CheckpointWriteBatcher {
+  private static final Logger LOG = LoggerFactory.getLogger(CheckpointWriteBatcher.class);
+
+  private final CheckpointManager checkpointManager;
+  private final long maxWaitMs;
+  private final OffsetManagerMetrics metrics;
+
+  private final Object lock = new Object();
+  // guarded by lock
+  private Map<TaskName, PendingWrite> pendingWrites = new LinkedHashMap<>();
+  // guarded by lock
+  private boolean writing = false;
+
+  public CheckpointWriteBatcher(CheckpointManager checkpointManager, long maxWaitMs, OffsetManagerMetrics metrics) {
+    this.checkpointManager = checkpointManager;
+    this.maxWaitMs = maxWaitMs;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Write the checkpoint of the task, together with the checkpoints of other tasks which are written at the same time.
+   *
+   * @param taskName the task of the checkpoint
+   * @param checkpoint the checkpoint to write
+   * @throws SamzaException if the batch with the checkpoint could not be written
+   * @throws InterruptedException if interrupted while waiting for the checkpoint to be written
+   */
+  public void write(TaskName taskName, Checkpoint checkpoint) throws InterruptedException {
+    PendingWrite pendingWrite = new PendingWrite(checkpoint, System.nanoTime());
+    boolean writeBatch;
+    synchronized (lock) {
+      PendingWrite previous = pendingWrites.put(taskName, pendingWrite);
+      if (previous != null) {
+        // a task commits one at a time, but if it didn't, the newer checkpoint replaces the older one
+        previous.superseded = pendingWrite;
+      }
+      while (writing && !pendingWrite.isDone()) {
+        lock.wait();
+      }
+      writeBatch = !pendingWrite.isDone();
+      writing = writing || writeBatch;
+    }
+
+    if (writeBatch) {
+      writeBatch();
+    }
+    synchronized (lock) {
+      Throwable error = pendingWrite.completed().error;
+      if (error != null) {
+        throw new SamzaException("Failed to write the checkpoint for task " + taskName, error);
+      }
+    }
+  }
+
+  /**
+   * Write all pending checkpoints, after waiting for more tasks to commit. Only one thread writes a batch at a time.
+   */
+  private void writeBatch() throws InterruptedException {
+    Map<TaskName, PendingWrite> batch = null;
+    Throwable error = null;
+    try {
+      if (maxWaitMs > 0) {
+        TimeUnit.MILLISECONDS.sleep(maxWaitMs);
+      }
+      synchronized (lock) {
+        batch = pendingWrites;
+        pendingWrites = new LinkedHashMap<>();
+      }
+
+      long startNs = System.nanoTime();
+      Map<TaskName, Checkpoint> checkpoints = new LinkedHashMap<>();
+      batch.forEach((taskName, pendingWrite) -> {
+        metrics.checkpointBatchWaitNs().update(startNs - pendingWrite.createdNs);
+        checkpoints.put(taskName, pendingWrite.checkpoint);
+      });
+      LOG.debug("Writing a batch of {} checkpoints.", checkpoints.size());
+      checkpointManager.writeCheckpoints(checkpoints);
+      metrics.checkpointWriteNs().update(System.nanoTime() - startNs);
+      metrics.checkpointBatches().inc();
+      metrics.checkpointBatchSize().set(checkpoints.size());
+    } catch (InterruptedException e) {
+      throw e;
+    } catch (Throwable t) {
+      // reported to all tasks of the batch, including this one
+      error = t;
+    } finally {
+      synchronized (lock) {
+        if (batch == null) {
+          // interrupted before taking the batch, so the pending checkpoints are written by the next writer
+          batch = new LinkedHashMap<>();
+        }
+        for (PendingWrite pendingWrite : batch.values()) {
+          pendingWrite.complete(error);
+        }
+        writing = false;
+        lock.notifyAll();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  int getPendingWriteCount() {
+    synchronized (lock) {
+      return pendingWrites.size();
+    }
+  }
+
+  private static class PendingWrite {
+    private final Checkpoint checkpoint;
+    private final long createdNs;
+    // guarded by the lock of the batcher
+    private boolean done = false;
+    private Throwable error;
+    private PendingWrite superseded;
+
+    PendingWrite(Checkpoint checkpoint, long createdNs) {
+      this.checkpoint = checkpoint;
+      this.createdNs = createdNs;
+    }
+
+    void complete(Throwable error) {
+      this.done = true;
+      this.error = error;
+    }
+
+    boolean isDone() {
+      return completed() != null;
+    }
+
+    /**
+     * Return this write, or the write which superseded it, if it's done
+     */
+    PendingWrite completed() {
+      if (done) {
+        return this;
+      }
+      return superseded != null ? superseded.completed() : null;
+    }
+  }
+}
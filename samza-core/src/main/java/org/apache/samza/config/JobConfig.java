@@ -63,7 +63,22 @@ public class JobConfig extends MapConfig {
   public static final String JOB_CONTAINER_COUNT = "job.container.count";
   static final int DEFAULT_JOB_CONTAINER_COUNT = 1;
   public static final String JOB_CONTAINER_THREAD_POOL_SIZE = "job.container.thread.pool.size";
+  // run tasks on virtual threads instead of the container thread pool, if the JVM supports virtual threads
+  public static final String JOB_CONTAINER_THREAD_POOL_VIRTUAL_ENABLED = "job.container.thread.pool.virtual.enabled";
   public static final String JOB_INTERMEDIATE_STREAM_PARTITIONS = "job.intermediate.stream.partitions";
+  // watermarks sent to intermediate streams are coalesced until both the interval and the advance are reached
+  public static final String JOB_INTERMEDIATE_STREAM_WATERMARK_MIN_INTERVAL_MS =
+      "job.intermediate.stream.watermark.min.interval.ms";
+  static final long DEFAULT_INTERMEDIATE_STREAM_WATERMARK_MIN_INTERVAL_MS = 0;
+  public static final String JOB_INTERMEDIATE_STREAM_WATERMARK_MIN_ADVANCE_MS =
+      "job.intermediate.stream.watermark.min.advance.ms";
+  static final long DEFAULT_INTERMEDIATE_STREAM_WATERMARK_MIN_ADVANCE_MS = 0;
+  // partitionBy operators with a combiner flush their partial aggregates on this many keys, or after this interval
+  public static final String JOB_INTERMEDIATE_STREAM_COMBINER_MAX_KEYS = "job.intermediate.stream.combiner.max.keys";
+  static final int DEFAULT_INTERMEDIATE_STREAM_COMBINER_MAX_KEYS = 10000;
+  public static final String JOB_INTERMEDIATE_STREAM_COMBINER_FLUSH_INTERVAL_MS =
+      "job.intermediate.stream.combiner.flush.interval.ms";
+  static final long DEFAULT_INTERMEDIATE_STREAM_COMBINER_FLUSH_INTERVAL_MS = 1000;
 
   public static final String JOB_DEBOUNCE_TIME_MS = "job.debounce.time.ms";
   static final int DEFAULT_DEBOUNCE_TIME_MS = 20000;
@@ -321,10 +336,62 @@ public class JobConfig extends MapConfig {
     }
   }
 
+  public boolean getThreadPoolVirtualEnabled() {
+    return getBoolean(JOB_CONTAINER_THREAD_POOL_VIRTUAL_ENABLED, false);
+  }
+
   public int getDebounceTimeMs() {
     return getInt(JOB_DEBOUNCE_TIME_MS, DEFAULT_DEBOUNCE_TIME_MS);
   }
 
+  /**
+   * Get the minimum time between two watermarks sent by a task to an intermediate stream. Watermarks within the
+   * interval are suppressed, and the latest of them is sent with the next watermark after the interval.
+   *
+   * @return the minimum interval in milliseconds, or 0 if every watermark is sent
+   */
+  public long getIntermediateStreamWatermarkMinIntervalMs() {
+    return getLong(JOB_INTERMEDIATE_STREAM_WATERMARK_MIN_INTERVAL_MS,
+        DEFAULT_INTERMEDIATE_STREAM_WATERMARK_MIN_INTERVAL_MS);
+  }
+
+  /**
+   * Get the minimum advance of a watermark sent by a task to an intermediate stream over the previously sent
+   * watermark. Watermarks which advance less are suppressed.
+   *
+   * @return the minimum advance in milliseconds, or 0 if every watermark is sent
+   */
+  public long getIntermediateStreamWatermarkMinAdvanceMs() {
+    return getLong(JOB_INTERMEDIATE_STREAM_WATERMARK_MIN_ADVANCE_MS,
+        DEFAULT_INTERMEDIATE_STREAM_WATERMARK_MIN_ADVANCE_MS);
+  }
+
+  /**
+   * Get the maximum number of keys for which a partitionBy operator with a combiner keeps partial aggregates in
+   * memory, before it sends them to the intermediate stream.
+   *
+   * @return the maximum number of keys
+   */
+  public int getIntermediateStreamCombinerMaxKeys() {
+    int maxKeys = getInt(JOB_INTERMEDIATE_STREAM_COMBINER_MAX_KEYS, DEFAULT_INTERMEDIATE_STREAM_COMBINER_MAX_KEYS);
+    if (maxKeys < 1) {
+      throw new ConfigException(
+          String.format("%s must be at least 1, but is %d", JOB_INTERMEDIATE_STREAM_COMBINER_MAX_KEYS, maxKeys));
+    }
+    return maxKeys;
+  }
+
+  /**
+   * Get the maximum time for which a partitionBy operator with a combiner keeps partial aggregates in memory, before
+   * it sends them to the intermediate stream.
+   *
+   * @return the flush interval in milliseconds
+   */
+  public long getIntermediateStreamCombinerFlushIntervalMs() {
+    return getLong(JOB_INTERMEDIATE_STREAM_COMBINER_FLUSH_INTERVAL_MS,
+        DEFAULT_INTERMEDIATE_STREAM_COMBINER_FLUSH_INTERVAL_MS);
+  }
+
   public Optional<String> getNonLoggedStorePath() {
     return Optional.ofNullable(get(JOB_NON_LOGGED_STORE_BASE_DIR));
   }
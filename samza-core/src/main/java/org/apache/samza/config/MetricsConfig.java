@@ -18,6 +18,7 @@
  */
 package org.apache.samza.config;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -36,6 +37,29 @@ public class MetricsConfig extends MapConfig {
   public static final String METRICS_TIMER_ENABLED = "metrics.timer.enabled";
   // This flag enables more timer metrics, e.g. handle-message-ns in an operator, for debugging purpose
   public static final String METRICS_TIMER_DEBUG_ENABLED = "metrics.timer.debug.enabled";
+  // The reservoir used by timers, either sliding-window or histogram
+  public static final String METRICS_TIMER_RESERVOIR = "metrics.timer.reservoir";
+  public static final String METRICS_TIMER_RESERVOIR_SLIDING_WINDOW = "sliding-window";
+  public static final String METRICS_TIMER_RESERVOIR_HISTOGRAM = "histogram";
+  // The fraction of durations recorded by timers, and its override for a timer name
+  public static final String METRICS_TIMER_SAMPLING_RATE = "metrics.timer.sampling.rate";
+  public static final String METRICS_TIMER_SAMPLING_RATE_FOR_TIMER = "metrics.timer.%s.sampling.rate";
+  static final double DEFAULT_METRICS_TIMER_SAMPLING_RATE = 1.0;
+  // This flag makes metrics registries create striped counters and padded gauges, for metrics updated by many threads
+  public static final String METRICS_STRIPED_ENABLED = "metrics.striped.enabled";
+  // This flag enables per-SSP queueing delay and event time lag timers of incoming messages
+  public static final String METRICS_ENVELOPE_LATENCY_ENABLED = "metrics.envelope.latency.enabled";
+  // The fraction of incoming messages traced through all stages of a container, if envelope latency is enabled
+  public static final String METRICS_ENVELOPE_TRACE_SAMPLING_RATE = "metrics.envelope.trace.sampling.rate";
+
+  // comma-separated percentiles reported for timers, e.g. 50,99,99.9, by reporters which support it
+  public static final String METRICS_REPORTER_TIMER_PERCENTILES = "metrics.reporter.%s.timer.percentiles";
+
+  // The following configs are applicable only to {@link OpenMetricsHttpReporter}
+  public static final String METRICS_HTTP_REPORTER_HOST = "metrics.reporter.%s.http.host";
+  static final String DEFAULT_METRICS_HTTP_REPORTER_HOST = "0.0.0.0";
+  public static final String METRICS_HTTP_REPORTER_PORT = "metrics.reporter.%s.http.port";
+  static final int DEFAULT_METRICS_HTTP_REPORTER_PORT = 0;
 
   // The following configs are applicable only to {@link MetricsSnapshotReporter}
   // added here only to maintain backwards compatibility of config
@@ -44,6 +68,11 @@ public class MetricsConfig extends MapConfig {
   public static final String METRICS_SNAPSHOT_REPORTER_INTERVAL = "metrics.reporter.%s.interval";
   static final int DEFAULT_METRICS_SNAPSHOT_REPORTER_INTERVAL = 60;
   public static final String METRICS_SNAPSHOT_REPORTER_BLACKLIST = "metrics.reporter.%s.blacklist";
+  // if enabled, only metrics which changed since the last report are reported, except in every n-th full report
+  public static final String METRICS_SNAPSHOT_REPORTER_DELTA_ENABLED = "metrics.reporter.%s.delta.enabled";
+  public static final String METRICS_SNAPSHOT_REPORTER_DELTA_FULL_REPORT_INTERVAL =
+      "metrics.reporter.%s.delta.full.report.interval";
+  static final int DEFAULT_METRICS_SNAPSHOT_REPORTER_DELTA_FULL_REPORT_INTERVAL = 10;
   public static final String METRICS_SNAPSHOT_REPORTER_NAME_FOR_DIAGNOSTICS = "diagnosticsreporter";
 
   public MetricsConfig(Config config) {
@@ -66,6 +95,54 @@ public class MetricsConfig extends MapConfig {
     return Optional.ofNullable(get(String.format(METRICS_SNAPSHOT_REPORTER_BLACKLIST, name)));
   }
 
+  /**
+   * Get the percentiles reported for timers by the reporter with the given name.
+   *
+   * @param name name of the reporter
+   * @return the percentiles, in (0, 100], or an empty list if no percentiles are configured
+   */
+  public List<Double> getMetricsReporterTimerPercentiles(String name) {
+    String key = String.format(METRICS_REPORTER_TIMER_PERCENTILES, name);
+    List<Double> percentiles = new ArrayList<>();
+    for (String value : getList(key, Collections.emptyList())) {
+      if (value.trim().isEmpty()) {
+        continue;
+      }
+      double percentile;
+      try {
+        percentile = Double.parseDouble(value.trim());
+      } catch (NumberFormatException e) {
+        throw new ConfigException(String.format("Invalid percentile %s for %s", value, key), e);
+      }
+      if (percentile <= 0 || percentile > 100) {
+        throw new ConfigException(String.format("Percentile %s for %s must be in (0, 100]", value, key));
+      }
+      percentiles.add(percentile);
+    }
+    return percentiles;
+  }
+
+  public String getMetricsHttpReporterHost(String name) {
+    return get(String.format(METRICS_HTTP_REPORTER_HOST, name), DEFAULT_METRICS_HTTP_REPORTER_HOST);
+  }
+
+  public int getMetricsHttpReporterPort(String name) {
+    return getInt(String.format(METRICS_HTTP_REPORTER_PORT, name), DEFAULT_METRICS_HTTP_REPORTER_PORT);
+  }
+
+  public boolean getMetricsSnapshotReporterDeltaEnabled(String name) {
+    return getBoolean(String.format(METRICS_SNAPSHOT_REPORTER_DELTA_ENABLED, name), false);
+  }
+
+  public int getMetricsSnapshotReporterDeltaFullReportInterval(String name) {
+    String key = String.format(METRICS_SNAPSHOT_REPORTER_DELTA_FULL_REPORT_INTERVAL, name);
+    int interval = getInt(key, DEFAULT_METRICS_SNAPSHOT_REPORTER_DELTA_FULL_REPORT_INTERVAL);
+    if (interval < 1) {
+      throw new ConfigException(String.format("%s must be at least 1, but is %d", key, interval));
+    }
+    return interval;
+  }
+
   public List<String> getMetricReporterNames() {
     Optional<String> metricReporterNamesValue = Optional.ofNullable(get(METRICS_REPORTERS));
     if (!metricReporterNamesValue.isPresent() || metricReporterNamesValue.get().isEmpty()) {
@@ -82,4 +159,36 @@ public class MetricsConfig extends MapConfig {
   public boolean getMetricsTimerDebugEnabled() {
     return getBoolean(METRICS_TIMER_DEBUG_ENABLED, false);
   }
+
+  public String getMetricsTimerReservoir() {
+    String reservoir = get(METRICS_TIMER_RESERVOIR, METRICS_TIMER_RESERVOIR_SLIDING_WINDOW);
+    if (!reservoir.equals(METRICS_TIMER_RESERVOIR_SLIDING_WINDOW) && !reservoir.equals(METRICS_TIMER_RESERVOIR_HISTOGRAM)) {
+      throw new ConfigException(String.format("Invalid value %s for %s, expected %s or %s", reservoir,
+          METRICS_TIMER_RESERVOIR, METRICS_TIMER_RESERVOIR_SLIDING_WINDOW, METRICS_TIMER_RESERVOIR_HISTOGRAM));
+    }
+    return reservoir;
+  }
+
+  public boolean getMetricsStripedEnabled() {
+    return getBoolean(METRICS_STRIPED_ENABLED, false);
+  }
+
+  public boolean getMetricsEnvelopeLatencyEnabled() {
+    return getBoolean(METRICS_ENVELOPE_LATENCY_ENABLED, false);
+  }
+
+  public double getMetricsEnvelopeTraceSamplingRate() {
+    return getDouble(METRICS_ENVELOPE_TRACE_SAMPLING_RATE, 0.0);
+  }
+
+  /**
+   * Get the sampling rate of the timer with the given name, i.e., the fraction of durations it records.
+   *
+   * @param timerName name of the timer
+   * @return the sampling rate for the timer, or the default sampling rate if not configured for the timer
+   */
+  public double getMetricsTimerSamplingRate(String timerName) {
+    return getDouble(String.format(METRICS_TIMER_SAMPLING_RATE_FOR_TIMER, timerName),
+        getDouble(METRICS_TIMER_SAMPLING_RATE, DEFAULT_METRICS_TIMER_SAMPLING_RATE));
+  }
 }
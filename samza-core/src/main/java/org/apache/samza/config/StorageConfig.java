@@ -56,6 +56,10 @@ public class StorageConfig extends MapConfig {
   public static final boolean DEFAULT_DISALLOW_LARGE_MESSAGES = false;
   public static final String DROP_LARGE_MESSAGES = STORE_PREFIX + "%s.drop.large.messages";
   public static final boolean DEFAULT_DROP_LARGE_MESSAGES = false;
+  public static final String CHANGELOG_COALESCE_WRITES = STORE_PREFIX + "%s.changelog.coalesce.writes";
+  public static final boolean DEFAULT_CHANGELOG_COALESCE_WRITES = false;
+  public static final String CHANGELOG_COALESCE_MAX_ENTRIES = STORE_PREFIX + "%s.changelog.coalesce.max.entries";
+  public static final int DEFAULT_CHANGELOG_COALESCE_MAX_ENTRIES = 10000;
   // The log compaction lag time for transactional state change log
   public static final String MIN_COMPACTION_LAG_MS = "min.compaction.lag.ms";
   public static final String CHANGELOG_MIN_COMPACTION_LAG_MS = STORE_PREFIX + "%s.changelog." + MIN_COMPACTION_LAG_MS;
@@ -71,6 +75,7 @@ public class StorageConfig extends MapConfig {
   static final String SIDE_INPUTS_PROCESSOR_FACTORY = STORE_PREFIX + "%s" + SIDE_INPUT_PROCESSOR_FACTORY_SUFFIX;
   static final String SIDE_INPUTS_PROCESSOR_SERIALIZED_INSTANCE =
       STORE_PREFIX + "%s.side.inputs.processor.serialized.instance";
+  static final String SIDE_INPUTS_CONTAINER_SHARED = STORE_PREFIX + "%s.side.inputs.container.shared";
   static final String INMEMORY_KV_STORAGE_ENGINE_FACTORY =
       "org.apache.samza.storage.kv.inmemory.InMemoryKeyValueStorageEngineFactory";
 
@@ -215,6 +220,18 @@ public class StorageConfig extends MapConfig {
     return Optional.ofNullable(get(String.format(SIDE_INPUTS_PROCESSOR_SERIALIZED_INSTANCE, storeName)));
   }
 
+  /**
+   * Whether the side input store is shared by all tasks in a container. A shared side input store is bootstrapped
+   * and updated once per container from the union of the side input partitions of its tasks, and is read-only for
+   * the tasks. This is intended for side inputs that are broadcast to all tasks.
+   *
+   * @param storeName name of the store
+   * @return true if the side input store is shared by all tasks in a container, false otherwise
+   */
+  public boolean getSideInputsContainerShared(String storeName) {
+    return getBoolean(String.format(SIDE_INPUTS_CONTAINER_SHARED, storeName), false);
+  }
+
   public long getChangeLogDeleteRetentionInMs(String storeName) {
     return getLong(String.format(CHANGELOG_DELETE_RETENTION_MS, storeName), DEFAULT_CHANGELOG_DELETE_RETENTION_MS);
   }
@@ -231,6 +248,14 @@ public class StorageConfig extends MapConfig {
     return getBoolean(String.format(DROP_LARGE_MESSAGES, storeName), DEFAULT_DROP_LARGE_MESSAGES);
   }
 
+  public boolean getChangelogCoalesceWrites(String storeName) {
+    return getBoolean(String.format(CHANGELOG_COALESCE_WRITES, storeName), DEFAULT_CHANGELOG_COALESCE_WRITES);
+  }
+
+  public int getChangelogCoalesceMaxEntries(String storeName) {
+    return getInt(String.format(CHANGELOG_COALESCE_MAX_ENTRIES, storeName), DEFAULT_CHANGELOG_COALESCE_MAX_ENTRIES);
+  }
+
   public long getChangelogMinCompactionLagMs(String storeName) {
     String minCompactLagConfigName = String.format(CHANGELOG_MIN_COMPACTION_LAG_MS, storeName);
     // Avoid the inconsistency of overriding using stores.x.changelog.kafka...
@@ -47,6 +47,8 @@ public class StreamConfig extends MapConfig {
   public static final String CONSUMER_OFFSET_DEFAULT = SAMZA_PROPERTY + "offset.default";
   public static final String BOOTSTRAP = SAMZA_PROPERTY + "bootstrap";
   public static final String PRIORITY = SAMZA_PROPERTY + "priority";
+  // share of the input bytes chosen from the stream, relative to other streams, by the WeightedFairChooser
+  public static final String CHOOSER_WEIGHT = SAMZA_PROPERTY + "chooser.weight";
   public static final String IS_INTERMEDIATE = SAMZA_PROPERTY + "intermediate";
   public static final String DELETE_COMMITTED_MESSAGES = SAMZA_PROPERTY + "delete.committed.messages";
   public static final String IS_BOUNDED = SAMZA_PROPERTY + "bounded";
@@ -265,6 +267,14 @@ public class StreamConfig extends MapConfig {
     return Integer.parseInt(getSamzaProperty(systemStream, PRIORITY, "-1"));
   }
 
+  public double getChooserWeight(SystemStream systemStream) {
+    double weight = Double.parseDouble(getSamzaProperty(systemStream, CHOOSER_WEIGHT, "1"));
+    if (weight <= 0) {
+      throw new ConfigException(String.format("Chooser weight of %s must be positive, but is %s", systemStream, weight));
+    }
+    return weight;
+  }
+
   /**
    * A streamId is translated to a SystemStream by looking up its System and physicalName. It
    * will use the streamId as the stream name if the physicalName doesn't exist.
@@ -62,6 +62,8 @@ public class TaskConfig extends MapConfig {
   public static final String COMMAND_BUILDER = "task.command.class";
   // message chooser for controlling stream consumption
   public static final String MESSAGE_CHOOSER_CLASS_NAME = "task.chooser.class";
+  // hold back partitions of tasks at task.max.concurrency from the message chooser, so that it chooses ready work
+  public static final String CHOOSER_SKIP_BUSY_TASKS = "task.chooser.skip.busy.tasks";
   // define whether to drop the messages or not when deserialization fails
   public static final String DROP_DESERIALIZATION_ERRORS = "task.drop.deserialization.errors";
   // define whether to drop the messages or not when serialization fails
@@ -75,6 +77,8 @@ public class TaskConfig extends MapConfig {
   // max number of messages to process concurrently
   public static final String MAX_CONCURRENCY = "task.max.concurrency";
   static final int DEFAULT_MAX_CONCURRENCY = 1;
+  // process messages with the same key in order, and only messages with different keys concurrently
+  public static final String KEYED_CONCURRENCY_ENABLED = "task.max.concurrency.keyed.enabled";
   // timeout for triggering a callback
   public static final String CALLBACK_TIMEOUT_MS = "task.callback.timeout.ms";
   static final long DEFAULT_CALLBACK_TIMEOUT_MS = -1L;
@@ -83,6 +87,9 @@ public class TaskConfig extends MapConfig {
   // maximum time to wait for a task worker to complete when there are no new messages to handle
   public static final String MAX_IDLE_MS = "task.max.idle.ms";
   static final long DEFAULT_MAX_IDLE_MS = 10L;
+  // operations of a task which run for longer than this are reported as stalled, with the stack of their thread
+  public static final String STALL_THRESHOLD_MS = "task.stall.threshold.ms";
+  static final long DEFAULT_STALL_THRESHOLD_MS = -1L;
   /**
    * Samza's container polls for more messages under two conditions. The first
    * condition arises when there are simply no remaining buffered messages to
@@ -107,6 +114,17 @@ public class TaskConfig extends MapConfig {
   public static final String CHECKPOINT_MANAGER_FACTORY = "task.checkpoint.factory";
   // standby containers use this flag to indicate that checkpoints will be polled continually, rather than only once at startup like in an active container
   public static final String INTERNAL_CHECKPOINT_MANAGER_CONSUMER_STOP_AFTER_FIRST_READ = "samza.internal.task.checkpoint.consumer.stop.after.first.read";
+  // checkpoints of tasks which commit concurrently are written together, waiting up to this long for more checkpoints
+  public static final String CHECKPOINT_BATCH_MAX_WAIT_MS = "task.checkpoint.batch.max.wait.ms";
+  static final long DEFAULT_CHECKPOINT_BATCH_MAX_WAIT_MS = -1L;
+  // skip writing the checkpoint of a task if it's unchanged since the last checkpoint written by the task
+  public static final String CHECKPOINT_SKIP_UNCHANGED = "task.checkpoint.skip.unchanged";
+  // the store which keeps the timers of scheduled callbacks, instead of the memory, and the serde of the timer keys
+  public static final String TIMER_STORE = "task.timer.store";
+  public static final String TIMER_KEY_SERDE = "task.timer.key.serde";
+  // the maximum number of due timers of the timer store which fire together
+  public static final String TIMER_STORE_BATCH_SIZE = "task.timer.store.batch.size";
+  static final int DEFAULT_TIMER_STORE_BATCH_SIZE = 1000;
 
   public static final String TRANSACTIONAL_STATE_CHECKPOINT_ENABLED = "task.transactional.state.checkpoint.enabled";
   private static final boolean DEFAULT_TRANSACTIONAL_STATE_CHECKPOINT_ENABLED = true;
@@ -155,6 +173,10 @@ public class TaskConfig extends MapConfig {
     return Optional.ofNullable(get(MESSAGE_CHOOSER_CLASS_NAME)).orElse(RoundRobinChooserFactory.class.getName());
   }
 
+  public boolean getChooserSkipBusyTasks() {
+    return getBoolean(CHOOSER_SKIP_BUSY_TASKS, false);
+  }
+
   public boolean getDropDeserializationErrors() {
     return getBoolean(DROP_DESERIALIZATION_ERRORS, false);
   }
@@ -190,6 +212,10 @@ public class TaskConfig extends MapConfig {
     return getInt(MAX_CONCURRENCY, DEFAULT_MAX_CONCURRENCY);
   }
 
+  public boolean getKeyedConcurrencyEnabled() {
+    return getBoolean(KEYED_CONCURRENCY_ENABLED, false);
+  }
+
   public long getCallbackTimeoutMs() {
     return getLong(CALLBACK_TIMEOUT_MS, DEFAULT_CALLBACK_TIMEOUT_MS);
   }
@@ -198,10 +224,45 @@ public class TaskConfig extends MapConfig {
     return getBoolean(ASYNC_COMMIT, false);
   }
 
+  /**
+   * Get the maximum time to wait for more checkpoints before writing a batch of checkpoints.
+   * @return the maximum wait time in ms, or a negative value if checkpoints are not batched
+   */
+  public long getCheckpointBatchMaxWaitMs() {
+    return getLong(CHECKPOINT_BATCH_MAX_WAIT_MS, DEFAULT_CHECKPOINT_BATCH_MAX_WAIT_MS);
+  }
+
+  public boolean getCheckpointSkipUnchanged() {
+    return getBoolean(CHECKPOINT_SKIP_UNCHANGED, false);
+  }
+
+  public Optional<String> getTimerStore() {
+    return Optional.ofNullable(get(TIMER_STORE));
+  }
+
+  /**
+   * Get the name of the serde of the timer keys, which is required if timers are kept in a store.
+   */
+  public String getTimerKeySerde() {
+    String serdeName = get(TIMER_KEY_SERDE);
+    if (StringUtils.isBlank(serdeName)) {
+      throw new ConfigException(String.format("%s is required if %s is set", TIMER_KEY_SERDE, TIMER_STORE));
+    }
+    return serdeName;
+  }
+
+  public int getTimerStoreBatchSize() {
+    return getInt(TIMER_STORE_BATCH_SIZE, DEFAULT_TIMER_STORE_BATCH_SIZE);
+  }
+
   public long getMaxIdleMs() {
     return getLong(MAX_IDLE_MS, DEFAULT_MAX_IDLE_MS);
   }
 
+  public long getStallThresholdMs() {
+    return getLong(STALL_THRESHOLD_MS, DEFAULT_STALL_THRESHOLD_MS);
+  }
+
   /**
    * Create the checkpoint manager
    *
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.config;
+
+import org.apache.samza.system.SystemStream;
+
+
+/**
+ * A convenience class for fetching configs related to the {@link org.apache.samza.system.chooser.WeightedFairChooser}
+ */
+public class WeightedFairChooserConfig extends MapConfig {
+  // the factor by which the weight of a lagging partition is multiplied, at most
+  public static final String LAG_BOOST = "task.chooser.lag.boost";
+  static final double DEFAULT_LAG_BOOST = 2.0;
+  // the lag, in messages, at which the full boost is applied to a partition
+  public static final String LAG_THRESHOLD = "task.chooser.lag.threshold";
+  static final long DEFAULT_LAG_THRESHOLD = 10000;
+
+  private final StreamConfig streamConfig;
+
+  public WeightedFairChooserConfig(Config config) {
+    super(config);
+    streamConfig = new StreamConfig(config);
+  }
+
+  /**
+   * @return  the maximum factor by which the weight of a lagging partition is multiplied, or 1 if lagging partitions
+   *          are not boosted.
+   */
+  public double getLagBoost() {
+    double lagBoost = getDouble(LAG_BOOST, DEFAULT_LAG_BOOST);
+    if (lagBoost < 1) {
+      throw new ConfigException(String.format("%s must be at least 1, but is %s", LAG_BOOST, lagBoost));
+    }
+    return lagBoost;
+  }
+
+  /**
+   * @return  the lag, in messages, at which the full lag boost is applied to a partition.
+   */
+  public long getLagThreshold() {
+    long lagThreshold = getLong(LAG_THRESHOLD, DEFAULT_LAG_THRESHOLD);
+    if (lagThreshold < 1) {
+      throw new ConfigException(String.format("%s must be at least 1, but is %d", LAG_THRESHOLD, lagThreshold));
+    }
+    return lagThreshold;
+  }
+
+  /**
+   * @param systemStream the input stream
+   * @return  the weight of the stream, which is 1 if it was not configured.
+   */
+  public double getStreamWeight(SystemStream systemStream) {
+    return streamConfig.getChooserWeight(systemStream);
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.container;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.metrics.MetricsRegistry;
+import org.apache.samza.metrics.Timer;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemStreamPartition;
+import org.apache.samza.util.Clock;
+import org.apache.samza.util.HighResolutionClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Tracks where incoming messages spend their time in a container, between the following stages:
+ * <ol>
+ *   <li>event time: the time the message was produced or appended to the stream, from
+ *   {@link IncomingMessageEnvelope#getEventTime()}</li>
+ *   <li>arrival: the time the system consumer fetched the message, from
+ *   {@link IncomingMessageEnvelope#getArrivalTime()}</li>
+ *   <li>polled: the time {@link org.apache.samza.system.SystemConsumers} polled the message from the buffer of the
+ *   system consumer, e.g., of a {@link org.apache.samza.util.BlockingEnvelopeMap}</li>
+ *   <li>chooser update: the time the message was deserialized and given to the
+ *   {@link org.apache.samza.system.chooser.MessageChooser}</li>
+ *   <li>chosen: the time the chooser chose the message</li>
+ *   <li>process start: the time the message was given to a task</li>
+ *   <li>operator complete: for a {@link org.apache.samza.task.StreamOperatorTask}, the time each operator completed
+ *   handling the message or the results of the operators before it</li>
+ *   <li>process complete: the time the task completed processing the message</li>
+ * </ol>
+ * For every message, the queueing delay between arrival and process start, and the event time lag at process start are
+ * recorded in per-SSP timers, in milliseconds. In addition, a sample of the messages is traced through all the stages,
+ * and their traces are logged to the {@link #TRACE_LOGGER_NAME} logger when they complete, so that they can be written
+ * to a local log file. Traces of messages which never complete, e.g., because they were skipped or dropped, are evicted
+ * after {@link #MAX_TRACE_AGE_MS}, or when there are more than {@link #MAX_TRACES_IN_FLIGHT} traces.
+ */
+public class EnvelopeLatencyTracker {
+  private static final Logger LOG = LoggerFactory.getLogger(EnvelopeLatencyTracker.class);
+
+  public static final String TRACE_LOGGER_NAME = "org.apache.samza.container.EnvelopeTraces";
+  private static final Logger TRACE_LOG = LoggerFactory.getLogger(TRACE_LOGGER_NAME);
+
+  static final String GROUP = EnvelopeLatencyTracker.class.getName();
+
+  /**
+   * Upper bound of traces in flight. The least recently used traces are evicted when it's reached.
+   */
+  static final int MAX_TRACES_IN_FLIGHT = 10000;
+
+  /**
+   * Traces which did not complete within this time after the message was polled are evicted
+   */
+  static final long MAX_TRACE_AGE_MS = TimeUnit.MINUTES.toMillis(10);
+
+  private final MetricsRegistry registry;
+  private final double traceSamplingRate;
+  private final Clock clock;
+  private final HighResolutionClock highResolutionClock;
+
+  private final Map<SystemStreamPartition, Timer> queueingDelayMs = new ConcurrentHashMap<>();
+  private final Map<SystemStreamPartition, Timer> eventTimeLagMs = new ConcurrentHashMap<>();
+  private final Cache<TraceKey, EnvelopeTrace> traces;
+
+  /**
+   * @param registry the registry for the per-SSP timers
+   * @param traceSamplingRate the fraction of the messages to trace through all stages, in [0, 1]
+   * @param clock the clock used for the time of the stages which are compared to event and arrival times
+   * @param highResolutionClock the clock used for the time between stages within the container
+   */
+  public EnvelopeLatencyTracker(MetricsRegistry registry, double traceSamplingRate, Clock clock,
+      HighResolutionClock highResolutionClock) {
+    if (traceSamplingRate < 0 || traceSamplingRate > 1) {
+      throw new IllegalArgumentException("Trace sampling rate must be in [0, 1], but is " + traceSamplingRate);
+    }
+    this.registry = registry;
+    this.traceSamplingRate = traceSamplingRate;
+    this.clock = clock;
+    this.highResolutionClock = highResolutionClock;
+    this.traces = CacheBuilder.newBuilder()
+        .maximumSize(MAX_TRACES_IN_FLIGHT)
+        .expireAfterWrite(MAX_TRACE_AGE_MS, TimeUnit.MILLISECONDS)
+        .ticker(new Ticker() {
+          @Override
+          public long read() {
+            return highResolutionClock.nanoTime();
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Called when {@link org.apache.samza.system.SystemConsumers} polls a message from a system consumer.
+   * This is where messages are sampled for tracing.
+   */
+  public void onPolled(IncomingMessageEnvelope envelope) {
+    if (traceSamplingRate > 0 && envelope.getOffset() != null
+        && ThreadLocalRandom.current().nextDouble() < traceSamplingRate) {
+      traces.put(new TraceKey(envelope), new EnvelopeTrace(envelope, clock.currentTimeMillis(),
+          highResolutionClock.nanoTime()));
+    }
+  }
+
+  /**
+   * Called when the deserialized message is given to the {@link org.apache.samza.system.chooser.MessageChooser}.
+   */
+  public void onChooserUpdate(IncomingMessageEnvelope envelope) {
+    EnvelopeTrace trace = getTrace(envelope);
+    if (trace != null) {
+      trace.chooserUpdateNs = highResolutionClock.nanoTime();
+    }
+  }
+
+  /**
+   * Called when the {@link org.apache.samza.system.chooser.MessageChooser} chose the message.
+   */
+  public void onChosen(IncomingMessageEnvelope envelope) {
+    EnvelopeTrace trace = getTrace(envelope);
+    if (trace != null) {
+      trace.chosenNs = highResolutionClock.nanoTime();
+    }
+  }
+
+  /**
+   * Called when the message is given to a task for processing.
+   */
+  public void onProcessStart(IncomingMessageEnvelope envelope) {
+    SystemStreamPartition ssp = envelope.getSystemStreamPartition();
+    long nowMs = clock.currentTimeMillis();
+    if (envelope.getArrivalTime() > 0) {
+      queueingDelayMs.computeIfAbsent(ssp, key -> newTimer(key, "queueing-delay-ms"))
+          .update(nowMs - envelope.getArrivalTime());
+    }
+    if (envelope.getEventTime() > 0) {
+      eventTimeLagMs.computeIfAbsent(ssp, key -> newTimer(key, "event-time-lag-ms"))
+          .update(nowMs - envelope.getEventTime());
+    }
+
+    EnvelopeTrace trace = getTrace(envelope);
+    if (trace != null && trace.processStartNs == 0) {
+      // only the first task processing a message broadcast to several tasks is traced
+      trace.processStartNs = highResolutionClock.nanoTime();
+    }
+  }
+
+  /**
+   * Returns the operator stages of the message given to a {@link org.apache.samza.task.StreamOperatorTask}, for its
+   * operators to record when they complete it, or null if the message is not traced.
+   */
+  public OperatorStages getOperatorStages(IncomingMessageEnvelope envelope) {
+    EnvelopeTrace trace = getTrace(envelope);
+    return trace == null ? null : trace.operatorStages;
+  }
+
+  /**
+   * Called when a task completed processing the message, successfully or not.
+   */
+  public void onProcessComplete(SystemStreamPartition ssp, String offset, TaskName taskName, boolean succeeded) {
+    if (traces.size() == 0 || offset == null) {
+      return;
+    }
+    EnvelopeTrace trace = traces.asMap().remove(new TraceKey(ssp, offset));
+    if (trace != null) {
+      long completeNs = highResolutionClock.nanoTime();
+      TRACE_LOG.info("ssp={} offset={} task={} succeeded={} event-time={} arrival={} polled={} "
+              + "event-to-arrival-ms={} arrival-to-polled-ms={} polled-to-chooser-update-us={} "
+              + "chooser-update-to-chosen-us={} chosen-to-process-start-us={} process-us={} "
+              + "process-start-to-operator-complete-us={}",
+          ssp, offset, taskName, succeeded, trace.eventTimeMs, trace.arrivalTimeMs, trace.polledMs,
+          trace.eventTimeMs > 0 ? trace.arrivalTimeMs - trace.eventTimeMs : -1,
+          trace.arrivalTimeMs > 0 ? trace.polledMs - trace.arrivalTimeMs : -1,
+          elapsedUs(trace.polledNs, trace.chooserUpdateNs), elapsedUs(trace.chooserUpdateNs, trace.chosenNs),
+          elapsedUs(trace.chosenNs, trace.processStartNs), elapsedUs(trace.processStartNs, completeNs),
+          trace.operatorStages.format(trace.processStartNs));
+    }
+  }
+
+  /**
+   * Drops the traces in flight, e.g., of messages which were not processed before shutdown.
+   */
+  public void clear() {
+    LOG.debug("Dropping {} traces in flight.", traces.size());
+    traces.invalidateAll();
+  }
+
+  @VisibleForTesting
+  long getTracesInFlight() {
+    traces.cleanUp();
+    return traces.size();
+  }
+
+  private EnvelopeTrace getTrace(IncomingMessageEnvelope envelope) {
+    if (traces.size() == 0 || envelope.getOffset() == null) {
+      return null;
+    }
+    return traces.getIfPresent(new TraceKey(envelope));
+  }
+
+  private Timer newTimer(SystemStreamPartition ssp, String name) {
+    return registry.newTimer(GROUP, String.format("%s-%s-%d-%s", ssp.getSystem(), ssp.getStream(),
+        ssp.getPartition().getPartitionId(), name));
+  }
+
+  /**
+   * Returns the elapsed time between two stages, or -1 if a stage was not reached
+   */
+  private static long elapsedUs(long startNs, long endNs) {
+    return startNs == 0 || endNs == 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(endNs - startNs);
+  }
+
+  private static class TraceKey {
+    private final SystemStreamPartition ssp;
+    private final String offset;
+
+    TraceKey(IncomingMessageEnvelope envelope) {
+      this(envelope.getSystemStreamPartition(), envelope.getOffset());
+    }
+
+    TraceKey(SystemStreamPartition ssp, String offset) {
+      this.ssp = ssp;
+      this.offset = offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      TraceKey that = (TraceKey) o;
+      return ssp.equals(that.ssp) && offset.equals(that.offset);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(ssp, offset);
+    }
+  }
+
+  /**
+   * The times the operators of a {@link org.apache.samza.task.StreamOperatorTask} completed a traced message.
+   * Operators may complete it concurrently, e.g. on the branches of an asynchronous operator.
+   */
+  public class OperatorStages {
+    private final List<String> opIds = new ArrayList<>();
+    private final List<Long> completeNs = new ArrayList<>();
+
+    /**
+     * Called when the operator completed handling the message, or the results of the operators before it.
+     */
+    public synchronized void onOperatorComplete(String opId) {
+      opIds.add(opId);
+      completeNs.add(highResolutionClock.nanoTime());
+    }
+
+    /**
+     * Formats the operator stages as a comma separated list of operator id:microseconds since process start
+     */
+    synchronized String format(long processStartNs) {
+      StringBuilder stages = new StringBuilder("[");
+      for (int i = 0; i < opIds.size(); i++) {
+        if (i > 0) {
+          stages.append(',');
+        }
+        stages.append(opIds.get(i)).append(':').append(elapsedUs(processStartNs, completeNs.get(i)));
+      }
+      return stages.append(']').toString();
+    }
+  }
+
+  private class EnvelopeTrace {
+    private final long eventTimeMs;
+    private final long arrivalTimeMs;
+    private final long polledMs;
+    private final long polledNs;
+    private volatile long chooserUpdateNs;
+    private volatile long chosenNs;
+    private volatile long processStartNs;
+    private final OperatorStages operatorStages = new OperatorStages();
+
+    EnvelopeTrace(IncomingMessageEnvelope envelope, long polledMs, long polledNs) {
+      this.eventTimeMs = envelope.getEventTime();
+      this.arrivalTimeMs = envelope.getArrivalTime();
+      this.polledMs = polledMs;
+      this.polledNs = polledNs;
+    }
+  }
+}
@@ -23,13 +23,16 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.apache.samza.SamzaException;
@@ -85,6 +88,9 @@ public class RunLoop implements Runnable, Throttleable {
   private final HighResolutionClock clock;
   private final boolean isAsyncCommitEnabled;
   private volatile boolean runLoopResumedSinceLastChecked;
+  private final EnvelopeLatencyTracker latencyTracker;
+  private final RunLoopWatchdog watchdog;
+  private final boolean skipBusyTasks;
 
   public RunLoop(Map<TaskName, RunLoopTask> runLoopTasks,
       ExecutorService threadPool,
@@ -98,6 +104,32 @@ public class RunLoop implements Runnable, Throttleable {
       SamzaContainerMetrics containerMetrics,
       HighResolutionClock clock,
       boolean isAsyncCommitEnabled) {
+    this(runLoopTasks, threadPool, consumerMultiplexer, maxConcurrency, windowMs, commitMs, callbackTimeoutMs,
+        maxThrottlingDelayMs, maxIdleMs, containerMetrics, clock, isAsyncCommitEnabled, null, null, false);
+  }
+
+  /**
+   * @param latencyTracker if not null, tracks the latency of envelopes when they are chosen, and when tasks start and
+   *                       complete processing them
+   * @param watchdog if not null, tracks the operations of tasks in flight, records their duration and reports stalls
+   * @param skipBusyTasks if true, the partitions of a task at max concurrency are not updated in the chooser until the
+   *                      task can process more messages, so that the chooser only chooses messages of ready tasks
+   */
+  RunLoop(Map<TaskName, RunLoopTask> runLoopTasks,
+      ExecutorService threadPool,
+      SystemConsumers consumerMultiplexer,
+      int maxConcurrency,
+      long windowMs,
+      long commitMs,
+      long callbackTimeoutMs,
+      long maxThrottlingDelayMs,
+      long maxIdleMs,
+      SamzaContainerMetrics containerMetrics,
+      HighResolutionClock clock,
+      boolean isAsyncCommitEnabled,
+      EnvelopeLatencyTracker latencyTracker,
+      RunLoopWatchdog watchdog,
+      boolean skipBusyTasks) {
 
     this.threadPool = threadPool;
     this.consumerMultiplexer = consumerMultiplexer;
@@ -113,6 +145,8 @@ public class RunLoop implements Runnable, Throttleable {
     this.latch = new Object();
     this.workerTimer = Executors.newSingleThreadScheduledExecutor();
     this.clock = clock;
+    this.watchdog = watchdog;
+    this.skipBusyTasks = skipBusyTasks;
     Map<TaskName, AsyncTaskWorker> workers = new HashMap<>();
     for (RunLoopTask task : runLoopTasks.values()) {
       workers.put(task.taskName(), new AsyncTaskWorker(task));
@@ -121,6 +155,7 @@ public class RunLoop implements Runnable, Throttleable {
     this.sspToTaskWorkerMapping = Collections.unmodifiableMap(getSspToAsyncTaskWorkerMap(runLoopTasks, workers));
     this.taskWorkers = Collections.unmodifiableList(new ArrayList<>(workers.values()));
     this.isAsyncCommitEnabled = isAsyncCommitEnabled;
+    this.latencyTracker = latencyTracker;
   }
 
   /**
@@ -150,12 +185,18 @@ public class RunLoop implements Runnable, Throttleable {
       for (AsyncTaskWorker taskWorker : taskWorkers) {
         taskWorker.init();
       }
+      if (watchdog != null) {
+        watchdog.start();
+      }
 
       long prevNs = clock.nanoTime();
 
       while (!shutdownNow && throwable == null) {
         long startNs = clock.nanoTime();
 
+        if (skipBusyTasks) {
+          updateChooserForReadyTasks();
+        }
         IncomingMessageEnvelope envelope = chooseEnvelope();
 
         long chooseNs = clock.nanoTime();
@@ -193,6 +234,8 @@ public class RunLoop implements Runnable, Throttleable {
       workerTimer.shutdown();
       callbackExecutor.shutdown();
       if (callbackTimer != null) callbackTimer.shutdown();
+      if (watchdog != null) watchdog.stop();
+      if (latencyTracker != null) latencyTracker.clear();
     }
   }
 
@@ -224,14 +267,26 @@ public class RunLoop implements Runnable, Throttleable {
     if (envelope != null) {
       log.trace("Choose envelope ssp {} offset {} for processing",
           envelope.getSystemStreamPartition(), envelope.getOffset());
-      containerMetrics.envelopes().inc();
+      containerMetrics.envelopes().add(1);
+      if (latencyTracker != null) {
+        latencyTracker.onChosen(envelope);
+      }
     } else {
       log.trace("No envelope is available");
-      containerMetrics.nullEnvelopes().inc();
+      containerMetrics.nullEnvelopes().add(1);
     }
     return envelope;
   }
 
+  /**
+   * Update the chooser with the partitions held back for the tasks which are no longer at max concurrency
+   */
+  private void updateChooserForReadyTasks() {
+    for (AsyncTaskWorker worker : taskWorkers) {
+      worker.state.updateDeferredPartitions();
+    }
+  }
+
   /**
    * Insert the envelope into the task pending queues and run all the tasks
    */
@@ -362,12 +417,17 @@ public class RunLoop implements Runnable, Throttleable {
     private final RunLoopTask task;
     private final TaskCallbackManager callbackManager;
     private volatile AsyncTaskState state;
+    // the watchdog operations of process calls which wait for their callback
+    private final Map<TaskCallback, RunLoopWatchdog.InFlightOp> processOpsInFlight = new ConcurrentHashMap<>();
 
     AsyncTaskWorker(RunLoopTask task) {
       this.task = task;
       this.callbackManager = new TaskCallbackManager(this, callbackTimer, callbackTimeoutMs, maxConcurrency, clock);
       Set<SystemStreamPartition> sspSet = getWorkingSSPSet(task);
       this.state = new AsyncTaskState(task.taskName(), task.metrics(), sspSet, !task.intermediateStreams().isEmpty());
+      if (watchdog != null) {
+        watchdog.registerTask(task.taskName(), task.metrics().registry());
+      }
     }
 
     private void init() {
@@ -446,6 +506,7 @@ public class RunLoop implements Runnable, Throttleable {
 
     private void endOfStream() {
       state.complete = true;
+      RunLoopWatchdog.InFlightOp watchdogOp = startWatchdogOp(RunLoopWatchdog.Op.END_OF_STREAM);
       try {
         ReadableCoordinator coordinator = new ReadableCoordinator(task.taskName());
 
@@ -460,6 +521,7 @@ public class RunLoop implements Runnable, Throttleable {
           task.commit();
         }
       } finally {
+        completeWatchdogOp(watchdogOp);
         resume();
       }
 
@@ -473,16 +535,56 @@ public class RunLoop implements Runnable, Throttleable {
       log.trace("Process ssp {} offset {}", envelope.getSystemStreamPartition(), envelope.getOffset());
 
       final ReadableCoordinator coordinator = new ReadableCoordinator(task.taskName());
+      final RunLoopWatchdog.InFlightOp watchdogOp = startWatchdogOp(RunLoopWatchdog.Op.PROCESS);
+      // the task does not create a callback if it skips the envelope, or fails before creating one
+      final AtomicBoolean callbackCreated = new AtomicBoolean(false);
       TaskCallbackFactory callbackFactory = new TaskCallbackFactory() {
         @Override
         public TaskCallback createCallback() {
           state.startProcess();
-          containerMetrics.processes().inc();
-          return callbackManager.createCallback(task.taskName(), envelope, coordinator);
+          containerMetrics.processes().add(1);
+          TaskCallback callback = callbackManager.createCallback(task.taskName(), envelope, coordinator);
+          if (watchdogOp != null) {
+            processOpsInFlight.put(callback, watchdogOp);
+          }
+          callbackCreated.set(true);
+          return callback;
         }
       };
 
-      task.process(envelope, coordinator, callbackFactory);
+      if (latencyTracker != null) {
+        latencyTracker.onProcessStart(envelope);
+      }
+      try {
+        task.process(envelope, coordinator, callbackFactory);
+      } finally {
+        if (callbackCreated.get()) {
+          if (watchdogOp != null) {
+            watchdogOp.awaitCallback();
+          }
+        } else {
+          completeWatchdogOp(watchdogOp);
+        }
+      }
+      if (skipBusyTasks) {
+        state.updateChooserAfterDispatch();
+      }
+    }
+
+    private RunLoopWatchdog.InFlightOp startWatchdogOp(RunLoopWatchdog.Op op) {
+      return watchdog != null ? watchdog.onOpStart(task.taskName(), op) : null;
+    }
+
+    private void completeWatchdogOp(RunLoopWatchdog.InFlightOp watchdogOp) {
+      if (watchdogOp != null) {
+        watchdog.onOpComplete(watchdogOp);
+      }
+    }
+
+    private void completeWatchdogProcessOp(TaskCallback callback) {
+      if (watchdog != null) {
+        completeWatchdogOp(processOpsInFlight.remove(callback));
+      }
     }
 
     /**
@@ -493,8 +595,9 @@ public class RunLoop implements Runnable, Throttleable {
       Runnable windowWorker = new Runnable() {
         @Override
         public void run() {
+          RunLoopWatchdog.InFlightOp watchdogOp = startWatchdogOp(RunLoopWatchdog.Op.WINDOW);
           try {
-            containerMetrics.windows().inc();
+            containerMetrics.windows().add(1);
 
             ReadableCoordinator coordinator = new ReadableCoordinator(task.taskName());
             long startTime = clock.nanoTime();
@@ -521,6 +624,7 @@ public class RunLoop implements Runnable, Throttleable {
             log.error("Task {} window failed", task.taskName(), t);
             abort(t);
           } finally {
+            completeWatchdogOp(watchdogOp);
             log.trace("Task {} window completed", task.taskName());
             resume();
           }
@@ -544,8 +648,9 @@ public class RunLoop implements Runnable, Throttleable {
       Runnable commitWorker = new Runnable() {
         @Override
         public void run() {
+          RunLoopWatchdog.InFlightOp watchdogOp = startWatchdogOp(RunLoopWatchdog.Op.COMMIT);
           try {
-            containerMetrics.commits().inc();
+            containerMetrics.commits().add(1);
 
             long startTime = clock.nanoTime();
             task.commit();
@@ -556,6 +661,7 @@ public class RunLoop implements Runnable, Throttleable {
             log.error("Task {} commit failed", task.taskName(), t);
             abort(t);
           } finally {
+            completeWatchdogOp(watchdogOp);
             log.trace("Task {} commit completed", task.taskName());
             resume();
           }
@@ -576,6 +682,7 @@ public class RunLoop implements Runnable, Throttleable {
       Runnable timerWorker = new Runnable() {
         @Override
         public void run() {
+          RunLoopWatchdog.InFlightOp watchdogOp = startWatchdogOp(RunLoopWatchdog.Op.SCHEDULER);
           try {
             ReadableCoordinator coordinator = new ReadableCoordinator(task.taskName());
 
@@ -589,6 +696,7 @@ public class RunLoop implements Runnable, Throttleable {
             log.error("Task {} scheduler failed", task.taskName(), t);
             abort(t);
           } finally {
+            completeWatchdogOp(watchdogOp);
             log.trace("Task {} scheduler completed", task.taskName());
             resume();
           }
@@ -617,9 +725,14 @@ public class RunLoop implements Runnable, Throttleable {
         public void run() {
           try {
             state.doneProcess();
-            state.taskMetrics.asyncCallbackCompleted().inc();
+            completeWatchdogProcessOp(callback);
+            state.taskMetrics.asyncCallbackCompleted().add(1);
             TaskCallbackImpl callbackImpl = (TaskCallbackImpl) callback;
             containerMetrics.processNs().update(clock.nanoTime() - callbackImpl.getTimeCreatedNs());
+            if (latencyTracker != null) {
+              latencyTracker.onProcessComplete(callbackImpl.getSystemStreamPartition(), callbackImpl.getOffset(),
+                  callbackImpl.getTaskName(), true);
+            }
             log.trace("Got callback complete for task {}, ssp {}",
                 callbackImpl.getTaskName(), callbackImpl.getSystemStreamPartition());
 
@@ -659,9 +772,14 @@ public class RunLoop implements Runnable, Throttleable {
         // is visible to the run loop thread promptly. Refer SAMZA-2510 for more details.
         abort(t);
         state.doneProcess();
+        completeWatchdogProcessOp(callback);
         // update pending count, but not offset
         TaskCallbackImpl callbackImpl = (TaskCallbackImpl) callback;
         log.error("Got callback failure for task {}", callbackImpl.getTaskName(), t);
+        if (latencyTracker != null) {
+          latencyTracker.onProcessComplete(callbackImpl.getSystemStreamPartition(), callbackImpl.getOffset(),
+              callbackImpl.getTaskName(), false);
+        }
       } catch (Throwable e) {
         log.error("Error marking process as failed.", e);
       } finally {
@@ -688,6 +806,8 @@ public class RunLoop implements Runnable, Throttleable {
     private volatile boolean schedulerInFlight = false;
     private final AtomicInteger messagesInFlight = new AtomicInteger(0);
     private final ArrayDeque<PendingEnvelope> pendingEnvelopeQueue;
+    // partitions which are not updated in the chooser until the task is below max concurrency
+    private final Set<SystemStreamPartition> deferredPartitions = new LinkedHashSet<>();
 
     //Set of SSPs that we are currently processing for this task instance
     private final Set<SystemStreamPartition> processingSspSet;
@@ -828,6 +948,9 @@ public class RunLoop implements Runnable, Throttleable {
      * @param pendingEnvelope
      */
     private void insertEnvelope(PendingEnvelope pendingEnvelope) {
+      if (messagesInFlight.get() >= maxConcurrency) {
+        taskMetrics.envelopesChosenWhileBusy().add(1);
+      }
       pendingEnvelopeQueue.add(pendingEnvelope);
       int queueSize = pendingEnvelopeQueue.size();
       taskMetrics.pendingMessages().set(queueSize);
@@ -857,10 +980,43 @@ public class RunLoop implements Runnable, Throttleable {
 
       if (pendingEnvelope.markProcessed()) {
         SystemStreamPartition partition = pendingEnvelope.envelope.getSystemStreamPartition();
-        consumerMultiplexer.tryUpdate(partition);
-        log.debug("Update chooser for {}", partition);
+        if (skipBusyTasks) {
+          // whether the task is at max concurrency is only known once the envelope is dispatched to it
+          deferredPartitions.add(partition);
+        } else {
+          consumerMultiplexer.tryUpdate(partition);
+          log.debug("Update chooser for {}", partition);
+        }
       }
       return pendingEnvelope.envelope;
     }
+
+    /**
+     * Update the chooser with the partition of the envelope dispatched to the task, unless the task is at max
+     * concurrency while processing it. A task which completed it synchronously, or can process more messages, is not
+     * held back.
+     * The function will be called in the run loop thread so no synchronization.
+     */
+    private void updateChooserAfterDispatch() {
+      updateDeferredPartitions();
+      if (!deferredPartitions.isEmpty()) {
+        taskMetrics.chooserDeferredUpdates().add(1);
+        log.debug("Defer updating chooser for {}", deferredPartitions);
+      }
+    }
+
+    /**
+     * Update the chooser with the deferred partitions, if the task is below max concurrency.
+     * The function will be called in the run loop thread so no synchronization.
+     */
+    private void updateDeferredPartitions() {
+      if (!deferredPartitions.isEmpty() && messagesInFlight.get() < maxConcurrency) {
+        for (SystemStreamPartition partition : deferredPartitions) {
+          consumerMultiplexer.tryUpdate(partition);
+          log.debug("Update chooser for deferred {}", partition);
+        }
+        deferredPartitions.clear();
+      }
+    }
   }
 }
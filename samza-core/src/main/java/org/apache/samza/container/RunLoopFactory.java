@@ -40,7 +40,9 @@ public class RunLoopFactory {
       long maxThrottlingDelayMs,
       SamzaContainerMetrics containerMetrics,
       TaskConfig taskConfig,
-      HighResolutionClock clock) {
+      HighResolutionClock clock,
+      EnvelopeLatencyTracker latencyTracker,
+      RunLoopWatchdog watchdog) {
 
     long taskWindowMs = taskConfig.getWindowMs();
 
@@ -62,6 +64,9 @@ public class RunLoopFactory {
     long maxIdleMs = taskConfig.getMaxIdleMs();
     log.info("Got maxIdleMs: {}.", maxIdleMs);
 
+    boolean skipBusyTasks = taskConfig.getChooserSkipBusyTasks();
+    log.info("Got skipBusyTasks: {}.", skipBusyTasks);
+
     log.info("Run loop in asynchronous mode.");
 
     return new RunLoop(
@@ -76,6 +81,9 @@ public class RunLoopFactory {
       maxIdleMs,
       containerMetrics,
       clock,
-      isAsyncCommitEnabled);
+      isAsyncCommitEnabled,
+      latencyTracker,
+      watchdog,
+      skipBusyTasks);
   }
 }
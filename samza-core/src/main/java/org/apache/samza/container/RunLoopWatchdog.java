@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.container;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.diagnostics.DiagnosticsExceptionEvent;
+import org.apache.samza.diagnostics.DiagnosticsManager;
+import org.apache.samza.metrics.Counter;
+import org.apache.samza.metrics.MetricsRegistry;
+import org.apache.samza.metrics.Timer;
+import org.apache.samza.util.HighResolutionClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Watches the operations which {@link RunLoop} runs for its tasks, i.e., process, window, commit, scheduler and
+ * end-of-stream, to find out which task and operation is responsible when a container stalls.
+ * <p>
+ * Every operation is tracked from its start until its completion, together with the thread which runs it. For process,
+ * this is the run loop thread until the task returns from process, after which the operation waits for its callback.
+ * The duration of completed operations is recorded in per-task timers, which are histograms if
+ * metrics.timer.reservoir is histogram.
+ * <p>
+ * A background thread periodically checks the operations in flight. An operation which has been running for longer
+ * than the stall threshold is reported once: the stack of the thread running it is logged, and sent as an exception
+ * event to the diagnostics stream if a {@link DiagnosticsManager} is available.
+ */
+public class RunLoopWatchdog {
+  private static final Logger LOG = LoggerFactory.getLogger(RunLoopWatchdog.class);
+
+  static final String GROUP = RunLoopWatchdog.class.getName();
+  static final String MDC_TASK_NAME = "taskName";
+  static final String MDC_OPERATION = "operation";
+  static final String MDC_THREAD_NAME = "threadName";
+
+  enum Op {
+    PROCESS("process"),
+    WINDOW("window"),
+    COMMIT("commit"),
+    SCHEDULER("scheduler"),
+    END_OF_STREAM("end-of-stream");
+
+    private final String metricName;
+
+    Op(String name) {
+      this.metricName = name;
+    }
+  }
+
+  private final long stallThresholdNs;
+  private final long checkIntervalMs;
+  private final DiagnosticsManager diagnosticsManager;
+  private final HighResolutionClock clock;
+  private final Set<InFlightOp> inFlightOps = ConcurrentHashMap.newKeySet();
+  private final Map<TaskName, TaskOpMetrics> taskOpMetrics = new ConcurrentHashMap<>();
+  private volatile ScheduledExecutorService checkExecutor;
+
+  /**
+   * @param stallThresholdMs the duration after which an operation in flight is reported as stalled
+   * @param diagnosticsManager if not null, receives an exception event with the stack of stalled operations
+   * @param clock the clock used to measure the duration of operations
+   */
+  public RunLoopWatchdog(long stallThresholdMs, DiagnosticsManager diagnosticsManager, HighResolutionClock clock) {
+    if (stallThresholdMs <= 0) {
+      throw new IllegalArgumentException("Stall threshold must be positive, but is " + stallThresholdMs);
+    }
+    this.stallThresholdNs = TimeUnit.MILLISECONDS.toNanos(stallThresholdMs);
+    this.checkIntervalMs = Math.max(stallThresholdMs / 2, 1);
+    this.diagnosticsManager = diagnosticsManager;
+    this.clock = clock;
+  }
+
+  /**
+   * Register the operation duration timers and the stall counter of a task in the given registry.
+   */
+  void registerTask(TaskName taskName, MetricsRegistry registry) {
+    taskOpMetrics.put(taskName, new TaskOpMetrics(registry));
+  }
+
+  /**
+   * Start checking for stalled operations in a background thread.
+   */
+  void start() {
+    checkExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("Samza RunLoop Watchdog").setDaemon(true).build());
+    checkExecutor.scheduleAtFixedRate(() -> {
+      try {
+        checkForStalls();
+      } catch (Throwable t) {
+        LOG.warn("Failed to check for stalled run loop operations.", t);
+      }
+    }, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  void stop() {
+    if (checkExecutor != null) {
+      checkExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Mark the start of an operation of a task on the current thread.
+   *
+   * @return the operation in flight, to pass to {@link #onOpComplete(InFlightOp)}
+   */
+  InFlightOp onOpStart(TaskName taskName, Op op) {
+    InFlightOp inFlightOp = new InFlightOp(taskName, op, Thread.currentThread(), clock.nanoTime());
+    inFlightOps.add(inFlightOp);
+    return inFlightOp;
+  }
+
+  /**
+   * Mark the completion of an operation, and record its duration.
+   */
+  void onOpComplete(InFlightOp inFlightOp) {
+    if (!inFlightOps.remove(inFlightOp)) {
+      return;
+    }
+    long durationNs = clock.nanoTime() - inFlightOp.startNs;
+    TaskOpMetrics metrics = taskOpMetrics.get(inFlightOp.taskName);
+    if (metrics != null) {
+      metrics.opNs.get(inFlightOp.op).update(durationNs);
+    }
+    if (inFlightOp.stallReported) {
+      LOG.info("Stalled {} of task {} completed after {} ms.", inFlightOp.op.metricName, inFlightOp.taskName,
+          TimeUnit.NANOSECONDS.toMillis(durationNs));
+    }
+  }
+
+  /**
+   * Report the operations which have been in flight for longer than the stall threshold, and were not reported yet.
+   *
+   * @return the number of newly reported operations
+   */
+  @VisibleForTesting
+  int checkForStalls() {
+    long now = clock.nanoTime();
+    int stalls = 0;
+    for (InFlightOp inFlightOp : inFlightOps) {
+      if (!inFlightOp.stallReported && now - inFlightOp.startNs >= stallThresholdNs) {
+        inFlightOp.stallReported = true;
+        reportStall(inFlightOp, TimeUnit.NANOSECONDS.toMillis(now - inFlightOp.startNs));
+        stalls++;
+      }
+    }
+    return stalls;
+  }
+
+  private void reportStall(InFlightOp inFlightOp, long durationMs) {
+    TaskOpMetrics metrics = taskOpMetrics.get(inFlightOp.taskName);
+    if (metrics != null) {
+      metrics.stalls.inc();
+    }
+
+    Thread thread = inFlightOp.thread;
+    StallException stall;
+    if (thread != null) {
+      stall = new StallException(String.format("%s of task %s has been running on thread %s for %d ms",
+          inFlightOp.op.metricName, inFlightOp.taskName, thread.getName(), durationMs));
+      stall.setStackTrace(thread.getStackTrace());
+    } else {
+      stall = new StallException(String.format("%s of task %s has been waiting for its callback for %d ms",
+          inFlightOp.op.metricName, inFlightOp.taskName, durationMs));
+      stall.setStackTrace(new StackTraceElement[0]);
+    }
+
+    // log the stack as part of the message, so that diagnostics appenders don't report the stall a second time
+    StringBuilder message = new StringBuilder(stall.getMessage()).append('.');
+    for (StackTraceElement element : stall.getStackTrace()) {
+      message.append(System.lineSeparator()).append("\tat ").append(element);
+    }
+    LOG.warn(message.toString());
+
+    if (diagnosticsManager != null) {
+      Map<String, String> mdc = new HashMap<>();
+      mdc.put(MDC_TASK_NAME, inFlightOp.taskName.getTaskName());
+      mdc.put(MDC_OPERATION, inFlightOp.op.metricName);
+      if (thread != null) {
+        mdc.put(MDC_THREAD_NAME, thread.getName());
+      }
+      diagnosticsManager.addExceptionEvent(new DiagnosticsExceptionEvent(System.currentTimeMillis(), stall, mdc));
+    }
+  }
+
+  /**
+   * An operation of a task in flight.
+   */
+  static final class InFlightOp {
+    private final TaskName taskName;
+    private final Op op;
+    private final long startNs;
+    // the thread running the operation, or null if it's waiting for a callback
+    private volatile Thread thread;
+    private volatile boolean stallReported = false;
+
+    private InFlightOp(TaskName taskName, Op op, Thread thread, long startNs) {
+      this.taskName = taskName;
+      this.op = op;
+      this.thread = thread;
+      this.startNs = startNs;
+    }
+
+    /**
+     * Mark that the operation is no longer running on its thread, but waits for a callback to complete it.
+     */
+    void awaitCallback() {
+      thread = null;
+    }
+  }
+
+  private static final class TaskOpMetrics {
+    private final Map<Op, Timer> opNs = new HashMap<>();
+    private final Counter stalls;
+
+    TaskOpMetrics(MetricsRegistry registry) {
+      for (Op op : Op.values()) {
+        opNs.put(op, registry.newTimer(GROUP, op.metricName + "-op-ns"));
+      }
+      stalls = registry.newCounter(GROUP, "op-stalls");
+    }
+  }
+
+  /**
+   * The exception reported to the diagnostics stream for a stalled operation. It's never thrown, and its stack trace
+   * is the stack of the thread running the operation when the stall was detected.
+   */
+  public static class StallException extends RuntimeException {
+    StallException(String message) {
+      super(message);
+    }
+  }
+}
@@ -68,6 +68,7 @@ import org.slf4j.LoggerFactory;
   private static final Logger LOG = LoggerFactory.getLogger(JobNodeConfigurationGenerator.class);
 
   static final String CONFIG_INTERNAL_EXECUTION_PLAN = "samza.internal.execution.plan";
+  static final long DEFAULT_WATERMARK_FLUSH_INTERVAL_MS = 1000L;
 
   static Config mergeConfig(Map<String, String> originalConfig, Map<String, String> generatedConfig) {
     validateJobConfigs(originalConfig, generatedConfig);
@@ -144,6 +145,11 @@ import org.slf4j.LoggerFactory;
     // compute window and join operator intervals in this node
     configureWindowInterval(generatedConfig, originalConfig, reachableOperators);
 
+    // make sure the coalesced watermarks sent to intermediate streams are flushed on the window tick
+    List<StreamEdge> edges = new ArrayList<>(inEdges.values());
+    edges.addAll(outEdges.values());
+    configureWatermarkFlushInterval(generatedConfig, originalConfig, edges);
+
     // set store configuration for stateful operators.
     stores.forEach(sd -> generatedConfig.putAll(sd.getStorageConfigs()));
 
@@ -202,6 +208,25 @@ import org.slf4j.LoggerFactory;
     configs.put(TaskConfig.WINDOW_MS, String.valueOf(triggerInterval));
   }
 
+  private void configureWatermarkFlushInterval(Map<String, String> configs, Config config,
+      Collection<StreamEdge> edges) {
+    if (configs.containsKey(TaskConfig.WINDOW_MS) || config.containsKey(TaskConfig.WINDOW_MS)
+        || edges.stream().noneMatch(StreamEdge::isIntermediate)) {
+      return;
+    }
+    JobConfig jobConfig = new JobConfig(config);
+    long minIntervalMs = jobConfig.getIntermediateStreamWatermarkMinIntervalMs();
+    if (minIntervalMs <= 0 && jobConfig.getIntermediateStreamWatermarkMinAdvanceMs() <= 0) {
+      return;
+    }
+
+    // watermarks are coalesced, so pending ones need a window tick to be sent if no further watermark arrives
+    long flushInterval = minIntervalMs > 0 ? minIntervalMs : DEFAULT_WATERMARK_FLUSH_INTERVAL_MS;
+    LOG.info("Using window interval {} to flush coalesced watermarks", flushInterval);
+
+    configs.put(TaskConfig.WINDOW_MS, String.valueOf(flushInterval));
+  }
+
   /**
    * Computes the triggering interval to use during the execution of this {@link JobNode}
    */
@@ -0,0 +1,387 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics.reporter;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+import org.apache.samza.SamzaException;
+import org.apache.samza.metrics.Counter;
+import org.apache.samza.metrics.Gauge;
+import org.apache.samza.metrics.Metric;
+import org.apache.samza.metrics.MetricsReporter;
+import org.apache.samza.metrics.MetricsVisitor;
+import org.apache.samza.metrics.ReadableMetricsRegistry;
+import org.apache.samza.metrics.ReadableMetricsRegistryListener;
+import org.apache.samza.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A {@link MetricsReporter} which serves the metrics of its registries in the OpenMetrics text format, from an
+ * embedded HTTP server at {@link #METRICS_PATH}, so that they can be scraped by Prometheus and compatible systems.
+ * <p>
+ * Each metric is exposed as a metric family named after its group and name, e.g.,
+ * {@code org_apache_samza_container_SamzaContainerMetrics_process_envelopes}, with the source of its registry as the
+ * {@code source} label. Counters are exposed as counters, gauges with numeric or boolean values as gauges, and timers
+ * as summaries. The quantiles of a summary are computed over the window of the timer's reservoir, while its count and
+ * sum are cumulative, as OpenMetrics requires. Gauges with other values are not exposed.
+ * <p>
+ * Like the {@link JmxReporter}, the reporter keeps an index of the metrics, which is updated when metrics are added to
+ * a registry. A scrape only reads the current values of the indexed metrics and writes them to the response, without
+ * building a snapshot of all the metrics first.
+ */
+public class OpenMetricsHttpReporter implements MetricsReporter {
+  private static final Logger LOG = LoggerFactory.getLogger(OpenMetricsHttpReporter.class);
+
+  public static final String METRICS_PATH = "/metrics";
+  static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+  private final String host;
+  private final int port;
+  private final double[] quantiles;
+  private final String[] quantileLabels;
+
+  private final Map<ReadableMetricsRegistry, ReadableMetricsRegistryListener> listeners = new HashMap<>();
+  private final Map<ReadableMetricsRegistry, String> sources = new HashMap<>();
+
+  /**
+   * Metric families by their name. The families are sorted to serve them in a stable order.
+   */
+  private final ConcurrentSkipListMap<String, MetricFamily> families = new ConcurrentSkipListMap<>();
+
+  private HttpServer server;
+  private ExecutorService executor;
+
+  /**
+   * @param host the host to bind the HTTP server to
+   * @param port the port to bind the HTTP server to, or 0 to bind to any free port
+   * @param percentiles the percentiles of timers to serve as quantiles of their summaries, in (0, 100]
+   */
+  public OpenMetricsHttpReporter(String host, int port, List<Double> percentiles) {
+    this.host = host;
+    this.port = port;
+    this.quantiles = new double[percentiles.size()];
+    this.quantileLabels = new String[percentiles.size()];
+    for (int i = 0; i < percentiles.size(); i++) {
+      quantiles[i] = percentiles.get(i);
+      quantileLabels[i] = BigDecimal.valueOf(percentiles.get(i)).movePointLeft(2).stripTrailingZeros().toPlainString();
+    }
+  }
+
+  @Override
+  public void register(String source, ReadableMetricsRegistry registry) {
+    if (listeners.containsKey(registry)) {
+      LOG.warn("Trying to re-register a registry for source {}. Ignoring.", source);
+      return;
+    }
+    sources.put(registry, source);
+    listeners.put(registry, new ReadableMetricsRegistryListener() {
+      @Override
+      public void onCounter(String group, Counter counter) {
+        addMetric(source, group, counter);
+      }
+
+      @Override
+      public void onGauge(String group, Gauge<?> gauge) {
+        addMetric(source, group, gauge);
+      }
+
+      @Override
+      public void onTimer(String group, Timer timer) {
+        addMetric(source, group, timer);
+      }
+    });
+  }
+
+  @Override
+  public void start() {
+    for (Map.Entry<ReadableMetricsRegistry, ReadableMetricsRegistryListener> entry : listeners.entrySet()) {
+      ReadableMetricsRegistry registry = entry.getKey();
+      // First, add a listener for all new metrics that are added, then add all existing metrics.
+      registry.listen(entry.getValue());
+      for (String group : registry.getGroups()) {
+        for (Metric metric : registry.getGroup(group).values()) {
+          addMetric(sources.get(registry), group, metric);
+        }
+      }
+    }
+
+    try {
+      server = HttpServer.create(new InetSocketAddress(host, port), 0);
+    } catch (IOException e) {
+      throw new SamzaException(String.format("Failed to start metrics HTTP server on %s:%d", host, port), e);
+    }
+    executor = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("Samza OpenMetricsHttpReporter Thread-%d").setDaemon(true).build());
+    server.setExecutor(executor);
+    server.createContext(METRICS_PATH, this::handle);
+    server.start();
+    LOG.info("Serving metrics at http://{}:{}{}", host, getPort(), METRICS_PATH);
+  }
+
+  @Override
+  public void stop() {
+    for (Map.Entry<ReadableMetricsRegistry, ReadableMetricsRegistryListener> entry : listeners.entrySet()) {
+      entry.getKey().unlisten(entry.getValue());
+    }
+    if (server != null) {
+      server.stop(0);
+      executor.shutdownNow();
+      LOG.info("Stopped metrics HTTP server.");
+    }
+  }
+
+  /**
+   * @return the port the HTTP server is bound to
+   */
+  public int getPort() {
+    if (server == null) {
+      throw new SamzaException("Metrics HTTP server is not started.");
+    }
+    return server.getAddress().getPort();
+  }
+
+  private void addMetric(String source, String group, Metric metric) {
+    String name = sanitizeName(group + "_" + getMetricName(metric));
+    MetricFamily family = families.computeIfAbsent(name, familyName -> new MetricFamily(familyName, getType(metric)));
+    if (!family.type.equals(getType(metric))) {
+      LOG.warn("Not serving {} metric {} of group {} from source {}, since {} is already a {}.", getType(metric),
+          getMetricName(metric), group, source, name, family.type);
+      return;
+    }
+    // a registry replaces a gauge if a gauge with the same name is added again
+    family.metrics.put(source, metric);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+      boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      if (gzip) {
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+      }
+      // a response length of 0 streams the response with chunked transfer encoding
+      exchange.sendResponseHeaders(200, 0);
+      OutputStream body = gzip ? new GZIPOutputStream(exchange.getResponseBody()) : exchange.getResponseBody();
+      try (Writer writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8))) {
+        writeMetrics(writer);
+      }
+    } catch (Exception e) {
+      LOG.warn("Error while serving metrics.", e);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Write all metric families in the OpenMetrics text format.
+   */
+  @VisibleForTesting
+  void writeMetrics(Writer writer) throws IOException {
+    for (MetricFamily family : families.values()) {
+      writer.write("# TYPE ");
+      writer.write(family.name);
+      writer.write(' ');
+      writer.write(family.type);
+      writer.write('\n');
+      for (Map.Entry<String, Metric> entry : family.metrics.entrySet()) {
+        writeMetric(writer, family.name, escapeLabelValue(entry.getKey()), entry.getValue());
+      }
+    }
+    writer.write("# EOF\n");
+  }
+
+  private void writeMetric(Writer writer, String name, String source, Metric metric) throws IOException {
+    // MetricsVisitor methods can't throw checked exceptions
+    IOException[] exception = new IOException[1];
+    metric.visit(new MetricsVisitor() {
+      @Override
+      public void counter(Counter counter) {
+        try {
+          writeSample(writer, name, "_total", source, null, Long.toString(counter.getCount()));
+        } catch (IOException e) {
+          exception[0] = e;
+        }
+      }
+
+      @Override
+      public <T> void gauge(Gauge<T> gauge) {
+        Object value = gauge.getValue();
+        try {
+          if (value instanceof Number) {
+            Number number = (Number) value;
+            writeSample(writer, name, "", source, null, value instanceof Double || value instanceof Float
+                ? formatDouble(number.doubleValue()) : Long.toString(number.longValue()));
+          } else if (value instanceof Boolean) {
+            writeSample(writer, name, "", source, null, (Boolean) value ? "1" : "0");
+          }
+        } catch (IOException e) {
+          exception[0] = e;
+        }
+      }
+
+      @Override
+      public void timer(Timer timer) {
+        try {
+          if (quantiles.length > 0) {
+            long[] values = timer.getSnapshot().getPercentiles(quantiles);
+            for (int i = 0; i < quantiles.length; i++) {
+              writeSample(writer, name, "", source, quantileLabels[i], Long.toString(values[i]));
+            }
+          }
+          writeSample(writer, name, "_sum", source, null, Long.toString(timer.getSum()));
+          writeSample(writer, name, "_count", source, null, Long.toString(timer.getCount()));
+        } catch (IOException e) {
+          exception[0] = e;
+        }
+      }
+    });
+    if (exception[0] != null) {
+      throw exception[0];
+    }
+  }
+
+  private static void writeSample(Writer writer, String name, String suffix, String source, String quantile,
+      String value) throws IOException {
+    writer.write(name);
+    writer.write(suffix);
+    writer.write("{source=\"");
+    writer.write(source);
+    if (quantile != null) {
+      writer.write("\",quantile=\"");
+      writer.write(quantile);
+    }
+    writer.write("\"} ");
+    writer.write(value);
+    writer.write('\n');
+  }
+
+  private static String getMetricName(Metric metric) {
+    String[] name = new String[1];
+    metric.visit(new MetricsVisitor() {
+      @Override
+      public void counter(Counter counter) {
+        name[0] = counter.getName();
+      }
+
+      @Override
+      public <T> void gauge(Gauge<T> gauge) {
+        name[0] = gauge.getName();
+      }
+
+      @Override
+      public void timer(Timer timer) {
+        name[0] = timer.getName();
+      }
+    });
+    return name[0];
+  }
+
+  private static String getType(Metric metric) {
+    String[] type = new String[1];
+    metric.visit(new MetricsVisitor() {
+      @Override
+      public void counter(Counter counter) {
+        type[0] = "counter";
+      }
+
+      @Override
+      public <T> void gauge(Gauge<T> gauge) {
+        type[0] = "gauge";
+      }
+
+      @Override
+      public void timer(Timer timer) {
+        type[0] = "summary";
+      }
+    });
+    return type[0];
+  }
+
+  /**
+   * Replace the characters which are not allowed in OpenMetrics metric names with underscores.
+   */
+  @VisibleForTesting
+  static String sanitizeName(String name) {
+    StringBuilder sanitized = new StringBuilder(name.length() + 1);
+    if (name.isEmpty() || Character.isDigit(name.charAt(0))) {
+      sanitized.append('_');
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      boolean isValid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == ':';
+      sanitized.append(isValid ? c : '_');
+    }
+    return sanitized.toString();
+  }
+
+  private static String escapeLabelValue(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static String formatDouble(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    } else if (Double.isInfinite(value)) {
+      return value > 0 ? "+Inf" : "-Inf";
+    } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  private static class MetricFamily {
+    private final String name;
+    private final String type;
+
+    /**
+     * Metrics of the family by the source of their registry
+     */
+    private final ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    MetricFamily(String name, String type) {
+      this.name = name;
+      this.type = type;
+    }
+  }
+}
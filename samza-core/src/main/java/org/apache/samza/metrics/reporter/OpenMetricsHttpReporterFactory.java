@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics.reporter;
+
+import org.apache.samza.config.Config;
+import org.apache.samza.config.MetricsConfig;
+import org.apache.samza.metrics.MetricsReporter;
+import org.apache.samza.metrics.MetricsReporterFactory;
+
+
+/**
+ * Creates an {@link OpenMetricsHttpReporter}, which serves the metrics of a container, or of a standalone
+ * StreamProcessor, over HTTP in the OpenMetrics text format.
+ */
+public class OpenMetricsHttpReporterFactory implements MetricsReporterFactory {
+  @Override
+  public MetricsReporter getMetricsReporter(String name, String containerName, Config config) {
+    MetricsConfig metricsConfig = new MetricsConfig(config);
+    return new OpenMetricsHttpReporter(metricsConfig.getMetricsHttpReporterHost(name),
+        metricsConfig.getMetricsHttpReporterPort(name), metricsConfig.getMetricsReporterTimerPercentiles(name));
+  }
+}
@@ -28,6 +28,7 @@ import org.apache.samza.application.descriptors.StreamApplicationDescriptorImpl;
 import org.apache.samza.operators.functions.AsyncFlatMapFunction;
 import org.apache.samza.operators.functions.FilterFunction;
 import org.apache.samza.operators.functions.FlatMapFunction;
+import org.apache.samza.operators.functions.FoldLeftFunction;
 import org.apache.samza.operators.functions.JoinFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.SinkFunction;
@@ -176,6 +177,13 @@ public class MessageStreamImpl<M> implements MessageStream<M> {
   @Override
   public <K, V> MessageStream<KV<K, V>> partitionBy(MapFunction<? super M, ? extends K> keyExtractor,
       MapFunction<? super M, ? extends V> valueExtractor, KVSerde<K, V> serde, String userDefinedId) {
+    return partitionBy(keyExtractor, valueExtractor, null, serde, userDefinedId);
+  }
+
+  @Override
+  public <K, V> MessageStream<KV<K, V>> partitionBy(MapFunction<? super M, ? extends K> keyExtractor,
+      MapFunction<? super M, ? extends V> valueExtractor, FoldLeftFunction<? super V, V> combiner,
+      KVSerde<K, V> serde, String userDefinedId) {
     String opId = this.streamAppDesc.getNextOpId(OpCode.PARTITION_BY, userDefinedId);
     IntermediateMessageStreamImpl<KV<K, V>> intermediateStream = this.streamAppDesc.getIntermediateStream(opId, serde, false);
     if (!intermediateStream.isKeyed()) {
@@ -183,7 +191,7 @@ public class MessageStreamImpl<M> implements MessageStream<M> {
       throw new SamzaException("partitionBy can not be used with a default serde that is not a KVSerde.");
     }
     PartitionByOperatorSpec<M, K, V> partitionByOperatorSpec = OperatorSpecs.createPartitionByOperatorSpec(
-        intermediateStream.getOutputStream(), keyExtractor, valueExtractor, opId);
+        intermediateStream.getOutputStream(), keyExtractor, valueExtractor, combiner, opId);
     this.operatorSpec.registerNextOperatorSpec(partitionByOperatorSpec);
     return intermediateStream;
   }
@@ -47,6 +47,11 @@ public class AsyncFlatmapOperatorImpl<M, RM> extends OperatorImpl<M, RM> {
     return transformFn.apply(message);
   }
 
+  @Override
+  protected boolean isSynchronous() {
+    return false;
+  }
+
   @Override
   protected void handleClose() {
     this.transformFn.close();
@@ -20,6 +20,9 @@
 package org.apache.samza.operators.impl;
 
 import org.apache.samza.SamzaException;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.JobConfig;
+import org.apache.samza.metrics.MetricsRegistry;
 import org.apache.samza.system.ControlMessage;
 import org.apache.samza.system.MessageType;
 import org.apache.samza.system.OutgoingMessageEnvelope;
@@ -27,7 +30,11 @@ import org.apache.samza.system.StreamMetadataCache;
 import org.apache.samza.system.SystemStream;
 import org.apache.samza.system.SystemStreamMetadata;
 import org.apache.samza.system.SystemStreamPartition;
+import org.apache.samza.system.WatermarkMessage;
 import org.apache.samza.task.MessageCollector;
+import org.apache.samza.util.Clock;
+import org.apache.samza.util.NoOpMetricsRegistry;
+import org.apache.samza.util.SystemClock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,16 +43,45 @@ import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
- * This is a helper class to send control messages to an intermediate stream
+ * This is a helper class to send control messages to an intermediate stream.
+ *
+ * Watermarks can be coalesced with a minimum interval and a minimum advance: a watermark is only sent if at least the
+ * minimum interval has passed since the previous watermark was sent to the same destination, and it advanced at least
+ * the minimum advance over it. Otherwise it's suppressed, and a later watermark supersedes it. The latest suppressed
+ * watermark is sent by {@link #flushWatermarks} on the window tick once the minimum interval has passed, even if no
+ * further watermark arrives. This bounds the control traffic of tasks producing to intermediate streams with many
+ * partitions, at the cost of a delay of the downstream watermarks of up to the minimum interval plus the window
+ * interval.
  */
 class ControlMessageSender {
   private static final Logger LOG = LoggerFactory.getLogger(ControlMessageSender.class);
   private static final Map<SystemStream, Integer> PARTITION_COUNT_CACHE = new ConcurrentHashMap<>();
 
   private final StreamMetadataCache metadataCache;
+  private final long watermarkMinIntervalMs;
+  private final long watermarkMinAdvanceMs;
+  private final Clock clock;
+  private final WatermarkMetrics watermarkMetrics;
+  // the watermarks sent to each destination, i.e. a stream for aggregation or a partition for broadcast
+  private final Map<Object, SentWatermark> sentWatermarks = new ConcurrentHashMap<>();
 
   ControlMessageSender(StreamMetadataCache metadataCache) {
+    this(metadataCache, 0, 0, SystemClock.instance(), new WatermarkMetrics(new NoOpMetricsRegistry()));
+  }
+
+  ControlMessageSender(StreamMetadataCache metadataCache, Config config, MetricsRegistry metricsRegistry) {
+    this(metadataCache, new JobConfig(config).getIntermediateStreamWatermarkMinIntervalMs(),
+        new JobConfig(config).getIntermediateStreamWatermarkMinAdvanceMs(), SystemClock.instance(),
+        new WatermarkMetrics(metricsRegistry));
+  }
+
+  ControlMessageSender(StreamMetadataCache metadataCache, long watermarkMinIntervalMs, long watermarkMinAdvanceMs,
+      Clock clock, WatermarkMetrics watermarkMetrics) {
     this.metadataCache = metadataCache;
+    this.watermarkMinIntervalMs = watermarkMinIntervalMs;
+    this.watermarkMinAdvanceMs = watermarkMinAdvanceMs;
+    this.clock = clock;
+    this.watermarkMetrics = watermarkMetrics;
   }
 
   void send(ControlMessage message, SystemStream systemStream, MessageCollector collector) {
@@ -73,6 +109,79 @@ class ControlMessageSender {
     }
   }
 
+  /**
+   * Send the watermark to the aggregate partition of the stream, unless it's coalesced with the previous one.
+   *
+   * @return true if the watermark was sent
+   */
+  boolean sendWatermark(WatermarkMessage message, SystemStream systemStream, MessageCollector collector) {
+    if (!shouldSendWatermark(systemStream, systemStream, message.getTimestamp())) {
+      return false;
+    }
+    send(message, systemStream, collector);
+    return true;
+  }
+
+  /**
+   * Send the latest watermark which was suppressed for the stream, if any, regardless of the coalescing limits.
+   */
+  void flushWatermark(SystemStream systemStream, String taskName, MessageCollector collector) {
+    SentWatermark sentWatermark = sentWatermarks.get(systemStream);
+    if (sentWatermark != null) {
+      long pending = sentWatermark.flush(clock.currentTimeMillis(), 0);
+      if (pending != WatermarkStates.WATERMARK_NOT_EXIST) {
+        send(new WatermarkMessage(pending, taskName), systemStream, collector);
+      }
+    }
+  }
+
+  /**
+   * Send the latest watermarks which were suppressed for all destinations, if the minimum interval has passed since
+   * the previous watermark was sent to them, regardless of the minimum advance. Called on the window tick, so that
+   * downstream watermarks advance even if no further watermark arrives.
+   */
+  void flushWatermarks(String taskName, MessageCollector collector) {
+    long nowMs = clock.currentTimeMillis();
+    sentWatermarks.forEach((destination, sentWatermark) -> {
+      long pending = sentWatermark.flush(nowMs, watermarkMinIntervalMs);
+      if (pending == WatermarkStates.WATERMARK_NOT_EXIST) {
+        return;
+      }
+      if (destination instanceof SystemStreamPartition) {
+        broadcastToOtherPartitions(new WatermarkMessage(pending), (SystemStreamPartition) destination, collector);
+      } else {
+        send(new WatermarkMessage(pending, taskName), (SystemStream) destination, collector);
+      }
+    });
+  }
+
+  /**
+   * Broadcast the watermark to the other partitions of the stream, unless it's coalesced with the previous one.
+   *
+   * @return true if the watermark was broadcast
+   */
+  boolean broadcastWatermarkToOtherPartitions(WatermarkMessage message, SystemStreamPartition ssp,
+      MessageCollector collector) {
+    if (!shouldSendWatermark(ssp, ssp.getSystemStream(), message.getTimestamp())) {
+      return false;
+    }
+    broadcastToOtherPartitions(message, ssp, collector);
+    return true;
+  }
+
+  private boolean shouldSendWatermark(Object destination, SystemStream systemStream, long watermark) {
+    if (watermarkMinIntervalMs <= 0 && watermarkMinAdvanceMs <= 0) {
+      return true;
+    }
+    SentWatermark sentWatermark = sentWatermarks.computeIfAbsent(destination, d -> new SentWatermark());
+    if (sentWatermark.trySend(watermark, clock.currentTimeMillis(), watermarkMinIntervalMs, watermarkMinAdvanceMs)) {
+      return true;
+    }
+    LOG.trace("Suppressed watermark {} to {}", watermark, destination);
+    watermarkMetrics.incSuppressed(systemStream);
+    return false;
+  }
+
   private int getPartitionCount(SystemStream systemStream) {
     return PARTITION_COUNT_CACHE.computeIfAbsent(systemStream, ss -> {
       SystemStreamMetadata metadata = metadataCache.getSystemStreamMetadata(ss, true);
@@ -82,4 +191,40 @@ class ControlMessageSender {
       return metadata.getSystemStreamPartitionMetadata().size();
     });
   }
+
+  /**
+   * The last watermark sent to a destination, and the latest one suppressed since then.
+   */
+  private static class SentWatermark {
+    private long watermark = WatermarkStates.WATERMARK_NOT_EXIST;
+    private long sentTimeMs;
+    private long pendingWatermark = WatermarkStates.WATERMARK_NOT_EXIST;
+
+    synchronized boolean trySend(long newWatermark, long nowMs, long minIntervalMs, long minAdvanceMs) {
+      if (watermark == WatermarkStates.WATERMARK_NOT_EXIST
+          || (nowMs - sentTimeMs >= minIntervalMs && newWatermark - watermark >= minAdvanceMs)) {
+        watermark = newWatermark;
+        sentTimeMs = nowMs;
+        pendingWatermark = WatermarkStates.WATERMARK_NOT_EXIST;
+        return true;
+      }
+      pendingWatermark = Math.max(pendingWatermark, newWatermark);
+      return false;
+    }
+
+    synchronized long flush(long nowMs, long minIntervalMs) {
+      if (nowMs - sentTimeMs < minIntervalMs) {
+        return WatermarkStates.WATERMARK_NOT_EXIST;
+      }
+      long pending = pendingWatermark;
+      if (pending > watermark) {
+        watermark = pending;
+        sentTimeMs = nowMs;
+      } else {
+        pending = WatermarkStates.WATERMARK_NOT_EXIST;
+      }
+      pendingWatermark = WatermarkStates.WATERMARK_NOT_EXIST;
+      return pending;
+    }
+  }
 }
@@ -18,8 +18,6 @@
  */
 package org.apache.samza.operators.impl;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
 import org.apache.samza.context.Context;
 import org.apache.samza.operators.functions.FlatMapFunction;
 import org.apache.samza.operators.spec.OperatorSpec;
@@ -52,9 +50,8 @@ class FlatmapOperatorImpl<M, RM> extends OperatorImpl<M, RM> {
   }
 
   @Override
-  protected CompletionStage<Collection<RM>> handleMessageAsync(M message, MessageCollector collector,
-      TaskCoordinator coordinator) {
-    return CompletableFuture.completedFuture(this.transformFn.apply(message));
+  protected Collection<RM> handleMessageSync(M message, MessageCollector collector, TaskCoordinator coordinator) {
+    return this.transformFn.apply(message);
   }
 
   @Override
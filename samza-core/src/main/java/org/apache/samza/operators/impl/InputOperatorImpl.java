@@ -19,8 +19,6 @@
 package org.apache.samza.operators.impl;
 
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
 import org.apache.samza.context.Context;
 import org.apache.samza.operators.KV;
 import org.apache.samza.system.descriptors.InputTransformer;
@@ -50,8 +48,8 @@ public final class InputOperatorImpl extends OperatorImpl<IncomingMessageEnvelop
   }
 
   @Override
-  protected CompletionStage<Collection<Object>> handleMessageAsync(IncomingMessageEnvelope message,
-      MessageCollector collector, TaskCoordinator coordinator) {
+  protected Collection<Object> handleMessageSync(IncomingMessageEnvelope message, MessageCollector collector,
+      TaskCoordinator coordinator) {
     Object result;
     InputTransformer transformer = inputOpSpec.getTransformer();
     if (transformer != null) {
@@ -60,11 +58,9 @@ public final class InputOperatorImpl extends OperatorImpl<IncomingMessageEnvelop
       result = this.inputOpSpec.isKeyed() ? KV.of(message.getKey(), message.getMessage()) : message.getMessage();
     }
 
-    Collection<Object> output = Optional.ofNullable(result)
+    return Optional.ofNullable(result)
         .map(Collections::singletonList)
         .orElse(Collections.emptyList());
-
-    return CompletableFuture.completedFuture(output);
   }
 
   @Override
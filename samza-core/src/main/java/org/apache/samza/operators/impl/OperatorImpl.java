@@ -24,6 +24,7 @@ import java.util.concurrent.CompletionStage;
 import org.apache.samza.SamzaException;
 import org.apache.samza.config.Config;
 import org.apache.samza.config.MetricsConfig;
+import org.apache.samza.container.EnvelopeLatencyTracker;
 import org.apache.samza.container.TaskName;
 import org.apache.samza.context.ContainerContext;
 import org.apache.samza.context.Context;
@@ -38,6 +39,7 @@ import org.apache.samza.operators.functions.ScheduledFunction;
 import org.apache.samza.operators.functions.WatermarkFunction;
 import org.apache.samza.operators.spec.OperatorSpec;
 import org.apache.samza.scheduler.CallbackScheduler;
+import org.apache.samza.scheduler.CallbackSchedulerImpl;
 import org.apache.samza.system.EndOfStreamMessage;
 import org.apache.samza.system.SystemStream;
 import org.apache.samza.system.SystemStreamPartition;
@@ -48,9 +50,11 @@ import org.apache.samza.util.HighResolutionClock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 
@@ -63,6 +67,7 @@ import java.util.Set;
 public abstract class OperatorImpl<M, RM> {
   private static final Logger LOG = LoggerFactory.getLogger(OperatorImpl.class);
   private static final String METRICS_GROUP = OperatorImpl.class.getName();
+  private static final CompletableFuture<Void> COMPLETED_FUTURE = CompletableFuture.completedFuture(null);
 
   private boolean initialized;
   private boolean closed;
@@ -77,6 +82,9 @@ public abstract class OperatorImpl<M, RM> {
   // This can be caused by none of the input stream partitions of this op is assigned to the current task.
   // It's important to know so we can populate the watermarks correctly.
   private boolean usedInCurrentTask = false;
+  // Whether this operator is synchronous, so that messages can be passed to it and through it with direct calls.
+  // Set by the OperatorImplGraph after the DAG has been built.
+  private boolean fused = false;
 
   Set<OperatorImpl<RM, ?>> registeredOperators;
   Set<OperatorImpl<?, M>> prevOperators;
@@ -123,7 +131,8 @@ public abstract class OperatorImpl<M, RM> {
     this.taskName = taskContext.getTaskModel().getTaskName();
     this.eosStates = (EndOfStreamStates) internalTaskContext.fetchObject(EndOfStreamStates.class.getName());
     this.watermarkStates = (WatermarkStates) internalTaskContext.fetchObject(WatermarkStates.class.getName());
-    this.controlMessageSender = new ControlMessageSender(internalTaskContext.getStreamMetadataCache());
+    this.controlMessageSender = new ControlMessageSender(internalTaskContext.getStreamMetadataCache(),
+        context.getJobContext().getConfig(), metricsRegistry);
     this.taskModel = taskContext.getTaskModel();
     this.callbackScheduler = taskContext.getCallbackScheduler();
     handleInit(context);
@@ -157,6 +166,31 @@ public abstract class OperatorImpl<M, RM> {
     this.prevOperators.add(prevOperator);
   }
 
+  /**
+   * Whether this operator handles messages synchronously using {@link #handleMessageSync}. Operators that override
+   * {@link #handleMessageAsync} to return results asynchronously must return false.
+   * Defaults to true.
+   *
+   * @return true if this operator is synchronous
+   */
+  protected boolean isSynchronous() {
+    return true;
+  }
+
+  /**
+   * Mark this operator as fused. A fused operator handles messages with {@link #handleMessageSync} and passes its
+   * results to its fused registered operators with direct calls. Results for registered operators that are not fused
+   * are propagated with {@link #onMessageAsync}, and only their futures are combined.
+   * Only valid if this operator is synchronous.
+   */
+  void fuse() {
+    this.fused = true;
+  }
+
+  boolean isFused() {
+    return this.fused;
+  }
+
   void registerInputStream(SystemStream input) {
     this.inputStreams.add(input);
 
@@ -166,28 +200,57 @@ public abstract class OperatorImpl<M, RM> {
 
   public final CompletionStage<Void> onMessageAsync(M message, MessageCollector collector,
       TaskCoordinator coordinator) {
+    return onMessageAsync(message, collector, coordinator, null);
+  }
+
+  /**
+   * Handle the incoming {@code message} like {@link #onMessageAsync(Object, MessageCollector, TaskCoordinator)}, and
+   * record when this operator and the operators after it complete it in {@code operatorStages}, if not null.
+   *
+   * @param message the input message
+   * @param collector the {@link MessageCollector} in the context
+   * @param coordinator the {@link TaskCoordinator} in the context
+   * @param operatorStages the operator stages of the traced input message, or null
+   * @return a {@code CompletionStage} which completes when this operator and the operators after it handled the message
+   */
+  public final CompletionStage<Void> onMessageAsync(M message, MessageCollector collector,
+      TaskCoordinator coordinator, EnvelopeLatencyTracker.OperatorStages operatorStages) {
+    if (this.fused) {
+      Collection<RM> results = onMessageSync(message, collector, coordinator, operatorStages);
+      List<CompletableFuture<Void>> asyncFutures = new ArrayList<>();
+      try {
+        propagateResultsSync(results, collector, coordinator, asyncFutures, operatorStages);
+      } catch (RuntimeException e) {
+        CompletableFuture<Void> failedFuture = new CompletableFuture<>();
+        failedFuture.completeExceptionally(e);
+        return failedFuture;
+      }
+      if (asyncFutures.isEmpty()) {
+        return COMPLETED_FUTURE;
+      }
+      return asyncFutures.size() == 1
+          ? asyncFutures.get(0) : CompletableFuture.allOf(asyncFutures.toArray(new CompletableFuture[0]));
+    }
+
     this.numMessage.inc();
     long startNs = this.highResClock.nanoTime();
     CompletionStage<Collection<RM>> completableResultsFuture;
     try {
       completableResultsFuture = handleMessageAsync(message, collector, coordinator);
     } catch (ClassCastException e) {
-      String actualType = e.getMessage().replaceFirst(" cannot be cast to .*", "");
-      String expectedType = e.getMessage().replaceFirst(".* cannot be cast to ", "");
-      throw new SamzaException(
-          String.format("Error applying operator %s (created at %s) to its input message. "
-                  + "Expected input message to be of type %s, but found it to be of type %s. "
-                  + "Are Serdes for the inputs to this operator configured correctly?",
-              getOpImplId(), getOperatorSpec().getSourceLocation(), expectedType, actualType), e);
+      throw createTypeMismatchException(e);
     }
 
     CompletionStage<Void> result = completableResultsFuture.thenCompose(results -> {
       long endNs = this.highResClock.nanoTime();
       this.handleMessageNs.update(endNs - startNs);
+      if (operatorStages != null) {
+        operatorStages.onOperatorComplete(getOpImplId());
+      }
 
       return CompletableFuture.allOf(results.stream()
           .flatMap(r -> this.registeredOperators.stream()
-            .map(op -> op.onMessageAsync(r, collector, coordinator)))
+            .map(op -> op.onMessageAsync(r, collector, coordinator, operatorStages)))
           .toArray(CompletableFuture[]::new));
     });
 
@@ -201,9 +264,71 @@ public abstract class OperatorImpl<M, RM> {
     return result;
   }
 
+  /**
+   * Handle the incoming {@code message} of a fused operator synchronously and return the results to be propagated
+   * to the registered operators.
+   */
+  private Collection<RM> onMessageSync(M message, MessageCollector collector, TaskCoordinator coordinator,
+      EnvelopeLatencyTracker.OperatorStages operatorStages) {
+    this.numMessage.inc();
+    long startNs = this.highResClock.nanoTime();
+    Collection<RM> results;
+    try {
+      results = handleMessageSync(message, collector, coordinator);
+    } catch (ClassCastException e) {
+      throw createTypeMismatchException(e);
+    }
+    long endNs = this.highResClock.nanoTime();
+    this.handleMessageNs.update(endNs - startNs);
+    if (operatorStages != null) {
+      operatorStages.onOperatorComplete(getOpImplId());
+    }
+    return results;
+  }
+
+  /**
+   * Propagate the {@code results} of a fused operator to its registered operators. Fused registered operators are
+   * called directly, while the futures of the ones that are not fused are added to {@code asyncFutures}.
+   */
+  private void propagateResultsSync(Collection<RM> results, MessageCollector collector, TaskCoordinator coordinator,
+      List<CompletableFuture<Void>> asyncFutures, EnvelopeLatencyTracker.OperatorStages operatorStages) {
+    for (RM result : results) {
+      for (OperatorImpl<RM, ?> registeredOperator : this.registeredOperators) {
+        if (registeredOperator.fused) {
+          registeredOperator.propagateMessageSync(result, collector, coordinator, asyncFutures, operatorStages);
+        } else {
+          CompletableFuture<Void> future =
+              registeredOperator.onMessageAsync(result, collector, coordinator, operatorStages).toCompletableFuture();
+          if (!future.isDone() || future.isCompletedExceptionally()) {
+            asyncFutures.add(future);
+          }
+        }
+      }
+    }
+  }
+
+  private void propagateMessageSync(M message, MessageCollector collector, TaskCoordinator coordinator,
+      List<CompletableFuture<Void>> asyncFutures, EnvelopeLatencyTracker.OperatorStages operatorStages) {
+    propagateResultsSync(onMessageSync(message, collector, coordinator, operatorStages), collector, coordinator,
+        asyncFutures, operatorStages);
+  }
+
+  private SamzaException createTypeMismatchException(ClassCastException e) {
+    String actualType = e.getMessage().replaceFirst(" cannot be cast to .*", "");
+    String expectedType = e.getMessage().replaceFirst(".* cannot be cast to ", "");
+    return new SamzaException(
+        String.format("Error applying operator %s (created at %s) to its input message. "
+                + "Expected input message to be of type %s, but found it to be of type %s. "
+                + "Are Serdes for the inputs to this operator configured correctly?",
+            getOpImplId(), getOperatorSpec().getSourceLocation(), expectedType, actualType), e);
+  }
+
   /**
    * Handle the incoming {@code message} asynchronously and return a {@link CompletionStage} of the results to be propagated
    * to the registered operators.
+   * <p>
+   * Defaults to a completed {@code CompletionStage} of the results of {@link #handleMessageSync}. Operators that
+   * override it to return results asynchronously must also override {@link #isSynchronous()} to return false.
    *
    * @param message the input message
    * @param collector the {@link MessageCollector} in the context
@@ -211,8 +336,29 @@ public abstract class OperatorImpl<M, RM> {
    *
    * @return a {@code CompletionStage} of the results of the transformation
    */
-  protected abstract CompletionStage<Collection<RM>> handleMessageAsync(M message, MessageCollector collector,
-      TaskCoordinator coordinator);
+  protected CompletionStage<Collection<RM>> handleMessageAsync(M message, MessageCollector collector,
+      TaskCoordinator coordinator) {
+    return CompletableFuture.completedFuture(handleMessageSync(message, collector, coordinator));
+  }
+
+  /**
+   * Handle the incoming {@code message} synchronously and return the results to be propagated to the registered
+   * operators.
+   * <p>
+   * Synchronous operators must override it. Operators that return false from {@link #isSynchronous()} override
+   * {@link #handleMessageAsync} instead, and are never fused, so this is never called for them.
+   *
+   * @param message the input message
+   * @param collector the {@link MessageCollector} in the context
+   * @param coordinator the {@link TaskCoordinator} in the context
+   *
+   * @return results of the transformation
+   * @throws IllegalStateException if this operator is not synchronous
+   */
+  protected Collection<RM> handleMessageSync(M message, MessageCollector collector, TaskCoordinator coordinator) {
+    throw new IllegalStateException(String.format("Operator %s is asynchronous and can't handle messages synchronously",
+        getOpImplId()));
+  }
 
   /**
    * Handle timer ticks for this {@link OperatorImpl} and propagate the results and timer tick to registered operators.
@@ -223,6 +369,9 @@ public abstract class OperatorImpl<M, RM> {
    * @param coordinator  the {@link TaskCoordinator} in the context
    */
   public final CompletionStage<Void> onTimer(MessageCollector collector, TaskCoordinator coordinator) {
+    // send the watermarks broadcast by this operator which were coalesced, in case no further watermark arrives
+    controlMessageSender.flushWatermarks(taskName.getTaskName(), collector);
+
     long startNs = this.highResClock.nanoTime();
     Collection<RM> results = handleTimer(collector, coordinator);
     long endNs = this.highResClock.nanoTime();
@@ -333,6 +482,17 @@ public abstract class OperatorImpl<M, RM> {
     return Collections.emptyList();
   }
 
+  /**
+   * Send the messages buffered by this operator before the task commits, so that they're flushed with the commit.
+   * Unlike timer ticks, this isn't propagated to the registered operators, since it's invoked for every operator.
+   * <p>
+   * Defaults to a no-op implementation.
+   *
+   * @param collector  the {@link MessageCollector} in the context
+   */
+  protected void handleCommit(MessageCollector collector) {
+  }
+
   /**
    * Aggregate the {@link WatermarkMessage} from each ssp into a watermark. Then call onWatermark() if
    * a new watermark exits.
@@ -354,7 +514,7 @@ public abstract class OperatorImpl<M, RM> {
       if (watermarkMessage.getTaskName() != null) {
         // This is the aggregation task, which already received all the watermark messages from upstream
         // broadcast the watermark to all the peer partitions
-        controlMessageSender.broadcastToOtherPartitions(new WatermarkMessage(watermark), ssp, collector);
+        controlMessageSender.broadcastWatermarkToOtherPartitions(new WatermarkMessage(watermark), ssp, collector);
       }
       // populate the watermark through the dag
       watermarkFuture = onWatermark(watermark, collector, coordinator)
@@ -477,37 +637,43 @@ public abstract class OperatorImpl<M, RM> {
    * Returns a registry which allows registering arbitrary system-clock timer with K-typed key.
    * The user-defined function in the operator spec needs to implement {@link ScheduledFunction#onCallback(Object, long)}
    * for timer notifications.
+   * The timers are set with the id of this operator, so that they fire through the callback of this operator, which
+   * is invoked with their key and time, even if they are kept in a durable timer store and set before a restart.
    * @param <K> key type for the timer.
    * @return an instance of {@link Scheduler}
    */
   <K> Scheduler<K> createOperatorScheduler() {
+    final CallbackSchedulerImpl scheduler = (CallbackSchedulerImpl) callbackScheduler;
+    final String callbackId = getOpImplId();
+    scheduler.<K>setTimedCallback(callbackId, (key, time, collector, coordinator) -> {
+      final ScheduledFunction<K, RM> scheduledFn = getOperatorSpec().getScheduledFn();
+      if (scheduledFn != null) {
+        final Collection<RM> output = scheduledFn.onCallback(key, time);
+
+        if (!output.isEmpty()) {
+          CompletableFuture<Void> timerFuture = CompletableFuture.allOf(output.stream()
+              .flatMap(r -> registeredOperators.stream()
+                  .map(op -> op.onMessageAsync(r, collector, coordinator)))
+              .toArray(CompletableFuture[]::new));
+
+          timerFuture.join();
+        }
+      } else {
+        throw new SamzaException(
+            String.format("Operator %s id %s (created at %s) must implement ScheduledFunction to use system timer.",
+                getOperatorSpec().getOpCode().name(), getOpImplId(), getOperatorSpec().getSourceLocation()));
+      }
+    });
+
     return new Scheduler<K>() {
       @Override
       public void schedule(K key, long time) {
-        callbackScheduler.scheduleCallback(key, time, (k, collector, coordinator) -> {
-          final ScheduledFunction<K, RM> scheduledFn = getOperatorSpec().getScheduledFn();
-          if (scheduledFn != null) {
-            final Collection<RM> output = scheduledFn.onCallback(key, time);
-
-            if (!output.isEmpty()) {
-              CompletableFuture<Void> timerFuture = CompletableFuture.allOf(output.stream()
-                  .flatMap(r -> registeredOperators.stream()
-                      .map(op -> op.onMessageAsync(r, collector, coordinator)))
-                  .toArray(CompletableFuture[]::new));
-
-              timerFuture.join();
-            }
-          } else {
-            throw new SamzaException(
-                String.format("Operator %s id %s (created at %s) must implement ScheduledFunction to use system timer.",
-                    getOperatorSpec().getOpCode().name(), getOpImplId(), getOperatorSpec().getSourceLocation()));
-          }
-        });
+        scheduler.scheduleCallback(callbackId, key, time);
       }
 
       @Override
       public void delete(K key) {
-        callbackScheduler.deleteCallback(key);
+        scheduler.deleteCallback(callbackId, key);
       }
     };
   }
@@ -45,6 +45,7 @@ import org.apache.samza.operators.spec.StreamTableJoinOperatorSpec;
 import org.apache.samza.operators.spec.WindowOperatorSpec;
 import org.apache.samza.storage.kv.KeyValueStore;
 import org.apache.samza.system.SystemStream;
+import org.apache.samza.task.MessageCollector;
 import org.apache.samza.util.Clock;
 import org.apache.samza.util.TimestampedValue;
 import org.slf4j.Logger;
@@ -129,6 +130,8 @@ public class OperatorImplGraph {
           (InputOperatorImpl) createAndRegisterOperatorImpl(null, inputOpSpec, systemStream, context);
       this.inputOperators.put(systemStream, inputOperatorImpl);
     });
+
+    fuseSynchronousOperators();
   }
 
   /**
@@ -141,6 +144,15 @@ public class OperatorImplGraph {
     return this.inputOperators.get(systemStream);
   }
 
+  /**
+   * Lets the operators send the messages they buffered before the task commits.
+   *
+   * @param collector the {@link MessageCollector} to send the buffered messages with
+   */
+  public void beforeCommit(MessageCollector collector) {
+    operatorImpls.values().forEach(operatorImpl -> operatorImpl.handleCommit(collector));
+  }
+
   public void close() {
     List<OperatorImpl> initializationOrder = new ArrayList<>(operatorImpls.values());
     List<OperatorImpl> finalizationOrder = Lists.reverse(initializationOrder);
@@ -156,6 +168,24 @@ public class OperatorImplGraph {
     return Collections.unmodifiableCollection(this.inputOperators.values());
   }
 
+  /**
+   * Fuses the synchronous operators in the DAG, e.g., input -&gt; filter -&gt; map -&gt; sendTo, so that messages are
+   * passed through chains of them with direct calls instead of a {@link java.util.concurrent.CompletionStage} per
+   * operator. An operator is fused if it is synchronous and does not emit watermarks from its function. Asynchronous
+   * operators (e.g., async flatmap and stream-table joins) are not fused. A fused operator propagates its results to
+   * them with futures, and only waits for those futures.
+   */
+  private void fuseSynchronousOperators() {
+    List<String> fusedOperators = new ArrayList<>();
+    this.operatorImpls.values().forEach(operatorImpl -> {
+        if (operatorImpl.isSynchronous() && operatorImpl.getOperatorSpec().getWatermarkFn() == null) {
+          operatorImpl.fuse();
+          fusedOperators.add(operatorImpl.getOpImplId());
+        }
+      });
+    LOG.info("Fused synchronous operators: {}", fusedOperators);
+  }
+
   /**
    * Traverses the DAG of {@link OperatorSpec}s starting from the provided {@link OperatorSpec},
    * creates the corresponding DAG of {@link OperatorImpl}s, and returns the root {@link OperatorImpl} node.
@@ -230,7 +260,7 @@ public class OperatorImplGraph {
       String streamId = ((PartitionByOperatorSpec) operatorSpec).getOutputStream().getStreamId();
       SystemStream systemStream = streamConfig.streamIdToSystemStream(streamId);
       return new PartitionByOperatorImpl((PartitionByOperatorSpec) operatorSpec, systemStream,
-              internalTaskContext);
+              internalTaskContext, clock);
     } else if (operatorSpec instanceof WindowOperatorSpec) {
       return new WindowOperatorImpl((WindowOperatorSpec) operatorSpec, clock);
     } else if (operatorSpec instanceof JoinOperatorSpec) {
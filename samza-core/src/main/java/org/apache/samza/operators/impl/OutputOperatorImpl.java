@@ -19,8 +19,6 @@
 package org.apache.samza.operators.impl;
 
 import java.util.Collections;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
 import org.apache.samza.context.Context;
 import org.apache.samza.operators.KV;
 import org.apache.samza.operators.spec.OperatorSpec;
@@ -53,8 +51,7 @@ class OutputOperatorImpl<M> extends OperatorImpl<M, M> {
   }
 
   @Override
-  protected CompletionStage<Collection<M>> handleMessageAsync(M message, MessageCollector collector,
-      TaskCoordinator coordinator) {
+  protected Collection<M> handleMessageSync(M message, MessageCollector collector, TaskCoordinator coordinator) {
     Object key, value;
     if (outputStream.isKeyed()) {
       key = ((KV) message).getKey();
@@ -65,7 +62,7 @@ class OutputOperatorImpl<M> extends OperatorImpl<M, M> {
     }
 
     collector.send(new OutgoingMessageEnvelope(systemStream, null, key, value));
-    return CompletableFuture.completedFuture(Collections.singleton(message));
+    return Collections.singleton(message);
   }
 
   @Override
@@ -18,10 +18,12 @@
  */
 package org.apache.samza.operators.impl;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.samza.config.JobConfig;
 import org.apache.samza.context.Context;
 import org.apache.samza.context.InternalTaskContext;
+import org.apache.samza.operators.functions.FoldLeftFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.spec.OperatorSpec;
 import org.apache.samza.operators.spec.PartitionByOperatorSpec;
@@ -33,6 +35,7 @@ import org.apache.samza.system.SystemStream;
 import org.apache.samza.system.WatermarkMessage;
 import org.apache.samza.task.MessageCollector;
 import org.apache.samza.task.TaskCoordinator;
+import org.apache.samza.util.Clock;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -40,6 +43,10 @@ import java.util.Collections;
 
 /**
  * An operator that sends sends messages to an output {@link SystemStream} for repartitioning them.
+ * <p>
+ * If the operator has a combine function, it keeps a partial aggregate of the values per key instead, and sends the
+ * partial aggregates when there are too many keys, when the flush interval elapsed, and before watermarks,
+ * end-of-stream and commits, so that no partial aggregate is lost when the task restarts from a checkpoint.
  */
 class PartitionByOperatorImpl<M, K, V> extends OperatorImpl<M, Void> {
 
@@ -49,38 +56,78 @@ class PartitionByOperatorImpl<M, K, V> extends OperatorImpl<M, Void> {
   private final MapFunction<? super M, ? extends V> valueFunction;
   private final String taskName;
   private final ControlMessageSender controlMessageSender;
+  private final FoldLeftFunction<? super V, V> combineFunction;
+  private final Clock clock;
+  private final int combinerMaxKeys;
+  private final long combinerFlushIntervalMs;
+  // partial aggregates per key since the last flush, if there is a combine function
+  private final Map<K, V> partialAggregates = new HashMap<>();
+  private long lastFlushMs;
 
   PartitionByOperatorImpl(PartitionByOperatorSpec<M, K, V> partitionByOpSpec,
-      SystemStream systemStream, InternalTaskContext internalTaskContext) {
+      SystemStream systemStream, InternalTaskContext internalTaskContext, Clock clock) {
     this.partitionByOpSpec = partitionByOpSpec;
     this.systemStream = systemStream;
     this.keyFunction = partitionByOpSpec.getKeyFunction();
     this.valueFunction = partitionByOpSpec.getValueFunction();
+    this.combineFunction = partitionByOpSpec.getCombineFunction();
+    this.clock = clock;
     this.taskName = internalTaskContext.getContext().getTaskContext().getTaskModel().getTaskName().getTaskName();
     StreamMetadataCache streamMetadataCache = internalTaskContext.getStreamMetadataCache();
-    this.controlMessageSender = new ControlMessageSender(streamMetadataCache);
+    Context context = internalTaskContext.getContext();
+    this.controlMessageSender = new ControlMessageSender(streamMetadataCache, context.getJobContext().getConfig(),
+        context.getContainerContext().getContainerMetricsRegistry());
+    JobConfig jobConfig = new JobConfig(context.getJobContext().getConfig());
+    this.combinerMaxKeys = combineFunction != null ? jobConfig.getIntermediateStreamCombinerMaxKeys() : 0;
+    this.combinerFlushIntervalMs = jobConfig.getIntermediateStreamCombinerFlushIntervalMs();
   }
 
   @Override
   protected void handleInit(Context context) {
     this.keyFunction.init(context);
     this.valueFunction.init(context);
+    if (this.combineFunction != null) {
+      this.combineFunction.init(context);
+    }
+    this.lastFlushMs = clock.currentTimeMillis();
   }
 
   @Override
-  protected CompletionStage<Collection<Void>> handleMessageAsync(M message, MessageCollector collector,
-      TaskCoordinator coordinator) {
+  protected Collection<Void> handleMessageSync(M message, MessageCollector collector, TaskCoordinator coordinator) {
     K key = keyFunction.apply(message);
     V value = valueFunction.apply(message);
-    Long partitionKey = key == null ? 0L : null;
-    collector.send(new OutgoingMessageEnvelope(systemStream, partitionKey, key, value));
-    return CompletableFuture.completedFuture(Collections.emptyList());
+    if (combineFunction == null) {
+      send(key, value, collector);
+    } else {
+      combine(key, value, collector);
+    }
+    return Collections.emptyList();
+  }
+
+  @Override
+  protected Collection<Void> handleTimer(MessageCollector collector, TaskCoordinator coordinator) {
+    if (combineFunction != null && clock.currentTimeMillis() - lastFlushMs >= combinerFlushIntervalMs) {
+      flushPartialAggregates(collector);
+    }
+    // send the latest coalesced watermark after the partial aggregates, in case no further watermark arrives
+    controlMessageSender.flushWatermarks(taskName, collector);
+    return Collections.emptyList();
+  }
+
+  @Override
+  protected void handleCommit(MessageCollector collector) {
+    if (combineFunction != null) {
+      flushPartialAggregates(collector);
+    }
   }
 
   @Override
   protected void handleClose() {
     this.keyFunction.close();
     this.valueFunction.close();
+    if (this.combineFunction != null) {
+      this.combineFunction.close();
+    }
   }
 
   @Override
@@ -90,16 +137,48 @@ class PartitionByOperatorImpl<M, K, V> extends OperatorImpl<M, Void> {
 
   @Override
   protected Collection<Void> handleEndOfStream(MessageCollector collector, TaskCoordinator coordinator) {
+    if (combineFunction != null) {
+      flushPartialAggregates(collector);
+    }
+    // send the latest coalesced watermark before the end-of-stream
+    controlMessageSender.flushWatermark(systemStream, taskName, collector);
     sendControlMessage(new EndOfStreamMessage(taskName), collector);
     return Collections.emptyList();
   }
 
   @Override
   protected Collection<Void> handleWatermark(long watermark, MessageCollector collector, TaskCoordinator coordinator) {
-    sendControlMessage(new WatermarkMessage(watermark, taskName), collector);
+    if (combineFunction != null) {
+      // the partial aggregates contain values before the watermark, so they need to be sent before it
+      flushPartialAggregates(collector);
+    }
+    controlMessageSender.sendWatermark(new WatermarkMessage(watermark, taskName), systemStream, collector);
     return Collections.emptyList();
   }
 
+  private synchronized void combine(K key, V value, MessageCollector collector) {
+    if (partialAggregates.containsKey(key)) {
+      partialAggregates.put(key, combineFunction.apply(value, partialAggregates.get(key)));
+    } else {
+      partialAggregates.put(key, value);
+    }
+    if (partialAggregates.size() >= combinerMaxKeys
+        || clock.currentTimeMillis() - lastFlushMs >= combinerFlushIntervalMs) {
+      flushPartialAggregates(collector);
+    }
+  }
+
+  private synchronized void flushPartialAggregates(MessageCollector collector) {
+    partialAggregates.forEach((key, partialAggregate) -> send(key, partialAggregate, collector));
+    partialAggregates.clear();
+    lastFlushMs = clock.currentTimeMillis();
+  }
+
+  private void send(K key, V value, MessageCollector collector) {
+    Long partitionKey = key == null ? 0L : null;
+    collector.send(new OutgoingMessageEnvelope(systemStream, partitionKey, key, value));
+  }
+
   private void sendControlMessage(ControlMessage message, MessageCollector collector) {
     controlMessageSender.send(message, systemStream, collector);
   }
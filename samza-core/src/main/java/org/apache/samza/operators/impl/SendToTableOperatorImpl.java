@@ -58,6 +58,11 @@ public class SendToTableOperatorImpl<K, V> extends OperatorImpl<KV<K, V>, KV<K,
         .thenApply(result -> Collections.singleton(message));
   }
 
+  @Override
+  protected boolean isSynchronous() {
+    return false;
+  }
+
   @Override
   protected void handleClose() {
     table.close();
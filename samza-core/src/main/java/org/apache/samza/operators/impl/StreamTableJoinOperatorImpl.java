@@ -73,6 +73,11 @@ class StreamTableJoinOperatorImpl<K, M, R extends KV, JM> extends OperatorImpl<M
         .orElseGet(() -> CompletableFuture.completedFuture(getJoinOutput(key, null, message)));
   }
 
+  @Override
+  protected boolean isSynchronous() {
+    return false;
+  }
+
   private Collection<JM> getJoinOutput(K key, Object value, M message) {
     R record = value == null ? null : (R) KV.of(key, value);
 
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.operators.impl;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel of values with deadlines, where adding and cancelling a value takes constant time,
+ * regardless of how many values are pending.
+ *
+ * <p> The wheel has {@link #LEVELS} levels of {@link #SLOTS} slots each. A deadline is split into digits of
+ * {@link #SLOT_BITS} bits, and a value is kept at the level of the highest digit in which its deadline differs from the
+ * current time, in the slot of that digit. All values at level 0 of a slot share the same deadline, and are expired
+ * together. When the current time reaches the start of a slot at a higher level, the values of the slot are moved
+ * ("cascaded") to lower levels, so each value is moved at most {@link #LEVELS} times. Advancing the time skips
+ * empty slots, so it doesn't depend on how much time passed.
+ *
+ * <p> This class is not thread safe.
+ *
+ * @param <T> the type of the values
+ */
+class TimingWheel<T> {
+  static final int SLOT_BITS = 8;
+  static final int SLOTS = 1 << SLOT_BITS;
+  static final int LEVELS = Long.SIZE / SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+
+  private final Slot<T>[][] slots;
+  private final BitSet[] occupiedSlots;
+  // values whose deadline is not after the current time
+  private final Slot<T> expired = new Slot<>(-1, -1);
+  private long currentTime;
+  private int size = 0;
+
+  /**
+   * @param startTime the initial current time of the wheel, which must not be negative
+   */
+  @SuppressWarnings("unchecked")
+  TimingWheel(long startTime) {
+    this.slots = new Slot[LEVELS][];
+    this.occupiedSlots = new BitSet[LEVELS];
+    for (int level = 0; level < LEVELS; level++) {
+      occupiedSlots[level] = new BitSet(SLOTS);
+    }
+    this.currentTime = Math.max(startTime, 0);
+  }
+
+  /**
+   * Add a value, which expires once the time is advanced to its deadline.
+   *
+   * @param deadline the deadline of the value
+   * @param value the value
+   * @return the timeout of the value, which can be used to cancel it
+   */
+  Timeout<T> add(long deadline, T value) {
+    Timeout<T> timeout = new Timeout<>(deadline, value);
+    insert(timeout);
+    size++;
+    return timeout;
+  }
+
+  /**
+   * Cancel a timeout, unless it's already expired or cancelled.
+   *
+   * @param timeout the timeout to cancel
+   * @return true if the timeout was cancelled, false if it expired or was cancelled before
+   */
+  boolean cancel(Timeout<T> timeout) {
+    Slot<T> slot = timeout.slot;
+    if (slot == null) {
+      return false;
+    }
+    slot.remove(timeout);
+    if (slot.isEmpty() && slot.level >= 0) {
+      occupiedSlots[slot.level].clear(slot.index);
+    }
+    size--;
+    return true;
+  }
+
+  /**
+   * Advance the current time, and collect the values whose deadline is not after it, in order of their deadlines.
+   *
+   * @param now the time to advance to
+   * @param expiredValues the list to add the expired values to
+   */
+  void advance(long now, List<T> expiredValues) {
+    drainExpired(now, expiredValues);
+    while (size > 0 && currentTime < now) {
+      // expire the slots at level 0, up to the end of its current rotation
+      long rotationEnd = currentTime | SLOT_MASK;
+      long end = Math.min(now, rotationEnd);
+      BitSet occupied = occupiedSlots[0];
+      for (int index = occupied.nextSetBit(digit(currentTime, 0) + 1); index >= 0 && index <= digit(end, 0);
+          index = occupied.nextSetBit(index + 1)) {
+        expire(slots[0][index], expiredValues);
+      }
+      currentTime = end;
+      if (currentTime == now || size == 0) {
+        break;
+      }
+
+      // level 0 is empty now, so skip to the start of the next occupied slot at a higher level
+      long nextTime = nextCascadeTime();
+      if (nextTime > now) {
+        break;
+      }
+      currentTime = nextTime;
+      for (int level = LEVELS - 1; level > 0; level--) {
+        if ((currentTime & lowerLevelsMask(level)) == 0) {
+          cascade(level, digit(currentTime, level));
+        }
+      }
+      drainExpired(now, expiredValues);
+    }
+    currentTime = Math.max(currentTime, now);
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void insert(Timeout<T> timeout) {
+    long deadline = timeout.deadline;
+    if (deadline <= currentTime) {
+      expired.add(timeout);
+      return;
+    }
+    int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(deadline ^ currentTime)) / SLOT_BITS;
+    int index = digit(deadline, level);
+    if (slots[level] == null) {
+      slots[level] = newSlots(level);
+    }
+    slots[level][index].add(timeout);
+    occupiedSlots[level].set(index);
+  }
+
+  private void expire(Slot<T> slot, List<T> expiredValues) {
+    occupiedSlots[slot.level].clear(slot.index);
+    for (Timeout<T> timeout = slot.removeAll(); timeout != null; timeout = timeout.next) {
+      expiredValues.add(timeout.value);
+      size--;
+    }
+  }
+
+  private void drainExpired(long now, List<T> expiredValues) {
+    Timeout<T> timeout = expired.head;
+    while (timeout != null) {
+      Timeout<T> next = timeout.next;
+      // the clock may have gone backwards since the value was added
+      if (timeout.deadline <= now) {
+        expired.remove(timeout);
+        expiredValues.add(timeout.value);
+        size--;
+      }
+      timeout = next;
+    }
+  }
+
+  private void cascade(int level, int index) {
+    if (!occupiedSlots[level].get(index)) {
+      return;
+    }
+    occupiedSlots[level].clear(index);
+    Timeout<T> timeout = slots[level][index].removeAll();
+    while (timeout != null) {
+      Timeout<T> next = timeout.next;
+      timeout.next = null;
+      insert(timeout);
+      timeout = next;
+    }
+  }
+
+  /**
+   * Return the start of the next occupied slot after the current time, at any level above 0.
+   */
+  private long nextCascadeTime() {
+    long nextTime = Long.MAX_VALUE;
+    for (int level = 1; level < LEVELS; level++) {
+      int index = occupiedSlots[level].nextSetBit(digit(currentTime, level) + 1);
+      if (index >= 0) {
+        long levelStart = currentTime & ~(lowerLevelsMask(level) | ((long) SLOT_MASK << (level * SLOT_BITS)));
+        nextTime = Math.min(nextTime, levelStart | ((long) index << (level * SLOT_BITS)));
+      }
+    }
+    return nextTime;
+  }
+
+  private static int digit(long time, int level) {
+    return (int) (time >>> (level * SLOT_BITS)) & SLOT_MASK;
+  }
+
+  /**
+   * Return the mask of the bits of the digits below the level
+   */
+  private static long lowerLevelsMask(int level) {
+    return (1L << (level * SLOT_BITS)) - 1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Slot<T>[] newSlots(int level) {
+    Slot<T>[] levelSlots = new Slot[SLOTS];
+    for (int index = 0; index < SLOTS; index++) {
+      levelSlots[index] = new Slot<>(level, index);
+    }
+    return levelSlots;
+  }
+
+  /**
+   * A value with a deadline, linked into the list of its slot.
+   */
+  static class Timeout<T> {
+    private final long deadline;
+    private final T value;
+    private Slot<T> slot;
+    private Timeout<T> prev;
+    private Timeout<T> next;
+
+    private Timeout(long deadline, T value) {
+      this.deadline = deadline;
+      this.value = value;
+    }
+
+    long getDeadline() {
+      return deadline;
+    }
+  }
+
+  /**
+   * A doubly linked list of timeouts.
+   */
+  private static class Slot<T> {
+    private final int level;
+    private final int index;
+    private Timeout<T> head;
+    private Timeout<T> tail;
+
+    Slot(int level, int index) {
+      this.level = level;
+      this.index = index;
+    }
+
+    void add(Timeout<T> timeout) {
+      timeout.slot = this;
+      timeout.prev = tail;
+      timeout.next = null;
+      if (tail == null) {
+        head = timeout;
+      } else {
+        tail.next = timeout;
+      }
+      tail = timeout;
+    }
+
+    void remove(Timeout<T> timeout) {
+      if (timeout.prev == null) {
+        head = timeout.next;
+      } else {
+        timeout.prev.next = timeout.next;
+      }
+      if (timeout.next == null) {
+        tail = timeout.prev;
+      } else {
+        timeout.next.prev = timeout.prev;
+      }
+      timeout.slot = null;
+      timeout.prev = null;
+      timeout.next = null;
+    }
+
+    /**
+     * Remove all timeouts, and return the first of them, which is still linked to the others by their next timeout.
+     */
+    Timeout<T> removeAll() {
+      Timeout<T> first = head;
+      for (Timeout<T> timeout = first; timeout != null; timeout = timeout.next) {
+        timeout.slot = null;
+        timeout.prev = null;
+      }
+      head = null;
+      tail = null;
+      return first;
+    }
+
+    boolean isEmpty() {
+      return head == null;
+    }
+  }
+}
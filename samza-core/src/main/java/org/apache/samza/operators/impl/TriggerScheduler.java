@@ -16,11 +16,8 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-
 package org.apache.samza.operators.impl;
 
-import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
 import org.apache.samza.operators.triggers.Cancellable;
 import org.apache.samza.util.Clock;
 import org.slf4j.Logger;
@@ -31,16 +28,20 @@ import java.util.List;
 
 /**
  * Allows to schedule and cancel callbacks for triggers.
+ *
+ * <p> Callbacks are kept in a {@link TimingWheel}, so scheduling and cancelling a callback take constant time, however
+ * many triggers are pending, e.g., for windows with many keys. Callbacks with the same scheduled time, e.g., for the
+ * panes of a tumbling window, share a slot of the wheel and are run together.
  */
 public class TriggerScheduler<WK> {
 
   private static final Logger LOG = LoggerFactory.getLogger(TriggerScheduler.class);
 
-  private final Queue<TriggerCallbackState<WK>> pendingCallbacks;
+  private final TimingWheel<TriggerCallbackState> pendingCallbacks;
   private final Clock clock;
 
   public TriggerScheduler(Clock clock) {
-    this.pendingCallbacks = new PriorityBlockingQueue<>();
+    this.pendingCallbacks = new TimingWheel<>(clock.currentTimeMillis());
     this.clock = clock;
   }
 
@@ -52,8 +53,10 @@ public class TriggerScheduler<WK> {
    * @return a {@link Cancellable} that can be used to cancel the execution of this runnable.
    */
   public Cancellable scheduleCallback(Runnable runnable, long scheduledTimeMs, TriggerKey<WK> triggerKey) {
-    TriggerCallbackState<WK> timerState = new TriggerCallbackState(triggerKey, runnable, scheduledTimeMs);
-    pendingCallbacks.add(timerState);
+    TriggerCallbackState timerState = new TriggerCallbackState(triggerKey, runnable, scheduledTimeMs);
+    synchronized (this) {
+      timerState.timeout = pendingCallbacks.add(scheduledTimeMs, timerState);
+    }
     LOG.trace("Scheduled a new callback: {} at {} for triggerKey {}", new Object[] {runnable, scheduledTimeMs, triggerKey});
     return timerState;
   }
@@ -65,23 +68,43 @@ public class TriggerScheduler<WK> {
    * @return the list of {@link TriggerKey}s corresponding to the callbacks that were run.
    */
   public List<TriggerKey<WK>> runPendingCallbacks() {
-    TriggerCallbackState<WK> state;
     List<TriggerKey<WK>> keys = new ArrayList<>();
     long now = clock.currentTimeMillis();
-
-    while ((state = pendingCallbacks.peek()) != null && state.getScheduledTimeMs() <= now) {
-      pendingCallbacks.remove();
-      state.getCallback().run();
-      TriggerKey<WK> key = state.getTriggerKey();
-      keys.add(key);
+    List<TriggerCallbackState> readyCallbacks = new ArrayList<>();
+
+    // callbacks may schedule other callbacks which are ready too, so repeat until there are no more ready callbacks
+    while (true) {
+      synchronized (this) {
+        pendingCallbacks.advance(now, readyCallbacks);
+      }
+      if (readyCallbacks.isEmpty()) {
+        return keys;
+      }
+      for (TriggerCallbackState state : readyCallbacks) {
+        // a callback may have been cancelled by another callback run before it
+        if (state.markRun()) {
+          state.getCallback().run();
+          keys.add(state.getTriggerKey());
+        }
+      }
+      readyCallbacks.clear();
     }
-    return keys;
   }
 
   /**
-   * State corresponding to pending timer callbacks scheduled by various triggers.
+   * Get the number of callbacks which are neither run nor cancelled yet.
+   *
+   * @return the number of pending callbacks
+   */
+  synchronized int getPendingCallbackCount() {
+    return pendingCallbacks.size();
+  }
+
+  /**
+   * State corresponding to pending timer callbacks scheduled by various triggers. It uses the window key type of the
+   * enclosing scheduler, so that it can be passed to the timing wheel without casts.
    */
-  private class TriggerCallbackState<WK> implements Comparable<TriggerCallbackState<WK>>, Cancellable {
+  private class TriggerCallbackState implements Cancellable {
 
     private final TriggerKey<WK> triggerKey;
     private final Runnable callback;
@@ -89,6 +112,12 @@ public class TriggerScheduler<WK> {
     // the time at which the callback should trigger
     private final long scheduledTimeMs;
 
+    // the entry of this callback in the timing wheel
+    private TimingWheel.Timeout<TriggerCallbackState> timeout;
+
+    // whether the callback was run or cancelled
+    private boolean done = false;
+
     private TriggerCallbackState(TriggerKey<WK> triggerKey, Runnable callback, long scheduledTimeMs) {
       this.triggerKey = triggerKey;
       this.callback = callback;
@@ -99,23 +128,37 @@ public class TriggerScheduler<WK> {
       return callback;
     }
 
-    private long getScheduledTimeMs() {
-      return scheduledTimeMs;
-    }
-
     private TriggerKey<WK> getTriggerKey() {
       return triggerKey;
     }
 
-    @Override
-    public int compareTo(TriggerCallbackState<WK> other) {
-      return Long.compare(this.scheduledTimeMs, other.scheduledTimeMs);
+    /**
+     * Mark the callback as run, unless it was cancelled.
+     *
+     * @return true if the callback should be run, false if it was cancelled
+     */
+    private boolean markRun() {
+      synchronized (TriggerScheduler.this) {
+        if (done) {
+          return false;
+        }
+        done = true;
+        return true;
+      }
     }
 
     @Override
     public boolean cancel() {
       LOG.trace("Cancelled a callback: {} at {} for triggerKey {}", new Object[] {callback, scheduledTimeMs, triggerKey});
-      return pendingCallbacks.remove(this);
+      synchronized (TriggerScheduler.this) {
+        if (done) {
+          return false;
+        }
+        done = true;
+        // the callback may be ready and removed from the wheel already, but not run yet
+        pendingCallbacks.cancel(timeout);
+        return true;
+      }
     }
   }
 }
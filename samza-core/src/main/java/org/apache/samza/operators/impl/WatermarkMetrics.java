@@ -19,9 +19,11 @@
 
 package org.apache.samza.operators.impl;
 
+import org.apache.samza.metrics.Counter;
 import org.apache.samza.metrics.Gauge;
 import org.apache.samza.metrics.MetricsBase;
 import org.apache.samza.metrics.MetricsRegistry;
+import org.apache.samza.system.SystemStream;
 import org.apache.samza.system.SystemStreamPartition;
 
 import java.util.Map;
@@ -29,6 +31,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 class WatermarkMetrics extends MetricsBase {
   private final Map<SystemStreamPartition, Gauge<Long>> aggregates = new ConcurrentHashMap<>();
+  private final Map<SystemStream, Counter> suppressed = new ConcurrentHashMap<>();
 
   WatermarkMetrics(MetricsRegistry registry) {
     super("watermark-", registry);
@@ -40,4 +43,9 @@ class WatermarkMetrics extends MetricsBase {
           ssp.getStream(), ssp.getPartition().getPartitionId()), 0L));
     aggregate.set(time);
   }
+
+  void incSuppressed(SystemStream systemStream) {
+    suppressed.computeIfAbsent(systemStream,
+      ss -> newCounter(String.format("%s-suppressed-watermarks", ss.getStream()))).inc();
+  }
 }
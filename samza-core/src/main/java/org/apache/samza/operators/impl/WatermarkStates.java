@@ -83,6 +83,8 @@ class WatermarkStates {
   }
 
   private final Map<SystemStreamPartition, WatermarkState> watermarkStates;
+  // the states of the partitions of each stream, to compute the watermark of a stream without scanning all partitions
+  private final Map<SystemStream, List<WatermarkState>> streamWatermarkStates;
   private final List<SystemStreamPartition> intermediateSsps;
   private final WatermarkMetrics watermarkMetrics;
 
@@ -91,16 +93,20 @@ class WatermarkStates {
       Map<SystemStream, Integer> producerTaskCounts,
       MetricsRegistry metricsRegistry) {
     final Map<SystemStreamPartition, WatermarkState> states = new HashMap<>();
+    final Map<SystemStream, List<WatermarkState>> streamStates = new HashMap<>();
     final List<SystemStreamPartition> intSsps = new ArrayList<>();
 
     ssps.forEach(ssp -> {
       final int producerCount = producerTaskCounts.getOrDefault(ssp.getSystemStream(), 0);
-      states.put(ssp, new WatermarkState(producerCount));
+      final WatermarkState state = new WatermarkState(producerCount);
+      states.put(ssp, state);
+      streamStates.computeIfAbsent(ssp.getSystemStream(), ss -> new ArrayList<>()).add(state);
       if (producerCount != 0) {
         intSsps.add(ssp);
       }
     });
     this.watermarkStates = Collections.unmodifiableMap(states);
+    this.streamWatermarkStates = Collections.unmodifiableMap(streamStates);
     this.watermarkMetrics = new WatermarkMetrics(metricsRegistry);
     this.intermediateSsps = Collections.unmodifiableList(intSsps);
   }
@@ -121,11 +127,15 @@ class WatermarkStates {
   }
 
   long getWatermark(SystemStream systemStream) {
-    return watermarkStates.entrySet().stream()
-        .filter(entry -> entry.getKey().getSystemStream().equals(systemStream))
-        .map(entry -> entry.getValue().getWatermarkTime())
-        .min(Long::compare)
-        .orElse(WATERMARK_NOT_EXIST);
+    final List<WatermarkState> states = streamWatermarkStates.get(systemStream);
+    if (states == null) {
+      return WATERMARK_NOT_EXIST;
+    }
+    long watermark = Long.MAX_VALUE;
+    for (WatermarkState state : states) {
+      watermark = Math.min(watermark, state.getWatermarkTime());
+    }
+    return watermark;
   }
 
   /* package private for testing */
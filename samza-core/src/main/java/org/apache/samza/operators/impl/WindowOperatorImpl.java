@@ -21,8 +21,6 @@
 package org.apache.samza.operators.impl;
 
 import com.google.common.base.Preconditions;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import org.apache.samza.context.Context;
 import org.apache.samza.operators.functions.FoldLeftFunction;
@@ -56,6 +54,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -82,6 +81,11 @@ import java.util.stream.Collectors;
  *
  * The {@link WindowOperatorImpl} checks if the trigger fired and returns the result of the firing.
  *
+ * <p> For event-time windows, i.e. windows with an event time extractor, the default trigger of a window fires when
+ * the input watermark of the operator passes the end of the window, instead of after a duration in processing time.
+ * Messages which arrive after that, but within the allowed lateness of the window, are emitted in late panes, and later
+ * messages are dropped.
+ *
  * @param <M> the type of the incoming message
  * @param <K> the type of the key in the incoming message
  *
@@ -101,6 +105,16 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
   private final Map<TriggerKey<K>, TriggerImplHandler> triggers = new ConcurrentHashMap<>();
   private TimeSeriesStore<K, Object> timeSeriesStore;
 
+  // the following are only used by event-time windows
+  private final boolean isEventTimeWindow;
+  private final long windowMs;
+  private final long allowedLatenessMs;
+  // the default triggers of the windows, by the end of their window
+  private final TimingWheel<TriggerKey<K>> eventTimeTriggers = new TimingWheel<>(0);
+  private final Map<TriggerKey<K>, TimingWheel.Timeout<TriggerKey<K>>> pendingEventTimeTriggers = new HashMap<>();
+  // the windows which fired and keep accepting late messages, by the end of their allowed lateness
+  private final TimingWheel<TriggerKey<K>> expiringWindows = new TimingWheel<>(0);
+
   public WindowOperatorImpl(WindowOperatorSpec<M, K, Object> windowOpSpec, Clock clock) {
     this.windowOpSpec = windowOpSpec;
     this.clock = clock;
@@ -109,6 +123,9 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     this.initializer = window.getInitializer();
     this.keyFn = window.getKeyExtractor();
     this.triggerScheduler= new TriggerScheduler(clock);
+    this.isEventTimeWindow = window.getEventTimeExtractor() != null;
+    this.windowMs = isEventTimeWindow ? ((TimeTrigger<M>) window.getDefaultTrigger()).getDuration().toMillis() : 0;
+    this.allowedLatenessMs = isEventTimeWindow ? window.getAllowedLateness().toMillis() : 0;
   }
 
   @Override
@@ -125,6 +142,10 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
       keyFn.init(context);
     }
 
+    if (window.getEventTimeExtractor() != null) {
+      window.getEventTimeExtractor().init(context);
+    }
+
     // For aggregating windows, we use the store in over-write mode since we only retain the aggregated
     // value. Else, we use the store in append-mode.
     if (foldLeftFn != null) {
@@ -136,7 +157,7 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
   }
 
   @Override
-  protected CompletionStage<Collection<WindowPane<K, Object>>> handleMessageAsync(M message, MessageCollector collector,
+  protected Collection<WindowPane<K, Object>> handleMessageSync(M message, MessageCollector collector,
       TaskCoordinator coordinator) {
     LOG.trace("Processing message envelope: {}", message);
     List<WindowPane<K, Object>> results = new ArrayList<>();
@@ -144,6 +165,24 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     K key = (keyFn != null) ? keyFn.apply(message) : null;
     long timestamp = getWindowTimestamp(message);
 
+    // event-time windows which the watermark passed only accept messages within the allowed lateness
+    boolean isLate = false;
+    if (isEventTimeWindow) {
+      long watermark = getInputWatermark();
+      if (timestamp + windowMs + allowedLatenessMs <= watermark) {
+        LOG.trace("Dropping message {} for window {} of key {}, which is past its allowed lateness at watermark {}",
+            new Object[] {message, timestamp, key, watermark});
+        return Collections.emptyList();
+      }
+      isLate = timestamp + windowMs <= watermark;
+      if (isLate && getValues(key, timestamp).isEmpty()) {
+        // the state of a window which had no messages before, or whose late messages were discarded, still has to be
+        // removed when the allowed lateness expires
+        expiringWindows.add(timestamp + windowMs + allowedLatenessMs,
+            new TriggerKey<>(FiringType.DEFAULT, key, timestamp));
+      }
+    }
+
     // For aggregating windows, we only store the aggregated window value.
     // For non-aggregating windows, we store all messages in the window.
     if (foldLeftFn == null) {
@@ -163,6 +202,20 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
       timeSeriesStore.put(key, aggregatedValue, timestamp); // store is in over-write mode
     }
 
+    if (isLate) {
+      TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.LATE, key, timestamp);
+      if (window.getLateTrigger() != null) {
+        TriggerImplHandler triggerImplHandler = getOrCreateTriggerImplHandler(triggerKey, window.getLateTrigger());
+        Optional<WindowPane<K, Object>> maybeTriggeredPane =
+            triggerImplHandler.onMessage(triggerKey, message, collector, coordinator);
+        maybeTriggeredPane.ifPresent(results::add);
+      } else {
+        // without a late trigger, every late message is emitted right away
+        onTriggerFired(triggerKey, collector, coordinator).ifPresent(results::add);
+      }
+      return results;
+    }
+
     if (window.getEarlyTrigger() != null) {
       TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.EARLY, key, timestamp);
       TriggerImplHandler triggerImplHandler = getOrCreateTriggerImplHandler(triggerKey, window.getEarlyTrigger());
@@ -171,7 +224,12 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
       maybeTriggeredPane.ifPresent(results::add);
     }
 
-    if (window.getDefaultTrigger() != null) {
+    if (isEventTimeWindow) {
+      TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.DEFAULT, key, timestamp);
+      if (!pendingEventTimeTriggers.containsKey(triggerKey)) {
+        pendingEventTimeTriggers.put(triggerKey, eventTimeTriggers.add(timestamp + windowMs, triggerKey));
+      }
+    } else if (window.getDefaultTrigger() != null) {
       TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.DEFAULT, key, timestamp);
       TriggerImplHandler triggerImplHandler = getOrCreateTriggerImplHandler(triggerKey, window.getDefaultTrigger());
       Optional<WindowPane<K, Object>> maybeTriggeredPane =
@@ -179,7 +237,7 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
       maybeTriggeredPane.ifPresent(results::add);
     }
 
-    return CompletableFuture.completedFuture(results);
+    return results;
   }
 
   @Override
@@ -199,6 +257,32 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     return results;
   }
 
+  @Override
+  protected Collection<WindowPane<K, Object>> handleWatermark(long inputWatermark, MessageCollector collector,
+      TaskCoordinator coordinator) {
+    if (!isEventTimeWindow) {
+      return Collections.emptyList();
+    }
+    LOG.trace("Processing event time triggers at watermark {}", inputWatermark);
+    List<WindowPane<K, Object>> results = new ArrayList<>();
+    List<TriggerKey<K>> keys = new ArrayList<>();
+    eventTimeTriggers.advance(inputWatermark, keys);
+    for (TriggerKey<K> key : keys) {
+      pendingEventTimeTriggers.remove(key);
+      onTriggerFired(key, collector, coordinator).ifPresent(results::add);
+    }
+
+    keys.clear();
+    expiringWindows.advance(inputWatermark, keys);
+    for (TriggerKey<K> key : keys) {
+      LOG.trace("Allowed lateness expired for {}", key);
+      cancelTrigger(new TriggerKey<>(FiringType.LATE, key.getKey(), key.getTimestamp()), true);
+      timeSeriesStore.remove(key.getKey(), key.getTimestamp());
+    }
+    LOG.trace("Triggered panes: " + results.size());
+    return results;
+  }
+
   @Override
   protected OperatorSpec<M, WindowPane<K, Object>> getOperatorSpec() {
     return windowOpSpec;
@@ -208,6 +292,11 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
   protected Collection<WindowPane<K, Object>> handleEndOfStream(MessageCollector collector, TaskCoordinator coordinator) {
     List<WindowPane<K, Object>> results = new ArrayList<>();
     Set<TriggerKey<K>> triggerKeys = new HashSet<>(triggers.keySet());
+    for (TimingWheel.Timeout<TriggerKey<K>> timeout : pendingEventTimeTriggers.values()) {
+      eventTimeTriggers.cancel(timeout);
+    }
+    triggerKeys.addAll(pendingEventTimeTriggers.keySet());
+    pendingEventTimeTriggers.clear();
     for(TriggerKey<K> triggerKey : triggerKeys) {
       Optional<WindowPane<K, Object>> triggerResult = onTriggerFired(triggerKey, collector, coordinator);
       triggerResult.ifPresent(results::add);
@@ -229,6 +318,9 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     if (keyFn != null) {
       keyFn.close();
     }
+    if (window.getEventTimeExtractor() != null) {
+      window.getEventTimeExtractor().close();
+    }
   }
 
   private TriggerImplHandler getOrCreateTriggerImplHandler(TriggerKey<K> triggerKey, Trigger<M> trigger) {
@@ -275,22 +367,27 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     }
 
     // Cancel all early triggers too when the default trigger fires. Also, clean all state for the key.
-    // note: We don't handle late arrivals yet, So, all arrivals are either early or on-time.
+    // note: Only event-time windows handle late arrivals, in late firings after the default trigger fired.
     if (triggerKey.getType() == FiringType.DEFAULT) {
 
       LOG.trace("Default trigger fired. Canceling triggers for {}", triggerKey);
 
       cancelTrigger(triggerKey, true);
       cancelTrigger(new TriggerKey(FiringType.EARLY, triggerKey.getKey(), triggerKey.getTimestamp()), true);
-      timeSeriesStore.remove(key, timestamp);
+      if (isEventTimeWindow && allowedLatenessMs > 0) {
+        // keep the state for late messages until the watermark passes the allowed lateness of the window
+        expiringWindows.add(timestamp + windowMs + allowedLatenessMs, triggerKey);
+      } else {
+        timeSeriesStore.remove(key, timestamp);
+      }
     }
 
-    // Cancel non-repeating early triggers. All early triggers should be removed from the "triggers" map only after the
-    // firing of their corresponding default trigger. Removing them pre-maturely (immediately after cancellation) will
-    // will create a new {@link TriggerImplWrapper} instance at a future invocation of getOrCreateTriggerWrapper().
-    // This would cause an already canceled trigger to fire again for the window.
+    // Cancel non-repeating early and late triggers. All early triggers should be removed from the "triggers" map only
+    // after the firing of their corresponding default trigger. Removing them pre-maturely (immediately after
+    // cancellation) will create a new {@link TriggerImplWrapper} instance at a future invocation of
+    // getOrCreateTriggerWrapper(). This would cause an already canceled trigger to fire again for the window.
 
-    if (triggerKey.getType() == FiringType.EARLY && !wrapper.isRepeating()) {
+    if (triggerKey.getType() != FiringType.DEFAULT && wrapper != null && !wrapper.isRepeating()) {
       cancelTrigger(triggerKey, false);
     }
 
@@ -336,7 +433,10 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
    * @return the timestamp of the window this message should belong to
    */
   private long getWindowTimestamp(M message) {
-    if (window.getWindowType() == WindowType.TUMBLING) {
+    if (isEventTimeWindow) {
+      long eventTime = window.getEventTimeExtractor().apply(message);
+      return eventTime - Math.floorMod(eventTime, windowMs);
+    } else if (window.getWindowType() == WindowType.TUMBLING) {
       long triggerDurationMs = ((TimeTrigger<M>) window.getDefaultTrigger()).getDuration().toMillis();
       final long now = clock.currentTimeMillis();
       // assign timestamp to be the start timestamp of the window boundary
@@ -23,6 +23,7 @@ import org.apache.samza.operators.KV;
 import org.apache.samza.operators.functions.AsyncFlatMapFunction;
 import org.apache.samza.operators.functions.FilterFunction;
 import org.apache.samza.operators.functions.FlatMapFunction;
+import org.apache.samza.operators.functions.FoldLeftFunction;
 import org.apache.samza.system.descriptors.InputTransformer;
 import org.apache.samza.operators.functions.JoinFunction;
 import org.apache.samza.operators.functions.MapFunction;
@@ -153,6 +154,26 @@ public class OperatorSpecs {
     return new PartitionByOperatorSpec<>(outputStream, keyFunction, valueFunction, opId);
   }
 
+  /**
+   * Creates a {@link PartitionByOperatorSpec} for the partitionBy operator which combines values with the same key.
+   *
+   * @param <M> the type of messages being repartitioned
+   * @param <K> the type of key in the repartitioned {@link OutputStreamImpl}
+   * @param <V> the type of value in the repartitioned {@link OutputStreamImpl}
+   * @param outputStream  the {@link OutputStreamImpl} to send messages to
+   * @param keyFunction  the {@link MapFunction} for extracting the key from the message
+   * @param valueFunction  the {@link MapFunction} for extracting the value from the message
+   * @param combineFunction  the {@link FoldLeftFunction} for combining values with the same key
+   * @param opId  the unique ID of the operator
+   * @return  the {@link OutputOperatorSpec} for the partitionBy operator
+   */
+  public static <M, K, V> PartitionByOperatorSpec<M, K, V> createPartitionByOperatorSpec(
+      OutputStreamImpl<KV<K, V>> outputStream, MapFunction<? super M, ? extends K> keyFunction,
+      MapFunction<? super M, ? extends V> valueFunction, FoldLeftFunction<? super V, V> combineFunction,
+      String opId) {
+    return new PartitionByOperatorSpec<>(outputStream, keyFunction, valueFunction, combineFunction, opId);
+  }
+
   /**
    * Creates a {@link WindowOperatorSpec}.
    *
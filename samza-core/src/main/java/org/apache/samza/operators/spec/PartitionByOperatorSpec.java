@@ -19,6 +19,7 @@
 package org.apache.samza.operators.spec;
 
 import org.apache.samza.operators.KV;
+import org.apache.samza.operators.functions.FoldLeftFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.ScheduledFunction;
 import org.apache.samza.operators.functions.WatermarkFunction;
@@ -42,6 +43,7 @@ public class PartitionByOperatorSpec<M, K, V> extends OperatorSpec<M, Void> {
   private final OutputStreamImpl<KV<K, V>> outputStream;
   private final MapFunction<? super M, ? extends K> keyFunction;
   private final MapFunction<? super M, ? extends V> valueFunction;
+  private final FoldLeftFunction<? super V, V> combineFunction;
 
   /**
    * Constructs an {@link PartitionByOperatorSpec} to send messages to the provided {@code outputStream}
@@ -54,14 +56,35 @@ public class PartitionByOperatorSpec<M, K, V> extends OperatorSpec<M, Void> {
   PartitionByOperatorSpec(OutputStreamImpl<KV<K, V>> outputStream,
       MapFunction<? super M, ? extends K> keyFunction,
       MapFunction<? super M, ? extends V> valueFunction, String opId) {
+    this(outputStream, keyFunction, valueFunction, null, opId);
+  }
+
+  /**
+   * Constructs an {@link PartitionByOperatorSpec} to send the values of messages, combined per key, to the provided
+   * {@code outputStream}
+   *
+   * @param outputStream the {@link OutputStreamImpl} to send messages to
+   * @param keyFunction the {@link MapFunction} for extracting the key from the message
+   * @param valueFunction the {@link MapFunction} for extracting the value from the message
+   * @param combineFunction the {@link FoldLeftFunction} for combining values with the same key, or null to send
+   *                        every value
+   * @param opId the unique ID of this {@link SinkOperatorSpec} in the graph
+   */
+  PartitionByOperatorSpec(OutputStreamImpl<KV<K, V>> outputStream,
+      MapFunction<? super M, ? extends K> keyFunction,
+      MapFunction<? super M, ? extends V> valueFunction,
+      FoldLeftFunction<? super V, V> combineFunction, String opId) {
     super(OpCode.PARTITION_BY, opId);
     checkArgument(!(keyFunction instanceof ScheduledFunction || keyFunction instanceof WatermarkFunction),
         "keyFunction for partitionBy should not implement ScheduledFunction or WatermarkFunction.");
     checkArgument(!(valueFunction instanceof ScheduledFunction || valueFunction instanceof WatermarkFunction),
         "valueFunction for partitionBy should not implement ScheduledFunction or WatermarkFunction.");
+    checkArgument(!(combineFunction instanceof ScheduledFunction || combineFunction instanceof WatermarkFunction),
+        "combineFunction for partitionBy should not implement ScheduledFunction or WatermarkFunction.");
     this.outputStream = outputStream;
     this.keyFunction = keyFunction;
     this.valueFunction = valueFunction;
+    this.combineFunction = combineFunction;
   }
 
   /**
@@ -80,6 +103,14 @@ public class PartitionByOperatorSpec<M, K, V> extends OperatorSpec<M, Void> {
     return valueFunction;
   }
 
+  /**
+   * The function combining the values with the same key before they're sent.
+   * @return the combine function, or null if every value is sent
+   */
+  public FoldLeftFunction<? super V, V> getCombineFunction() {
+    return combineFunction;
+  }
+
   @Override
   public WatermarkFunction getWatermarkFn() {
     return null;
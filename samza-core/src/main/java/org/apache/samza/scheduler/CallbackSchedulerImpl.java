@@ -38,4 +38,29 @@ public class CallbackSchedulerImpl implements CallbackScheduler {
   public <K> void deleteCallback(K key) {
     this.epochTimeScheduler.deleteTimer(key);
   }
+
+  @Override
+  public <K> void setDurableCallback(ScheduledCallback<K> callback) {
+    this.epochTimeScheduler.setDurableCallback(callback);
+  }
+
+  /**
+   * Set the callback of the callbacks scheduled with the given id. Unlike callbacks scheduled with their own
+   * {@link ScheduledCallback}, callbacks of different ids can be kept in one durable timer store, and the keys of
+   * different ids don't replace each other's callbacks.
+   * @param callbackId id of the callback, e.g. the id of an operator
+   * @param callback callback to run for the keys scheduled with the id
+   * @param <K> type of the keys
+   */
+  public <K> void setTimedCallback(String callbackId, EpochTimeScheduler.TimedCallback<K> callback) {
+    this.epochTimeScheduler.setTimedCallback(callbackId, callback);
+  }
+
+  public <K> void scheduleCallback(String callbackId, K key, long timestamp) {
+    this.epochTimeScheduler.setTimer(callbackId, key, timestamp);
+  }
+
+  public <K> void deleteCallback(String callbackId, K key) {
+    this.epochTimeScheduler.deleteTimer(callbackId, key);
+  }
 }
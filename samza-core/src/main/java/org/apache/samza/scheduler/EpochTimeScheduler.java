@@ -20,12 +20,17 @@
 package org.apache.samza.scheduler;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import org.apache.samza.task.MessageCollector;
+import org.apache.samza.task.TaskCoordinator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +40,12 @@ import org.slf4j.LoggerFactory;
  * 1) schedules the timer on the {@link ScheduledExecutorService}.
  * 2) keeps track of the timers created and timers that are ready.
  * 3) triggers listener whenever a timer fires.
+ *
+ * If a {@link KeyValueTimerStore} is set, the timers are kept in the store instead of the executor. Callbacks can't be
+ * stored, so timers set with their own callback all fire through the durable callback of the task, and timers set with
+ * a callback id fire through the {@link TimedCallback} set for that id, which is kept with each timer in the store.
+ * The executor then only keeps a single wakeup for the earliest timer, and due timers are removed from the store in
+ * batches.
  */
 public class EpochTimeScheduler {
   private static final Logger LOG = LoggerFactory.getLogger(EpochTimeScheduler.class);
@@ -45,11 +56,30 @@ public class EpochTimeScheduler {
     void onTimer();
   }
 
+  /**
+   * The callback of the timers set with a callback id, which is invoked with the key and the time of each timer.
+   */
+  public interface TimedCallback<K> {
+    void onCallback(K key, long time, MessageCollector collector, TaskCoordinator coordinator);
+  }
+
+  /**
+   * The id of the timers set with their own callback.
+   */
+  public static final String DEFAULT_CALLBACK_ID = "";
+
   private final ScheduledExecutorService executor;
   private final Map<Object, ScheduledFuture> scheduledFutures = new ConcurrentHashMap<>();
   private final Map<TimerKey<?>, ScheduledCallback> readyTimers = new ConcurrentHashMap<>();
+  private final Map<String, TimedCallback<Object>> timedCallbacks = new ConcurrentHashMap<>();
   private volatile TimerListener timerListener;
 
+  // the following are only used if the timers are kept in a store
+  private volatile KeyValueTimerStore<Object> timerStore;
+  private volatile ScheduledCallback<Object> durableCallback;
+  private ScheduledFuture<?> wakeupFuture;
+  private long wakeupTime = Long.MAX_VALUE;
+
   public static EpochTimeScheduler create(ScheduledExecutorService executor) {
     return new EpochTimeScheduler(executor);
   }
@@ -63,10 +93,92 @@ public class EpochTimeScheduler {
     return scheduledFutures;
   }
 
+  /**
+   * Keep the timers in the given store from now on, so that they survive restarts and don't take memory.
+   * It must be set before any timer is set.
+   *
+   * @param timerStore the store of the timers
+   */
+  @SuppressWarnings("unchecked")
+  public void setTimerStore(KeyValueTimerStore<?> timerStore) {
+    this.timerStore = (KeyValueTimerStore<Object>) timerStore;
+  }
+
+  /**
+   * Set the callback of the timers kept in the store which are set with their own callback, including the timers set
+   * before a restart. Without it, the callback of the first timer which is set is used, and timers set with another
+   * callback are rejected.
+   *
+   * @param callback the callback of the timers
+   */
+  @SuppressWarnings("unchecked")
+  public <K> void setDurableCallback(ScheduledCallback<K> callback) {
+    durableCallback = (ScheduledCallback<Object>) callback;
+    if (timerStore != null) {
+      scheduleWakeup(timerStore.nextTime());
+    }
+  }
+
+  /**
+   * Set the callback of the timers set with the given callback id, including the timers set before a restart if they
+   * are kept in a store. It must be set before any timer is set with the id.
+   *
+   * @param callbackId the id of the callback, e.g. the id of an operator
+   * @param callback the callback of the timers
+   */
+  @SuppressWarnings("unchecked")
+  public <K> void setTimedCallback(String callbackId, TimedCallback<K> callback) {
+    timedCallbacks.put(callbackId, (TimedCallback<Object>) callback);
+    if (timerStore != null) {
+      scheduleWakeup(timerStore.nextTime());
+    }
+  }
+
   public <K> void setTimer(K key, long timestamp, ScheduledCallback<K> callback) {
-    if (scheduledFutures.containsKey(key)) {
-      LOG.warn("Registering duplicate callback for key: {}. Attempting to cancel the previous callback", key);
-      ScheduledFuture<?> scheduledFuture = scheduledFutures.get(key);
+    if (timerStore != null) {
+      if (durableCallback == null) {
+        // timers set before a restart may be due earlier
+        setDurableCallback(callback);
+      } else if (callback != durableCallback) {
+        throw new IllegalArgumentException(String.format("Timer for key: %s can't fire through its own callback, since "
+            + "the timers are kept in a store. Set the callback with setDurableCallback, and reuse it.", key));
+      }
+      timerStore.put(key, timestamp);
+      scheduleWakeup(timestamp);
+      return;
+    }
+
+    scheduleFuture(key, TimerKey.of(key, timestamp), callback);
+  }
+
+  /**
+   * Set the timer for a key of the callback with the given id, which fires through the {@link TimedCallback} of the id.
+   * Keys of different callback ids don't replace each other's timers.
+   *
+   * @param callbackId the id of the callback, which must be set with {@link #setTimedCallback}
+   * @param key the key of the timer
+   * @param timestamp the epoch time at which the timer fires, in milliseconds
+   */
+  public <K> void setTimer(String callbackId, K key, long timestamp) {
+    final TimedCallback<Object> callback = timedCallbacks.get(callbackId);
+    if (callback == null) {
+      throw new IllegalStateException("No callback is set for callback id: " + callbackId);
+    }
+    if (timerStore != null) {
+      timerStore.put(callbackId, key, timestamp);
+      scheduleWakeup(timestamp);
+      return;
+    }
+
+    scheduleFuture(Arrays.asList(callbackId, key), TimerKey.of(callbackId, key, timestamp),
+        (k, collector, coordinator) -> callback.onCallback(k, timestamp, collector, coordinator));
+  }
+
+  private void scheduleFuture(Object futureKey, TimerKey<?> timerKey, ScheduledCallback<?> callback) {
+    if (scheduledFutures.containsKey(futureKey)) {
+      LOG.warn("Registering duplicate callback for key: {}. Attempting to cancel the previous callback",
+          timerKey.getKey());
+      ScheduledFuture<?> scheduledFuture = scheduledFutures.get(futureKey);
 
       /*
        * We can have a race between the time we check for the presence of the key and the time we attempt to cancel;
@@ -86,20 +198,41 @@ public class EpochTimeScheduler {
       }
     }
 
-    final long delay = timestamp - System.currentTimeMillis();
+    final long delay = timerKey.getTime() - System.currentTimeMillis();
     final ScheduledFuture<?> scheduledFuture = executor.schedule(() -> {
-      scheduledFutures.remove(key);
-      readyTimers.put(TimerKey.of(key, timestamp), callback);
+      scheduledFutures.remove(futureKey);
+      readyTimers.put(timerKey, callback);
 
       if (timerListener != null) {
         timerListener.onTimer();
       }
     }, delay > 0 ? delay : 0, TimeUnit.MILLISECONDS);
-    scheduledFutures.put(key, scheduledFuture);
+    scheduledFutures.put(futureKey, scheduledFuture);
   }
 
   public <K> void deleteTimer(K key) {
-    final ScheduledFuture<?> scheduledFuture = scheduledFutures.remove(key);
+    if (timerStore != null) {
+      timerStore.delete(key);
+      return;
+    }
+
+    cancelFuture(key);
+  }
+
+  /**
+   * Delete the timer for a key of the callback with the given id, if any.
+   */
+  public <K> void deleteTimer(String callbackId, K key) {
+    if (timerStore != null) {
+      timerStore.delete(callbackId, key);
+      return;
+    }
+
+    cancelFuture(Arrays.asList(callbackId, key));
+  }
+
+  private void cancelFuture(Object futureKey) {
+    final ScheduledFuture<?> scheduledFuture = scheduledFutures.remove(futureKey);
     if (scheduledFuture != null) {
       scheduledFuture.cancel(false);
     }
@@ -108,12 +241,19 @@ public class EpochTimeScheduler {
   public void registerListener(TimerListener listener) {
     timerListener = listener;
 
+    if (timerStore != null && hasStoredTimerCallbacks()) {
+      scheduleWakeup(timerStore.nextTime());
+    }
     if (!readyTimers.isEmpty()) {
       timerListener.onTimer();
     }
   }
 
   public Map<TimerKey<?>, ScheduledCallback> removeReadyTimers() {
+    if (timerStore != null) {
+      return removeStoredReadyTimers();
+    }
+
     final Map<TimerKey<?>, ScheduledCallback> timers = new TreeMap<>(readyTimers);
     // Remove keys on the map directly instead of using key set iterator and remove all
     // on the key set as it results in duplicate firings due to weakly consistent SetView
@@ -123,19 +263,91 @@ public class EpochTimeScheduler {
     return timers;
   }
 
+  /**
+   * Remove a batch of due timers from the store, and schedule the wakeup for the remaining timers, which is immediate
+   * if more timers are due.
+   */
+  private Map<TimerKey<?>, ScheduledCallback> removeStoredReadyTimers() {
+    // timers set before a restart wait until their callbacks are known
+    if (!hasStoredTimerCallbacks()) {
+      return new LinkedHashMap<>();
+    }
+    final List<TimerKey<Object>> dueTimers = timerStore.removeDue(System.currentTimeMillis());
+    final Map<TimerKey<?>, ScheduledCallback> timers = new LinkedHashMap<>(dueTimers.size() * 2);
+    for (TimerKey<Object> timer : dueTimers) {
+      final ScheduledCallback<Object> callback = getStoredTimerCallback(timer);
+      if (callback != null) {
+        timers.put(timer, callback);
+      } else {
+        LOG.warn("Dropping timer for key: {} since no callback is set for callback id: {}", timer.getKey(),
+            timer.getCallbackId());
+      }
+    }
+    scheduleWakeup(timerStore.nextTime());
+    return timers;
+  }
+
+  private boolean hasStoredTimerCallbacks() {
+    return durableCallback != null || !timedCallbacks.isEmpty();
+  }
+
+  private ScheduledCallback<Object> getStoredTimerCallback(TimerKey<Object> timer) {
+    if (DEFAULT_CALLBACK_ID.equals(timer.getCallbackId())) {
+      return durableCallback;
+    }
+    final TimedCallback<Object> callback = timedCallbacks.get(timer.getCallbackId());
+    if (callback == null) {
+      return null;
+    }
+    final long time = timer.getTime();
+    return (key, collector, coordinator) -> callback.onCallback(key, time, collector, coordinator);
+  }
+
+  /**
+   * Make sure the listener is notified at the given time, unless a wakeup is scheduled for an earlier time.
+   */
+  private synchronized void scheduleWakeup(long time) {
+    if (time == Long.MAX_VALUE) {
+      return;
+    }
+    if (wakeupFuture != null && !wakeupFuture.isDone()) {
+      if (wakeupTime <= time) {
+        return;
+      }
+      wakeupFuture.cancel(false);
+    }
+    final long delay = time - System.currentTimeMillis();
+    wakeupTime = time;
+    wakeupFuture = executor.schedule(() -> {
+      if (timerListener != null) {
+        timerListener.onTimer();
+      }
+    }, delay > 0 ? delay : 0, TimeUnit.MILLISECONDS);
+  }
+
   public static class TimerKey<K> implements Comparable<TimerKey<K>> {
+    private final String callbackId;
     private final K key;
     private final long time;
 
     static <K> TimerKey<K> of(K key, long time) {
-      return new TimerKey<>(key, time);
+      return new TimerKey<>(DEFAULT_CALLBACK_ID, key, time);
+    }
+
+    static <K> TimerKey<K> of(String callbackId, K key, long time) {
+      return new TimerKey<>(callbackId, key, time);
     }
 
-    private TimerKey(K key, long time) {
+    private TimerKey(String callbackId, K key, long time) {
+      this.callbackId = callbackId;
       this.key = key;
       this.time = time;
     }
 
+    public String getCallbackId() {
+      return callbackId;
+    }
+
     public K getKey() {
       return key;
     }
@@ -157,20 +369,22 @@ public class EpochTimeScheduler {
       if (time != ((TimerKey<?>) o).time) {
         return false;
       }
-      return key.equals(timerKey.key);
+      return key.equals(timerKey.key) && callbackId.equals(timerKey.callbackId);
     }
 
     @Override
     public int hashCode() {
       int result = key.hashCode();
       result = 31 * result + Long.valueOf(time).hashCode();
+      result = 31 * result + callbackId.hashCode();
       return result;
     }
 
     @Override
     public String toString() {
       return "TimerKey{"
-          + "key=" + key
+          + "callbackId='" + callbackId + '\''
+          + ", key=" + key
           + ", time='" + time + '\''
           + '}';
     }
@@ -182,7 +396,12 @@ public class EpochTimeScheduler {
         return timeCompare;
       }
 
-      return key.hashCode() - o.key.hashCode();
+      final int keyCompare = key.hashCode() - o.key.hashCode();
+      if (keyCompare != 0) {
+        return keyCompare;
+      }
+
+      return callbackId.compareTo(o.callbackId);
     }
   }
 }
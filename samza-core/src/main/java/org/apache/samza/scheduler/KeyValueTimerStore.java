@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.scheduler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.samza.serializers.Serde;
+import org.apache.samza.storage.kv.Entry;
+import org.apache.samza.storage.kv.KeyValueIterator;
+import org.apache.samza.storage.kv.KeyValueStore;
+
+/**
+ * Keeps the timers of a task in a key-value store, so that they survive restarts of the task if the store has a
+ * changelog, and memory usage doesn't depend on the number of timers.
+ *
+ * <p> Each timer is identified by the id of its callback and its key, which are encoded as the timer id
+ * [callback id length][callback id][key]. Each timer is kept as two entries:
+ * <ul>
+ *   <li>[{@link #TIME_PREFIX}][time][timer id] with an empty value, which orders the timers by their time, so that due
+ *   timers are read with a range query</li>
+ *   <li>[{@link #KEY_PREFIX}][timer id] with the time as value, which allows to replace and delete the timer of a
+ *   key</li>
+ * </ul>
+ * The time is encoded with its sign bit flipped, so that the byte-wise order of the entries is the order of the times.
+ *
+ * <p> Timers are set by the task, while due timers are removed by the run loop, so the methods are synchronized to
+ * keep the two entries of each timer consistent.
+ *
+ * @param <K> the type of the timer keys
+ */
+public class KeyValueTimerStore<K> {
+  static final byte TIME_PREFIX = 1;
+  static final byte KEY_PREFIX = 2;
+  private static final byte[] EMPTY_VALUE = new byte[0];
+
+  private final KeyValueStore<byte[], byte[]> store;
+  private final Serde<K> keySerde;
+  private final int batchSize;
+
+  /**
+   * @param store the store of the timers, which must not be used for anything else
+   * @param keySerde the serde for the timer keys
+   * @param batchSize the maximum number of due timers removed at once
+   */
+  public KeyValueTimerStore(KeyValueStore<byte[], byte[]> store, Serde<K> keySerde, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1, but is " + batchSize);
+    }
+    this.store = store;
+    this.keySerde = keySerde;
+    this.batchSize = batchSize;
+  }
+
+  int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Add the timer for a key of the default callback, replacing its previous timer if any.
+   *
+   * @param key the key of the timer
+   * @param time the epoch time at which the timer fires, in milliseconds
+   */
+  public void put(K key, long time) {
+    put(EpochTimeScheduler.DEFAULT_CALLBACK_ID, key, time);
+  }
+
+  /**
+   * Add the timer for a key of a callback, replacing its previous timer if any.
+   *
+   * @param callbackId the id of the callback of the timer
+   * @param key the key of the timer
+   * @param time the epoch time at which the timer fires, in milliseconds
+   */
+  public synchronized void put(String callbackId, K key, long time) {
+    byte[] timerId = timerId(callbackId, key);
+    byte[] indexKey = indexKey(timerId);
+    byte[] previousTime = store.get(indexKey);
+    if (previousTime != null) {
+      store.delete(timeKey(ByteBuffer.wrap(previousTime).getLong(), timerId));
+    }
+    List<Entry<byte[], byte[]>> entries = new ArrayList<>(2);
+    entries.add(new Entry<>(timeKey(time, timerId), EMPTY_VALUE));
+    entries.add(new Entry<>(indexKey, ByteBuffer.allocate(Long.BYTES).putLong(time).array()));
+    store.putAll(entries);
+  }
+
+  /**
+   * Delete the timer for a key of the default callback, if any.
+   *
+   * @param key the key of the timer
+   * @return true if the key had a timer
+   */
+  public boolean delete(K key) {
+    return delete(EpochTimeScheduler.DEFAULT_CALLBACK_ID, key);
+  }
+
+  /**
+   * Delete the timer for a key of a callback, if any.
+   *
+   * @param callbackId the id of the callback of the timer
+   * @param key the key of the timer
+   * @return true if the key had a timer
+   */
+  public synchronized boolean delete(String callbackId, K key) {
+    byte[] timerId = timerId(callbackId, key);
+    byte[] indexKey = indexKey(timerId);
+    byte[] time = store.get(indexKey);
+    if (time == null) {
+      return false;
+    }
+    store.deleteAll(Arrays.asList(timeKey(ByteBuffer.wrap(time).getLong(), timerId), indexKey));
+    return true;
+  }
+
+  /**
+   * Remove the timers with a time not after the given time, in order of their times, up to the batch size.
+   *
+   * @param now the current epoch time in milliseconds
+   * @return the removed timers
+   */
+  public synchronized List<EpochTimeScheduler.TimerKey<K>> removeDue(long now) {
+    List<EpochTimeScheduler.TimerKey<K>> timers = new ArrayList<>();
+    List<byte[]> removedKeys = new ArrayList<>();
+    byte[] to = now == Long.MAX_VALUE ? new byte[] {KEY_PREFIX} : timeKey(now + 1, EMPTY_VALUE);
+    KeyValueIterator<byte[], byte[]> iterator = store.range(new byte[] {TIME_PREFIX}, to);
+    try {
+      while (iterator.hasNext() && timers.size() < batchSize) {
+        byte[] timeKey = iterator.next().getKey();
+        byte[] timerId = Arrays.copyOfRange(timeKey, 1 + Long.BYTES, timeKey.length);
+        int callbackIdLength = ByteBuffer.wrap(timerId).getInt();
+        String callbackId = new String(timerId, Integer.BYTES, callbackIdLength, StandardCharsets.UTF_8);
+        byte[] keyBytes = Arrays.copyOfRange(timerId, Integer.BYTES + callbackIdLength, timerId.length);
+        timers.add(EpochTimeScheduler.TimerKey.of(callbackId, keySerde.fromBytes(keyBytes), time(timeKey)));
+        removedKeys.add(timeKey);
+        removedKeys.add(indexKey(timerId));
+      }
+    } finally {
+      iterator.close();
+    }
+    if (!removedKeys.isEmpty()) {
+      store.deleteAll(removedKeys);
+    }
+    return timers;
+  }
+
+  /**
+   * Get the time of the earliest timer.
+   *
+   * @return the earliest time of the timers, or {@link Long#MAX_VALUE} if there are no timers
+   */
+  public synchronized long nextTime() {
+    KeyValueIterator<byte[], byte[]> iterator = store.range(new byte[] {TIME_PREFIX}, new byte[] {KEY_PREFIX});
+    try {
+      return iterator.hasNext() ? time(iterator.next().getKey()) : Long.MAX_VALUE;
+    } finally {
+      iterator.close();
+    }
+  }
+
+  private byte[] timerId(String callbackId, K key) {
+    byte[] callbackIdBytes = callbackId.getBytes(StandardCharsets.UTF_8);
+    byte[] keyBytes = keySerde.toBytes(key);
+    return ByteBuffer.allocate(Integer.BYTES + callbackIdBytes.length + keyBytes.length)
+        .putInt(callbackIdBytes.length)
+        .put(callbackIdBytes)
+        .put(keyBytes)
+        .array();
+  }
+
+  private static byte[] timeKey(long time, byte[] timerId) {
+    return ByteBuffer.allocate(1 + Long.BYTES + timerId.length)
+        .put(TIME_PREFIX)
+        .putLong(time ^ Long.MIN_VALUE)
+        .put(timerId)
+        .array();
+  }
+
+  private static long time(byte[] timeKey) {
+    return ByteBuffer.wrap(timeKey, 1, Long.BYTES).getLong() ^ Long.MIN_VALUE;
+  }
+
+  private static byte[] indexKey(byte[] timerId) {
+    byte[] indexKey = new byte[1 + timerId.length];
+    indexKey[0] = KEY_PREFIX;
+    System.arraycopy(timerId, 0, indexKey, 1, timerId.length);
+    return indexKey;
+  }
+}
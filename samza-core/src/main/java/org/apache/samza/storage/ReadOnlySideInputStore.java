@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.samza.checkpoint.CheckpointId;
+import org.apache.samza.storage.kv.Entry;
+import org.apache.samza.storage.kv.KeyValueIterator;
+import org.apache.samza.storage.kv.KeyValueSnapshot;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.system.ChangelogSSPIterator;
+
+
+/**
+ * A read-only view of a side input store that is shared by all tasks in a container. Writes are rejected since the
+ * store is only updated by the container's side input handler. Lifecycle operations are no-ops as the store is owned,
+ * flushed and stopped by the {@link ContainerStorageManager}.
+ *
+ * @param <K> the type of keys in the store
+ * @param <V> the type of values in the store
+ */
+public class ReadOnlySideInputStore<K, V> implements StorageEngine, KeyValueStore<K, V> {
+  private final String storeName;
+  private final StorageEngine storageEngine;
+  private final KeyValueStore<K, V> store;
+
+  @SuppressWarnings("unchecked")
+  public ReadOnlySideInputStore(String storeName, StorageEngine storageEngine) {
+    this.storeName = storeName;
+    this.storageEngine = storageEngine;
+    this.store = (KeyValueStore<K, V>) storageEngine;
+  }
+
+  @Override
+  public V get(K key) {
+    return store.get(key);
+  }
+
+  @Override
+  public Map<K, V> getAll(List<K> keys) {
+    return store.getAll(keys);
+  }
+
+  @Override
+  public KeyValueIterator<K, V> range(K from, K to) {
+    return store.range(from, to);
+  }
+
+  @Override
+  public KeyValueSnapshot<K, V> snapshot(K from, K to) {
+    return store.snapshot(from, to);
+  }
+
+  @Override
+  public KeyValueIterator<K, V> all() {
+    return store.all();
+  }
+
+  @Override
+  public void put(K key, V value) {
+    throw readOnly();
+  }
+
+  @Override
+  public void putAll(List<Entry<K, V>> entries) {
+    throw readOnly();
+  }
+
+  @Override
+  public void delete(K key) {
+    throw readOnly();
+  }
+
+  @Override
+  public void deleteAll(List<K> keys) {
+    throw readOnly();
+  }
+
+  @Override
+  public void restore(ChangelogSSPIterator envelopes) {
+    throw readOnly();
+  }
+
+  @Override
+  public void flush() {
+    // flushed by the side input handler of the container
+  }
+
+  @Override
+  public Optional<Path> checkpoint(CheckpointId id) {
+    // shared side input stores are not logged
+    return Optional.empty();
+  }
+
+  @Override
+  public void close() {
+    // closed by the side input handler of the container
+  }
+
+  @Override
+  public void stop() {
+    // stopped by the side input handler of the container
+  }
+
+  @Override
+  public StoreProperties getStoreProperties() {
+    return storageEngine.getStoreProperties();
+  }
+
+  private UnsupportedOperationException readOnly() {
+    return new UnsupportedOperationException(
+        String.format("Side input store %s is shared by all tasks in the container and is read-only.", storeName));
+  }
+}
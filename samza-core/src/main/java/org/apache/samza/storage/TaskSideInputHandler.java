@@ -22,6 +22,7 @@ package org.apache.samza.storage;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -166,23 +167,48 @@ public class TaskSideInputHandler {
       KeyValueStore keyValueStore = (KeyValueStore) this.taskSideInputStorageManager.getStore(store);
       Collection<Entry<?, ?>> entriesToBeWritten = storeProcessor.process(envelope, keyValueStore);
 
-      // TODO: SAMZA-2255: optimize writes to side input stores
-      for (Entry entry : entriesToBeWritten) {
-        // If the key is null we ignore, if the value is null, we issue a delete, else we issue a put
-        if (entry.getKey() != null) {
-          if (entry.getValue() != null) {
-            keyValueStore.put(entry.getKey(), entry.getValue());
-          } else {
-            keyValueStore.delete(entry.getKey());
-          }
-        }
-      }
+      writeEntries(keyValueStore, entriesToBeWritten);
     }
 
     this.lastProcessedOffsets.put(envelopeSSP, envelopeOffset);
     checkCaughtUp(envelopeSSP, envelopeOffset, SystemStreamMetadata.OffsetType.NEWEST);
   }
 
+  /**
+   * Writes the entries produced by a {@link SideInputsProcessor} to the store. Consecutive puts and consecutive
+   * deletes are written as a single batch, which preserves the order of the entries for each key.
+   * If the key is null the entry is ignored, if the value is null it is a delete, else it is a put.
+   */
+  @VisibleForTesting
+  void writeEntries(KeyValueStore keyValueStore, Collection<Entry<?, ?>> entries) {
+    List<Entry> puts = new ArrayList<>();
+    List<Object> deletes = new ArrayList<>();
+    for (Entry entry : entries) {
+      if (entry.getKey() == null) {
+        continue;
+      }
+      if (entry.getValue() != null) {
+        if (!deletes.isEmpty()) {
+          keyValueStore.deleteAll(deletes);
+          deletes = new ArrayList<>();
+        }
+        puts.add(entry);
+      } else {
+        if (!puts.isEmpty()) {
+          keyValueStore.putAll(puts);
+          puts = new ArrayList<>();
+        }
+        deletes.add(entry.getKey());
+      }
+    }
+    if (!puts.isEmpty()) {
+      keyValueStore.putAll(puts);
+    }
+    if (!deletes.isEmpty()) {
+      keyValueStore.deleteAll(deletes);
+    }
+  }
+
   /**
    * Flushes the underlying {@link TaskSideInputStorageManager}
    * Synchronized inorder to be exclusive with process()
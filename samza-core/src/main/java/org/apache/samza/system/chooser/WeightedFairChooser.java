@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.system.chooser;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.WeightedFairChooserConfig;
+import org.apache.samza.metrics.Gauge;
+import org.apache.samza.metrics.Metric;
+import org.apache.samza.metrics.MetricsRegistry;
+import org.apache.samza.metrics.ReadableMetricsRegistry;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemStream;
+import org.apache.samza.system.SystemStreamPartition;
+import org.apache.samza.table.caching.SupplierGauge;
+import org.apache.samza.util.Clock;
+
+
+/**
+ * A chooser which shares the input bytes between streams by start-time fair queuing, in proportion to the weights of
+ * the streams (see {@link org.apache.samza.config.StreamConfig#CHOOSER_WEIGHT}). A stream which has a backlog gets its
+ * share, but no more, while other streams have messages available, and a stream which was idle does not get credit for
+ * the time it was idle. The partitions of a stream share the bytes of the stream in the same way, with equal weights.
+ * Messages without a size count as one byte.
+ * <p>
+ * The weight of a partition which lags behind is multiplied by up to {@link WeightedFairChooserConfig#LAG_BOOST},
+ * in proportion to its lag up to {@link WeightedFairChooserConfig#LAG_THRESHOLD}, so that it catches up faster, both
+ * within its stream and in the share of its stream. The lag is read from the "messages-behind-high-watermark" gauges of
+ * the system consumers in the metrics registry, e.g. of the Kafka consumer. Partitions without such a gauge are not
+ * boosted.
+ * <p>
+ * Like the {@link RoundRobinChooser}, this chooser expects at most one envelope per SystemStreamPartition at a time.
+ */
+public class WeightedFairChooser extends BaseMessageChooser {
+  // the name of the lag gauge of a topic and partition, see KafkaSystemConsumerMetrics
+  static final String LAG_GAUGE_FORMAT = "%s-%s-messages-behind-high-watermark";
+  static final long LAG_REFRESH_INTERVAL_MS = 1000;
+  static final long LAG_GAUGE_LOOKUP_INTERVAL_MS = 60000;
+
+  private final WeightedFairChooserConfig config;
+  private final double lagBoost;
+  private final long lagThreshold;
+  // the registry to read the lag gauges from, or null if lagging partitions are not boosted
+  private final ReadableMetricsRegistry lagRegistry;
+  private final Clock clock;
+
+  private final Map<SystemStream, StreamQueue> streamQueues = new HashMap<>();
+  // the streams with messages, ordered by the virtual time at which their next message starts
+  private final PriorityQueue<StreamQueue> backloggedStreams =
+      new PriorityQueue<>(Comparator.comparingDouble(streamQueue -> streamQueue.startTag));
+  private final Set<SystemStreamPartition> partitions = new LinkedHashSet<>();
+  private final Map<SystemStreamPartition, Gauge<?>> lagGauges = new HashMap<>();
+  private final Map<SystemStreamPartition, Double> lagBoosts = new HashMap<>();
+  private double virtualTime = 0;
+  private long nextLagRefreshMs = 0;
+  private long nextLagGaugeLookupMs = 0;
+  private long updates = 0;
+  private int bufferedMessages = 0;
+
+  public WeightedFairChooser(Config config, MetricsRegistry registry) {
+    this(config, registry, System::currentTimeMillis);
+  }
+
+  @VisibleForTesting
+  WeightedFairChooser(Config config, MetricsRegistry registry, Clock clock) {
+    this.config = new WeightedFairChooserConfig(config);
+    this.lagBoost = this.config.getLagBoost();
+    this.lagThreshold = this.config.getLagThreshold();
+    this.lagRegistry = lagBoost > 1 && registry instanceof ReadableMetricsRegistry
+        ? (ReadableMetricsRegistry) registry : null;
+    this.clock = clock;
+    registry.newGauge(getClass().getName(), new SupplierGauge<>("buffered-messages", () -> bufferedMessages));
+  }
+
+  @Override
+  public void register(SystemStreamPartition systemStreamPartition, String offset) {
+    partitions.add(systemStreamPartition);
+    getStreamQueue(systemStreamPartition.getSystemStream());
+  }
+
+  @Override
+  public void update(IncomingMessageEnvelope envelope) {
+    SystemStreamPartition systemStreamPartition = envelope.getSystemStreamPartition();
+    partitions.add(systemStreamPartition);
+    StreamQueue streamQueue = getStreamQueue(systemStreamPartition.getSystemStream());
+    if (streamQueue.envelopes.isEmpty()) {
+      streamQueue.startTag = Math.max(virtualTime, streamQueue.finishTag);
+      backloggedStreams.add(streamQueue);
+    }
+    streamQueue.add(envelope, updates++);
+    bufferedMessages++;
+  }
+
+  @Override
+  public IncomingMessageEnvelope choose() {
+    StreamQueue streamQueue = backloggedStreams.poll();
+    if (streamQueue == null) {
+      return null;
+    }
+    refreshLagBoosts();
+
+    IncomingMessageEnvelope envelope = streamQueue.poll(this::getLagBoost);
+    bufferedMessages--;
+    double weight = streamQueue.weight * getLagBoost(envelope.getSystemStreamPartition());
+    virtualTime = streamQueue.startTag;
+    streamQueue.finishTag = streamQueue.startTag + sizeOf(envelope) / weight;
+    if (!streamQueue.envelopes.isEmpty()) {
+      streamQueue.startTag = streamQueue.finishTag;
+      backloggedStreams.add(streamQueue);
+    }
+    return envelope;
+  }
+
+  double getLagBoost(SystemStreamPartition systemStreamPartition) {
+    return lagBoosts.getOrDefault(systemStreamPartition, 1.0);
+  }
+
+  private static double sizeOf(IncomingMessageEnvelope envelope) {
+    return Math.max(envelope.getSize(), 1);
+  }
+
+  private StreamQueue getStreamQueue(SystemStream systemStream) {
+    return streamQueues.computeIfAbsent(systemStream,
+        stream -> new StreamQueue(config.getStreamWeight(stream)));
+  }
+
+  /**
+   * Recompute the lag boosts of the partitions from their lag gauges, if they weren't recomputed recently.
+   */
+  private void refreshLagBoosts() {
+    if (lagRegistry == null) {
+      return;
+    }
+    long now = clock.currentTimeMillis();
+    if (now < nextLagRefreshMs) {
+      return;
+    }
+    nextLagRefreshMs = now + LAG_REFRESH_INTERVAL_MS;
+    if (now >= nextLagGaugeLookupMs) {
+      // consumers may register their gauges after the chooser, so look up the missing ones again, but not on every
+      // refresh, since it scans all the groups of the registry
+      nextLagGaugeLookupMs = now + LAG_GAUGE_LOOKUP_INTERVAL_MS;
+      findMissingLagGauges();
+    }
+
+    for (SystemStreamPartition systemStreamPartition : partitions) {
+      Gauge<?> lagGauge = lagGauges.get(systemStreamPartition);
+      Object lag = lagGauge != null ? lagGauge.getValue() : null;
+      if (lag instanceof Number && ((Number) lag).longValue() > 0) {
+        double lagFraction = Math.min(1.0, ((Number) lag).doubleValue() / lagThreshold);
+        lagBoosts.put(systemStreamPartition, 1 + (lagBoost - 1) * lagFraction);
+      } else {
+        lagBoosts.remove(systemStreamPartition);
+      }
+    }
+  }
+
+  private void findMissingLagGauges() {
+    for (SystemStreamPartition systemStreamPartition : partitions) {
+      if (!lagGauges.containsKey(systemStreamPartition)) {
+        Gauge<?> lagGauge = findLagGauge(systemStreamPartition);
+        if (lagGauge != null) {
+          lagGauges.put(systemStreamPartition, lagGauge);
+        }
+      }
+    }
+  }
+
+  private Gauge<?> findLagGauge(SystemStreamPartition systemStreamPartition) {
+    // consumer metrics name the gauge after the topic and partition, and their metric group prefixes it with the
+    // system name, if any, and lower-cases it
+    String name = String.format(LAG_GAUGE_FORMAT, systemStreamPartition.getStream(),
+        systemStreamPartition.getPartition().getPartitionId());
+    List<String> names =
+        Arrays.asList((systemStreamPartition.getSystem() + "-" + name).toLowerCase(), name.toLowerCase());
+    for (String group : lagRegistry.getGroups()) {
+      Map<String, Metric> metrics = lagRegistry.getGroup(group);
+      for (String candidate : names) {
+        Metric metric = metrics.get(candidate);
+        if (metric instanceof Gauge) {
+          return (Gauge<?>) metric;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static class StreamQueue {
+    private final double weight;
+    // the messages of the stream, ordered by the virtual time of the stream at which they start, then by update
+    private final PriorityQueue<QueuedEnvelope> envelopes =
+        new PriorityQueue<>(Comparator.<QueuedEnvelope>comparingDouble(queued -> queued.startTag)
+            .thenComparingLong(queued -> queued.update));
+    // the virtual time of the stream at which the last chosen message of each partition finishes
+    private final Map<SystemStreamPartition, Double> partitionFinishTags = new HashMap<>();
+    private double partitionVirtualTime = 0;
+    // the virtual time at which the next message of the stream starts, and the last chosen message finishes
+    private double startTag = 0;
+    private double finishTag = 0;
+
+    StreamQueue(double weight) {
+      this.weight = weight;
+    }
+
+    void add(IncomingMessageEnvelope envelope, long update) {
+      double partitionFinishTag = partitionFinishTags.getOrDefault(envelope.getSystemStreamPartition(), 0.0);
+      envelopes.add(new QueuedEnvelope(envelope, Math.max(partitionVirtualTime, partitionFinishTag), update));
+    }
+
+    /**
+     * Choose the message of the partition which is furthest behind its share of the stream, in proportion to the
+     * lag boosts of the partitions.
+     */
+    IncomingMessageEnvelope poll(ToDoubleFunction<SystemStreamPartition> lagBoosts) {
+      QueuedEnvelope queued = envelopes.poll();
+      SystemStreamPartition systemStreamPartition = queued.envelope.getSystemStreamPartition();
+      partitionVirtualTime = queued.startTag;
+      partitionFinishTags.put(systemStreamPartition,
+          queued.startTag + sizeOf(queued.envelope) / lagBoosts.applyAsDouble(systemStreamPartition));
+      return queued.envelope;
+    }
+  }
+
+  private static class QueuedEnvelope {
+    private final IncomingMessageEnvelope envelope;
+    private final double startTag;
+    private final long update;
+
+    QueuedEnvelope(IncomingMessageEnvelope envelope, double startTag, long update) {
+      this.envelope = envelope;
+      this.startTag = startTag;
+      this.update = update;
+    }
+  }
+}
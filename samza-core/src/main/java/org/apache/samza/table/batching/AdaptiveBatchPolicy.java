@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.table.batching;
+
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import org.apache.samza.util.HighResolutionClock;
+
+
+/**
+ * Tunes the size and delay of batches created by {@link BatchProcessor} from the observed
+ * latencies of the {@link BatchHandler} and the number of batches in flight, using an
+ * additive-increase/multiplicative-decrease (AIMD) scheme within configured bounds.
+ *
+ * <ul>
+ *   <li>A batch that takes longer than the target latency to complete halves the batch size.</li>
+ *   <li>A batch that completes within the target latency, and was either full or completed while
+ *   other batches were still in flight, increases the batch size by a fixed step.</li>
+ *   <li>A batch closed by its timer before filling up halves the batch delay, so that a lightly
+ *   loaded table does not pay the full delay.</li>
+ *   <li>A full batch increases the batch delay by a fixed step.</li>
+ * </ul>
+ *
+ * The methods are synchronized as batches are closed on the processing or timer thread and
+ * completed on the thread of the underlying table.
+ */
+class AdaptiveBatchPolicy {
+  // Number of steps to grow from the lower bound to the upper bound
+  private static final int INCREASE_STEPS = 10;
+  private static final double DECREASE_FACTOR = 0.5;
+
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final long minBatchDelayNs;
+  private final long maxBatchDelayNs;
+  private final long targetLatencyNs;
+  private final int batchSizeStep;
+  private final long batchDelayStepNs;
+  private final HighResolutionClock clock;
+
+  private int batchSize;
+  private long batchDelayNs;
+  private int inflightBatches;
+
+  AdaptiveBatchPolicy(BatchProvider<?, ?> batchProvider) {
+    this(batchProvider.getMinBatchSize(), batchProvider.getMaxBatchSize(), batchProvider.getMinBatchDelay(),
+        batchProvider.getMaxBatchDelay(), batchProvider.getTargetBatchLatency(), System::nanoTime);
+  }
+
+  AdaptiveBatchPolicy(int minBatchSize, int maxBatchSize, Duration minBatchDelay, Duration maxBatchDelay,
+      Duration targetLatency, HighResolutionClock clock) {
+    Preconditions.checkArgument(minBatchSize > 0 && minBatchSize <= maxBatchSize,
+        String.format("Invalid batch size bounds: [%d, %d]", minBatchSize, maxBatchSize));
+    Preconditions.checkArgument(!minBatchDelay.isNegative() && minBatchDelay.compareTo(maxBatchDelay) <= 0,
+        String.format("Invalid batch delay bounds: [%s, %s]", minBatchDelay, maxBatchDelay));
+    Preconditions.checkArgument(!targetLatency.isNegative() && !targetLatency.isZero(),
+        "Target batch latency must be positive: " + targetLatency);
+    Preconditions.checkNotNull(clock);
+
+    this.minBatchSize = minBatchSize;
+    this.maxBatchSize = maxBatchSize;
+    this.minBatchDelayNs = minBatchDelay.toNanos();
+    this.maxBatchDelayNs = maxBatchDelay.toNanos();
+    this.targetLatencyNs = targetLatency.toNanos();
+    this.batchSizeStep = Math.max(1, (maxBatchSize - minBatchSize) / INCREASE_STEPS);
+    this.batchDelayStepNs = Math.max(1, (maxBatchDelayNs - minBatchDelayNs) / INCREASE_STEPS);
+    this.clock = clock;
+    this.batchSize = maxBatchSize;
+    this.batchDelayNs = maxBatchDelayNs;
+  }
+
+  /**
+   * @return The capacity of the next batch.
+   */
+  synchronized int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @return The max delay of the next batch.
+   */
+  synchronized Duration getBatchDelay() {
+    return Duration.ofNanos(batchDelayNs);
+  }
+
+  /**
+   * Record a batch being closed and handed to the {@link BatchHandler}.
+   *
+   * @param isFull Whether the batch was closed because it reached its capacity, as opposed to its timer.
+   * @return The timestamp to be passed to {@link #onBatchCompleted(long, boolean)}.
+   */
+  synchronized long onBatchClosed(boolean isFull) {
+    if (isFull) {
+      batchDelayNs = Math.min(maxBatchDelayNs, batchDelayNs + batchDelayStepNs);
+    } else {
+      batchDelayNs = Math.max(minBatchDelayNs, (long) (batchDelayNs * DECREASE_FACTOR));
+    }
+    inflightBatches++;
+    return clock.nanoTime();
+  }
+
+  /**
+   * Record the completion of a batch.
+   *
+   * @param closeTimestamp The timestamp returned by {@link #onBatchClosed(boolean)}.
+   * @param isFull Whether the completed batch was full.
+   */
+  synchronized void onBatchCompleted(long closeTimestamp, boolean isFull) {
+    final long latencyNs = clock.nanoTime() - closeTimestamp;
+    final boolean isQueued = inflightBatches > 1;
+    inflightBatches--;
+    if (latencyNs > targetLatencyNs) {
+      batchSize = Math.max(minBatchSize, (int) (batchSize * DECREASE_FACTOR));
+    } else if (isFull || isQueued) {
+      batchSize = Math.min(maxBatchSize, batchSize + batchSizeStep);
+    }
+  }
+}
@@ -19,6 +19,8 @@
 
 package org.apache.samza.table.batching;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.samza.metrics.Counter;
 import org.apache.samza.metrics.Timer;
 import org.apache.samza.table.utils.TableMetricsUtil;
@@ -38,9 +40,27 @@ class BatchMetrics {
    */
   final Timer batchDuration;
 
+  /**
+   * The time duration between closing the batch and the completion of the batch operations
+   */
+  final Timer batchLatency;
+
+  /**
+   * The capacity of the current batch, which changes over time with adaptive batching
+   */
+  private final AtomicInteger batchSize = new AtomicInteger();
+
+  /**
+   * The max delay of the current batch, which changes over time with adaptive batching
+   */
+  private final AtomicLong batchDelayMs = new AtomicLong();
+
   public BatchMetrics(TableMetricsUtil metricsUtil) {
     batchCount = metricsUtil.newCounter("num-batches");
     batchDuration = metricsUtil.newTimer("batch-ns");
+    batchLatency = metricsUtil.newTimer("batch-latency-ns");
+    metricsUtil.newGauge("batch-size", batchSize::get);
+    metricsUtil.newGauge("batch-delay-ms", batchDelayMs::get);
   }
 
   public void incBatchCount() {
@@ -50,4 +70,16 @@ class BatchMetrics {
   public void updateBatchDuration(long d) {
     batchDuration.update(d);
   }
+
+  public void updateBatchLatency(long d) {
+    batchLatency.update(d);
+  }
+
+  public void updateBatchSize(int size) {
+    batchSize.set(size);
+  }
+
+  public void updateBatchDelay(long delayMs) {
+    batchDelayMs.set(delayMs);
+  }
 }
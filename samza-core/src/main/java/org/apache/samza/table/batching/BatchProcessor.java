@@ -34,7 +34,8 @@ import org.apache.samza.util.HighResolutionClock;
 /**
  * Place a sequence of operations into a {@link Batch}. When a batch is not allowed to accept more
  * operations, it will handled by a {@link BatchHandler}. Meanwhile, a new {@link Batch} will be
- * created and a timer will be set for it.
+ * created, and a timer will be set for it when its first operation is added, so that idle tables
+ * do not close empty batches.
  *
  * @param <K> The type of the key associated with the {@link Operation}
  * @param <V> The type of the value associated with the {@link Operation}
@@ -46,6 +47,7 @@ public class BatchProcessor<K, V> {
   private final BatchProvider<K, V> batchProvider;
   private final BatchMetrics batchMetrics;
   private final HighResolutionClock clock;
+  private final AdaptiveBatchPolicy adaptiveBatchPolicy;
   private Batch<K, V> batch;
   private ScheduledFuture<?> scheduledFuture;
   private long batchOpenTimestamp;
@@ -69,15 +71,23 @@ public class BatchProcessor<K, V> {
     this.scheduledExecutorService = scheduledExecutorService;
     this.batchMetrics = batchMetrics;
     this.clock = clock;
+    this.adaptiveBatchPolicy = batchProvider.isAdaptiveBatching() ? new AdaptiveBatchPolicy(batchProvider) : null;
   }
 
   private CompletableFuture<Void> addOperation(Operation<K, V> operation) {
     if (batch == null) {
       startNewBatch();
     }
+    // the batch is open from its first operation, so that idle tables do not close empty batches
+    final boolean isFirstOperation = batch.size() == 0;
+    if (isFirstOperation) {
+      batchOpenTimestamp = clock.nanoTime();
+    }
     final CompletableFuture<Void> res = batch.addOperation(operation);
     if (batch.isClosed()) {
       processBatch(true);
+    } else if (isFirstOperation) {
+      setBatchTimer(batch);
     }
     return res;
   }
@@ -119,15 +129,30 @@ public class BatchProcessor<K, V> {
   private void processBatch(boolean cancelTimer) {
     mayCancelTimer(cancelTimer);
     closeBatch();
-    batchHandler.handle(batch);
+    // The batch is full iff it is processed before its timer fires
+    final boolean isFull = cancelTimer;
+    final long handleTimestamp = clock.nanoTime();
+    final long policyTimestamp = adaptiveBatchPolicy == null ? 0 : adaptiveBatchPolicy.onBatchClosed(isFull);
+    batchHandler.handle(batch).whenComplete((val, throwable) -> {
+      batchMetrics.updateBatchLatency(clock.nanoTime() - handleTimestamp);
+      if (adaptiveBatchPolicy != null) {
+        adaptiveBatchPolicy.onBatchCompleted(policyTimestamp, isFull);
+      }
+    });
     startNewBatch();
   }
 
   private void startNewBatch() {
-    batch = batchProvider.getBatch();
-    batchOpenTimestamp = clock.nanoTime();
+    if (adaptiveBatchPolicy == null) {
+      batch = batchProvider.getBatch();
+    } else {
+      batch = batchProvider.getBatch(adaptiveBatchPolicy.getBatchSize(), adaptiveBatchPolicy.getBatchDelay());
+    }
+    batchMetrics.updateBatchSize(batch.getMaxBatchSize());
+    batchMetrics.updateBatchDelay(batch.getMaxBatchDelay().toMillis());
     batchMetrics.incBatchCount();
-    setBatchTimer(batch);
+    // the timer is set when the first operation is added
+    scheduledFuture = null;
   }
 
   private void closeBatch() {
@@ -150,7 +175,10 @@ public class BatchProcessor<K, V> {
       scheduledFuture = scheduledExecutorService.schedule(() -> {
         lock.lock();
         try {
-          processBatch(false);
+          // the batch may have been closed when full while the timer was about to fire
+          if (this.batch == batch) {
+            processBatch(false);
+          }
         } finally {
           lock.unlock();
         }
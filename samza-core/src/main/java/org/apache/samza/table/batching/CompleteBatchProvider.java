@@ -19,9 +19,17 @@
 
 package org.apache.samza.table.batching;
 
+import java.time.Duration;
+
+
 public class CompleteBatchProvider<K, V> extends BatchProvider<K, V> {
   @Override
   public Batch<K, V> getBatch() {
     return new CompleteBatch<>(getMaxBatchSize(), getMaxBatchDelay());
   }
+
+  @Override
+  public Batch<K, V> getBatch(int maxBatchSize, Duration maxBatchDelay) {
+    return new CompleteBatch<>(maxBatchSize, maxBatchDelay);
+  }
 }
@@ -19,9 +19,14 @@
 
 package org.apache.samza.table.caching;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.samza.SamzaException;
 import org.apache.samza.context.Context;
+import org.apache.samza.metrics.Counter;
 import org.apache.samza.storage.kv.Entry;
 import org.apache.samza.table.BaseReadWriteTable;
 import org.apache.samza.table.ReadWriteTable;
@@ -32,6 +37,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -59,25 +67,85 @@ import static org.apache.samza.table.utils.TableMetricsUtil.updateTimer;
  * for the data in table and cache to be temporarily out-of-sync. Moreover, unsynchronized
  * operations in {@link CachingTable} also deliver higher performance when there is contention.
  *
+ * {@link CachingTable} optionally supports the following read optimizations:
+ * <ul>
+ *   <li>refresh-ahead (stale-while-revalidate): a cached value older than the refresh interval
+ *   is still served, and a single asynchronous reload of the key is issued to the table</li>
+ *   <li>negative caching: keys the table reported as nonexistent are remembered for a separate
+ *   TTL, so repeated lookups of missing keys do not go to the table</li>
+ *   <li>jitter: refresh and negative expiry deadlines are randomly shortened by up to the
+ *   configured ratio, to avoid reload storms for keys that were loaded together</li>
+ * </ul>
+ * Refresh deadlines are tracked separately from the cache, for at most the cache size or
+ * {@link #DEFAULT_MAX_TRACKED_KEYS} keys, hence a key whose deadline is no longer tracked is
+ * treated as stale and refreshed on its next hit. The result of a refresh is dropped if the key
+ * was written through this table after the refresh was issued.
+ *
  * @param <K> type of the table key
  * @param <V> type of the table value
  */
 public class CachingTable<K, V> extends BaseReadWriteTable<K, V>
     implements ReadWriteTable<K, V> {
 
+  /**
+   * Max number of keys tracked for refresh and negative caching when the cache size is unknown,
+   * e.g. with a user-provided cache
+   */
+  static final long DEFAULT_MAX_TRACKED_KEYS = 100000;
+
   private final ReadWriteTable<K, V> table;
   private final ReadWriteTable<K, V> cache;
   private final boolean isWriteAround;
+  private final long refreshAfterWriteNs;
+  private final long negativeTtlNs;
+  private final double ttlJitter;
+  private final long maxTrackedKeys;
+
+  // Refresh deadline (in ticker nanos) of each cached key, only used with refresh-ahead
+  private Cache<K, Long> refreshDeadlines;
+  // Expiry deadline (in ticker nanos) of each key known to be absent, only used with negative caching
+  private Cache<K, Long> negativeDeadlines;
+  // Keys with a refresh in progress, ensures at most one outstanding refresh per key. The value
+  // becomes false if the key is written while the refresh is in progress, to drop the refresh result.
+  private final ConcurrentHashMap<K, Boolean> refreshingKeys = new ConcurrentHashMap<>();
+  private Ticker ticker = Ticker.systemTicker();
 
   // Common caching stats
   private AtomicLong hitCount = new AtomicLong();
   private AtomicLong missCount = new AtomicLong();
+  private Counter staleHitCount;
+  private Counter negativeHitCount;
+  private Counter refreshCount;
+  private Counter refreshFailureCount;
 
   public CachingTable(String tableId, ReadWriteTable<K, V> table, ReadWriteTable<K, V> cache, boolean isWriteAround) {
+    this(tableId, table, cache, isWriteAround, -1, -1, 0.0, -1);
+  }
+
+  /**
+   * Construct a caching table with refresh-ahead and/or negative caching.
+   *
+   * @param tableId Id of the table
+   * @param table the actual table
+   * @param cache the cache
+   * @param isWriteAround whether writes bypass the cache
+   * @param refreshAfterWriteMs interval after which a cached value is refreshed asynchronously, -1 to disable
+   * @param negativeTtlMs TTL of negative (nonexistent key) entries, -1 to disable
+   * @param ttlJitter ratio in [0, 1) by which refresh and negative expiry deadlines are randomly shortened
+   * @param maxTrackedKeys max number of keys tracked for refresh and negative caching,
+   *                       -1 for {@link #DEFAULT_MAX_TRACKED_KEYS}
+   */
+  public CachingTable(String tableId, ReadWriteTable<K, V> table, ReadWriteTable<K, V> cache, boolean isWriteAround,
+      long refreshAfterWriteMs, long negativeTtlMs, double ttlJitter, long maxTrackedKeys) {
     super(tableId);
+    Preconditions.checkArgument(ttlJitter >= 0.0 && ttlJitter < 1.0, "ttlJitter must be in [0, 1): " + ttlJitter);
     this.table = table;
     this.cache = cache;
     this.isWriteAround = isWriteAround;
+    this.refreshAfterWriteNs = refreshAfterWriteMs > 0 ? TimeUnit.MILLISECONDS.toNanos(refreshAfterWriteMs) : -1;
+    this.negativeTtlNs = negativeTtlMs > 0 ? TimeUnit.MILLISECONDS.toNanos(negativeTtlMs) : -1;
+    this.ttlJitter = ttlJitter;
+    this.maxTrackedKeys = maxTrackedKeys > 0 ? maxTrackedKeys : DEFAULT_MAX_TRACKED_KEYS;
   }
 
   @Override
@@ -87,19 +155,155 @@ public class CachingTable<K, V> extends BaseReadWriteTable<K, V>
     tableMetricsUtil.newGauge("hit-rate", () -> hitRate());
     tableMetricsUtil.newGauge("miss-rate", () -> missRate());
     tableMetricsUtil.newGauge("req-count", () -> requestCount());
+
+    if (refreshAfterWriteNs > 0) {
+      refreshDeadlines = newDeadlineCache(refreshAfterWriteNs);
+      staleHitCount = tableMetricsUtil.newCounter("stale-hit-count");
+      refreshCount = tableMetricsUtil.newCounter("refresh-count");
+      refreshFailureCount = tableMetricsUtil.newCounter("refresh-failure-count");
+    }
+    if (negativeTtlNs > 0) {
+      negativeDeadlines = newDeadlineCache(negativeTtlNs);
+      negativeHitCount = tableMetricsUtil.newCounter("negative-hit-count");
+    }
+  }
+
+  private Cache<K, Long> newDeadlineCache(long ttlNs) {
+    // Deadlines are checked explicitly, expiry only reclaims the memory of passed deadlines
+    return CacheBuilder.newBuilder()
+        .ticker(ticker)
+        .expireAfterWrite(ttlNs, TimeUnit.NANOSECONDS)
+        .maximumSize(maxTrackedKeys)
+        .<K, Long>build();
+  }
+
+  private long nextDeadline(long ttlNs) {
+    long jitterNs = ttlJitter > 0 ? (long) (ttlNs * ttlJitter * ThreadLocalRandom.current().nextDouble()) : 0;
+    return ticker.read() + ttlNs - jitterNs;
+  }
+
+  /**
+   * Record that the value of a key was just loaded into or written to the cache.
+   */
+  private void onCacheUpdated(K key) {
+    if (refreshDeadlines != null) {
+      refreshDeadlines.put(key, nextDeadline(refreshAfterWriteNs));
+      refreshingKeys.replace(key, Boolean.FALSE);
+    }
+    if (negativeDeadlines != null) {
+      negativeDeadlines.invalidate(key);
+    }
+  }
+
+  /**
+   * Record that a key was removed from the cache.
+   */
+  private void onCacheInvalidated(K key) {
+    if (refreshDeadlines != null) {
+      refreshDeadlines.invalidate(key);
+      refreshingKeys.replace(key, Boolean.FALSE);
+    }
+    if (negativeDeadlines != null) {
+      negativeDeadlines.invalidate(key);
+    }
+  }
+
+  private void onNonexistentKey(K key) {
+    if (negativeDeadlines != null) {
+      negativeDeadlines.put(key, nextDeadline(negativeTtlNs));
+    }
+  }
+
+  private boolean isNegativelyCached(K key) {
+    if (negativeDeadlines == null) {
+      return false;
+    }
+    Long deadline = negativeDeadlines.getIfPresent(key);
+    if (deadline == null) {
+      return false;
+    }
+    if (ticker.read() - deadline >= 0) {
+      negativeDeadlines.invalidate(key);
+      return false;
+    }
+    incCounter(negativeHitCount);
+    return true;
+  }
+
+  /**
+   * Issue an asynchronous reload of a cached key if its refresh deadline has passed.
+   * The currently cached value continues to be served until the reload completes, and the
+   * reloaded value is dropped if the key was written in the meantime.
+   */
+  private void maybeRefresh(K key, Object ... args) {
+    if (refreshDeadlines == null) {
+      return;
+    }
+    Long deadline = refreshDeadlines.getIfPresent(key);
+    if (deadline != null && ticker.read() - deadline < 0) {
+      return;
+    }
+    incCounter(staleHitCount);
+    if (refreshingKeys.putIfAbsent(key, Boolean.TRUE) != null) {
+      return;
+    }
+    incCounter(refreshCount);
+    CompletableFuture<V> refreshFuture;
+    try {
+      refreshFuture = table.getAsync(key, args);
+    } catch (Exception e) {
+      refreshingKeys.remove(key);
+      incCounter(refreshFailureCount);
+      logger.warn("Failed to refresh the record for " + key, e);
+      return;
+    }
+    refreshFuture.whenComplete((result, e) -> {
+      // A write between this check and the cache update below can still be overwritten, which is the
+      // accepted trade-off of not synchronizing table and cache operations, see the class javadoc.
+      boolean isCurrent = refreshingKeys.remove(key, Boolean.TRUE);
+      if (!isCurrent) {
+        refreshingKeys.remove(key);
+      }
+      if (e != null) {
+        incCounter(refreshFailureCount);
+        logger.warn("Failed to refresh the record for " + key, e);
+      } else if (!isCurrent) {
+        logger.debug("Dropping the refreshed record for {} since it was written during the refresh", key);
+      } else if (result != null) {
+        cache.put(key, result, args);
+        onCacheUpdated(key);
+      } else {
+        cache.delete(key, args);
+        onCacheInvalidated(key);
+        onNonexistentKey(key);
+      }
+    });
+  }
+
+  @VisibleForTesting
+  void setTicker(Ticker ticker) {
+    this.ticker = ticker;
   }
 
   /**
-   * Lookup the cache and return the keys that are missed in cache
+   * Lookup the cache and return the keys that are missed in cache. Each key is counted as a hit or
+   * a miss, like in {@link #getAsync(Object, Object...)}.
    * @param keys keys to be looked up
    * @param records result map
+   * @param args additional arguments, also passed to the refreshes of stale keys
    * @return list of keys missed in the cache
    */
   private List<K> lookupCache(List<K> keys, Map<K, V> records, Object ... args) {
     List<K> missKeys = new ArrayList<>();
     records.putAll(cache.getAll(keys, args));
     keys.forEach(k -> {
-      if (!records.containsKey(k)) {
+      if (records.containsKey(k)) {
+        hitCount.incrementAndGet();
+        maybeRefresh(k, args);
+      } else if (isNegativelyCached(k)) {
+        hitCount.incrementAndGet();
+      } else {
+        missCount.incrementAndGet();
         missKeys.add(k);
       }
     });
@@ -121,9 +325,15 @@ public class CachingTable<K, V> extends BaseReadWriteTable<K, V>
     V value = cache.get(key, args);
     if (value != null) {
       hitCount.incrementAndGet();
+      maybeRefresh(key, args);
       return CompletableFuture.completedFuture(value);
     }
 
+    if (isNegativelyCached(key)) {
+      hitCount.incrementAndGet();
+      return CompletableFuture.completedFuture(null);
+    }
+
     long startNs = clock.nanoTime();
     missCount.incrementAndGet();
 
@@ -133,6 +343,9 @@ public class CachingTable<K, V> extends BaseReadWriteTable<K, V>
       } else {
         if (result != null) {
           cache.put(key, result, args);
+          onCacheUpdated(key);
+        } else {
+          onNonexistentKey(key);
         }
         updateTimer(metrics.getNs, clock.nanoTime() - startNs);
         return result;
@@ -154,7 +367,7 @@ public class CachingTable<K, V> extends BaseReadWriteTable<K, V>
     incCounter(metrics.numGetAlls);
     // Make a copy of entries which might be immutable
     Map<K, V> getAllResult = new HashMap<>();
-    List<K> missingKeys = lookupCache(keys, getAllResult);
+    List<K> missingKeys = lookupCache(keys, getAllResult, args);
 
     if (missingKeys.isEmpty()) {
       return CompletableFuture.completedFuture(getAllResult);
@@ -170,7 +383,13 @@ public class CachingTable<K, V> extends BaseReadWriteTable<K, V>
               .map(r -> new Entry<>(r.getKey(), r.getValue()))
               .collect(Collectors.toList()), args);
           getAllResult.putAll(records);
+          records.keySet().forEach(this::onCacheUpdated);
         }
+        missingKeys.forEach(k -> {
+          if (records == null || !records.containsKey(k)) {
+            onNonexistentKey(k);
+          }
+        });
         updateTimer(metrics.getAllNs, clock.nanoTime() - startNs);
         return getAllResult;
       }
@@ -198,9 +417,13 @@ public class CachingTable<K, V> extends BaseReadWriteTable<K, V>
       } else if (!isWriteAround) {
         if (value == null) {
           cache.delete(key, args);
+          onCacheInvalidated(key);
         } else {
           cache.put(key, value, args);
+          onCacheUpdated(key);
         }
+      } else {
+        onCacheInvalidated(key);
       }
       updateTimer(metrics.putNs, clock.nanoTime() - startNs);
       return result;
@@ -226,6 +449,15 @@ public class CachingTable<K, V> extends BaseReadWriteTable<K, V>
         throw new SamzaException("Failed to put records " + records, e);
       } else if (!isWriteAround) {
         cache.putAll(records, args);
+        records.forEach(r -> {
+          if (r.getValue() != null) {
+            onCacheUpdated(r.getKey());
+          } else {
+            onCacheInvalidated(r.getKey());
+          }
+        });
+      } else {
+        records.forEach(r -> onCacheInvalidated(r.getKey()));
       }
 
       updateTimer(metrics.putAllNs, clock.nanoTime() - startNs);
@@ -253,6 +485,7 @@ public class CachingTable<K, V> extends BaseReadWriteTable<K, V>
       } else if (!isWriteAround) {
         cache.delete(key, args);
       }
+      onCacheInvalidated(key);
       updateTimer(metrics.deleteNs, clock.nanoTime() - startNs);
       return result;
     });
@@ -278,6 +511,7 @@ public class CachingTable<K, V> extends BaseReadWriteTable<K, V>
       } else if (!isWriteAround) {
         cache.deleteAll(keys, args);
       }
+      keys.forEach(this::onCacheInvalidated);
       updateTimer(metrics.deleteAllNs, clock.nanoTime() - startNs);
       return result;
     });
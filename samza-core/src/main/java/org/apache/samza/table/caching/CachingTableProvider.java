@@ -63,7 +63,13 @@ public class CachingTableProvider extends BaseTableProvider {
     }
 
     boolean isWriteAround = Boolean.parseBoolean(tableConfig.getForTable(tableId, CachingTableDescriptor.WRITE_AROUND));
-    CachingTable cachingTable = new CachingTable(tableId, table, cache, isWriteAround);
+    long refreshAfterWriteMs = Long.parseLong(
+        tableConfig.getForTable(tableId, CachingTableDescriptor.REFRESH_AFTER_WRITE_MS, "-1"));
+    long negativeTtlMs = Long.parseLong(tableConfig.getForTable(tableId, CachingTableDescriptor.NEGATIVE_TTL_MS, "-1"));
+    double ttlJitter = Double.parseDouble(tableConfig.getForTable(tableId, CachingTableDescriptor.TTL_JITTER, "0"));
+    long cacheSize = Long.parseLong(tableConfig.getForTable(tableId, CachingTableDescriptor.CACHE_SIZE, "-1"));
+    CachingTable cachingTable = new CachingTable(tableId, table, cache, isWriteAround,
+        refreshAfterWriteMs, negativeTtlMs, ttlJitter, cacheSize);
     cachingTable.init(this.context);
     return cachingTable;
   }
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.table.remote;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.apache.samza.context.Context;
+import org.apache.samza.table.AsyncReadWriteTable;
+import org.apache.samza.util.ThreadUtil;
+
+
+/**
+ * Base class for table read functions backed by a blocking client, e.g. JDBC or a synchronous HTTP client.
+ * Implementations only implement the blocking {@link #get(Object)}, and {@link #getAsync(Object)} runs it on a new
+ * virtual thread per request, so that many requests can block concurrently without a thread per request.
+ * If the JVM does not support virtual threads, requests run on a fixed size thread pool instead.
+ *
+ * @param <K> the type of the key in this table
+ * @param <V> the type of the value in this table
+ */
+public abstract class BlockingTableReadFunction<K, V> extends BaseTableFunction implements TableReadFunction<K, V> {
+  static final int DEFAULT_FALLBACK_THREAD_POOL_SIZE = 16;
+
+  private final int fallbackThreadPoolSize;
+  private transient ExecutorService executor;
+
+  public BlockingTableReadFunction() {
+    this(DEFAULT_FALLBACK_THREAD_POOL_SIZE);
+  }
+
+  /**
+   * @param fallbackThreadPoolSize number of threads to run requests on if the JVM does not support virtual threads
+   */
+  public BlockingTableReadFunction(int fallbackThreadPoolSize) {
+    Preconditions.checkArgument(fallbackThreadPoolSize > 0, "fallbackThreadPoolSize must be positive");
+    this.fallbackThreadPoolSize = fallbackThreadPoolSize;
+  }
+
+  @Override
+  public void init(Context context, AsyncReadWriteTable table) {
+    super.init(context, table);
+    String name = getClass().getSimpleName();
+    executor = ThreadUtil.newVirtualThreadPerTaskExecutor(name + "-")
+        .orElseGet(() -> Executors.newFixedThreadPool(fallbackThreadPoolSize,
+            new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build()));
+  }
+
+  /**
+   * Fetch single table record for a specified {@code key}, blocking until it has been fetched.
+   * This method must be thread-safe.
+   * @param key key for the table record
+   * @return table record for the specified {@code key}
+   */
+  @Override
+  public abstract V get(K key);
+
+  @Override
+  public CompletableFuture<V> getAsync(K key) {
+    Preconditions.checkState(executor != null, "Table read function is not initialized");
+    return CompletableFuture.supplyAsync(() -> get(key), executor);
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+}
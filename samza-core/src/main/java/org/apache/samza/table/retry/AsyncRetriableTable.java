@@ -55,7 +55,10 @@ public class AsyncRetriableTable<K, V> implements AsyncReadWriteTable<K, V> {
   private final RetryPolicy readRetryPolicy;
   private final RetryPolicy writeRetryPolicy;
   private final ScheduledExecutorService retryExecutor;
+  private final TableRetryPolicy readTableRetryPolicy;
 
+  @VisibleForTesting
+  HedgedRequestExecutor hedgedReadExecutor;
   @VisibleForTesting
   RetryMetrics readRetryMetrics;
   @VisibleForTesting
@@ -74,6 +77,7 @@ public class AsyncRetriableTable<K, V> implements AsyncReadWriteTable<K, V> {
     this.tableId = tableId;
     this.table = table;
     this.retryExecutor = retryExecutor;
+    this.readTableRetryPolicy = readFn != null ? readRetryPolicy : null;
 
     if (readRetryPolicy != null && readFn != null) {
       Predicate<Throwable> readRetryPredicate = readRetryPolicy.getRetryPredicate();
@@ -137,7 +141,11 @@ public class AsyncRetriableTable<K, V> implements AsyncReadWriteTable<K, V> {
     table.init(context);
     TableMetricsUtil metricsUtil = new TableMetricsUtil(context, this, tableId);
     if (readRetryPolicy != null) {
-      readRetryMetrics = new RetryMetrics("reader", metricsUtil);
+      boolean isHedgingEnabled = readTableRetryPolicy.getMinHedgeDelay() != null;
+      readRetryMetrics = new RetryMetrics("reader", metricsUtil, isHedgingEnabled);
+      if (isHedgingEnabled) {
+        hedgedReadExecutor = new HedgedRequestExecutor(readTableRetryPolicy, retryExecutor, readRetryMetrics);
+      }
     }
     if (writeRetryPolicy != null) {
       writeRetryMetrics = new RetryMetrics("writer", metricsUtil);
@@ -155,9 +163,12 @@ public class AsyncRetriableTable<K, V> implements AsyncReadWriteTable<K, V> {
   }
 
   private <T> CompletableFuture<T> doRead(Func1<T> func) {
+    final Func1<T> readFunc = hedgedReadExecutor != null
+        ? () -> hedgedReadExecutor.execute(func)
+        : func;
     return readRetryPolicy != null
-        ? failsafe(readRetryPolicy, readRetryMetrics, retryExecutor).future(() -> func.apply())
-        : func.apply();
+        ? failsafe(readRetryPolicy, readRetryMetrics, retryExecutor).future(() -> readFunc.apply())
+        : readFunc.apply();
   }
 
   private <T> CompletableFuture<T> doWrite(Func1<T> func) {
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.table.retry;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.util.HighResolutionClock;
+
+import static org.apache.samza.table.BaseReadWriteTable.Func1;
+
+
+/**
+ * Issues hedged requests as described by {@link TableRetryPolicy#withHedging}. Each request is
+ * first sent once; if it has not completed after the hedge delay, a duplicate request is sent and
+ * the first successful result of the two is used while the other request is cancelled. The hedge
+ * delay is the 95th percentile of the latencies of recent requests, bounded below by the configured
+ * minimum delay.
+ *
+ * The number of hedged requests is limited by a token bucket, which gains {@code maxHedgeRatio}
+ * tokens per request up to {@link #MAX_TOKENS}, and loses a token per hedged request.
+ */
+class HedgedRequestExecutor {
+  // Number of recent latencies kept to estimate the hedge delay
+  private static final int LATENCY_WINDOW = 1024;
+  // Number of latencies recorded between re-computation of the hedge delay
+  private static final int RECOMPUTE_INTERVAL = 128;
+  private static final double HEDGE_PERCENTILE = 0.95;
+  @VisibleForTesting
+  static final double MAX_TOKENS = 10;
+
+  private final long minHedgeDelayNs;
+  private final double maxHedgeRatio;
+  private final ScheduledExecutorService executor;
+  private final RetryMetrics metrics;
+  private final HighResolutionClock clock;
+
+  private final long[] latencies = new long[LATENCY_WINDOW];
+  private long numLatencies;
+  private double tokens;
+  // No hedging until the latency window has been filled once
+  private volatile long hedgeDelayNs = -1;
+
+  HedgedRequestExecutor(TableRetryPolicy policy, ScheduledExecutorService executor, RetryMetrics metrics) {
+    this(policy.getMinHedgeDelay().toNanos(), policy.getMaxHedgeRatio(), executor, metrics, System::nanoTime);
+  }
+
+  @VisibleForTesting
+  HedgedRequestExecutor(long minHedgeDelayNs, double maxHedgeRatio, ScheduledExecutorService executor,
+      RetryMetrics metrics, HighResolutionClock clock) {
+    Preconditions.checkNotNull(executor);
+    Preconditions.checkNotNull(metrics);
+    this.minHedgeDelayNs = minHedgeDelayNs;
+    this.maxHedgeRatio = maxHedgeRatio;
+    this.executor = executor;
+    this.metrics = metrics;
+    this.clock = clock;
+  }
+
+  /**
+   * Execute a request with hedging.
+   * @param func the request
+   * @param <T> type of the result
+   * @return future of the result of the first successful attempt, or of the error of the
+   *         last failed attempt if all attempts failed
+   */
+  <T> CompletableFuture<T> execute(Func1<T> func) {
+    addToken();
+    final long startNs = clock.nanoTime();
+    final CompletableFuture<T> primary = func.apply();
+    final long delayNs = hedgeDelayNs;
+    if (primary.isDone() || delayNs < 0 || !hasToken()) {
+      return primary.whenComplete((result, e) -> {
+        if (e == null) {
+          recordLatency(clock.nanoTime() - startNs);
+        }
+      });
+    }
+
+    final HedgedRequest<T> request = new HedgedRequest<>(primary, startNs);
+    request.hedgeTimer = executor.schedule(() -> request.hedge(func), delayNs, TimeUnit.NANOSECONDS);
+    primary.whenComplete((result, e) -> request.onComplete(primary, result, e));
+    return request.result;
+  }
+
+  /**
+   * State of a single request and its hedged duplicate.
+   */
+  private class HedgedRequest<T> {
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final CompletableFuture<T> primary;
+    private final long startNs;
+    private CompletableFuture<T> hedge;
+    private ScheduledFuture<?> hedgeTimer;
+    private int pendingAttempts = 1;
+
+    HedgedRequest(CompletableFuture<T> primary, long startNs) {
+      this.primary = primary;
+      this.startNs = startNs;
+    }
+
+    void hedge(Func1<T> func) {
+      synchronized (this) {
+        if (result.isDone() || !tryAcquireToken()) {
+          return;
+        }
+        pendingAttempts++;
+      }
+      metrics.hedgeCount.inc();
+      final CompletableFuture<T> hedgeFuture;
+      try {
+        hedgeFuture = func.apply();
+      } catch (Exception e) {
+        onComplete(null, null, e);
+        return;
+      }
+      synchronized (this) {
+        hedge = hedgeFuture;
+      }
+      hedgeFuture.whenComplete((value, e) -> onComplete(hedgeFuture, value, e));
+    }
+
+    void onComplete(CompletableFuture<T> attempt, T value, Throwable e) {
+      final CompletableFuture<T> other;
+      synchronized (this) {
+        pendingAttempts--;
+        if (result.isDone()) {
+          return;
+        }
+        if (e != null && pendingAttempts > 0) {
+          // Wait for the other attempt
+          return;
+        }
+        other = attempt == primary ? hedge : primary;
+      }
+
+      if (hedgeTimer != null) {
+        hedgeTimer.cancel(false);
+      }
+      if (e != null) {
+        result.completeExceptionally(e);
+        return;
+      }
+
+      recordLatency(clock.nanoTime() - startNs);
+      if (attempt != primary) {
+        metrics.hedgeWinCount.inc();
+      }
+      if (other != null) {
+        other.cancel(true);
+      }
+      result.complete(value);
+    }
+  }
+
+  private synchronized void addToken() {
+    tokens = Math.min(MAX_TOKENS, tokens + maxHedgeRatio);
+  }
+
+  private synchronized boolean hasToken() {
+    return tokens >= 1;
+  }
+
+  private synchronized boolean tryAcquireToken() {
+    if (tokens < 1) {
+      return false;
+    }
+    tokens--;
+    return true;
+  }
+
+  private synchronized void recordLatency(long latencyNs) {
+    latencies[(int) (numLatencies % LATENCY_WINDOW)] = latencyNs;
+    numLatencies++;
+    if (numLatencies >= LATENCY_WINDOW && numLatencies % RECOMPUTE_INTERVAL == 0) {
+      long[] sorted = latencies.clone();
+      Arrays.sort(sorted);
+      hedgeDelayNs = Math.max(minHedgeDelayNs, sorted[(int) (LATENCY_WINDOW * HEDGE_PERCENTILE)]);
+    }
+  }
+
+  @VisibleForTesting
+  long getHedgeDelayNs() {
+    return hedgeDelayNs;
+  }
+}
@@ -49,10 +49,27 @@ class RetryMetrics {
    */
   final Timer retryTimer;
 
+  /**
+   * Number of hedged requests issued; only available when hedging is enabled
+   */
+  final Counter hedgeCount;
+
+  /**
+   * Number of hedged requests that completed before the original request;
+   * only available when hedging is enabled
+   */
+  final Counter hedgeWinCount;
+
   public RetryMetrics(String prefix, TableMetricsUtil metricsUtil) {
+    this(prefix, metricsUtil, false);
+  }
+
+  public RetryMetrics(String prefix, TableMetricsUtil metricsUtil, boolean isHedgingEnabled) {
     retryCount = metricsUtil.newCounter(prefix + "-retry-count");
     successCount = metricsUtil.newCounter(prefix + "-success-count");
     permFailureCount = metricsUtil.newCounter(prefix + "-perm-failure-count");
     retryTimer = metricsUtil.newTimer(prefix + "-retry-timer");
+    hedgeCount = isHedgingEnabled ? metricsUtil.newCounter(prefix + "-hedge-count") : null;
+    hedgeWinCount = isHedgingEnabled ? metricsUtil.newCounter(prefix + "-hedge-win-count") : null;
   }
 }
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.task;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.samza.system.IncomingMessageEnvelope;
+
+
+/**
+ * KeyOrderedTaskDispatcher dispatches the messages of a task to {@link AsyncStreamTask#processAsync}, so that messages
+ * with the same key are processed in order, one at a time, while messages with different keys are processed
+ * concurrently. The number of messages in flight is still bounded by task.max.concurrency, since a message waiting for
+ * the previous message with the same key is in flight as well.
+ * <p>
+ * A message is dispatched when the callback of the previous message with the same key completes, on the thread which
+ * completed it. Messages are keyed by {@link IncomingMessageEnvelope#getKey()}, with byte array keys compared by their
+ * contents. Messages without a key are processed in order, like messages with the same key.
+ * <p>
+ * Offsets are committed up to the last message whose callback and the callbacks of all the messages before it have
+ * completed, as for any task with task.max.concurrency larger than 1 (see {@link TaskCallbackManager}).
+ */
+public class KeyOrderedTaskDispatcher {
+  // the keys of the messages in flight, with the messages waiting for them
+  private final Map<Object, Queue<Runnable>> keysInFlight = new HashMap<>();
+
+  /**
+   * Process the message with the task, once the messages with the same key dispatched before it have been processed.
+   *
+   * @param task the task to process the message with
+   * @param envelope the message
+   * @param collector the collector to send messages with
+   * @param coordinator the coordinator to request commits or shutdown
+   * @param callback the callback of the message
+   */
+  public void dispatch(AsyncStreamTask task, IncomingMessageEnvelope envelope, MessageCollector collector,
+      TaskCoordinator coordinator, TaskCallback callback) {
+    final Object key = getOrderingKey(envelope);
+    final KeyCallback keyCallback = new KeyCallback(key, callback);
+    synchronized (keysInFlight) {
+      Queue<Runnable> waiting = keysInFlight.get(key);
+      if (waiting != null) {
+        waiting.add(() -> {
+          try {
+            task.processAsync(envelope, collector, coordinator, keyCallback);
+          } catch (Throwable t) {
+            keyCallback.failure(t);
+          }
+        });
+        return;
+      }
+      keysInFlight.put(key, new ArrayDeque<>());
+    }
+
+    try {
+      task.processAsync(envelope, collector, coordinator, keyCallback);
+    } catch (RuntimeException | Error e) {
+      // the callback may never complete, so don't hold back the next messages with the key
+      keyCallback.release();
+      throw e;
+    }
+  }
+
+  /* package private for testing */
+  int getKeysInFlight() {
+    synchronized (keysInFlight) {
+      return keysInFlight.size();
+    }
+  }
+
+  private void onProcessed(Object key) {
+    Runnable next;
+    synchronized (keysInFlight) {
+      Queue<Runnable> waiting = keysInFlight.get(key);
+      next = waiting != null ? waiting.poll() : null;
+      if (next == null) {
+        keysInFlight.remove(key);
+      }
+    }
+    if (next != null) {
+      next.run();
+    }
+  }
+
+  private static Object getOrderingKey(IncomingMessageEnvelope envelope) {
+    Object key = envelope.getKey();
+    return key instanceof byte[] ? ByteBuffer.wrap((byte[]) key) : key;
+  }
+
+  /**
+   * The callback passed to the task, which dispatches the next message with the same key once it completes.
+   */
+  private class KeyCallback implements TaskCallback {
+    private final Object key;
+    private final TaskCallback callback;
+    private final AtomicBoolean processed = new AtomicBoolean(false);
+
+    KeyCallback(Object key, TaskCallback callback) {
+      this.key = key;
+      this.callback = callback;
+    }
+
+    @Override
+    public void complete() {
+      callback.complete();
+      release();
+    }
+
+    @Override
+    public void failure(Throwable t) {
+      callback.failure(t);
+      release();
+    }
+
+    void release() {
+      if (processed.compareAndSet(false, true)) {
+        onProcessed(key);
+      }
+    }
+  }
+}
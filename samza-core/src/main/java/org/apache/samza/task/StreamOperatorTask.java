@@ -23,6 +23,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
 import org.apache.samza.SamzaException;
+import org.apache.samza.container.EnvelopeLatencyTracker;
 import org.apache.samza.context.Context;
 import org.apache.samza.operators.OperatorSpecGraph;
 import org.apache.samza.operators.impl.InputOperatorImpl;
@@ -42,7 +43,8 @@ import org.slf4j.LoggerFactory;
  * A {@link StreamTask} implementation that brings all the operator API implementation components together and
  * feeds the input messages into the user-defined transformation chains in {@link OperatorSpecGraph}.
  */
-public class StreamOperatorTask implements AsyncStreamTask, InitableTask, WindowableTask, ClosableTask {
+public class StreamOperatorTask implements AsyncStreamTask, InitableTask, WindowableTask, ClosableTask,
+    CommitListenerTask {
   private static final Logger LOG = LoggerFactory.getLogger(StreamOperatorTask.class);
 
   private final OperatorSpecGraph specGraph;
@@ -56,6 +58,7 @@ public class StreamOperatorTask implements AsyncStreamTask, InitableTask, Window
    *   2. We end up with thread pool proliferation. Especially for jobs with high number of tasks.
    */
   private ExecutorService taskThreadPool;
+  private EnvelopeLatencyTracker latencyTracker;
   private OperatorImplGraph operatorImplGraph;
 
   /**
@@ -119,7 +122,9 @@ public class StreamOperatorTask implements AsyncStreamTask, InitableTask, Window
           MessageType messageType = MessageType.of(ime.getMessage());
           switch (messageType) {
             case USER_MESSAGE:
-              processFuture = inputOpImpl.onMessageAsync(ime, collector, coordinator);
+              EnvelopeLatencyTracker.OperatorStages operatorStages =
+                  latencyTracker != null ? latencyTracker.getOperatorStages(ime) : null;
+              processFuture = inputOpImpl.onMessageAsync(ime, collector, coordinator, operatorStages);
               break;
 
             case END_OF_STREAM:
@@ -172,6 +177,19 @@ public class StreamOperatorTask implements AsyncStreamTask, InitableTask, Window
     windowFuture.join();
   }
 
+  /**
+   * Sends the messages buffered by the operators, e.g. the partial aggregates of partitionBy operators with a
+   * combiner, before the task commits.
+   *
+   * @param collector the collector to send messages with
+   */
+  @Override
+  public void beforeCommit(MessageCollector collector) {
+    if (operatorImplGraph != null) {
+      operatorImplGraph.beforeCommit(collector);
+    }
+  }
+
   @Override
   public void close() throws Exception {
     if (operatorImplGraph != null) {
@@ -184,6 +202,11 @@ public class StreamOperatorTask implements AsyncStreamTask, InitableTask, Window
     this.taskThreadPool = taskThreadPool;
   }
 
+  /* package private setter for TaskFactoryUtil to trace the operators of sampled messages */
+  void setLatencyTracker(EnvelopeLatencyTracker latencyTracker) {
+    this.latencyTracker = latencyTracker;
+  }
+
   /* package private for testing */
   OperatorImplGraph getOperatorImplGraph() {
     return this.operatorImplGraph;
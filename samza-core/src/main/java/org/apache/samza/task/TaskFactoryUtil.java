@@ -26,6 +26,7 @@ import org.apache.samza.application.descriptors.ApplicationDescriptorImpl;
 import org.apache.samza.application.descriptors.StreamApplicationDescriptorImpl;
 import org.apache.samza.application.descriptors.TaskApplicationDescriptorImpl;
 import org.apache.samza.config.ConfigException;
+import org.apache.samza.container.EnvelopeLatencyTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -104,6 +105,20 @@ public class TaskFactoryUtil {
    * @return  the finalized task factory object
    */
   public static TaskFactory finalizeTaskFactory(TaskFactory factory, ExecutorService taskThreadPool) {
+    return finalizeTaskFactory(factory, taskThreadPool, null);
+  }
+
+  /**
+   * Optionally wrap the {@link StreamTaskFactory} in a {@link AsyncStreamTaskFactory}, when running {@link StreamTask}
+   * in multi-thread mode, and inject the latency tracker into {@link StreamOperatorTask}s.
+   *
+   * @param factory  the task factory instance loaded according to the task class
+   * @param taskThreadPool  the thread pool to run the {@link AsyncStreamTaskAdapter} tasks
+   * @param latencyTracker  the tracker of the envelope latency, or null if it's not tracked
+   * @return  the finalized task factory object
+   */
+  public static TaskFactory finalizeTaskFactory(TaskFactory factory, ExecutorService taskThreadPool,
+      EnvelopeLatencyTracker latencyTracker) {
     validateFactory(factory);
     boolean isAsyncTaskClass = factory instanceof AsyncStreamTaskFactory;
 
@@ -126,6 +141,7 @@ public class TaskFactoryUtil {
       return (AsyncStreamTaskFactory) () -> {
         StreamOperatorTask operatorTask = (StreamOperatorTask) factory.createInstance();
         operatorTask.setTaskThreadPool(taskThreadPool);
+        operatorTask.setLatencyTracker(latencyTracker);
         return operatorTask;
       };
     }
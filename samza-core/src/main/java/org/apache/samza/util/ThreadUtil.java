@@ -23,6 +23,11 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.MonitorInfo;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +35,27 @@ public class ThreadUtil {
   private static final Logger LOGGER = LoggerFactory.getLogger(ThreadUtil.class);
   private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
 
+  /**
+   * Create an executor which runs each task on a new virtual thread, if the JVM supports virtual threads (Java 21+).
+   * Virtual threads are looked up reflectively, so that this class can be compiled and run with older JVMs.
+   *
+   * @param namePrefix prefix of the names of the virtual threads, which are suffixed with a counter
+   * @return the executor, or empty if the JVM does not support virtual threads
+   */
+  public static Optional<ExecutorService> newVirtualThreadPerTaskExecutor(String namePrefix) {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+      ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      return Optional.of((ExecutorService) newExecutor.invoke(null, threadFactory));
+    } catch (ReflectiveOperationException | LinkageError e) {
+      LOGGER.debug("Virtual threads are not supported by this JVM.", e);
+      return Optional.empty();
+    }
+  }
+
   public static void logThreadDump(String message) {
     try {
       ThreadInfo[] threadInfo = THREAD_MX_BEAN.dumpAllThreads(true, true);
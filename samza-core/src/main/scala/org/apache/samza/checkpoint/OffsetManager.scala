@@ -25,7 +25,7 @@ import java.util.concurrent.ConcurrentHashMap
 import org.apache.commons.lang3.StringUtils
 import org.apache.samza.SamzaException
 import org.apache.samza.annotation.InterfaceStability
-import org.apache.samza.config.{Config, StreamConfig, SystemConfig}
+import org.apache.samza.config.{Config, StreamConfig, SystemConfig, TaskConfig}
 import org.apache.samza.container.TaskName
 import org.apache.samza.startpoint.{Startpoint, StartpointManager}
 import org.apache.samza.system.SystemStreamMetadata.OffsetType
@@ -104,7 +104,17 @@ object OffsetManager extends Logging {
           // Build OffsetSetting so we can create a map for OffsetManager.
           (systemStream, OffsetSetting(systemStreamMetadata, defaultOffsetType, resetOffset))
       }.toMap
-    new OffsetManager(offsetSettings, checkpointManager, startpointManager, systemAdmins, checkpointListeners, offsetManagerMetrics)
+
+    val taskConfig = new TaskConfig(config)
+    val checkpointBatchMaxWaitMs = taskConfig.getCheckpointBatchMaxWaitMs
+    val checkpointWriteBatcher = if (checkpointManager != null && checkpointBatchMaxWaitMs >= 0) {
+      info("Batching checkpoint writes of tasks, waiting up to %d ms for more checkpoints." format checkpointBatchMaxWaitMs)
+      new CheckpointWriteBatcher(checkpointManager, checkpointBatchMaxWaitMs, offsetManagerMetrics)
+    } else {
+      null
+    }
+    new OffsetManager(offsetSettings, checkpointManager, startpointManager, systemAdmins, checkpointListeners,
+      offsetManagerMetrics, checkpointWriteBatcher, taskConfig.getCheckpointSkipUnchanged)
   }
 }
 
@@ -159,7 +169,17 @@ class OffsetManager(
   /**
    * offsetManagerMetrics for keeping track of checkpointed offsets of each SystemStreamPartition.
    */
-  val offsetManagerMetrics: OffsetManagerMetrics = new OffsetManagerMetrics) extends Logging {
+  val offsetManagerMetrics: OffsetManagerMetrics = new OffsetManagerMetrics,
+
+  /**
+   * Optional batcher for writing the checkpoints of tasks which commit concurrently together.
+   */
+  checkpointWriteBatcher: CheckpointWriteBatcher = null,
+
+  /**
+   * Whether to skip writing the checkpoint of a task if it's unchanged since the last checkpoint written by the task.
+   */
+  skipUnchangedCheckpoints: Boolean = false) extends Logging {
 
   /**
    * Last offsets processed for each SystemStreamPartition.
@@ -184,6 +204,11 @@ class OffsetManager(
    */
   val systemStreamPartitions = mutable.Map[TaskName, mutable.Set[SystemStreamPartition]]()
 
+  /**
+   * The last checkpoint written for each task, if unchanged checkpoints are skipped.
+   */
+  private val lastWrittenCheckpoints = new ConcurrentHashMap[TaskName, Checkpoint]()
+
   def register(taskName: TaskName, systemStreamPartitionsToRegister: Set[SystemStreamPartition]) {
     systemStreamPartitions.getOrElseUpdate(taskName, mutable.Set[SystemStreamPartition]()) ++= systemStreamPartitionsToRegister
     // register metrics
@@ -270,6 +295,7 @@ class OffsetManager(
   def buildCheckpoint(taskName: TaskName): Checkpoint = {
     if (checkpointManager != null || checkpointListeners.nonEmpty) {
       debug("Getting checkpoint offsets for taskName %s." format taskName)
+      val startNs = System.nanoTime
 
       val taskStartingOffsets = startingOffsets.getOrElse(taskName,
         throw new SamzaException("Couldn't find starting offsets for task: " + taskName))
@@ -283,7 +309,9 @@ class OffsetManager(
           .filterKeys(taskSSPs.contains)
 
       val modifiedTaskOffsets = getModifiedOffsets(taskStartingOffsets, taskLastProcessedOffsets)
-      new Checkpoint(new HashMap(modifiedTaskOffsets)) // Copy into new Map to prevent mutation
+      val checkpoint = new Checkpoint(new HashMap(modifiedTaskOffsets)) // Copy into new Map to prevent mutation
+      offsetManagerMetrics.checkpointBuildNs.update(System.nanoTime - startNs)
+      checkpoint
     } else {
       debug("Returning null checkpoint for taskName %s because no checkpoint manager/callback is defined." format taskName)
       null
@@ -338,8 +366,20 @@ class OffsetManager(
     if (checkpoint != null && (checkpointManager != null || checkpointListeners.nonEmpty)) {
       debug("Writing checkpoint for taskName %s with offsets %s." format (taskName, checkpoint))
 
-      if(checkpointManager != null) {
-        checkpointManager.writeCheckpoint(taskName, checkpoint)
+      if (checkpointManager != null && skipUnchangedCheckpoints && checkpoint.equals(lastWrittenCheckpoints.get(taskName))) {
+        debug("Skipping checkpoint for taskName %s since it is unchanged since the last checkpoint." format taskName)
+        offsetManagerMetrics.checkpointsSkipped.inc
+      } else if (checkpointManager != null) {
+        if (checkpointWriteBatcher != null) {
+          checkpointWriteBatcher.write(taskName, checkpoint)
+        } else {
+          val startNs = System.nanoTime
+          checkpointManager.writeCheckpoint(taskName, checkpoint)
+          offsetManagerMetrics.checkpointWriteNs.update(System.nanoTime - startNs)
+        }
+        if (skipUnchangedCheckpoints) {
+          lastWrittenCheckpoints.put(taskName, checkpoint)
+        }
         val sspToOffsets = checkpoint.getOffsets
         if(sspToOffsets != null) {
           sspToOffsets.asScala.foreach {
@@ -28,6 +28,17 @@ class OffsetManagerMetrics(val registry: MetricsRegistry = new MetricsRegistryMa
 
   val checkpointedOffsets = new ConcurrentHashMap[SystemStreamPartition, Gauge[String]]
 
+  // time spent building the checkpoint of a task
+  val checkpointBuildNs = newTimer("checkpoint-build-ns")
+  // time a checkpoint waits for a batched write to start
+  val checkpointBatchWaitNs = newTimer("checkpoint-batch-wait-ns")
+  // time spent writing a checkpoint, or a batch of checkpoints, to the checkpoint manager
+  val checkpointWriteNs = newTimer("checkpoint-write-ns")
+  val checkpointBatches = newCounter("checkpoint-batches")
+  val checkpointBatchSize = newGauge("checkpoint-batch-size", 0)
+  // checkpoints which were not written, since they are unchanged since the last written checkpoint
+  val checkpointsSkipped = newCounter("checkpoints-skipped")
+
   def addCheckpointedOffset(systemStreamPartition: SystemStreamPartition, checkpointedOffset: String) {
     checkpointedOffsets.put(systemStreamPartition, newGauge("%s-%s-%d-checkpointed-offset" format (systemStreamPartition.getSystem, systemStreamPartition.getStream, systemStreamPartition.getPartition.getPartitionId), checkpointedOffset))
   }
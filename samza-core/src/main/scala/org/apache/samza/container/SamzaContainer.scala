@@ -157,12 +157,12 @@ object SamzaContainer extends Logging {
     startupLog("Using configuration: %s" format config)
     startupLog("Using container model: %s" format containerModel)
 
-    val registry = new MetricsRegistryMap(containerName)
+    val metricsConfig = new MetricsConfig(config)
+    val registry = MetricsRegistryMap.fromConfig(containerName, config)
     val samzaContainerMetrics = new SamzaContainerMetrics(containerName, registry)
     val systemProducersMetrics = new SystemProducersMetrics(registry)
     val systemConsumersMetrics = new SystemConsumersMetrics(registry)
     val offsetManagerMetrics = new OffsetManagerMetrics(registry)
-    val metricsConfig = new MetricsConfig(config)
     val clock = if (metricsConfig.getMetricsTimerEnabled) {
       new HighResolutionClock {
         override def nanoTime(): Long = System.nanoTime()
@@ -446,6 +446,16 @@ object SamzaContainer extends Logging {
 
     val pollIntervalMs = taskConfig.getPollIntervalMs
 
+    val latencyTracker = if (metricsConfig.getMetricsEnvelopeLatencyEnabled) {
+      info("Tracking envelope latency with trace sampling rate %s." format metricsConfig.getMetricsEnvelopeTraceSamplingRate)
+      new EnvelopeLatencyTracker(registry, metricsConfig.getMetricsEnvelopeTraceSamplingRate, SystemClock.instance,
+        new HighResolutionClock {
+          override def nanoTime(): Long = System.nanoTime()
+        })
+    } else {
+      null
+    }
+
     val consumerMultiplexer = new SystemConsumers(
       chooser = chooser,
       consumers = consumers,
@@ -454,7 +464,8 @@ object SamzaContainer extends Logging {
       metrics = systemConsumersMetrics,
       dropDeserializationError = dropDeserializationError,
       pollIntervalMs = pollIntervalMs,
-      clock = () => clock.nanoTime())
+      clock = () => clock.nanoTime(),
+      latencyTracker = latencyTracker)
 
     val producerMultiplexer = new SystemProducers(
       producers = producers,
@@ -476,9 +487,24 @@ object SamzaContainer extends Logging {
 
     val threadPoolSize = jobConfig.getThreadPoolSize
     info("Got thread pool size: " + threadPoolSize)
-    samzaContainerMetrics.containerThreadPoolSize.set(threadPoolSize)
 
-    val taskThreadPool = if (threadPoolSize > 0) {
+    val virtualThreadPool = if (jobConfig.getThreadPoolVirtualEnabled) {
+      val executor = ThreadUtil.newVirtualThreadPerTaskExecutor("Samza Container Virtual Thread-")
+      if (executor.isPresent) {
+        info("Running tasks on virtual threads")
+      } else {
+        warn("Virtual threads are enabled but not supported by this JVM. Falling back to the thread pool size.")
+      }
+      executor.orElse(null)
+    } else {
+      null
+    }
+    // tasks run on an unbounded number of virtual threads, so the configured pool size doesn't apply
+    samzaContainerMetrics.containerThreadPoolSize.set(if (virtualThreadPool != null) -1L else threadPoolSize.toLong)
+
+    val taskThreadPool = if (virtualThreadPool != null) {
+      virtualThreadPool
+    } else if (threadPoolSize > 0) {
       Executors.newFixedThreadPool(threadPoolSize,
         new ThreadFactoryBuilder().setNameFormat("Samza Container Thread-%d").build())
     } else {
@@ -488,7 +514,8 @@ object SamzaContainer extends Logging {
 
     val finalTaskFactory = TaskFactoryUtil.finalizeTaskFactory(
       taskFactory,
-      taskThreadPool)
+      taskThreadPool,
+      latencyTracker)
 
     val taskModels = containerModel.getTasks.values.asScala
     val containerContext = new ContainerContextImpl(containerModel, samzaContainerMetrics.registry)
@@ -502,7 +529,9 @@ object SamzaContainer extends Logging {
     var taskStorageManagers : Map[TaskName, TaskStorageManager] = Map()
 
     val taskInstanceMetrics: Map[TaskName, TaskInstanceMetrics] = taskModels.map(taskModel => {
-      (taskModel.getTaskName, new TaskInstanceMetrics("TaskName-%s" format taskModel.getTaskName))
+      val taskMetricsSource = "TaskName-%s" format taskModel.getTaskName
+      (taskModel.getTaskName,
+        new TaskInstanceMetrics(taskMetricsSource, MetricsRegistryMap.fromConfig(taskMetricsSource, config)))
     }).toMap
 
     val taskCollectors : Map[TaskName, TaskInstanceCollector] = taskModels.map(taskModel => {
@@ -608,6 +637,17 @@ object SamzaContainer extends Logging {
 
     val maxThrottlingDelayMs = config.getLong("container.disk.quota.delay.max.ms", TimeUnit.SECONDS.toMillis(1))
 
+    val stallThresholdMs = taskConfig.getStallThresholdMs
+    val watchdog = if (stallThresholdMs > 0) {
+      info("Reporting run loop operations which run for longer than %d ms." format stallThresholdMs)
+      new RunLoopWatchdog(stallThresholdMs, diagnosticsManager.orNull,
+        new HighResolutionClock {
+          override def nanoTime(): Long = System.nanoTime()
+        })
+    } else {
+      null
+    }
+
     val runLoop = RunLoopFactory.createRunLoop(
       taskInstances,
       consumerMultiplexer,
@@ -615,7 +655,9 @@ object SamzaContainer extends Logging {
       maxThrottlingDelayMs,
       samzaContainerMetrics,
       taskConfig,
-      clock)
+      clock,
+      latencyTracker,
+      watchdog)
 
     val memoryStatisticsMonitor : SystemStatisticsMonitor = new StatisticsMonitorImpl()
     memoryStatisticsMonitor.registerListener(new SystemStatisticsMonitor.Listener {
@@ -25,16 +25,18 @@ import java.util.concurrent.ScheduledExecutorService
 
 import org.apache.samza.SamzaException
 import org.apache.samza.checkpoint.{Checkpoint, CheckpointId, CheckpointedChangelogOffset, OffsetManager}
-import org.apache.samza.config.{Config, StreamConfig, TaskConfig}
+import org.apache.samza.config.{Config, SerializerConfig, StreamConfig, TaskConfig}
 import org.apache.samza.context._
 import org.apache.samza.job.model.{JobModel, TaskModel}
-import org.apache.samza.scheduler.{CallbackSchedulerImpl, EpochTimeScheduler, ScheduledCallback}
+import org.apache.samza.scheduler.{CallbackSchedulerImpl, EpochTimeScheduler, KeyValueTimerStore, ScheduledCallback}
+import org.apache.samza.serializers.SerdeFactory
 import org.apache.samza.storage.kv.KeyValueStore
 import org.apache.samza.storage.TaskStorageManager
 import org.apache.samza.system._
 import org.apache.samza.table.TableManager
 import org.apache.samza.task._
-import org.apache.samza.util.{Logging, ScalaJavaUtil}
+import org.apache.samza.util.ScalaJavaUtil.JavaOptionals
+import org.apache.samza.util.{Logging, ReflectionUtil, ScalaJavaUtil}
 
 import scala.collection.JavaConversions._
 import scala.collection.JavaConverters._
@@ -66,6 +68,7 @@ class TaskInstance(
   val isInitableTask = task.isInstanceOf[InitableTask]
   val isEndOfStreamListenerTask = task.isInstanceOf[EndOfStreamListenerTask]
   val isClosableTask = task.isInstanceOf[ClosableTask]
+  val isCommitListenerTask = task.isInstanceOf[CommitListenerTask]
 
   override val isWindowableTask = task.isInstanceOf[WindowableTask]
 
@@ -99,6 +102,18 @@ class TaskInstance(
   private val config: Config = jobContext.getConfig
 
   val streamConfig: StreamConfig = new StreamConfig(config)
+
+  // dispatches messages with the same key in order, if enabled for a task with concurrency
+  private val keyOrderedDispatcher: KeyOrderedTaskDispatcher = {
+    val taskConfig = new TaskConfig(config)
+    if (taskConfig.getKeyedConcurrencyEnabled && taskConfig.getMaxConcurrency > 1) {
+      info("Processing messages with the same key in order for taskName: %s" format taskName)
+      new KeyOrderedTaskDispatcher
+    } else {
+      null
+    }
+  }
+
   override val intermediateStreams: java.util.Set[String] = JavaConverters.setAsJavaSetConverter(streamConfig.getStreamIds.filter(streamConfig.getIsIntermediateStream)).asJava
 
   val streamsToDeleteCommittedMessages: Set[String] = streamConfig.getStreamIds.filter(streamConfig.getDeleteCommittedMessages).map(streamConfig.getPhysicalName).toSet
@@ -128,6 +143,8 @@ class TaskInstance(
       commit
     }
 
+    initTimerStore(taskConfig)
+
     if (isInitableTask) {
       debug("Initializing task for taskName: %s" format taskName)
 
@@ -141,6 +158,25 @@ class TaskInstance(
     })
   }
 
+  /**
+    * Keeps the timers of the scheduled callbacks in the configured timer store, if any, which must be a store of the
+    * task with byte array keys and values.
+    */
+  private def initTimerStore(taskConfig: TaskConfig) {
+    JavaOptionals.toRichOptional(taskConfig.getTimerStore).toOption.foreach(storeName => {
+      val store = Option(storageManager).flatMap(_.getStore(storeName))
+        .getOrElse(throw new SamzaException("Timer store %s is not a store of taskName: %s" format (storeName, taskName)))
+        .asInstanceOf[KeyValueStore[Array[Byte], Array[Byte]]]
+      val serdeName = taskConfig.getTimerKeySerde
+      val serdeClassName = JavaOptionals.toRichOptional(new SerializerConfig(config).getSerdeFactoryClass(serdeName)).toOption
+        .getOrElse(SerializerConfig.getPredefinedSerdeFactoryName(serdeName))
+      val keySerde = ReflectionUtil.getObj(serdeClassName, classOf[SerdeFactory[Object]]).getSerde(serdeName, config)
+
+      debug("Keeping timers in store: %s for taskName: %s" format (storeName, taskName))
+      epochTimeScheduler.setTimerStore(new KeyValueTimerStore[Object](store, keySerde, taskConfig.getTimerStoreBatchSize))
+    })
+  }
+
   def registerProducers {
     debug("Registering producers for taskName: %s" format taskName)
 
@@ -183,7 +219,11 @@ class TaskInstance(
 
       exceptionHandler.maybeHandle {
         val callback = callbackFactory.createCallback()
-        task.asInstanceOf[AsyncStreamTask].processAsync(envelope, collector, coordinator, callback)
+        if (keyOrderedDispatcher != null) {
+          keyOrderedDispatcher.dispatch(task.asInstanceOf[AsyncStreamTask], envelope, collector, coordinator, callback)
+        } else {
+          task.asInstanceOf[AsyncStreamTask].processAsync(envelope, collector, coordinator, callback)
+        }
       }
     }
   }
@@ -228,6 +268,15 @@ class TaskInstance(
       allCheckpointOffsets.putAll(inputCheckpoint.getOffsets)
     }
 
+    if (isCommitListenerTask) {
+      // messages buffered by the task need to be sent before the offsets of their input are checkpointed. Invoked
+      // after the checkpoint is built, so that it also sends the messages buffered by processing which completed
+      // in between, i.e. everything covered by the checkpointed offsets.
+      trace("Invoking commit listener for taskName: %s" format taskName)
+      task.asInstanceOf[CommitListenerTask].beforeCommit(collector)
+    }
+
+    val flushStartNs = System.nanoTime
     trace("Flushing producers for taskName: %s" format taskName)
     collector.flush
 
@@ -243,6 +292,9 @@ class TaskInstance(
       trace("Got newest changelog offsets for taskName: %s as: %s " format(taskName, newestChangelogOffsets))
     }
 
+    val checkpointStartNs = System.nanoTime
+    metrics.commitFlushNs.update(checkpointStartNs - flushStartNs)
+
     val checkpointId = CheckpointId.create()
     if (storageManager != null && newestChangelogOffsets != null) {
       trace("Checkpointing stores for taskName: %s with checkpoint id: %s" format (taskName, checkpointId))
@@ -260,6 +312,9 @@ class TaskInstance(
 
     offsetManager.writeCheckpoint(taskName, checkpoint)
 
+    val cleanupStartNs = System.nanoTime
+    metrics.commitCheckpointNs.update(cleanupStartNs - checkpointStartNs)
+
     if (storageManager != null) {
       trace("Remove old checkpoint stores for taskName: %s" format taskName)
       try {
@@ -278,6 +333,7 @@ class TaskInstance(
           systemAdmins.getSystemAdmin(systemName).deleteMessages(offsets.asJava)
         }
     }
+    metrics.commitCleanupNs.update(System.nanoTime - cleanupStartNs)
   }
 
   def shutdownTask {
@@ -38,6 +38,15 @@ class TaskInstanceMetrics(
   val pendingMessages = newGauge("pending-messages", 0)
   val messagesInFlight = newGauge("messages-in-flight", 0)
   val asyncCallbackCompleted = newCounter("async-callback-complete-calls");
+  // envelopes chosen for the task while it was at task.max.concurrency, and partitions of the task held back from the
+  // chooser for that reason, if task.chooser.skip.busy.tasks is enabled
+  val envelopesChosenWhileBusy = newCounter("envelopes-chosen-while-busy")
+  val chooserDeferredUpdates = newCounter("chooser-deferred-updates")
+  // time spent in the stages of a commit: flushing producers, tables and stores, writing the checkpoint, and cleaning up
+  // old store checkpoints and committed messages
+  val commitFlushNs = newTimer("commit-flush-ns")
+  val commitCheckpointNs = newTimer("commit-checkpoint-ns")
+  val commitCleanupNs = newTimer("commit-cleanup-ns")
 
   def addOffsetGauge(systemStreamPartition: SystemStreamPartition, getValue: () => String) {
     newGauge("%s-%s-%d-offset" format (systemStreamPartition.getSystem, systemStreamPartition.getStream, systemStreamPartition.getPartition.getPartitionId), getValue)
@@ -19,14 +19,42 @@
 
 package org.apache.samza.metrics
 
+import org.apache.samza.config.{Config, MetricsConfig}
 import org.apache.samza.util.Logging
 import java.util.concurrent.ConcurrentHashMap
+import java.util.function.{Function => JFunction}
+
+object MetricsRegistryMap {
+  private val defaultTimerFactory = new JFunction[String, Timer] {
+    override def apply(name: String): Timer = new Timer(name)
+  }
+
+  /**
+   * Create a registry whose counters and gauges are striped if enabled in the metrics config, and whose timers use
+   * the reservoir and sampling rates in the metrics config.
+   */
+  def fromConfig(name: String, config: Config): MetricsRegistryMap = {
+    val metricsConfig = new MetricsConfig(config)
+    val histogram = metricsConfig.getMetricsTimerReservoir.equals(MetricsConfig.METRICS_TIMER_RESERVOIR_HISTOGRAM)
+    new MetricsRegistryMap(name, metricsConfig.getMetricsStripedEnabled, new JFunction[String, Timer] {
+      override def apply(timerName: String): Timer = {
+        val reservoir = if (histogram) new HistogramReservoir else new SlidingTimeWindowReservoir
+        new Timer(timerName, reservoir, metricsConfig.getMetricsTimerSamplingRate(timerName))
+      }
+    })
+  }
+}
 
 /**
  * A class that holds all metrics registered with it. It can be registered
  * with one or more MetricReporters to flush metrics.
+ *
+ * If striped is true, the counters and gauges created by name are a [[StripedCounter]] and a [[PaddedGauge]],
+ * which avoid cache-line contention when they are updated by many threads. The timers created by name are created
+ * with the timerFactory.
  */
-class MetricsRegistryMap(val name: String) extends ReadableMetricsRegistry with Logging {
+class MetricsRegistryMap(val name: String, val striped: Boolean, val timerFactory: JFunction[String, Timer])
+  extends ReadableMetricsRegistry with Logging {
   var listeners = Set[ReadableMetricsRegistryListener]()
 
   /*
@@ -34,6 +62,10 @@ class MetricsRegistryMap(val name: String) extends ReadableMetricsRegistry with
    */
   val metrics = new ConcurrentHashMap[String, ConcurrentHashMap[String, Metric]]
 
+  def this(name: String, striped: Boolean) = this(name, striped, MetricsRegistryMap.defaultTimerFactory)
+
+  def this(name: String) = this(name, false)
+
   def this() = this("unknown")
 
   def newCounter(group: String, counter: Counter) = {
@@ -46,7 +78,7 @@ class MetricsRegistryMap(val name: String) extends ReadableMetricsRegistry with
 
   def newCounter(group: String, name: String) = {
     debug("Creating new counter %s %s." format (group, name))
-    newCounter(group, new Counter(name))
+    newCounter(group, if (striped) new StripedCounter(name) else new Counter(name))
   }
 
   def newGauge[T](group: String, gauge: Gauge[T]) = {
@@ -61,7 +93,7 @@ class MetricsRegistryMap(val name: String) extends ReadableMetricsRegistry with
 
   def newGauge[T](group: String, name: String, value: T) = {
     debug("Creating new gauge %s %s %s." format (group, name, value))
-    newGauge(group, new Gauge[T](name, value))
+    newGauge(group, if (striped) new PaddedGauge[T](name, value) else new Gauge[T](name, value))
   }
 
   def newTimer(group: String, timer: Timer) = {
@@ -74,7 +106,7 @@ class MetricsRegistryMap(val name: String) extends ReadableMetricsRegistry with
 
   def newTimer(group: String, name: String) = {
     debug("Creating new timer %s %s." format (group, name))
-    newTimer(group, new Timer(name))
+    newTimer(group, timerFactory.apply(name))
   }
 
   private def putAndGetGroup(group: String) = {
@@ -35,12 +35,17 @@ object MetricsHeader {
       map.get("samza-version").toString,
       map.get("host").toString,
       map.get("time").asInstanceOf[Number].longValue,
-      map.get("reset-time").asInstanceOf[Number].longValue)
+      map.get("reset-time").asInstanceOf[Number].longValue,
+      // snapshots without the field are from reporters which only sent full reports
+      !java.lang.Boolean.FALSE.equals(map.get("full-report")))
   }
 }
 
 /**
  * Immutable metric header snapshot.
+ *
+ * fullReport is false if the snapshot is a delta report, which omits the metrics that didn't change since the
+ * previous report of its source.
  */
 class MetricsHeader(
   @BeanProperty val jobName: String,
@@ -52,7 +57,21 @@ class MetricsHeader(
   @BeanProperty val samzaVersion: String,
   @BeanProperty val host: String,
   @BeanProperty val time: Long,
-  @BeanProperty val resetTime: Long) {
+  @BeanProperty val resetTime: Long,
+  @BeanProperty val fullReport: Boolean) {
+
+  def this(
+    jobName: String,
+    jobId: String,
+    containerName: String,
+    execEnvironmentContainerId: String,
+    source: String,
+    version: String,
+    samzaVersion: String,
+    host: String,
+    time: Long,
+    resetTime: Long) = this(jobName, jobId, containerName, execEnvironmentContainerId, source, version, samzaVersion,
+    host, time, resetTime, true)
 
   def getAsMap: Map[String, Object] = {
     val map = new HashMap[String, Object]
@@ -66,6 +85,7 @@ class MetricsHeader(
     map.put("host", host)
     map.put("time", time: java.lang.Long)
     map.put("reset-time", resetTime: java.lang.Long)
+    map.put("full-report", fullReport: java.lang.Boolean)
     map
   }
 }
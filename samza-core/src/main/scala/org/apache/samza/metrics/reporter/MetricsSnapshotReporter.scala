@@ -44,6 +44,11 @@ import scala.collection.JavaConverters._
  * host // eat1-app128.gird
  * version // 0.0.1
  * blacklist // Regex of metrics to ignore when flushing
+ * timerPercentiles // Percentiles reported for timers as <timer name>-p<percentile>, in addition to their average,
+ *                  // unless the group has a metric with that name
+ * deltaEnabled // Whether to report only the metrics which changed since the last report
+ * deltaFullReportInterval // With deltaEnabled, every n-th report contains all metrics, and is marked as a full report
+ *                         // in its header
  */
 class MetricsSnapshotReporter(
   producer: SystemProducer,
@@ -57,7 +62,27 @@ class MetricsSnapshotReporter(
   host: String,
   serializer: Serializer[MetricsSnapshot] = null,
   blacklist: Option[String],
-  clock: () => Long = () => { System.currentTimeMillis }) extends MetricsReporter with Runnable with Logging {
+  clock: () => Long = () => { System.currentTimeMillis },
+  timerPercentiles: Seq[Double] = Seq(),
+  deltaEnabled: Boolean = false,
+  deltaFullReportInterval: Int = 1) extends MetricsReporter with Runnable with Logging {
+
+  require(deltaFullReportInterval > 0, "deltaFullReportInterval must be positive")
+
+  def this(
+    producer: SystemProducer,
+    out: SystemStream,
+    reportingInterval: Int,
+    jobName: String,
+    jobId: String,
+    containerName: String,
+    version: String,
+    samzaVersion: String,
+    host: String,
+    serializer: Serializer[MetricsSnapshot],
+    blacklist: Option[String],
+    clock: () => Long) = this(producer, out, reportingInterval, jobName, jobId, containerName, version, samzaVersion,
+    host, serializer, blacklist, clock, Seq(), false, 1)
 
   val execEnvironmentContainerId = Option[String](System.getenv(ShellCommandConfig.ENV_EXECUTION_ENV_CONTAINER_ID)).getOrElse("")
 
@@ -66,9 +91,21 @@ class MetricsSnapshotReporter(
   val resetTime = clock()
   var registries = List[(String, ReadableMetricsRegistry)]()
   var blacklistedMetrics = Set[String]()
+  var nonBlacklistedMetrics = Set[String]()
 
-  info("got metrics snapshot reporter properties [job name: %s, job id: %s, containerName: %s, version: %s, samzaVersion: %s, host: %s, reportingInterval %s]"
-    format(jobName, jobId, containerName, version, samzaVersion, host, reportingInterval))
+  val timerPercentileArray = timerPercentiles.toArray
+  val timerPercentileSuffixes = timerPercentiles.map(percentile =>
+    "-p" + (if (percentile == percentile.toLong) percentile.toLong.toString else percentile.toString)).toArray
+
+  // the timer percentiles which aren't reported since a metric of their group has the same name, by group and name
+  var collidingTimerPercentiles = Set[String]()
+
+  // with deltaEnabled, the last reported value of each metric, by source and group
+  val lastReportedMetrics = scala.collection.mutable.Map[String, scala.collection.mutable.Map[String, HashMap[String, Object]]]()
+  val reportCounts = scala.collection.mutable.Map[String, Long]()
+
+  info("got metrics snapshot reporter properties [job name: %s, job id: %s, containerName: %s, version: %s, samzaVersion: %s, host: %s, reportingInterval %s, timerPercentiles: %s, deltaEnabled: %s, deltaFullReportInterval: %s]"
+    format(jobName, jobId, containerName, version, samzaVersion, host, reportingInterval, timerPercentiles, deltaEnabled, deltaFullReportInterval))
 
   def start {
     info("Starting producer.")
@@ -124,10 +161,15 @@ class MetricsSnapshotReporter(
       debug("Flushing metrics for %s." format source)
 
       val metricsMsg = new HashMap[String, Map[String, Object]]
+      val reportCount = reportCounts.getOrElse(source, 0L)
+      reportCounts.put(source, reportCount + 1)
+      val isDeltaReport = deltaEnabled && reportCount % deltaFullReportInterval != 0
+      val lastReported = lastReportedMetrics.getOrElseUpdate(source, scala.collection.mutable.Map())
 
       // metrics
       registry.getGroups.asScala.foreach(group => {
         val groupMsg = new HashMap[String, Object]
+        val timerPercentilesMsg = new HashMap[String, Object]
 
         registry.getGroup(group).asScala.foreach {
           case (name, metric) =>
@@ -135,11 +177,51 @@ class MetricsSnapshotReporter(
               metric.visit(new MetricsVisitor {
                 def counter(counter: Counter) = groupMsg.put(name, counter.getCount: java.lang.Long)
                 def gauge[T](gauge: Gauge[T]) = groupMsg.put(name, gauge.getValue.asInstanceOf[Object])
-                def timer(timer: Timer) = groupMsg.put(name, timer.getSnapshot().getAverage(): java.lang.Double)
+                def timer(timer: Timer) = {
+                  val snapshot = timer.getSnapshot()
+                  groupMsg.put(name, snapshot.getAverage(): java.lang.Double)
+                  if (timerPercentileArray.nonEmpty) {
+                    val percentileValues = snapshot.getPercentiles(timerPercentileArray: _*)
+                    for (i <- timerPercentileArray.indices) {
+                      timerPercentilesMsg.put(name + timerPercentileSuffixes(i), percentileValues(i): java.lang.Long)
+                    }
+                  }
+                }
               })
             }
         }
 
+        // a metric of the group which is named like a timer percentile takes precedence over it
+        timerPercentilesMsg.asScala.foreach {
+          case (name, percentileValue) =>
+            if (groupMsg.containsKey(name)) {
+              if (!collidingTimerPercentiles.contains(group + "." + name)) {
+                collidingTimerPercentiles += group + "." + name
+                warn("Not reporting timer percentile %s of group %s, since it has a metric with the same name."
+                  format (name, group))
+              }
+            } else {
+              groupMsg.put(name, percentileValue)
+            }
+        }
+
+        if (deltaEnabled) {
+          val lastReportedGroup = lastReported.getOrElse(group, null)
+          if (isDeltaReport && lastReportedGroup != null) {
+            // only keep the metrics whose values changed since the last report
+            groupMsg.entrySet.removeIf(new java.util.function.Predicate[java.util.Map.Entry[String, Object]] {
+              override def test(entry: java.util.Map.Entry[String, Object]) =
+                lastReportedGroup.containsKey(entry.getKey) &&
+                  java.util.Objects.equals(lastReportedGroup.get(entry.getKey), entry.getValue)
+            })
+          }
+          if (lastReportedGroup == null) {
+            lastReported.put(group, new HashMap[String, Object](groupMsg))
+          } else {
+            lastReportedGroup.putAll(groupMsg)
+          }
+        }
+
         // dont emit empty groups
         if (!groupMsg.isEmpty) {
           metricsMsg.put(group, groupMsg)
@@ -148,7 +230,7 @@ class MetricsSnapshotReporter(
 
       // publish to Kafka only if the metricsMsg carries any metrics
       if (!metricsMsg.isEmpty) {
-        val header = new MetricsHeader(jobName, jobId, containerName, execEnvironmentContainerId, source, version, samzaVersion, host, clock(), resetTime)
+        val header = new MetricsHeader(jobName, jobId, containerName, execEnvironmentContainerId, source, version, samzaVersion, host, clock(), resetTime, !isDeltaReport)
         val metrics = new Metrics(metricsMsg)
 
         debug("Flushing metrics for %s to %s with header and map: header=%s, map=%s." format(source, out, header.getAsMap, metrics.getAsMap()))
@@ -179,10 +261,14 @@ class MetricsSnapshotReporter(
     val fullMetricName = group + "." + metricName
 
     if (isBlacklisted && !blacklistedMetrics.contains(fullMetricName)) {
-      if (fullMetricName.matches(blacklist.get)) {
+      if (nonBlacklistedMetrics.contains(fullMetricName)) {
+        isBlacklisted = false
+      } else if (fullMetricName.matches(blacklist.get)) {
         blacklistedMetrics += fullMetricName
         debug("Blacklisted metric %s because it matched blacklist regex: %s" format(fullMetricName, blacklist.get))
       } else {
+        // remember the metrics that are not blacklisted too, to avoid matching the regex on every report
+        nonBlacklistedMetrics += fullMetricName
         isBlacklisted = false
       }
     }
@@ -27,6 +27,8 @@ import org.apache.samza.system.{SystemFactory, SystemProducer, SystemStream}
 import org.apache.samza.util.ScalaJavaUtil.JavaOptionals
 import org.apache.samza.util.{Logging, ReflectionUtil, StreamUtil, Util}
 
+import scala.collection.JavaConverters._
+
 class MetricsSnapshotReporterFactory extends MetricsReporterFactory with Logging {
 
   protected def getProducer(reporterName: String, config: Config, registry: MetricsRegistryMap): SystemProducer = {
@@ -113,6 +115,10 @@ class MetricsSnapshotReporterFactory extends MetricsReporterFactory with Logging
     val jobId = getJobId(config)
     val serde = getSerde(reporterName, config)
     val blacklist = getBlacklist(reporterName, config)
+    val metricsConfig = new MetricsConfig(config)
+    val timerPercentiles = metricsConfig.getMetricsReporterTimerPercentiles(reporterName).asScala.map(_.doubleValue)
+    val deltaEnabled = metricsConfig.getMetricsSnapshotReporterDeltaEnabled(reporterName)
+    val deltaFullReportInterval = metricsConfig.getMetricsSnapshotReporterDeltaFullReportInterval(reporterName)
 
     val reporter = new MetricsSnapshotReporter(
       producer,
@@ -124,7 +130,10 @@ class MetricsSnapshotReporterFactory extends MetricsReporterFactory with Logging
       Util.getTaskClassVersion(config),
       Util.getSamzaVersion,
       Util.getLocalHost.getHostName,
-      serde, blacklist)
+      serde, blacklist,
+      timerPercentiles = timerPercentiles,
+      deltaEnabled = deltaEnabled,
+      deltaFullReportInterval = deltaFullReportInterval)
 
     reporter.register(this.getClass.getSimpleName, registry)
 
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.serializers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.apache.samza.SamzaException;
+import org.apache.samza.metrics.reporter.Metrics;
+import org.apache.samza.metrics.reporter.MetricsHeader;
+import org.apache.samza.metrics.reporter.MetricsSnapshot;
+import org.codehaus.jackson.map.ObjectMapper;
+
+
+/**
+ * A compact binary encoding of {@link MetricsSnapshot}s.
+ * <p>
+ * Numbers, booleans and strings are written in their binary form with a one byte type tag, and any other metric
+ * value is written as JSON. Everything after the leading version byte is deflated, since the names of the metrics of
+ * a snapshot, e.g., per-partition gauges, share long prefixes.
+ */
+public class MetricsSnapshotBinarySerde implements Serde<MetricsSnapshot> {
+
+  private static final byte VERSION = 1;
+
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_LONG = 1;
+  private static final byte TYPE_INTEGER = 2;
+  private static final byte TYPE_DOUBLE = 3;
+  private static final byte TYPE_FLOAT = 4;
+  private static final byte TYPE_BOOLEAN = 5;
+  private static final byte TYPE_STRING = 6;
+  private static final byte TYPE_JSON = 7;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Override
+  public byte[] toBytes(MetricsSnapshot metricsSnapshot) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      bytes.write(VERSION);
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+        writeHeader(out, metricsSnapshot.getHeader());
+        Map<String, Map<String, Object>> metrics = metricsSnapshot.getMetrics().getAsMap();
+        out.writeInt(metrics.size());
+        for (Map.Entry<String, Map<String, Object>> group : metrics.entrySet()) {
+          out.writeUTF(group.getKey());
+          out.writeInt(group.getValue().size());
+          for (Map.Entry<String, Object> metric : group.getValue().entrySet()) {
+            out.writeUTF(metric.getKey());
+            writeValue(out, metric.getValue());
+          }
+        }
+      } finally {
+        deflater.end();
+      }
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new SamzaException("Exception while serializing metrics snapshot", e);
+    }
+  }
+
+  @Override
+  public MetricsSnapshot fromBytes(byte[] bytes) {
+    if (bytes.length == 0 || bytes[0] != VERSION) {
+      throw new SamzaException("Unsupported metrics snapshot encoding version " + (bytes.length == 0 ? "" : bytes[0]));
+    }
+    try (DataInputStream in =
+        new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1)))) {
+      MetricsHeader header = readHeader(in);
+      int groupCount = in.readInt();
+      Map<String, Map<String, Object>> metrics = new HashMap<>(groupCount * 2);
+      for (int i = 0; i < groupCount; i++) {
+        String group = in.readUTF();
+        int metricCount = in.readInt();
+        Map<String, Object> groupMetrics = new HashMap<>(metricCount * 2);
+        for (int j = 0; j < metricCount; j++) {
+          groupMetrics.put(in.readUTF(), readValue(in));
+        }
+        metrics.put(group, groupMetrics);
+      }
+      return new MetricsSnapshot(header, new Metrics(metrics));
+    } catch (IOException e) {
+      throw new SamzaException("Exception while deserializing metrics snapshot", e);
+    }
+  }
+
+  private static void writeHeader(DataOutputStream out, MetricsHeader header) throws IOException {
+    writeNullableUTF(out, header.getJobName());
+    writeNullableUTF(out, header.getJobId());
+    writeNullableUTF(out, header.getContainerName());
+    writeNullableUTF(out, header.getExecEnvironmentContainerId());
+    writeNullableUTF(out, header.getSource());
+    writeNullableUTF(out, header.getVersion());
+    writeNullableUTF(out, header.getSamzaVersion());
+    writeNullableUTF(out, header.getHost());
+    out.writeLong(header.getTime());
+    out.writeLong(header.getResetTime());
+    out.writeBoolean(header.getFullReport());
+  }
+
+  private static MetricsHeader readHeader(DataInputStream in) throws IOException {
+    return new MetricsHeader(readNullableUTF(in), readNullableUTF(in), readNullableUTF(in), readNullableUTF(in),
+        readNullableUTF(in), readNullableUTF(in), readNullableUTF(in), readNullableUTF(in), in.readLong(),
+        in.readLong(), in.readBoolean());
+  }
+
+  /**
+   * Header fields, e.g., the execution environment container id, may be null, so they are preceded by a presence flag.
+   */
+  private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readNullableUTF(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private void writeValue(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(TYPE_NULL);
+    } else if (value instanceof Long) {
+      out.writeByte(TYPE_LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(TYPE_INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Double) {
+      out.writeByte(TYPE_DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Float) {
+      out.writeByte(TYPE_FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte(TYPE_BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof String) {
+      out.writeByte(TYPE_STRING);
+      writeString(out, (String) value);
+    } else {
+      out.writeByte(TYPE_JSON);
+      writeString(out, objectMapper.writeValueAsString(value));
+    }
+  }
+
+  private Object readValue(DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case TYPE_NULL:
+        return null;
+      case TYPE_LONG:
+        return in.readLong();
+      case TYPE_INTEGER:
+        return in.readInt();
+      case TYPE_DOUBLE:
+        return in.readDouble();
+      case TYPE_FLOAT:
+        return in.readFloat();
+      case TYPE_BOOLEAN:
+        return in.readBoolean();
+      case TYPE_STRING:
+        return readString(in);
+      case TYPE_JSON:
+        return objectMapper.readValue(readString(in), Object.class);
+      default:
+        throw new SamzaException("Unknown metric value type " + type);
+    }
+  }
+
+  /**
+   * Unlike {@link DataOutputStream#writeUTF}, supports metric values longer than 64 KB.
+   */
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
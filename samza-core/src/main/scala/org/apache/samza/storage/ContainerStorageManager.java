@@ -41,6 +41,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.commons.collections4.MapUtils;
+import org.apache.samza.Partition;
 import org.apache.samza.SamzaException;
 import org.apache.samza.checkpoint.Checkpoint;
 import org.apache.samza.checkpoint.CheckpointManager;
@@ -110,6 +111,8 @@ public class ContainerStorageManager {
   private static final String RESTORE_THREAD_NAME = "Samza Restore Thread-%d";
   private static final String SIDEINPUTS_THREAD_NAME = "SideInputs Thread";
   private static final String SIDEINPUTS_METRICS_PREFIX = "side-inputs-";
+  // Pseudo-task that owns the container-shared side input stores and consumes their side inputs
+  private static final TaskName SHARED_SIDE_INPUTS_TASK_NAME = new TaskName("SharedSideInputs");
   // We use a prefix to differentiate the SystemConsumersMetrics for sideInputs from the ones in SamzaContainer
 
   // Timeout with which sideinput thread checks for exceptions and for whether SSPs as caught up
@@ -149,6 +152,8 @@ public class ContainerStorageManager {
   private final boolean hasSideInputs;
   // side inputs indexed first by task, then store name
   private final Map<TaskName, Map<String, Set<SystemStreamPartition>>> taskSideInputStoreSSPs;
+  // side input stores shared by all tasks in the container, read-only wrapped and indexed by store name
+  private final Map<String, StorageEngine> sharedSideInputStores;
   private final Map<SystemStreamPartition, TaskSideInputHandler> sspSideInputHandlers;
   private SystemConsumers sideInputSystemConsumers;
   private volatile Map<TaskName, CountDownLatch> sideInputTaskLatches; // Used by the sideInput-read thread to signal to the main thread
@@ -188,6 +193,7 @@ public class ContainerStorageManager {
     this.checkpointManager = checkpointManager;
     this.containerModel = containerModel;
     this.taskSideInputStoreSSPs = getTaskSideInputSSPs(containerModel, sideInputSystemStreams);
+    moveSharedSideInputSSPs(new StorageConfig(config), sideInputSystemStreams.keySet());
     this.sideInputTaskLatches = new HashMap<>();
     this.hasSideInputs = this.taskSideInputStoreSSPs.values().stream()
         .flatMap(m -> m.values().stream())
@@ -235,6 +241,7 @@ public class ContainerStorageManager {
 
     // create taskStores for all tasks in the containerModel and each store in storageEngineFactories
     this.taskStores = createTaskStores(containerModel, jobContext, containerContext, storageEngineFactories, serdes, taskInstanceMetrics, taskInstanceCollectors);
+    this.sharedSideInputStores = getSharedSideInputStores();
 
     Set<String> containerChangelogSystems = this.changelogSystemStreams.values().stream()
         .map(SystemStream::getSystem)
@@ -303,6 +310,29 @@ public class ContainerStorageManager {
     return taskSideInputSSPs;
   }
 
+  /**
+   * Move the side inputs of stores configured with {@link StorageConfig#getSideInputsContainerShared(String)} from the
+   * individual tasks to the {@link #SHARED_SIDE_INPUTS_TASK_NAME} pseudo-task, so that such a store is created and
+   * populated once per container instead of once per task.
+   *
+   * @param config the storage config to use
+   * @param sideInputStoreNames the names of all side input stores
+   */
+  private void moveSharedSideInputSSPs(StorageConfig config, Set<String> sideInputStoreNames) {
+    Map<String, Set<SystemStreamPartition>> sharedSideInputSSPs = new HashMap<>();
+
+    sideInputStoreNames.stream().filter(config::getSideInputsContainerShared).forEach(storeName -> {
+      Set<SystemStreamPartition> storeSSPs = new HashSet<>();
+      this.taskSideInputStoreSSPs.values().forEach(storesToSSPs -> storeSSPs.addAll(storesToSSPs.remove(storeName)));
+      sharedSideInputSSPs.put(storeName, storeSSPs);
+    });
+
+    if (!sharedSideInputSSPs.isEmpty()) {
+      this.taskSideInputStoreSSPs.put(SHARED_SIDE_INPUTS_TASK_NAME, sharedSideInputSSPs);
+      LOG.info("Using container-shared side input stores {}", sharedSideInputSSPs.keySet());
+    }
+  }
+
   /**
    * For each standby task, we remove its changeLogSSPs from changelogSSP map and add it to the task's taskSideInputSSPs.
    * The task's sideInputManager will consume and restore these as well.
@@ -398,8 +428,8 @@ public class ContainerStorageManager {
 
     Map<TaskName, Map<String, StorageEngine>> taskStores = new HashMap<>();
 
-    // iterate over each task in the containerModel, and each store in storageEngineFactories
-    for (Map.Entry<TaskName, TaskModel> task : containerModel.getTasks().entrySet()) {
+    // iterate over each task in the containerModel (and the shared side inputs task), and each store in storageEngineFactories
+    for (Map.Entry<TaskName, TaskModel> task : getSideInputTaskModels(containerModel).entrySet()) {
       TaskName taskName = task.getKey();
       TaskModel taskModel = task.getValue();
 
@@ -409,6 +439,11 @@ public class ContainerStorageManager {
 
       for (String storeName : storageEngineFactories.keySet()) {
 
+        // container-shared side input stores are only created for the shared side inputs task
+        if (isSharedSideInputStore(storeName) != SHARED_SIDE_INPUTS_TASK_NAME.equals(taskName)) {
+          continue;
+        }
+
         StorageEngineFactory.StoreMode storeMode = this.taskSideInputStoreSSPs.get(taskName).containsKey(storeName) ?
             StorageEngineFactory.StoreMode.ReadWrite : StorageEngineFactory.StoreMode.BulkLoad;
 
@@ -425,6 +460,39 @@ public class ContainerStorageManager {
     return taskStores;
   }
 
+  /**
+   * Returns the tasks in the containerModel, along with the shared side inputs task if any container-shared side input
+   * stores are configured.
+   */
+  private Map<TaskName, TaskModel> getSideInputTaskModels(ContainerModel containerModel) {
+    Map<TaskName, TaskModel> taskModels = new HashMap<>(containerModel.getTasks());
+
+    if (this.taskSideInputStoreSSPs.containsKey(SHARED_SIDE_INPUTS_TASK_NAME)) {
+      Set<SystemStreamPartition> sharedSSPs = this.taskSideInputStoreSSPs.get(SHARED_SIDE_INPUTS_TASK_NAME).values().stream()
+          .flatMap(Set::stream)
+          .collect(Collectors.toSet());
+      taskModels.put(SHARED_SIDE_INPUTS_TASK_NAME,
+          new TaskModel(SHARED_SIDE_INPUTS_TASK_NAME, sharedSSPs, new Partition(0), TaskMode.Active));
+    }
+
+    return taskModels;
+  }
+
+  private boolean isSharedSideInputStore(String storeName) {
+    return this.taskSideInputStoreSSPs.getOrDefault(SHARED_SIDE_INPUTS_TASK_NAME, Collections.emptyMap())
+        .containsKey(storeName);
+  }
+
+  /**
+   * Wrap the container-shared side input stores, so that they can be handed out to all tasks as read-only stores.
+   */
+  private Map<String, StorageEngine> getSharedSideInputStores() {
+    Map<String, StorageEngine> sharedStores = new HashMap<>();
+    this.taskStores.getOrDefault(SHARED_SIDE_INPUTS_TASK_NAME, Collections.emptyMap()).forEach((storeName, store) ->
+        sharedStores.put(storeName, new ReadOnlySideInputStore<>(storeName, store)));
+    return sharedStores;
+  }
+
   /**
    * Recreate all non-sideInput persistent stores in ReadWrite mode.
    *
@@ -511,11 +579,7 @@ public class ContainerStorageManager {
           "StorageMsgSerde: No class defined for serde: " + storageMsgSerde.get());
     }
 
-    // if taskInstanceMetrics are specified use those for store metrics,
-    // otherwise (in case of StorageRecovery) use a blank MetricsRegistryMap
-    MetricsRegistry storeMetricsRegistry =
-        taskInstanceMetrics.get(taskName) != null ? taskInstanceMetrics.get(taskName).registry()
-            : new MetricsRegistryMap();
+    MetricsRegistry storeMetricsRegistry = getTaskMetricsRegistry(taskName, taskInstanceMetrics);
 
     return storageEngineFactories.get(storeName)
         .getStorageEngine(storeName, storeDirectory, keySerde, messageSerde, taskInstanceCollectors.get(taskName),
@@ -523,12 +587,25 @@ public class ContainerStorageManager {
   }
 
 
+  /**
+   * Returns the registry for the store and side input processor metrics of a task. If taskInstanceMetrics are specified
+   * use those, otherwise (in case of StorageRecovery) use a blank MetricsRegistryMap. The shared side inputs task
+   * reports to the container's registry.
+   */
+  private MetricsRegistry getTaskMetricsRegistry(TaskName taskName, Map<TaskName, TaskInstanceMetrics> taskInstanceMetrics) {
+    if (SHARED_SIDE_INPUTS_TASK_NAME.equals(taskName) && this.samzaContainerMetrics != null) {
+      return this.samzaContainerMetrics.registry();
+    }
+    return taskInstanceMetrics.get(taskName) != null ? taskInstanceMetrics.get(taskName).registry()
+        : new MetricsRegistryMap();
+  }
+
   // Create sideInput store processors, one per store per task
   private Map<TaskName, Map<String, SideInputsProcessor>> createSideInputProcessors(StorageConfig config,
       ContainerModel containerModel, Map<TaskName, TaskInstanceMetrics> taskInstanceMetrics) {
 
     Map<TaskName, Map<String, SideInputsProcessor>> sideInputStoresToProcessors = new HashMap<>();
-    containerModel.getTasks().forEach((taskName, taskModel) -> {
+    getSideInputTaskModels(containerModel).forEach((taskName, taskModel) -> {
       sideInputStoresToProcessors.put(taskName, new HashMap<>());
       TaskMode taskMode = taskModel.getTaskMode();
 
@@ -547,7 +624,7 @@ public class ContainerStorageManager {
           String sideInputsProcessorFactoryClassName = config.getSideInputsProcessorFactory(storeName).get();
           SideInputsProcessorFactory sideInputsProcessorFactory =
               ReflectionUtil.getObj(sideInputsProcessorFactoryClassName, SideInputsProcessorFactory.class);
-          sideInputsProcessor = sideInputsProcessorFactory.getSideInputsProcessor(config, taskInstanceMetrics.get(taskName).registry());
+          sideInputsProcessor = sideInputsProcessorFactory.getSideInputsProcessor(config, getTaskMetricsRegistry(taskName, taskInstanceMetrics));
           LOG.info("Using side-inputs-processor from factory: {} for store: {}, task: {}", config.getSideInputsProcessorFactory(storeName).get(), storeName, taskName);
 
         } else {
@@ -593,7 +670,7 @@ public class ContainerStorageManager {
     Map<SystemStreamPartition, TaskSideInputHandler> handlers = new HashMap<>();
 
     if (this.hasSideInputs) {
-      containerModel.getTasks().forEach((taskName, taskModel) -> {
+      getSideInputTaskModels(containerModel).forEach((taskName, taskModel) -> {
 
         Map<String, StorageEngine> sideInputStores = getSideInputStores(taskName);
         Map<String, Set<SystemStreamPartition>> sideInputStoresToSSPs = new HashMap<>();
@@ -620,7 +697,12 @@ public class ContainerStorageManager {
               clock);
 
           sideInputStoresToSSPs.values().stream().flatMap(Set::stream).forEach(ssp -> {
-            handlers.put(ssp, taskSideInputHandler);
+            TaskSideInputHandler existingHandler = handlers.put(ssp, taskSideInputHandler);
+            if (existingHandler != null && (SHARED_SIDE_INPUTS_TASK_NAME.equals(taskName)
+                || SHARED_SIDE_INPUTS_TASK_NAME.equals(existingHandler.getTaskName()))) {
+              throw new SamzaException("SideInput SystemStreamPartition " + ssp
+                  + " cannot be consumed by both container-shared and per-task side input stores");
+            }
           });
 
           LOG.info("Created TaskSideInputHandler for task {}, sideInputStores {} and loggedStoreBaseDirectory {}",
@@ -741,8 +823,14 @@ public class ContainerStorageManager {
           .collect(Collectors.toSet());
 
       if (!taskSSPs.isEmpty()) {
-        String sideInputSource = SIDEINPUTS_METRICS_PREFIX + this.taskInstanceMetrics.get(taskName).source();
-        TaskInstanceMetrics sideInputMetrics = new TaskInstanceMetrics(sideInputSource, this.taskInstanceMetrics.get(taskName).registry(), SIDEINPUTS_METRICS_PREFIX);
+        TaskInstanceMetrics sideInputMetrics;
+        if (SHARED_SIDE_INPUTS_TASK_NAME.equals(taskName)) {
+          String sideInputSource = SIDEINPUTS_METRICS_PREFIX + SHARED_SIDE_INPUTS_TASK_NAME.getTaskName();
+          sideInputMetrics = new TaskInstanceMetrics(sideInputSource, this.samzaContainerMetrics.registry(), SIDEINPUTS_METRICS_PREFIX);
+        } else {
+          String sideInputSource = SIDEINPUTS_METRICS_PREFIX + this.taskInstanceMetrics.get(taskName).source();
+          sideInputMetrics = new TaskInstanceMetrics(sideInputSource, this.taskInstanceMetrics.get(taskName).registry(), SIDEINPUTS_METRICS_PREFIX);
+        }
         sideInputTaskMetrics.put(taskName, sideInputMetrics);
 
         RunLoopTask sideInputTask = new SideInputTask(taskName, taskSSPs, taskSideInputHandlers.get(taskName), sideInputTaskMetrics.get(taskName));
@@ -761,8 +849,11 @@ public class ContainerStorageManager {
 
       // register startingOffset with the sysConsumer and register a metric for it
       sideInputSystemConsumers.register(ssp, startingOffset);
-      taskInstanceMetrics.get(this.sspSideInputHandlers.get(ssp).getTaskName()).addOffsetGauge(
-          ssp, ScalaJavaUtil.toScalaFunction(() -> this.sspSideInputHandlers.get(ssp).getLastProcessedOffset(ssp)));
+      TaskInstanceMetrics metrics = taskInstanceMetrics.get(this.sspSideInputHandlers.get(ssp).getTaskName());
+      if (metrics != null) { // null for the shared side inputs task
+        metrics.addOffsetGauge(
+            ssp, ScalaJavaUtil.toScalaFunction(() -> this.sspSideInputHandlers.get(ssp).getLastProcessedOffset(ssp)));
+      }
       sideInputTaskMetrics.get(this.sspSideInputHandlers.get(ssp).getTaskName()).addOffsetGauge(
           ssp, ScalaJavaUtil.toScalaFunction(() -> this.sspSideInputHandlers.get(ssp).getLastProcessedOffset(ssp)));
     }
@@ -844,21 +935,43 @@ public class ContainerStorageManager {
 
   /**
    * Get the {@link StorageEngine} instance with a given name for a given task.
+   * Container-shared side input stores are returned as a {@link ReadOnlySideInputStore}.
    * @param taskName the task name for which the storage engine is desired.
    * @param storeName the desired store's name.
    * @return the task store.
    */
   public Optional<StorageEngine> getStore(TaskName taskName, String storeName) {
+    if (this.sharedSideInputStores.containsKey(storeName)) {
+      return Optional.of(this.sharedSideInputStores.get(storeName));
+    }
     return Optional.ofNullable(this.taskStores.get(taskName).get(storeName));
   }
 
+  /**
+   * Flush the changelog messages sent by the stores of a given task. Stores may buffer their changelog messages until
+   * they are flushed, so this is called after flushing the stores and before reading the newest changelog offsets.
+   * @param taskName the task name, the changelog messages of whose stores are flushed.
+   */
+  public void flushChangelogs(TaskName taskName) {
+    TaskInstanceCollector taskInstanceCollector = this.taskInstanceCollectors.get(taskName);
+    if (taskInstanceCollector != null) {
+      taskInstanceCollector.flush();
+    }
+  }
+
   /**
    *  Get all {@link StorageEngine} instance used by a given task.
+   *  Container-shared side input stores are returned as a {@link ReadOnlySideInputStore}.
    * @param taskName  the task name, all stores for which are desired.
    * @return map of stores used by the given task, indexed by storename
    */
   public Map<String, StorageEngine> getAllStores(TaskName taskName) {
-    return this.taskStores.get(taskName);
+    if (this.sharedSideInputStores.isEmpty()) {
+      return this.taskStores.get(taskName);
+    }
+    Map<String, StorageEngine> allStores = new HashMap<>(this.taskStores.get(taskName));
+    allStores.putAll(this.sharedSideInputStores);
+    return allStores;
   }
 
   /**
@@ -53,6 +53,8 @@ class NonTransactionalStateTaskStorageManager(
   def flush(): Map[SystemStreamPartition, Option[String]] = {
     debug("Flushing stores.")
     containerStorageManager.getAllStores(taskName).asScala.values.foreach(_.flush)
+    // stores may send their changelog messages on flush, so they need to be flushed before reading the newest offsets
+    containerStorageManager.flushChangelogs(taskName)
     val newestChangelogSSPOffsets = getNewestChangelogSSPOffsets()
     writeChangelogOffsetFiles(newestChangelogSSPOffsets)
     newestChangelogSSPOffsets
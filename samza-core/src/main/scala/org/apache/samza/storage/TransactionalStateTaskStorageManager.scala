@@ -54,6 +54,8 @@ class TransactionalStateTaskStorageManager(
   def flush(): Map[SystemStreamPartition, Option[String]] = {
     debug("Flushing stores.")
     containerStorageManager.getAllStores(taskName).asScala.values.foreach(_.flush)
+    // stores may send their changelog messages on flush, so they need to be flushed before reading the newest offsets
+    containerStorageManager.flushChangelogs(taskName)
     getNewestChangelogSSPOffsets(taskName, storeChangelogs, partition, systemAdmins)
   }
 
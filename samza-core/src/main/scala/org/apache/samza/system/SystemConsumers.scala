@@ -35,6 +35,7 @@ import org.apache.samza.util.{Logging, TimerUtil}
 import org.apache.samza.system.chooser.MessageChooser
 import org.apache.samza.SamzaException
 import org.apache.samza.config.TaskConfig
+import org.apache.samza.container.EnvelopeLatencyTracker
 
 object SystemConsumers {
   val DEFAULT_NO_NEW_MESSAGES_TIMEOUT = 10
@@ -112,7 +113,13 @@ class SystemConsumers (
    * Clock can be used to inject a custom clock when mocking this class in
    * tests. The default implementation returns the current system clock time.
    */
-  val clock: () => Long = () => System.nanoTime()) extends Logging with TimerUtil {
+  val clock: () => Long = () => System.nanoTime(),
+
+  /**
+   * If not null, tracks the latency of incoming messages between the stages
+   * of the container.
+   */
+  latencyTracker: EnvelopeLatencyTracker = null) extends Logging with TimerUtil {
 
   /**
    * Mapping from the {@see SystemStreamPartition} to the registered offsets.
@@ -335,6 +342,10 @@ class SystemConsumers (
         if (numEnvelopes > 0) {
           unprocessedMessagesBySSP.put(systemStreamPartition, envelopes)
 
+          if (latencyTracker != null) {
+            envelopes.asScala.foreach(latencyTracker.onPolled)
+          }
+
           // Update the chooser if it needs a message for this SSP.
           if (emptySystemStreamPartitionsBySystem.get(systemStreamPartition.getSystem).remove(systemStreamPartition)) {
             tryUpdate(systemStreamPartition)
@@ -392,6 +403,9 @@ class SystemConsumers (
       }
 
       if (deserializedEnvelope.isDefined) {
+        if (latencyTracker != null) {
+          latencyTracker.onChooserUpdate(deserializedEnvelope.get)
+        }
         chooser.update(deserializedEnvelope.get)
         updated = true
       }
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.checkpoint;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.Partition;
+import org.apache.samza.SamzaException;
+import org.apache.samza.container.TaskName;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.system.SystemStreamPartition;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class TestCheckpointWriteBatcher {
+  private static final SystemStreamPartition SSP = new SystemStreamPartition("system", "stream", new Partition(0));
+
+  private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+  private final OffsetManagerMetrics metrics = new OffsetManagerMetrics(new MetricsRegistryMap());
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testSingleCheckpoint() throws Exception {
+    CheckpointManager checkpointManager = mock(CheckpointManager.class);
+    CheckpointWriteBatcher batcher = new CheckpointWriteBatcher(checkpointManager, 0, metrics);
+
+    TaskName taskName = new TaskName("task-0");
+    Checkpoint checkpoint = new Checkpoint(ImmutableMap.of(SSP, "1"));
+    batcher.write(taskName, checkpoint);
+
+    verify(checkpointManager).writeCheckpoints(ImmutableMap.of(taskName, checkpoint));
+    verify(checkpointManager, never()).writeCheckpoint(any(), any());
+    assertEquals(1, metrics.checkpointBatches().getCount());
+  }
+
+  @Test
+  public void testConcurrentCheckpointsAreBatched() throws Exception {
+    CheckpointManager checkpointManager = mock(CheckpointManager.class);
+    CountDownLatch firstWriteStarted = new CountDownLatch(1);
+    CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+    List<Map<TaskName, Checkpoint>> batches = new ArrayList<>();
+    doAnswer(invocation -> {
+        batches.add(new HashMap<>((Map<TaskName, Checkpoint>) invocation.getArguments()[0]));
+        firstWriteStarted.countDown();
+        releaseFirstWrite.await();
+        return null;
+      }).when(checkpointManager).writeCheckpoints(any());
+    CheckpointWriteBatcher batcher = new CheckpointWriteBatcher(checkpointManager, 0, metrics);
+
+    Future<?> firstWrite = write(batcher, "task-0");
+    assertTrue(firstWriteStarted.await(10, TimeUnit.SECONDS));
+    // these tasks commit while the first batch is written, so they are written together in the next batch
+    Future<?> secondWrite = write(batcher, "task-1");
+    Future<?> thirdWrite = write(batcher, "task-2");
+    while (batcher.getPendingWriteCount() < 2) {
+      Thread.sleep(1);
+    }
+    releaseFirstWrite.countDown();
+    firstWrite.get(10, TimeUnit.SECONDS);
+    secondWrite.get(10, TimeUnit.SECONDS);
+    thirdWrite.get(10, TimeUnit.SECONDS);
+
+    assertEquals(2, batches.size());
+    assertEquals(1, batches.get(0).size());
+    assertEquals(2, batches.get(1).size());
+    assertEquals(2, metrics.checkpointBatches().getCount());
+    assertEquals(2, metrics.checkpointBatchSize().getValue());
+  }
+
+  @Test
+  public void testFailedWriteIsReported() throws Exception {
+    CheckpointManager checkpointManager = mock(CheckpointManager.class);
+    doThrow(new RuntimeException("failed")).when(checkpointManager).writeCheckpoints(any());
+    CheckpointWriteBatcher batcher = new CheckpointWriteBatcher(checkpointManager, 0, metrics);
+
+    try {
+      batcher.write(new TaskName("task-0"), new Checkpoint(ImmutableMap.of(SSP, "1")));
+      fail("Expected the failed write to be reported");
+    } catch (SamzaException e) {
+      assertEquals("failed", e.getCause().getMessage());
+    }
+    assertEquals(0, metrics.checkpointBatches().getCount());
+  }
+
+  private Future<?> write(CheckpointWriteBatcher batcher, String taskName) {
+    return executorService.submit(() -> {
+        batcher.write(new TaskName(taskName), new Checkpoint(ImmutableMap.of(SSP, taskName)));
+        return null;
+      });
+  }
+}
@@ -416,6 +416,16 @@ public class TestJobConfig {
     assertEquals(0, jobConfig.getThreadPoolSize());
   }
 
+  @Test
+  public void testGetThreadPoolVirtualEnabled() {
+    JobConfig jobConfig = new JobConfig(new MapConfig(
+        ImmutableMap.of(JobConfig.JOB_CONTAINER_THREAD_POOL_VIRTUAL_ENABLED, "true")));
+    assertTrue(jobConfig.getThreadPoolVirtualEnabled());
+
+    jobConfig = new JobConfig(new MapConfig());
+    assertFalse(jobConfig.getThreadPoolVirtualEnabled());
+  }
+
   @Test
   public void testGetDebounceTimeMs() {
     JobConfig jobConfig =
@@ -432,6 +442,42 @@ public class TestJobConfig {
     assertEquals(JobConfig.DEFAULT_DEBOUNCE_TIME_MS, jobConfig.getDebounceTimeMs());
   }
 
+  @Test
+  public void testGetIntermediateStreamWatermarkCoalescing() {
+    JobConfig jobConfig = new JobConfig(new MapConfig(
+        ImmutableMap.of(JobConfig.JOB_INTERMEDIATE_STREAM_WATERMARK_MIN_INTERVAL_MS, "1000",
+            JobConfig.JOB_INTERMEDIATE_STREAM_WATERMARK_MIN_ADVANCE_MS, "100")));
+    assertEquals(1000, jobConfig.getIntermediateStreamWatermarkMinIntervalMs());
+    assertEquals(100, jobConfig.getIntermediateStreamWatermarkMinAdvanceMs());
+
+    jobConfig = new JobConfig(new MapConfig());
+    assertEquals(JobConfig.DEFAULT_INTERMEDIATE_STREAM_WATERMARK_MIN_INTERVAL_MS,
+        jobConfig.getIntermediateStreamWatermarkMinIntervalMs());
+    assertEquals(JobConfig.DEFAULT_INTERMEDIATE_STREAM_WATERMARK_MIN_ADVANCE_MS,
+        jobConfig.getIntermediateStreamWatermarkMinAdvanceMs());
+  }
+
+  @Test
+  public void testGetIntermediateStreamCombiner() {
+    JobConfig jobConfig = new JobConfig(new MapConfig(
+        ImmutableMap.of(JobConfig.JOB_INTERMEDIATE_STREAM_COMBINER_MAX_KEYS, "100",
+            JobConfig.JOB_INTERMEDIATE_STREAM_COMBINER_FLUSH_INTERVAL_MS, "500")));
+    assertEquals(100, jobConfig.getIntermediateStreamCombinerMaxKeys());
+    assertEquals(500, jobConfig.getIntermediateStreamCombinerFlushIntervalMs());
+
+    jobConfig = new JobConfig(new MapConfig());
+    assertEquals(JobConfig.DEFAULT_INTERMEDIATE_STREAM_COMBINER_MAX_KEYS,
+        jobConfig.getIntermediateStreamCombinerMaxKeys());
+    assertEquals(JobConfig.DEFAULT_INTERMEDIATE_STREAM_COMBINER_FLUSH_INTERVAL_MS,
+        jobConfig.getIntermediateStreamCombinerFlushIntervalMs());
+  }
+
+  @Test(expected = ConfigException.class)
+  public void testGetIntermediateStreamCombinerMaxKeysInvalid() {
+    new JobConfig(new MapConfig(ImmutableMap.of(JobConfig.JOB_INTERMEDIATE_STREAM_COMBINER_MAX_KEYS, "0")))
+        .getIntermediateStreamCombinerMaxKeys();
+  }
+
   @Test
   public void testGetNonLoggedStorePath() {
     String nonLoggedStorePath = "/path/to/non/logged/store";
@@ -113,4 +113,56 @@ public class TestMetricsConfig {
 
     assertFalse(new MetricsConfig(new MapConfig()).getMetricsTimerDebugEnabled());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testGetMetricsTimerReservoir() {
+    Config config = new MapConfig(ImmutableMap.of(MetricsConfig.METRICS_TIMER_RESERVOIR, "histogram"));
+    assertEquals(MetricsConfig.METRICS_TIMER_RESERVOIR_HISTOGRAM, new MetricsConfig(config).getMetricsTimerReservoir());
+
+    assertEquals(MetricsConfig.METRICS_TIMER_RESERVOIR_SLIDING_WINDOW,
+        new MetricsConfig(new MapConfig()).getMetricsTimerReservoir());
+  }
+
+  @Test(expected = ConfigException.class)
+  public void testGetMetricsTimerReservoirInvalid() {
+    Config config = new MapConfig(ImmutableMap.of(MetricsConfig.METRICS_TIMER_RESERVOIR, "uniform"));
+    new MetricsConfig(config).getMetricsTimerReservoir();
+  }
+
+  @Test
+  public void testGetMetricsStripedEnabled() {
+    Config config = new MapConfig(ImmutableMap.of(MetricsConfig.METRICS_STRIPED_ENABLED, "true"));
+    assertTrue(new MetricsConfig(config).getMetricsStripedEnabled());
+
+    assertFalse(new MetricsConfig(new MapConfig()).getMetricsStripedEnabled());
+  }
+
+  @Test
+  public void testGetMetricsTimerSamplingRate() {
+    Config config = new MapConfig(ImmutableMap.of(MetricsConfig.METRICS_TIMER_SAMPLING_RATE, "0.5",
+        String.format(MetricsConfig.METRICS_TIMER_SAMPLING_RATE_FOR_TIMER, "process-ns"), "0.1"));
+    assertEquals(0.1, new MetricsConfig(config).getMetricsTimerSamplingRate("process-ns"), 0.0);
+    assertEquals(0.5, new MetricsConfig(config).getMetricsTimerSamplingRate("commit-ns"), 0.0);
+
+    assertEquals(1.0, new MetricsConfig(new MapConfig()).getMetricsTimerSamplingRate("process-ns"), 0.0);
+  }
+
+  @Test
+  public void testGetMetricsReporterTimerPercentiles() {
+    String metricsReporterName = "metricReporterName";
+    Config config = new MapConfig(ImmutableMap.of(
+        String.format(MetricsConfig.METRICS_REPORTER_TIMER_PERCENTILES, metricsReporterName), "50, 99,99.9"));
+    assertEquals(ImmutableList.of(50.0, 99.0, 99.9),
+        new MetricsConfig(config).getMetricsReporterTimerPercentiles(metricsReporterName));
+
+    assertTrue(new MetricsConfig(new MapConfig()).getMetricsReporterTimerPercentiles("someName").isEmpty());
+  }
+
+  @Test(expected = ConfigException.class)
+  public void testGetMetricsReporterTimerPercentilesOutOfRange() {
+    String metricsReporterName = "metricReporterName";
+    Config config = new MapConfig(ImmutableMap.of(
+        String.format(MetricsConfig.METRICS_REPORTER_TIMER_PERCENTILES, metricsReporterName), "50,101"));
+    new MetricsConfig(config).getMetricsReporterTimerPercentiles(metricsReporterName);
+  }
+}
@@ -244,6 +244,17 @@ public class TestStorageConfig {
         storageConfig.getSideInputsProcessorSerializedInstance(STORE_NAME0));
   }
 
+  @Test
+  public void testGetSideInputsContainerShared() {
+    // empty config, so not shared
+    assertFalse(new StorageConfig(new MapConfig()).getSideInputsContainerShared(STORE_NAME0));
+
+    StorageConfig storageConfig = new StorageConfig(new MapConfig(
+        ImmutableMap.of(String.format(StorageConfig.SIDE_INPUTS_CONTAINER_SHARED, STORE_NAME0), "true")));
+    assertTrue(storageConfig.getSideInputsContainerShared(STORE_NAME0));
+    assertFalse(storageConfig.getSideInputsContainerShared(STORE_NAME1));
+  }
+
   @Test
   public void testGetChangeLogDeleteRetentionInMs() {
     // empty config, return default sampling ratio
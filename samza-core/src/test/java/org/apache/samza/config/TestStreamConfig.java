@@ -163,6 +163,23 @@ public class TestStreamConfig {
     doTestSamzaPropertyInvalidConfig(StreamConfig::getPriority);
   }
 
+  @Test
+  public void testGetChooserWeight() {
+    doTestSamzaProperty(StreamConfig.CHOOSER_WEIGHT, "2.5",
+      (config, systemStream) -> assertEquals(2.5, config.getChooserWeight(systemStream), 0.0));
+    doTestSamzaPropertyDoesNotExist(StreamConfig.CHOOSER_WEIGHT,
+      (config, systemStream) -> assertEquals(1.0, config.getChooserWeight(systemStream), 0.0));
+    doTestSamzaProperty(StreamConfig.CHOOSER_WEIGHT, "0", (config, systemStream) -> {
+        try {
+          config.getChooserWeight(systemStream);
+          fail("Expected an exception for a weight which is not positive");
+        } catch (ConfigException e) {
+          // expected to reach here
+        }
+      });
+    doTestSamzaPropertyInvalidConfig(StreamConfig::getChooserWeight);
+  }
+
   @Test
   public void testGetSerdeStreams() {
     assertEquals(Collections.emptySet(),
@@ -117,6 +117,15 @@ public class TestTaskConfig {
     assertEquals(RoundRobinChooserFactory.class.getName(), new TaskConfig(new MapConfig()).getMessageChooserClass());
   }
 
+  @Test
+  public void testGetChooserSkipBusyTasks() {
+    Config config = new MapConfig(ImmutableMap.of(TaskConfig.CHOOSER_SKIP_BUSY_TASKS, "true"));
+    assertTrue(new TaskConfig(config).getChooserSkipBusyTasks());
+
+    // config not specified
+    assertFalse(new TaskConfig(new MapConfig()).getChooserSkipBusyTasks());
+  }
+
   @Test
   public void testGetDropDeserializationErrors() {
     Config config = new MapConfig(ImmutableMap.of(TaskConfig.DROP_DESERIALIZATION_ERRORS, "true"));
@@ -192,6 +201,15 @@ public class TestTaskConfig {
     assertEquals(TaskConfig.DEFAULT_MAX_CONCURRENCY, new TaskConfig(new MapConfig()).getMaxConcurrency());
   }
 
+  @Test
+  public void testGetKeyedConcurrencyEnabled() {
+    Config config = new MapConfig(ImmutableMap.of(TaskConfig.KEYED_CONCURRENCY_ENABLED, "true"));
+    assertTrue(new TaskConfig(config).getKeyedConcurrencyEnabled());
+
+    // config not specified
+    assertFalse(new TaskConfig(new MapConfig()).getKeyedConcurrencyEnabled());
+  }
+
   @Test
   public void testGetCallbackTimeoutMs() {
     Config config = new MapConfig(ImmutableMap.of(TaskConfig.CALLBACK_TIMEOUT_MS, "10"));
@@ -225,6 +243,34 @@ public class TestTaskConfig {
     assertEquals(TaskConfig.DEFAULT_MAX_IDLE_MS, new TaskConfig(new MapConfig()).getMaxIdleMs());
   }
 
+  @Test
+  public void testGetStallThresholdMs() {
+    Config config = new MapConfig(ImmutableMap.of(TaskConfig.STALL_THRESHOLD_MS, "30000"));
+    assertEquals(30000, new TaskConfig(config).getStallThresholdMs());
+
+    // config not specified
+    assertEquals(TaskConfig.DEFAULT_STALL_THRESHOLD_MS, new TaskConfig(new MapConfig()).getStallThresholdMs());
+  }
+
+  @Test
+  public void testGetCheckpointBatchMaxWaitMs() {
+    Config config = new MapConfig(ImmutableMap.of(TaskConfig.CHECKPOINT_BATCH_MAX_WAIT_MS, "10"));
+    assertEquals(10, new TaskConfig(config).getCheckpointBatchMaxWaitMs());
+
+    // config not specified
+    assertEquals(TaskConfig.DEFAULT_CHECKPOINT_BATCH_MAX_WAIT_MS,
+        new TaskConfig(new MapConfig()).getCheckpointBatchMaxWaitMs());
+  }
+
+  @Test
+  public void testGetCheckpointSkipUnchanged() {
+    Config config = new MapConfig(ImmutableMap.of(TaskConfig.CHECKPOINT_SKIP_UNCHANGED, "true"));
+    assertTrue(new TaskConfig(config).getCheckpointSkipUnchanged());
+
+    // config not specified
+    assertFalse(new TaskConfig(new MapConfig()).getCheckpointSkipUnchanged());
+  }
+
   @Test
   public void testGetCheckpointManager() {
     Config config =
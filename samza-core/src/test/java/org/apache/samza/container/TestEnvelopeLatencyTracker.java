@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.container;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.Partition;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.metrics.Timer;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemStreamPartition;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestEnvelopeLatencyTracker {
+  private static final SystemStreamPartition SSP = new SystemStreamPartition("system", "stream", new Partition(1));
+  private static final TaskName TASK_NAME = new TaskName("task");
+
+  private long nowMs = 1000L;
+  private long nowNs = 1L;
+
+  @Test
+  public void testQueueingDelayAndEventTimeLag() {
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    EnvelopeLatencyTracker tracker = newTracker(registry, 0.0);
+
+    nowMs = 1500L;
+    tracker.onProcessStart(new IncomingMessageEnvelope(SSP, "0", null, null, 0, 900L, 1200L));
+    tracker.onProcessStart(new IncomingMessageEnvelope(SSP, "1", null, null, 0, 0L, 1400L));
+
+    Timer queueingDelay = (Timer) registry.getGroup(EnvelopeLatencyTracker.GROUP).get("system-stream-1-queueing-delay-ms");
+    Timer eventTimeLag = (Timer) registry.getGroup(EnvelopeLatencyTracker.GROUP).get("system-stream-1-event-time-lag-ms");
+    assertEquals(2, queueingDelay.getSnapshot().getSize());
+    assertEquals(400, queueingDelay.getSnapshot().getSum(), 0);
+    // messages without event time are not recorded
+    assertEquals(1, eventTimeLag.getSnapshot().getSize());
+    assertEquals(600, eventTimeLag.getSnapshot().getSum(), 0);
+  }
+
+  @Test
+  public void testSampledTraceCompletes() {
+    EnvelopeLatencyTracker tracker = newTracker(new MetricsRegistryMap(), 1.0);
+    IncomingMessageEnvelope envelope = new IncomingMessageEnvelope(SSP, "5", null, null, 0, 900L, 1000L);
+
+    tracker.onPolled(envelope);
+    assertEquals(1, tracker.getTracesInFlight());
+
+    nowNs += 1000;
+    // the deserialized envelope is a different instance for the same message
+    IncomingMessageEnvelope deserialized = new IncomingMessageEnvelope(SSP, "5", "key", "message", 0, 900L, 1000L);
+    tracker.onChooserUpdate(deserialized);
+    tracker.onChosen(deserialized);
+    tracker.onProcessStart(deserialized);
+    tracker.onProcessComplete(SSP, "5", TASK_NAME, true);
+
+    assertEquals(0, tracker.getTracesInFlight());
+  }
+
+  @Test
+  public void testOperatorStagesOfSampledTrace() {
+    EnvelopeLatencyTracker tracker = newTracker(new MetricsRegistryMap(), 1.0);
+    IncomingMessageEnvelope envelope = new IncomingMessageEnvelope(SSP, "5", "key", "message", 0, 900L, 1000L);
+    tracker.onPolled(envelope);
+    long processStartNs = nowNs;
+    tracker.onProcessStart(envelope);
+
+    EnvelopeLatencyTracker.OperatorStages operatorStages = tracker.getOperatorStages(envelope);
+    nowNs += 2000;
+    operatorStages.onOperatorComplete("map");
+    nowNs += 3000;
+    operatorStages.onOperatorComplete("sink");
+    assertEquals("[map:2,sink:5]", operatorStages.format(processStartNs));
+
+    // messages which are not traced have no operator stages
+    assertNull(tracker.getOperatorStages(new IncomingMessageEnvelope(SSP, "6", "key", "message")));
+  }
+
+  @Test
+  public void testMessagesAreNotTracedWithoutSampling() {
+    EnvelopeLatencyTracker tracker = newTracker(new MetricsRegistryMap(), 0.0);
+    tracker.onPolled(new IncomingMessageEnvelope(SSP, "5", null, null));
+    assertEquals(0, tracker.getTracesInFlight());
+
+    // control messages without an offset are never traced
+    tracker = newTracker(new MetricsRegistryMap(), 1.0);
+    tracker.onPolled(IncomingMessageEnvelope.buildWatermarkEnvelope(SSP, 1L));
+    assertEquals(0, tracker.getTracesInFlight());
+  }
+
+  @Test
+  public void testIncompleteTracesAreEvicted() {
+    EnvelopeLatencyTracker tracker = newTracker(new MetricsRegistryMap(), 1.0);
+    // e.g., a message which was skipped since its SSP hadn't caught up to its starting offset
+    tracker.onPolled(new IncomingMessageEnvelope(SSP, "5", null, null));
+    assertEquals(1, tracker.getTracesInFlight());
+
+    nowNs += TimeUnit.MILLISECONDS.toNanos(EnvelopeLatencyTracker.MAX_TRACE_AGE_MS);
+    assertEquals(0, tracker.getTracesInFlight());
+  }
+
+  @Test
+  public void testTracingContinuesWhenMaxTracesInFlightIsReached() {
+    EnvelopeLatencyTracker tracker = newTracker(new MetricsRegistryMap(), 1.0);
+    int messages = EnvelopeLatencyTracker.MAX_TRACES_IN_FLIGHT + 100;
+    for (int offset = 0; offset < messages; offset++) {
+      tracker.onPolled(new IncomingMessageEnvelope(SSP, Integer.toString(offset), null, null));
+    }
+    long tracesInFlight = tracker.getTracesInFlight();
+    assertTrue(tracesInFlight <= EnvelopeLatencyTracker.MAX_TRACES_IN_FLIGHT);
+
+    // the last message is still traced
+    tracker.onProcessComplete(SSP, Integer.toString(messages - 1), TASK_NAME, true);
+    assertEquals(tracesInFlight - 1, tracker.getTracesInFlight());
+  }
+
+  @Test
+  public void testClearDropsTracesInFlight() {
+    EnvelopeLatencyTracker tracker = newTracker(new MetricsRegistryMap(), 1.0);
+    tracker.onPolled(new IncomingMessageEnvelope(SSP, "5", null, null));
+    tracker.onPolled(new IncomingMessageEnvelope(SSP, "6", null, null));
+
+    tracker.clear();
+    assertEquals(0, tracker.getTracesInFlight());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSamplingRate() {
+    newTracker(new MetricsRegistryMap(), 1.5);
+  }
+
+  private EnvelopeLatencyTracker newTracker(MetricsRegistryMap registry, double traceSamplingRate) {
+    return new EnvelopeLatencyTracker(registry, traceSamplingRate, () -> nowMs, () -> nowNs);
+  }
+}
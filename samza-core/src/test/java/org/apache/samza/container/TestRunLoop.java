@@ -26,11 +26,15 @@ import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.samza.Partition;
 import org.apache.samza.SamzaException;
 import org.apache.samza.checkpoint.OffsetManager;
 import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.metrics.Timer;
 import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.SystemConsumers;
 import org.apache.samza.system.SystemStreamPartition;
@@ -44,6 +48,7 @@ import org.junit.rules.Timeout;
 import org.mockito.InOrder;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Mockito.*;
 
 
@@ -164,6 +169,129 @@ public class TestRunLoop {
     assertEquals(2L, containerMetrics.processes().getCount());
   }
 
+  @Test
+  public void testSkipBusyTasksDefersChooserUpdates() {
+    int maxMessagesInFlight = 1;
+    SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
+    AtomicBoolean ssp0Updated = new AtomicBoolean(false);
+    doAnswer(invocation -> {
+      ssp0Updated.set(true);
+      return null;
+    }).when(consumerMultiplexer).tryUpdate(ssp0);
+    // the next envelope of ssp0 is only available once the chooser has been updated for ssp0
+    AtomicInteger chooseCount = new AtomicInteger(0);
+    AtomicBoolean envelope01Chosen = new AtomicBoolean(false);
+    when(consumerMultiplexer.choose(false)).thenAnswer(invocation -> {
+      int count = chooseCount.getAndIncrement();
+      if (count == 0) {
+        return envelope00;
+      } else if (count == 1) {
+        return envelope11;
+      } else if (ssp0Updated.get() && !envelope01Chosen.getAndSet(true)) {
+        return envelope01;
+      }
+      return null;
+    });
+
+    AtomicReference<TaskCallback> task0Callback = new AtomicReference<>();
+    RunLoopTask task0 = getMockRunLoopTask(taskName0, ssp0);
+    doAnswer(invocation -> {
+      TaskCallbackFactory callbackFactory = invocation.getArgumentAt(2, TaskCallbackFactory.class);
+      task0Callback.set(callbackFactory.createCallback());
+      return null;
+    }).when(task0).process(eq(envelope00), any(), any());
+    doAnswer(invocation -> {
+      ReadableCoordinator coordinator = invocation.getArgumentAt(1, ReadableCoordinator.class);
+      TaskCallbackFactory callbackFactory = invocation.getArgumentAt(2, TaskCallbackFactory.class);
+      TaskCallback callback = callbackFactory.createCallback();
+      coordinator.shutdown(TaskCoordinator.RequestScope.CURRENT_TASK);
+      callback.complete();
+      return null;
+    }).when(task0).process(eq(envelope01), any(), any());
+
+    RunLoopTask task1 = getMockRunLoopTask(taskName1, ssp1);
+    doAnswer(invocation -> {
+      // task 0 is still processing envelope00, so ssp0 is held back from the chooser
+      assertFalse(ssp0Updated.get());
+      assertEquals(1L, task0.metrics().chooserDeferredUpdates().getCount());
+
+      ReadableCoordinator coordinator = invocation.getArgumentAt(1, ReadableCoordinator.class);
+      TaskCallbackFactory callbackFactory = invocation.getArgumentAt(2, TaskCallbackFactory.class);
+      TaskCallback callback = callbackFactory.createCallback();
+      task0Callback.get().complete();
+      coordinator.shutdown(TaskCoordinator.RequestScope.CURRENT_TASK);
+      callback.complete();
+      return null;
+    }).when(task1).process(eq(envelope11), any(), any());
+
+    Map<TaskName, RunLoopTask> tasks = new HashMap<>();
+    tasks.put(taskName0, task0);
+    tasks.put(taskName1, task1);
+
+    RunLoop runLoop = new RunLoop(tasks, executor, consumerMultiplexer, maxMessagesInFlight, windowMs, commitMs,
+        callbackTimeoutMs, maxThrottlingDelayMs, maxIdleMs, containerMetrics, () -> 0L, false, null, null, true);
+    runLoop.run();
+
+    InOrder inOrder = inOrder(task0);
+    inOrder.verify(task0).process(eq(envelope00), any(), any());
+    inOrder.verify(task0).process(eq(envelope01), any(), any());
+    verify(task1).process(eq(envelope11), any(), any());
+    assertEquals(0L, task0.metrics().envelopesChosenWhileBusy().getCount());
+  }
+
+  @Test
+  public void testSkipBusyTasksDoesNotDeferChooserUpdatesOfReadyTasks() {
+    int maxMessagesInFlight = 1;
+    SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
+    when(consumerMultiplexer.choose(false)).thenReturn(envelope00).thenReturn(envelope01).thenReturn(null);
+
+    // the task completes each envelope before process returns, so it's never at max concurrency after a dispatch
+    RunLoopTask task0 = getMockRunLoopTask(taskName0, ssp0);
+    doAnswer(invocation -> {
+      TaskCallbackFactory callbackFactory = invocation.getArgumentAt(2, TaskCallbackFactory.class);
+      callbackFactory.createCallback().complete();
+      return null;
+    }).when(task0).process(eq(envelope00), any(), any());
+    doAnswer(invocation -> {
+      ReadableCoordinator coordinator = invocation.getArgumentAt(1, ReadableCoordinator.class);
+      TaskCallbackFactory callbackFactory = invocation.getArgumentAt(2, TaskCallbackFactory.class);
+      TaskCallback callback = callbackFactory.createCallback();
+      coordinator.shutdown(TaskCoordinator.RequestScope.CURRENT_TASK);
+      callback.complete();
+      return null;
+    }).when(task0).process(eq(envelope01), any(), any());
+
+    Map<TaskName, RunLoopTask> tasks = ImmutableMap.of(taskName0, task0);
+    RunLoop runLoop = new RunLoop(tasks, executor, consumerMultiplexer, maxMessagesInFlight, windowMs, commitMs,
+        callbackTimeoutMs, maxThrottlingDelayMs, maxIdleMs, containerMetrics, () -> 0L, false, null, null, true);
+    runLoop.run();
+
+    verify(task0).process(eq(envelope00), any(), any());
+    verify(task0).process(eq(envelope01), any(), any());
+    verify(consumerMultiplexer, times(2)).tryUpdate(ssp0);
+    assertEquals(0L, task0.metrics().chooserDeferredUpdates().getCount());
+  }
+
+  @Test
+  public void testWatchdogCompletesProcessWithoutCallback() {
+    SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
+    when(consumerMultiplexer.choose(false)).thenReturn(envelope00).thenReturn(ssp0EndOfStream).thenReturn(null);
+
+    // the task skips the envelope without creating a callback, e.g., since its ssp has not caught up yet
+    RunLoopTask task0 = getMockRunLoopTask(taskName0, ssp0);
+    AtomicLong nowNs = new AtomicLong();
+    RunLoopWatchdog watchdog = new RunLoopWatchdog(60000, null, nowNs::incrementAndGet);
+
+    Map<TaskName, RunLoopTask> tasks = ImmutableMap.of(taskName0, task0);
+    RunLoop runLoop = new RunLoop(tasks, executor, consumerMultiplexer, 1, windowMs, commitMs,
+        callbackTimeoutMs, maxThrottlingDelayMs, maxIdleMs, containerMetrics, () -> 0L, false, null, watchdog, false);
+    runLoop.run();
+
+    verify(task0).process(eq(envelope00), any(), any());
+    Timer processOpNs = (Timer) task0.metrics().registry().getGroup(RunLoopWatchdog.GROUP).get("process-op-ns");
+    assertEquals(1L, processOpNs.getCount());
+  }
+
   @Test
   public void testWindow() {
     SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
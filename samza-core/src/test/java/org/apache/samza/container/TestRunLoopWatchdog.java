@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.container;
+
+import java.util.concurrent.CountDownLatch;
+import org.apache.samza.diagnostics.DiagnosticsExceptionEvent;
+import org.apache.samza.diagnostics.DiagnosticsManager;
+import org.apache.samza.metrics.Counter;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.metrics.Timer;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+
+public class TestRunLoopWatchdog {
+  private static final TaskName TASK_NAME = new TaskName("task");
+
+  private volatile long nowNs = 0L;
+
+  @Test
+  public void testOpDurationIsRecorded() {
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    RunLoopWatchdog watchdog = new RunLoopWatchdog(1000, null, () -> nowNs);
+    watchdog.registerTask(TASK_NAME, registry);
+
+    RunLoopWatchdog.InFlightOp op = watchdog.onOpStart(TASK_NAME, RunLoopWatchdog.Op.COMMIT);
+    nowNs += 5000;
+    watchdog.onOpComplete(op);
+    // completing an operation twice records it once
+    watchdog.onOpComplete(op);
+
+    Timer commitOpNs = (Timer) registry.getGroup(RunLoopWatchdog.GROUP).get("commit-op-ns");
+    assertEquals(1, commitOpNs.getSnapshot().getSize());
+    assertEquals(5000, commitOpNs.getSnapshot().getSum(), 0);
+    Timer processOpNs = (Timer) registry.getGroup(RunLoopWatchdog.GROUP).get("process-op-ns");
+    assertEquals(0, processOpNs.getSnapshot().getSize());
+  }
+
+  @Test
+  public void testStallReportsStackOfThread() throws InterruptedException {
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    DiagnosticsManager diagnosticsManager = mock(DiagnosticsManager.class);
+    RunLoopWatchdog watchdog = new RunLoopWatchdog(1000, diagnosticsManager, () -> nowNs);
+    watchdog.registerTask(TASK_NAME, registry);
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread windowThread = new Thread(() -> {
+      RunLoopWatchdog.InFlightOp op = watchdog.onOpStart(TASK_NAME, RunLoopWatchdog.Op.WINDOW);
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      watchdog.onOpComplete(op);
+    }, "blocked-window");
+    windowThread.start();
+    started.await();
+
+    nowNs += 999_999_999L;
+    assertEquals(0, watchdog.checkForStalls());
+    nowNs += 1L;
+    assertEquals(1, watchdog.checkForStalls());
+    // a stalled operation is reported once
+    assertEquals(0, watchdog.checkForStalls());
+
+    ArgumentCaptor<DiagnosticsExceptionEvent> captor = ArgumentCaptor.forClass(DiagnosticsExceptionEvent.class);
+    verify(diagnosticsManager).addExceptionEvent(captor.capture());
+    DiagnosticsExceptionEvent event = captor.getValue();
+    assertEquals(RunLoopWatchdog.StallException.class.getName(), event.getExceptionType());
+    assertEquals("window", event.getMdcMap().get(RunLoopWatchdog.MDC_OPERATION));
+    assertEquals("task", event.getMdcMap().get(RunLoopWatchdog.MDC_TASK_NAME));
+    assertEquals("blocked-window", event.getMdcMap().get(RunLoopWatchdog.MDC_THREAD_NAME));
+    assertTrue(event.getCompactExceptionStackTrace().contains("CountDownLatch.await"));
+    assertEquals(1, ((Counter) registry.getGroup(RunLoopWatchdog.GROUP).get("op-stalls")).getCount());
+
+    release.countDown();
+    windowThread.join();
+    Timer windowOpNs = (Timer) registry.getGroup(RunLoopWatchdog.GROUP).get("window-op-ns");
+    assertEquals(1, windowOpNs.getSnapshot().getSize());
+  }
+
+  @Test
+  public void testStallOfProcessWaitingForCallback() {
+    DiagnosticsManager diagnosticsManager = mock(DiagnosticsManager.class);
+    RunLoopWatchdog watchdog = new RunLoopWatchdog(1000, diagnosticsManager, () -> nowNs);
+    watchdog.registerTask(TASK_NAME, new MetricsRegistryMap());
+
+    RunLoopWatchdog.InFlightOp op = watchdog.onOpStart(TASK_NAME, RunLoopWatchdog.Op.PROCESS);
+    op.awaitCallback();
+    nowNs += 2_000_000_000L;
+    assertEquals(1, watchdog.checkForStalls());
+
+    ArgumentCaptor<DiagnosticsExceptionEvent> captor = ArgumentCaptor.forClass(DiagnosticsExceptionEvent.class);
+    verify(diagnosticsManager).addExceptionEvent(captor.capture());
+    assertTrue(captor.getValue().getExceptionMessage().contains("waiting for its callback"));
+    assertFalse(captor.getValue().getMdcMap().containsKey(RunLoopWatchdog.MDC_THREAD_NAME));
+  }
+
+  @Test
+  public void testCompletedOpIsNotReported() {
+    DiagnosticsManager diagnosticsManager = mock(DiagnosticsManager.class);
+    RunLoopWatchdog watchdog = new RunLoopWatchdog(1000, diagnosticsManager, () -> nowNs);
+
+    RunLoopWatchdog.InFlightOp op = watchdog.onOpStart(TASK_NAME, RunLoopWatchdog.Op.SCHEDULER);
+    nowNs += 2_000_000_000L;
+    watchdog.onOpComplete(op);
+    assertEquals(0, watchdog.checkForStalls());
+    verify(diagnosticsManager, never()).addExceptionEvent(any());
+  }
+}
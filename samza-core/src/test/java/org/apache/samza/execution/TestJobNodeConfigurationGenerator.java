@@ -105,6 +105,26 @@ public class TestJobNodeConfigurationGenerator extends ExecutionPlannerTestBase
         !deserializedSerdes.containsKey(partitionByMsgSerde));
   }
 
+  @Test
+  public void testConfigureWatermarkFlushIntervalForRepartitionApplication() {
+    Map<String, String> configs = new HashMap<>(mockConfig);
+    configs.put(JobConfig.JOB_INTERMEDIATE_STREAM_WATERMARK_MIN_INTERVAL_MS, "500");
+    mockConfig = spy(new MapConfig(configs));
+    configureJobNode(new StreamApplicationDescriptorImpl(getRepartitionOnlyStreamApplication(), mockConfig));
+
+    JobNodeConfigurationGenerator configureGenerator = new JobNodeConfigurationGenerator();
+    JobConfig jobConfig = configureGenerator.generateJobConfig(mockJobNode, "testJobGraphJson");
+    // the coalesced watermarks are flushed on the window tick, at the minimum interval
+    assertEquals("500", jobConfig.get(TaskConfig.WINDOW_MS));
+
+    // but a configured window interval is kept
+    configs.put(TaskConfig.WINDOW_MS, "200");
+    mockConfig = spy(new MapConfig(configs));
+    configureJobNode(new StreamApplicationDescriptorImpl(getRepartitionOnlyStreamApplication(), mockConfig));
+    jobConfig = configureGenerator.generateJobConfig(mockJobNode, "testJobGraphJson");
+    assertEquals("200", jobConfig.get(TaskConfig.WINDOW_MS));
+  }
+
   @Test
   public void testGenerateJobConfigWithTaskApplication() {
     // set the application to TaskApplication, which still wire up all input/output/intermediate streams
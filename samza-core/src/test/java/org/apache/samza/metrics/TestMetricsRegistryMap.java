@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.config.MetricsConfig;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestMetricsRegistryMap {
+
+  @Test
+  public void testTimersUseDefaultReservoir() {
+    MetricsRegistryMap registry = MetricsRegistryMap.fromConfig("test", new MapConfig());
+    Timer timer = registry.newTimer("group", "timer");
+    timer.update(1000L);
+    assertEquals(Collections.singletonList(1000L), timer.getSnapshot().getValues());
+  }
+
+  @Test
+  public void testTimersUseConfiguredReservoir() {
+    MetricsRegistryMap registry = MetricsRegistryMap.fromConfig("test", new MapConfig(
+        ImmutableMap.of(MetricsConfig.METRICS_TIMER_RESERVOIR, MetricsConfig.METRICS_TIMER_RESERVOIR_HISTOGRAM)));
+    Timer timer = registry.newTimer("group", "timer");
+    timer.update(1000L);
+    // the histogram reports the midpoint of the bucket of 1000
+    assertEquals(Collections.singletonList(HistogramReservoir.bucketValue(HistogramReservoir.bucketIndex(1000L))),
+        timer.getSnapshot().getValues());
+    assertNotEquals(Collections.singletonList(1000L), timer.getSnapshot().getValues());
+
+    // registries created without the config are not affected
+    Timer defaultTimer = new MetricsRegistryMap("other").newTimer("group", "timer");
+    defaultTimer.update(1000L);
+    assertEquals(Collections.singletonList(1000L), defaultTimer.getSnapshot().getValues());
+  }
+
+  @Test
+  public void testCountersAndGaugesAreStripedIfEnabled() {
+    MetricsRegistryMap registry = MetricsRegistryMap.fromConfig("test", new MapConfig(
+        ImmutableMap.of(MetricsConfig.METRICS_STRIPED_ENABLED, "true")));
+    assertTrue(registry.newCounter("group", "counter") instanceof StripedCounter);
+    assertTrue(registry.newGauge("group", "gauge", 0L) instanceof PaddedGauge);
+
+    MetricsRegistryMap defaultRegistry = MetricsRegistryMap.fromConfig("test", new MapConfig());
+    assertFalse(defaultRegistry.newCounter("group", "counter") instanceof StripedCounter);
+    assertFalse(defaultRegistry.newGauge("group", "gauge", 0L) instanceof PaddedGauge);
+  }
+}
@@ -19,8 +19,11 @@
 
 package org.apache.samza.metrics;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import org.apache.samza.metrics.reporter.MetricsHeader;
 import org.apache.samza.metrics.reporter.MetricsSnapshot;
 import org.apache.samza.metrics.reporter.MetricsSnapshotReporter;
 import org.apache.samza.serializers.MetricsSnapshotSerdeV2;
@@ -33,6 +36,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import scala.Some;
+import scala.collection.JavaConverters;
+import scala.collection.Seq;
 import scala.runtime.AbstractFunction0;
 
 import static org.mockito.Mockito.mock;
@@ -176,6 +181,103 @@ public class TestMetricsSnapshotReporter {
     Assert.assertEquals(42, metricMap.get(group).get(metricName));
   }
 
+  @Test
+  public void testTimerPercentilesEmission() {
+    serializer = null;
+    String source = "testSource";
+    String group = "someGroup";
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    Timer timer = registry.newTimer(group, "someTimer");
+    for (long duration = 1; duration <= 100; duration++) {
+      timer.update(duration);
+    }
+
+    metricsSnapshotReporter = new MetricsSnapshotReporter(producer, SYSTEM_STREAM, REPORTING_INTERVAL, JOB_NAME, JOB_ID,
+        CONTAINER_NAME, TASK_VERSION, SAMZA_VERSION, HOSTNAME, serializer, new Some<>(BLACKLIST_NONE), getClock(),
+        toSeq(50.0, 99.9), false, 1);
+    metricsSnapshotReporter.register(source, registry);
+    metricsSnapshotReporter.run();
+
+    ArgumentCaptor<OutgoingMessageEnvelope> envelopeCaptor = ArgumentCaptor.forClass(OutgoingMessageEnvelope.class);
+    verify(producer, times(1)).send(eq(source), envelopeCaptor.capture());
+    Map<String, Object> groupMetrics =
+        ((MetricsSnapshot) envelopeCaptor.getValue().getMessage()).getMetrics().getAsMap().get(group);
+    Assert.assertEquals(50.5, (double) groupMetrics.get("someTimer"), 0.0001);
+    Assert.assertEquals(50L, groupMetrics.get("someTimer-p50"));
+    Assert.assertEquals(100L, groupMetrics.get("someTimer-p99.9"));
+  }
+
+  @Test
+  public void testTimerPercentilesDoNotOverwriteMetrics() {
+    serializer = null;
+    String source = "testSource";
+    String group = "someGroup";
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    Timer timer = registry.newTimer(group, "someTimer");
+    timer.update(100);
+    registry.newGauge(group, "someTimer-p50", 42);
+
+    metricsSnapshotReporter = new MetricsSnapshotReporter(producer, SYSTEM_STREAM, REPORTING_INTERVAL, JOB_NAME, JOB_ID,
+        CONTAINER_NAME, TASK_VERSION, SAMZA_VERSION, HOSTNAME, serializer, new Some<>(BLACKLIST_NONE), getClock(),
+        toSeq(50.0, 99.0), false, 1);
+    metricsSnapshotReporter.register(source, registry);
+    metricsSnapshotReporter.run();
+
+    ArgumentCaptor<OutgoingMessageEnvelope> envelopeCaptor = ArgumentCaptor.forClass(OutgoingMessageEnvelope.class);
+    verify(producer, times(1)).send(eq(source), envelopeCaptor.capture());
+    Map<String, Object> groupMetrics = getGroupMetrics(envelopeCaptor.getValue(), group);
+    Assert.assertEquals(42, groupMetrics.get("someTimer-p50"));
+    Assert.assertEquals(100L, groupMetrics.get("someTimer-p99"));
+  }
+
+  @Test
+  public void testDeltaEmission() {
+    serializer = null;
+    String source = "testSource";
+    String group = "someGroup";
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    registry.newGauge(group, "someGauge", 42);
+    Counter counter = registry.newCounter(group, "someCounter");
+
+    metricsSnapshotReporter = new MetricsSnapshotReporter(producer, SYSTEM_STREAM, REPORTING_INTERVAL, JOB_NAME, JOB_ID,
+        CONTAINER_NAME, TASK_VERSION, SAMZA_VERSION, HOSTNAME, serializer, new Some<>(BLACKLIST_NONE), getClock(),
+        toSeq(), true, 3);
+    metricsSnapshotReporter.register(source, registry);
+
+    // the first report is a full report
+    metricsSnapshotReporter.run();
+    // only the counter changed
+    counter.inc();
+    metricsSnapshotReporter.run();
+    // nothing changed, so nothing is sent
+    metricsSnapshotReporter.run();
+    // the fourth report is a full report again
+    metricsSnapshotReporter.run();
+
+    ArgumentCaptor<OutgoingMessageEnvelope> envelopeCaptor = ArgumentCaptor.forClass(OutgoingMessageEnvelope.class);
+    verify(producer, times(3)).send(eq(source), envelopeCaptor.capture());
+    List<OutgoingMessageEnvelope> envelopes = envelopeCaptor.getAllValues();
+    Assert.assertEquals(2, getGroupMetrics(envelopes.get(0), group).size());
+    Assert.assertTrue(getHeader(envelopes.get(0)).getFullReport());
+    Assert.assertEquals(Collections.singletonMap("someCounter", 1L), getGroupMetrics(envelopes.get(1), group));
+    Assert.assertFalse(getHeader(envelopes.get(1)).getFullReport());
+    Assert.assertEquals(2, getGroupMetrics(envelopes.get(2), group).size());
+    Assert.assertTrue(getHeader(envelopes.get(2)).getFullReport());
+  }
+
+  private static MetricsHeader getHeader(OutgoingMessageEnvelope envelope) {
+    return ((MetricsSnapshot) envelope.getMessage()).getHeader();
+  }
+
+  private static Map<String, Object> getGroupMetrics(OutgoingMessageEnvelope envelope, String group) {
+    return ((MetricsSnapshot) envelope.getMessage()).getMetrics().getAsMap().get(group);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Seq<Object> toSeq(Double... values) {
+    return (Seq<Object>) (Seq<?>) JavaConverters.asScalaBufferConverter(Arrays.asList(values)).asScala();
+  }
+
   private MetricsSnapshotReporter getMetricsSnapshotReporter(String blacklist) {
     return new MetricsSnapshotReporter(producer, SYSTEM_STREAM, REPORTING_INTERVAL, JOB_NAME, JOB_ID, CONTAINER_NAME,
         TASK_VERSION, SAMZA_VERSION, HOSTNAME, serializer, new Some<>(blacklist), getClock());
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics.reporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import com.google.common.io.ByteStreams;
+import org.apache.samza.metrics.HistogramReservoir;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.metrics.Timer;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestOpenMetricsHttpReporter {
+  private static final String GROUP = "org.apache.samza.container.SamzaContainerMetrics";
+
+  private OpenMetricsHttpReporter reporter;
+
+  @After
+  public void teardown() {
+    if (reporter != null) {
+      reporter.stop();
+    }
+  }
+
+  @Test
+  public void testWriteMetrics() throws IOException {
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    registry.newCounter(GROUP, "process-envelopes").inc(3);
+    Timer timer = registry.newTimer(GROUP, new Timer("process-ns", new HistogramReservoir(300000, () -> 0L), 1.0));
+    for (long duration = 1; duration <= 10; duration++) {
+      timer.update(duration);
+    }
+
+    reporter = new OpenMetricsHttpReporter("localhost", 0, Arrays.asList(50.0, 99.9));
+    reporter.register("source \"0\"", registry);
+    reporter.start();
+    // metrics added after the reporter is started are served too
+    registry.newGauge(GROUP, "event-loop-utilization", 0.5f);
+    registry.newGauge(GROUP, "physical-memory-mb", 128L);
+    registry.newGauge(GROUP, "container-name", "ignored");
+
+    StringWriter writer = new StringWriter();
+    reporter.writeMetrics(writer);
+
+    String prefix = "org_apache_samza_container_SamzaContainerMetrics_";
+    String source = "{source=\"source \\\"0\\\"\"";
+    assertEquals(String.join("\n",
+        "# TYPE " + prefix + "container_name gauge",
+        "# TYPE " + prefix + "event_loop_utilization gauge",
+        prefix + "event_loop_utilization" + source + "} 0.5",
+        "# TYPE " + prefix + "physical_memory_mb gauge",
+        prefix + "physical_memory_mb" + source + "} 128",
+        "# TYPE " + prefix + "process_envelopes counter",
+        prefix + "process_envelopes_total" + source + "} 3",
+        "# TYPE " + prefix + "process_ns summary",
+        prefix + "process_ns" + source + ",quantile=\"0.5\"} 5",
+        prefix + "process_ns" + source + ",quantile=\"0.999\"} 10",
+        prefix + "process_ns_sum" + source + "} 55",
+        prefix + "process_ns_count" + source + "} 10",
+        "# EOF",
+        ""), writer.toString());
+  }
+
+  @Test
+  public void testTimerCountAndSumAreCumulative() throws IOException {
+    long[] now = {0L};
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    Timer timer = registry.newTimer(GROUP, new Timer("process-ns", new HistogramReservoir(300, () -> now[0]), 1.0));
+    timer.update(5);
+    timer.update(7);
+
+    reporter = new OpenMetricsHttpReporter("localhost", 0, Collections.singletonList(50.0));
+    reporter.register("source", registry);
+    reporter.start();
+
+    // the durations fall out of the window of the reservoir, but the count and sum of the summary don't decrease
+    now[0] = 1000L;
+    timer.update(3);
+    StringWriter writer = new StringWriter();
+    reporter.writeMetrics(writer);
+
+    String prefix = "org_apache_samza_container_SamzaContainerMetrics_process_ns";
+    assertEquals(String.join("\n",
+        "# TYPE " + prefix + " summary",
+        prefix + "{source=\"source\",quantile=\"0.5\"} 3",
+        prefix + "_sum{source=\"source\"} 15",
+        prefix + "_count{source=\"source\"} 3",
+        "# EOF",
+        ""), writer.toString());
+  }
+
+  @Test
+  public void testServeMetrics() throws IOException {
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    registry.newCounter(GROUP, "commit-calls").inc();
+
+    reporter = new OpenMetricsHttpReporter("localhost", 0, Collections.emptyList());
+    reporter.register("source", registry);
+    reporter.start();
+
+    URL url = new URL("http://localhost:" + reporter.getPort() + OpenMetricsHttpReporter.METRICS_PATH);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    assertEquals(200, connection.getResponseCode());
+    assertEquals(OpenMetricsHttpReporter.CONTENT_TYPE, connection.getContentType());
+    try (InputStream body = connection.getInputStream()) {
+      String metrics = new String(ByteStreams.toByteArray(body), StandardCharsets.UTF_8);
+      assertTrue(metrics, metrics.contains(
+          "org_apache_samza_container_SamzaContainerMetrics_commit_calls_total{source=\"source\"} 1\n"));
+      assertTrue(metrics, metrics.endsWith("# EOF\n"));
+    }
+  }
+
+  @Test
+  public void testSanitizeName() {
+    assertEquals("org_apache_samza_Foo_kafka_topic_0_messages_read",
+        OpenMetricsHttpReporter.sanitizeName("org.apache.samza.Foo_kafka-topic-0-messages-read"));
+    assertEquals("_0abc", OpenMetricsHttpReporter.sanitizeName("0abc"));
+  }
+}
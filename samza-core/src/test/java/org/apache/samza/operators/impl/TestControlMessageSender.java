@@ -20,10 +20,16 @@
 package org.apache.samza.operators.impl;
 
 import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.samza.Partition;
+import org.apache.samza.metrics.Counter;
+import org.apache.samza.metrics.MetricsRegistryMap;
 import org.apache.samza.system.OutgoingMessageEnvelope;
 import org.apache.samza.system.StreamMetadataCache;
 import org.apache.samza.system.SystemStream;
@@ -34,6 +40,8 @@ import org.apache.samza.task.MessageCollector;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyObject;
@@ -100,4 +108,106 @@ public class TestControlMessageSender {
     sender.broadcastToOtherPartitions(watermark, ssp, collector);
     assertEquals(partitions.size(), 3);
   }
+
+  @Test
+  public void testWatermarkCoalescing() {
+    SystemStreamMetadata metadata = mock(SystemStreamMetadata.class);
+    Map<Partition, SystemStreamMetadata.SystemStreamPartitionMetadata> partitionMetadata = new HashMap<>();
+    partitionMetadata.put(new Partition(0), mock(SystemStreamMetadata.SystemStreamPartitionMetadata.class));
+    partitionMetadata.put(new Partition(1), mock(SystemStreamMetadata.SystemStreamPartitionMetadata.class));
+    when(metadata.getSystemStreamPartitionMetadata()).thenReturn(partitionMetadata);
+    StreamMetadataCache metadataCache = mock(StreamMetadataCache.class);
+    when(metadataCache.getSystemStreamMetadata(anyObject(), anyBoolean())).thenReturn(metadata);
+
+    SystemStream systemStream = new SystemStream("test-system", "test-coalesced-stream");
+    List<Long> watermarks = new ArrayList<>();
+    MessageCollector collector = mock(MessageCollector.class);
+    doAnswer(invocation -> {
+      OutgoingMessageEnvelope envelope = (OutgoingMessageEnvelope) invocation.getArguments()[0];
+      watermarks.add(((WatermarkMessage) envelope.getMessage()).getTimestamp());
+      return null;
+    }).when(collector).send(any());
+
+    AtomicLong time = new AtomicLong(0);
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    ControlMessageSender sender =
+        new ControlMessageSender(metadataCache, 100, 10, time::get, new WatermarkMetrics(registry));
+
+    // the first watermark is always sent
+    assertTrue(sender.sendWatermark(new WatermarkMessage(1000, "task 0"), systemStream, collector));
+    // within the minimum interval
+    time.set(50);
+    assertFalse(sender.sendWatermark(new WatermarkMessage(1020, "task 0"), systemStream, collector));
+    // less than the minimum advance
+    time.set(150);
+    assertFalse(sender.sendWatermark(new WatermarkMessage(1005, "task 0"), systemStream, collector));
+    assertTrue(sender.sendWatermark(new WatermarkMessage(1030, "task 0"), systemStream, collector));
+    time.set(200);
+    assertFalse(sender.sendWatermark(new WatermarkMessage(1040, "task 0"), systemStream, collector));
+    // the suppressed watermark is sent when flushed, once
+    sender.flushWatermark(systemStream, "task 0", collector);
+    sender.flushWatermark(systemStream, "task 0", collector);
+    assertEquals(Arrays.asList(1000L, 1030L, 1040L), watermarks);
+
+    // broadcasts are coalesced per partition
+    watermarks.clear();
+    SystemStreamPartition ssp = new SystemStreamPartition(systemStream, new Partition(0));
+    assertTrue(sender.broadcastWatermarkToOtherPartitions(new WatermarkMessage(2000), ssp, collector));
+    assertFalse(sender.broadcastWatermarkToOtherPartitions(new WatermarkMessage(2100), ssp, collector));
+    assertEquals(Arrays.asList(2000L), watermarks);
+
+    Counter suppressed = (Counter) registry.getGroup(WatermarkMetrics.class.getName())
+        .get("watermark-test-coalesced-stream-suppressed-watermarks");
+    assertEquals(4, suppressed.getCount());
+  }
+
+  @Test
+  public void testCoalescedWatermarksAreFlushedWithoutFurtherWatermarks() {
+    SystemStreamMetadata metadata = mock(SystemStreamMetadata.class);
+    Map<Partition, SystemStreamMetadata.SystemStreamPartitionMetadata> partitionMetadata = new HashMap<>();
+    partitionMetadata.put(new Partition(0), mock(SystemStreamMetadata.SystemStreamPartitionMetadata.class));
+    partitionMetadata.put(new Partition(1), mock(SystemStreamMetadata.SystemStreamPartitionMetadata.class));
+    when(metadata.getSystemStreamPartitionMetadata()).thenReturn(partitionMetadata);
+    StreamMetadataCache metadataCache = mock(StreamMetadataCache.class);
+    when(metadataCache.getSystemStreamMetadata(anyObject(), anyBoolean())).thenReturn(metadata);
+
+    SystemStream systemStream = new SystemStream("test-system", "test-flushed-stream");
+    SystemStream broadcastStream = new SystemStream("test-system", "test-flushed-broadcast-stream");
+    List<String> sent = new ArrayList<>();
+    MessageCollector collector = mock(MessageCollector.class);
+    doAnswer(invocation -> {
+      OutgoingMessageEnvelope envelope = (OutgoingMessageEnvelope) invocation.getArguments()[0];
+      sent.add(envelope.getSystemStream().getStream() + ":" + envelope.getPartitionKey() + ":"
+          + ((WatermarkMessage) envelope.getMessage()).getTimestamp());
+      return null;
+    }).when(collector).send(any());
+
+    AtomicLong time = new AtomicLong(0);
+    ControlMessageSender sender = new ControlMessageSender(metadataCache, 100, 10, time::get,
+        new WatermarkMetrics(new MetricsRegistryMap()));
+    int aggregatePartition = systemStream.getStream().hashCode() % 2;
+    SystemStreamPartition ssp = new SystemStreamPartition(broadcastStream, new Partition(0));
+
+    assertTrue(sender.sendWatermark(new WatermarkMessage(1000, "task 0"), systemStream, collector));
+    assertTrue(sender.broadcastWatermarkToOtherPartitions(new WatermarkMessage(2000), ssp, collector));
+    time.set(50);
+    assertFalse(sender.sendWatermark(new WatermarkMessage(1005, "task 0"), systemStream, collector));
+    assertFalse(sender.broadcastWatermarkToOtherPartitions(new WatermarkMessage(2050), ssp, collector));
+    sent.clear();
+
+    // no further watermark arrives, and the pending ones are held back within the minimum interval
+    time.set(99);
+    sender.flushWatermarks("task 0", collector);
+    assertTrue(sent.isEmpty());
+
+    // and sent once after it, regardless of the minimum advance
+    time.set(100);
+    sender.flushWatermarks("task 0", collector);
+    sender.flushWatermarks("task 0", collector);
+    time.set(300);
+    sender.flushWatermarks("task 0", collector);
+    sent.sort(null);
+    assertEquals(Arrays.asList("test-flushed-broadcast-stream:1:2050",
+        "test-flushed-stream:" + aggregatePartition + ":1005"), sent);
+  }
 }
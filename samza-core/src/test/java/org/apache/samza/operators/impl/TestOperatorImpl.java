@@ -18,11 +18,15 @@
  */
 package org.apache.samza.operators.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
 import org.apache.samza.context.Context;
 import org.apache.samza.context.InternalTaskContext;
 import org.apache.samza.context.MockContext;
@@ -31,18 +35,30 @@ import org.apache.samza.metrics.Counter;
 import org.apache.samza.metrics.MetricsRegistryMap;
 import org.apache.samza.metrics.ReadableMetricsRegistry;
 import org.apache.samza.metrics.Timer;
+import org.apache.samza.operators.Scheduler;
 import org.apache.samza.operators.functions.ScheduledFunction;
 import org.apache.samza.operators.functions.WatermarkFunction;
+import org.apache.samza.operators.impl.store.TestInMemoryStore;
 import org.apache.samza.operators.spec.OperatorSpec;
+import org.apache.samza.scheduler.CallbackSchedulerImpl;
+import org.apache.samza.scheduler.EpochTimeScheduler;
+import org.apache.samza.scheduler.KeyValueTimerStore;
+import org.apache.samza.serializers.ByteSerde;
+import org.apache.samza.serializers.StringSerde;
 import org.apache.samza.task.MessageCollector;
 import org.apache.samza.task.TaskCoordinator;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -109,6 +125,62 @@ public class TestOperatorImpl {
     verify(mockNextOpImpl2, times(1)).handleMessageAsync(mockTestOpImplOutput, mockCollector, mockCoordinator);
   }
 
+  @Test
+  public void testFusedOnMessagePropagatesResultsSynchronously() {
+    Object mockTestOpImplOutput = mock(Object.class);
+    OperatorImpl<Object, Object> opImpl = new TestOpImpl(mockTestOpImplOutput);
+    opImpl.init(this.internalTaskContext);
+
+    Object mockNextOpImplOutput = mock(Object.class);
+    OperatorImpl<Object, Object> nextOpImpl = spy(new TestOpImpl(mockNextOpImplOutput));
+    nextOpImpl.init(this.internalTaskContext);
+    opImpl.registerNextOperator(nextOpImpl);
+    opImpl.fuse();
+    nextOpImpl.fuse();
+
+    // send a message to this operator
+    MessageCollector mockCollector = mock(MessageCollector.class);
+    TaskCoordinator mockCoordinator = mock(TaskCoordinator.class);
+    CompletionStage<Void> result = opImpl.onMessageAsync(mock(Object.class), mockCollector, mockCoordinator);
+
+    // verify that the results are propagated to the next operator with a direct call
+    assertTrue(result.toCompletableFuture().isDone());
+    verify(nextOpImpl, times(1)).handleMessageSync(mockTestOpImplOutput, mockCollector, mockCoordinator);
+    verify(nextOpImpl, never()).handleMessageAsync(anyObject(), anyObject(), anyObject());
+  }
+
+  @Test
+  public void testFusedOnMessageWaitsForAsyncOperators() {
+    Object mockTestOpImplOutput = mock(Object.class);
+    OperatorImpl<Object, Object> opImpl = new TestOpImpl(mockTestOpImplOutput);
+    opImpl.init(this.internalTaskContext);
+
+    // a fused operator followed by an async operator
+    Object mockNextOpImplOutput = mock(Object.class);
+    OperatorImpl<Object, Object> nextOpImpl = new TestOpImpl(mockNextOpImplOutput);
+    nextOpImpl.init(this.internalTaskContext);
+    opImpl.registerNextOperator(nextOpImpl);
+    opImpl.fuse();
+    nextOpImpl.fuse();
+
+    CompletableFuture<Collection<Object>> asyncResult = new CompletableFuture<>();
+    OperatorImpl mockAsyncOpImpl = mock(OperatorImpl.class);
+    when(mockAsyncOpImpl.getOperatorSpec()).thenReturn(new TestOpSpec());
+    when(mockAsyncOpImpl.handleMessageAsync(anyObject(), anyObject(), anyObject())).thenReturn(asyncResult);
+    mockAsyncOpImpl.init(this.internalTaskContext);
+    nextOpImpl.registerNextOperator(mockAsyncOpImpl);
+
+    MessageCollector mockCollector = mock(MessageCollector.class);
+    TaskCoordinator mockCoordinator = mock(TaskCoordinator.class);
+    CompletionStage<Void> result = opImpl.onMessageAsync(mock(Object.class), mockCollector, mockCoordinator);
+
+    // verify that the fused operators only wait for the async operator at the end of the chain
+    verify(mockAsyncOpImpl, times(1)).handleMessageAsync(mockNextOpImplOutput, mockCollector, mockCoordinator);
+    assertFalse(result.toCompletableFuture().isDone());
+    asyncResult.complete(Collections.emptyList());
+    assertTrue(result.toCompletableFuture().isDone());
+  }
+
   @Test
   public void testOnMessageUpdatesMetrics() {
     ReadableMetricsRegistry mockMetricsRegistry = mock(ReadableMetricsRegistry.class);
@@ -190,22 +262,58 @@ public class TestOperatorImpl {
     verify(mockTimer, times(1)).update(anyLong());
   }
 
+  @Test
+  public void testOperatorTimersInStoreFireThroughTheirOperator() {
+    EpochTimeScheduler epochTimeScheduler = EpochTimeScheduler.create(mock(ScheduledExecutorService.class));
+    epochTimeScheduler.setTimerStore(new KeyValueTimerStore<>(
+        new TestInMemoryStore<>(new ByteSerde(), new ByteSerde()), new StringSerde(), 10));
+    when(this.context.getTaskContext().getCallbackScheduler())
+        .thenReturn(new CallbackSchedulerImpl(epochTimeScheduler));
+
+    List<String> callbacks = new ArrayList<>();
+    OperatorImpl<Object, Object> opImpl1 =
+        new TestOpImpl(mock(Object.class), new TestOpSpec("op1", new RecordingScheduledFunction("op1", callbacks)));
+    OperatorImpl<Object, Object> opImpl2 =
+        new TestOpImpl(mock(Object.class), new TestOpSpec("op2", new RecordingScheduledFunction("op2", callbacks)));
+    opImpl1.init(this.internalTaskContext);
+    opImpl2.init(this.internalTaskContext);
+    Scheduler<String> scheduler1 = opImpl1.createOperatorScheduler();
+    Scheduler<String> scheduler2 = opImpl2.createOperatorScheduler();
+
+    // both operators use the same keys
+    scheduler1.schedule("a", 1);
+    scheduler1.schedule("b", 2);
+    scheduler2.schedule("a", 3);
+    scheduler2.schedule("b", 4);
+    scheduler2.schedule("c", 5);
+    scheduler2.delete("c");
+
+    epochTimeScheduler.removeReadyTimers().forEach((timerKey, callback) ->
+        callback.onCallback(timerKey.getKey(), mock(MessageCollector.class), mock(TaskCoordinator.class)));
+
+    assertEquals(Arrays.asList("op1:a:1", "op1:b:2", "op2:a:3", "op2:b:4"), callbacks);
+  }
+
   private static class TestOpImpl extends OperatorImpl<Object, Object> {
     private final Object mockOutput;
     private final TestOpSpec testOpSpec;
 
     TestOpImpl(Object mockOutput) {
+      this(mockOutput, new TestOpSpec());
+    }
+
+    TestOpImpl(Object mockOutput, TestOpSpec testOpSpec) {
       this.mockOutput = mockOutput;
-      this.testOpSpec = new TestOpSpec();
+      this.testOpSpec = testOpSpec;
     }
 
     @Override
     protected void handleInit(Context context) {}
 
     @Override
-    public CompletionStage<Collection<Object>> handleMessageAsync(Object message, MessageCollector collector,
+    protected Collection<Object> handleMessageSync(Object message, MessageCollector collector,
         TaskCoordinator coordinator) {
-      return CompletableFuture.completedFuture(Collections.singletonList(mockOutput));
+      return Collections.singletonList(mockOutput);
     }
 
     @Override
@@ -222,8 +330,15 @@ public class TestOperatorImpl {
   }
 
   private static class TestOpSpec extends OperatorSpec<Object, Object> {
+    private final ScheduledFunction scheduledFn;
+
     TestOpSpec() {
-     super(OpCode.INPUT, "1");
+      this("1", null);
+    }
+
+    TestOpSpec(String opId, ScheduledFunction scheduledFn) {
+      super(OpCode.INPUT, opId);
+      this.scheduledFn = scheduledFn;
     }
 
     @Override
@@ -233,7 +348,30 @@ public class TestOperatorImpl {
 
     @Override
     public ScheduledFunction getScheduledFn() {
-      return null;
+      return scheduledFn;
+    }
+  }
+
+  /**
+   * Records the key and time of its callbacks with the given name.
+   */
+  private static class RecordingScheduledFunction implements ScheduledFunction<String, Object> {
+    private final String name;
+    private final List<String> callbacks;
+
+    RecordingScheduledFunction(String name, List<String> callbacks) {
+      this.name = name;
+      this.callbacks = callbacks;
+    }
+
+    @Override
+    public void schedule(Scheduler<String> scheduler) {
+    }
+
+    @Override
+    public Collection<Object> onCallback(String key, long timestamp) {
+      callbacks.add(name + ":" + key + ":" + timestamp);
+      return Collections.emptyList();
     }
   }
 
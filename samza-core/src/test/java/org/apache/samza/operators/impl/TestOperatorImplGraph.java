@@ -41,6 +41,7 @@ import org.apache.samza.metrics.MetricsRegistryMap;
 import org.apache.samza.operators.KV;
 import org.apache.samza.operators.MessageStream;
 import org.apache.samza.operators.OutputStream;
+import org.apache.samza.operators.functions.AsyncFlatMapFunction;
 import org.apache.samza.operators.functions.ClosableFunction;
 import org.apache.samza.operators.functions.FilterFunction;
 import org.apache.samza.operators.functions.InitableFunction;
@@ -79,6 +80,7 @@ import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
@@ -161,6 +163,57 @@ public class TestOperatorImplGraph {
     OperatorImpl sendToOpImpl = (OutputOperatorImpl) mapOpImpl.registeredOperators.iterator().next();
     assertEquals(0, sendToOpImpl.registeredOperators.size());
     assertEquals(OpCode.SEND_TO, sendToOpImpl.getOperatorSpec().getOpCode());
+
+    // the chain of synchronous operators is fused
+    assertTrue(inputOpImpl.isFused());
+    assertTrue(filterOpImpl.isFused());
+    assertTrue(mapOpImpl.isFused());
+    assertTrue(sendToOpImpl.isFused());
+  }
+
+  @Test
+  public void testAsyncOperatorInChainIsNotFused() {
+    String inputStreamId = "input";
+    String inputSystem = "input-system";
+    String inputPhysicalName = "input-stream";
+    String outputStreamId = "output";
+    String outputSystem = "output-system";
+    String outputPhysicalName = "output-stream";
+
+    HashMap<String, String> configs = new HashMap<>();
+    configs.put(JobConfig.JOB_NAME, "jobName");
+    configs.put(JobConfig.JOB_ID, "jobId");
+    StreamTestUtils.addStreamConfigs(configs, inputStreamId, inputSystem, inputPhysicalName);
+    StreamTestUtils.addStreamConfigs(configs, outputStreamId, outputSystem, outputPhysicalName);
+    Config config = new MapConfig(configs);
+    when(this.context.getJobContext().getConfig()).thenReturn(config);
+
+    StreamApplicationDescriptorImpl graphSpec = new StreamApplicationDescriptorImpl(appDesc -> {
+      GenericSystemDescriptor sd = new GenericSystemDescriptor(inputSystem, "mockFactoryClass");
+      GenericInputDescriptor inputDescriptor = sd.getInputDescriptor(inputStreamId, mock(Serde.class));
+      GenericOutputDescriptor outputDescriptor = sd.getOutputDescriptor(outputStreamId, mock(Serde.class));
+      MessageStream<Object> inputStream = appDesc.getInputStream(inputDescriptor);
+      OutputStream<Object> outputStream = appDesc.getOutputStream(outputDescriptor);
+
+      inputStream
+          .filter(mock(FilterFunction.class))
+          .flatMapAsync(mock(AsyncFlatMapFunction.class))
+          .sendTo(outputStream);
+    }, config);
+
+    OperatorImplGraph opImplGraph =
+        new OperatorImplGraph(graphSpec.getOperatorSpecGraph(), this.context, mock(Clock.class));
+
+    InputOperatorImpl inputOpImpl = opImplGraph.getInputOperator(new SystemStream(inputSystem, inputPhysicalName));
+    OperatorImpl filterOpImpl = (FlatmapOperatorImpl) inputOpImpl.registeredOperators.iterator().next();
+    OperatorImpl asyncOpImpl = (AsyncFlatmapOperatorImpl) filterOpImpl.registeredOperators.iterator().next();
+    OperatorImpl sendToOpImpl = (OutputOperatorImpl) asyncOpImpl.registeredOperators.iterator().next();
+
+    // the synchronous operators before and after the async operator are fused, but the async operator is not
+    assertTrue(inputOpImpl.isFused());
+    assertTrue(filterOpImpl.isFused());
+    assertFalse(asyncOpImpl.isFused());
+    assertTrue(sendToOpImpl.isFused());
   }
 
   @Test
@@ -344,6 +397,12 @@ public class TestOperatorImplGraph {
     assertEquals(leftPartialJoinOpImpl.getOperatorSpec(), rightPartialJoinOpImpl.getOperatorSpec());
     assertNotSame(leftPartialJoinOpImpl, rightPartialJoinOpImpl);
 
+    // the partial joins are synchronous, so they are fused with their input operators
+    assertTrue(leftPartialJoinOpImpl.isFused());
+    assertTrue(rightPartialJoinOpImpl.isFused());
+    assertTrue(inputOpImpl1.isFused());
+    assertTrue(inputOpImpl2.isFused());
+
     // verify that left partial join operator calls getFirstKey
     Object mockLeftMessage = mock(Object.class);
     long currentTimeMillis = System.currentTimeMillis();
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.operators.impl;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.samza.config.JobConfig;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.container.TaskName;
+import org.apache.samza.context.Context;
+import org.apache.samza.context.InternalTaskContext;
+import org.apache.samza.context.MockContext;
+import org.apache.samza.job.model.TaskModel;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.operators.KV;
+import org.apache.samza.operators.spec.OperatorSpecs;
+import org.apache.samza.operators.spec.OutputStreamImpl;
+import org.apache.samza.operators.spec.PartitionByOperatorSpec;
+import org.apache.samza.system.OutgoingMessageEnvelope;
+import org.apache.samza.system.SystemStream;
+import org.apache.samza.task.MessageCollector;
+import org.apache.samza.task.TaskCoordinator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class TestPartitionByOperatorImpl {
+  private static final SystemStream SYSTEM_STREAM = new SystemStream("system", "intermediate-stream");
+
+  @Test
+  public void testCombinerFlushesPartialAggregates() {
+    Context context = new MockContext(new MapConfig(
+        ImmutableMap.of(JobConfig.JOB_INTERMEDIATE_STREAM_COMBINER_MAX_KEYS, "2",
+            JobConfig.JOB_INTERMEDIATE_STREAM_COMBINER_FLUSH_INTERVAL_MS, "1000")));
+    TaskModel taskModel = mock(TaskModel.class);
+    when(taskModel.getTaskName()).thenReturn(new TaskName("task 0"));
+    when(context.getTaskContext().getTaskModel()).thenReturn(taskModel);
+    when(context.getContainerContext().getContainerMetricsRegistry()).thenReturn(new MetricsRegistryMap());
+
+    PartitionByOperatorSpec<KV<String, Integer>, String, Integer> spec =
+        OperatorSpecs.createPartitionByOperatorSpec(mock(OutputStreamImpl.class), KV::getKey, KV::getValue,
+            (value, partial) -> partial + value, "p1");
+    AtomicLong time = new AtomicLong(0);
+    PartitionByOperatorImpl<KV<String, Integer>, String, Integer> partitionByOpImpl =
+        new PartitionByOperatorImpl<>(spec, SYSTEM_STREAM, new InternalTaskContext(context), time::get);
+    partitionByOpImpl.handleInit(context);
+
+    Map<String, Integer> sent = new HashMap<>();
+    List<String> sentKeys = new ArrayList<>();
+    MessageCollector collector = mock(MessageCollector.class);
+    doAnswer(invocation -> {
+      OutgoingMessageEnvelope envelope = (OutgoingMessageEnvelope) invocation.getArguments()[0];
+      assertEquals(SYSTEM_STREAM, envelope.getSystemStream());
+      sent.put((String) envelope.getKey(), (Integer) envelope.getMessage());
+      sentKeys.add((String) envelope.getKey());
+      return null;
+    }).when(collector).send(any());
+    TaskCoordinator coordinator = mock(TaskCoordinator.class);
+
+    // values are combined until the number of keys reaches the maximum
+    partitionByOpImpl.handleMessageSync(KV.of("a", 1), collector, coordinator);
+    partitionByOpImpl.handleMessageSync(KV.of("a", 2), collector, coordinator);
+    assertTrue(sentKeys.isEmpty());
+    partitionByOpImpl.handleMessageSync(KV.of("b", 1), collector, coordinator);
+    assertEquals(ImmutableMap.of("a", 3, "b", 1), sent);
+    assertEquals(2, sentKeys.size());
+
+    // flushed on timer after the flush interval
+    sent.clear();
+    partitionByOpImpl.handleMessageSync(KV.of("c", 5), collector, coordinator);
+    partitionByOpImpl.handleTimer(collector, coordinator);
+    assertTrue(sent.isEmpty());
+    time.set(1000);
+    partitionByOpImpl.handleTimer(collector, coordinator);
+    assertEquals(ImmutableMap.of("c", 5), sent);
+
+    // flushed before commit
+    sent.clear();
+    partitionByOpImpl.handleMessageSync(KV.of("d", 1), collector, coordinator);
+    partitionByOpImpl.handleMessageSync(KV.of("d", 1), collector, coordinator);
+    partitionByOpImpl.handleCommit(collector);
+    assertEquals(ImmutableMap.of("d", 2), sent);
+    assertEquals(4, sentKeys.size());
+  }
+}
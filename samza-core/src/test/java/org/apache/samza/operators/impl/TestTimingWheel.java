@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.operators.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestTimingWheel {
+
+  @Test
+  public void testAdvanceExpiresValuesInOrder() {
+    TimingWheel<Long> wheel = new TimingWheel<>(1000);
+    // deadlines at every level of the wheel, and one which already passed
+    List<Long> deadlines = Arrays.asList(1001L, 1255L, 1256L, 70000L, 1L << 30, 1L << 45, Long.MAX_VALUE, 500L);
+    for (long deadline : deadlines) {
+      wheel.add(deadline, deadline);
+    }
+    assertEquals(deadlines.size(), wheel.size());
+
+    List<Long> expired = new ArrayList<>();
+    wheel.advance(999, expired);
+    assertEquals(Collections.singletonList(500L), expired);
+
+    expired.clear();
+    wheel.advance(1256, expired);
+    assertEquals(Arrays.asList(1001L, 1255L, 1256L), expired);
+
+    expired.clear();
+    wheel.advance(1L << 40, expired);
+    assertEquals(Arrays.asList(70000L, 1L << 30), expired);
+
+    expired.clear();
+    wheel.advance(Long.MAX_VALUE, expired);
+    assertEquals(Arrays.asList(1L << 45, Long.MAX_VALUE), expired);
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testValuesWithSameDeadlineExpireTogether() {
+    TimingWheel<Integer> wheel = new TimingWheel<>(0);
+    for (int i = 0; i < 1000; i++) {
+      wheel.add(60000, i);
+    }
+
+    List<Integer> expired = new ArrayList<>();
+    wheel.advance(59999, expired);
+    assertTrue(expired.isEmpty());
+    wheel.advance(60000, expired);
+    assertEquals(1000, expired.size());
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testCancel() {
+    TimingWheel<String> wheel = new TimingWheel<>(0);
+    TimingWheel.Timeout<String> first = wheel.add(100000, "first");
+    TimingWheel.Timeout<String> second = wheel.add(100000, "second");
+    TimingWheel.Timeout<String> third = wheel.add(5, "third");
+
+    assertTrue(wheel.cancel(first));
+    assertFalse(wheel.cancel(first));
+    assertEquals(2, wheel.size());
+
+    List<String> expired = new ArrayList<>();
+    wheel.advance(200000, expired);
+    assertEquals(Arrays.asList("third", "second"), expired);
+    assertFalse(wheel.cancel(second));
+    assertFalse(wheel.cancel(third));
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testRandomDeadlines() {
+    Random random = new Random(42);
+    long now = 1500000000000L;
+    TimingWheel<Long> wheel = new TimingWheel<>(now);
+    List<Long> pending = new ArrayList<>();
+    List<TimingWheel.Timeout<Long>> timeouts = new ArrayList<>();
+
+    for (int round = 0; round < 200; round++) {
+      for (int i = 0; i < 50; i++) {
+        long deadline = now + (long) Math.pow(2, random.nextInt(40)) + random.nextInt(1000) - 500;
+        timeouts.add(wheel.add(deadline, deadline));
+        pending.add(deadline);
+      }
+      // cancel a few of the pending values
+      for (int i = 0; i < 5; i++) {
+        TimingWheel.Timeout<Long> timeout = timeouts.remove(random.nextInt(timeouts.size()));
+        if (wheel.cancel(timeout)) {
+          pending.remove((Long) timeout.getDeadline());
+        }
+      }
+
+      now += random.nextInt(1 << (1 + random.nextInt(30)));
+      List<Long> expired = new ArrayList<>();
+      wheel.advance(now, expired);
+
+      List<Long> expected = new ArrayList<>();
+      for (long deadline : pending) {
+        if (deadline <= now) {
+          expected.add(deadline);
+        }
+      }
+      pending.removeAll(expected);
+      Collections.sort(expected);
+      Collections.sort(expired);
+      assertEquals(expected, expired);
+      assertEquals(pending.size(), wheel.size());
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.operators.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.samza.operators.triggers.Cancellable;
+import org.apache.samza.operators.triggers.FiringType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestTriggerScheduler {
+
+  @Test
+  public void testRunPendingCallbacks() {
+    AtomicLong time = new AtomicLong(1000);
+    TriggerScheduler<String> scheduler = new TriggerScheduler<>(time::get);
+    List<String> run = new ArrayList<>();
+    TriggerKey<String> key1 = new TriggerKey<>(FiringType.DEFAULT, "key1", 2000);
+    TriggerKey<String> key2 = new TriggerKey<>(FiringType.DEFAULT, "key2", 2000);
+    TriggerKey<String> key3 = new TriggerKey<>(FiringType.EARLY, "key3", 2000);
+    scheduler.scheduleCallback(() -> run.add("key2"), 3000, key2);
+    scheduler.scheduleCallback(() -> run.add("key1"), 2000, key1);
+    Cancellable cancellable = scheduler.scheduleCallback(() -> run.add("key3"), 2500, key3);
+
+    assertTrue(scheduler.runPendingCallbacks().isEmpty());
+
+    assertTrue(cancellable.cancel());
+    assertFalse(cancellable.cancel());
+    time.set(5000);
+    assertEquals(Arrays.asList(key1, key2), scheduler.runPendingCallbacks());
+    assertEquals(Arrays.asList("key1", "key2"), run);
+    assertEquals(0, scheduler.getPendingCallbackCount());
+  }
+
+  @Test
+  public void testCallbackCancelledByEarlierCallback() {
+    AtomicLong time = new AtomicLong(0);
+    TriggerScheduler<String> scheduler = new TriggerScheduler<>(time::get);
+    List<String> run = new ArrayList<>();
+    TriggerKey<String> key1 = new TriggerKey<>(FiringType.DEFAULT, "key1", 1000);
+    TriggerKey<String> key2 = new TriggerKey<>(FiringType.DEFAULT, "key2", 1000);
+    TriggerKey<String> key3 = new TriggerKey<>(FiringType.DEFAULT, "key3", 1000);
+    Cancellable[] second = new Cancellable[1];
+    scheduler.scheduleCallback(() -> {
+      run.add("key1");
+      second[0].cancel();
+      // a callback scheduled by a callback is run in the same pass if it's ready
+      scheduler.scheduleCallback(() -> run.add("key3"), 500, key3);
+    }, 1000, key1);
+    second[0] = scheduler.scheduleCallback(() -> run.add("key2"), 1000, key2);
+
+    time.set(1000);
+    assertEquals(Arrays.asList(key1, key3), scheduler.runPendingCallbacks());
+    assertEquals(Arrays.asList("key1", "key3"), run);
+  }
+}
@@ -526,6 +526,58 @@ public class TestWindowOperator {
     verify(taskCoordinator, times(1)).shutdown(TaskCoordinator.RequestScope.CURRENT_TASK);
   }
 
+  @Test
+  public void testEventTimeTumblingWindowsFireOnWatermark() throws Exception {
+    OperatorSpecGraph sgb = this.getKeyedEventTimeTumblingWindowStreamGraph(AccumulationMode.ACCUMULATING,
+        Duration.ofSeconds(1), Duration.ofSeconds(1)).getOperatorSpecGraph();
+    List<WindowPane<Integer, Collection<KV<Integer, Integer>>>> windowPanes = new ArrayList<>();
+
+    TestClock testClock = new TestClock();
+    StreamOperatorTask task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    MessageCollector messageCollector =
+      envelope -> windowPanes.add((WindowPane<Integer, Collection<KV<Integer, Integer>>>) envelope.getMessage());
+    SystemStreamPartition ssp = new SystemStreamPartition("kafka", "integers", new Partition(0));
+
+    // messages of key 1 and 2 with their event time as value, and no processing time passes
+    task.processAsync(new IncomingMessageEnvelope(ssp, null, 1, 100), messageCollector, taskCoordinator, taskCallback);
+    task.processAsync(new IncomingMessageEnvelope(ssp, null, 2, 500), messageCollector, taskCoordinator, taskCallback);
+    task.processAsync(new IncomingMessageEnvelope(ssp, null, 1, 900), messageCollector, taskCoordinator, taskCallback);
+    task.processAsync(new IncomingMessageEnvelope(ssp, null, 1, 1200), messageCollector, taskCoordinator, taskCallback);
+    task.processAsync(IncomingMessageEnvelope.buildWatermarkEnvelope(ssp, 999), messageCollector, taskCoordinator,
+        taskCallback);
+    Assert.assertEquals(windowPanes.size(), 0);
+
+    task.processAsync(IncomingMessageEnvelope.buildWatermarkEnvelope(ssp, 1000), messageCollector, taskCoordinator,
+        taskCallback);
+    Assert.assertEquals(windowPanes.size(), 2);
+    Assert.assertEquals(windowPanes.get(0).getKey().getKey(), new Integer(1));
+    Assert.assertEquals(windowPanes.get(0).getKey().getPaneId(), "0");
+    Assert.assertEquals(windowPanes.get(0).getFiringType(), FiringType.DEFAULT);
+    Assert.assertEquals((windowPanes.get(0).getMessage()).size(), 2);
+    Assert.assertEquals(windowPanes.get(1).getKey().getKey(), new Integer(2));
+    Assert.assertEquals((windowPanes.get(1).getMessage()).size(), 1);
+
+    // a late message within the allowed lateness is emitted with the accumulated messages of its window
+    task.processAsync(new IncomingMessageEnvelope(ssp, null, 1, 300), messageCollector, taskCoordinator, taskCallback);
+    Assert.assertEquals(windowPanes.size(), 3);
+    Assert.assertEquals(windowPanes.get(2).getKey().getPaneId(), "0");
+    Assert.assertEquals(windowPanes.get(2).getFiringType(), FiringType.LATE);
+    Assert.assertEquals((windowPanes.get(2).getMessage()).size(), 3);
+
+    task.processAsync(IncomingMessageEnvelope.buildWatermarkEnvelope(ssp, 2000), messageCollector, taskCoordinator,
+        taskCallback);
+    Assert.assertEquals(windowPanes.size(), 4);
+    Assert.assertEquals(windowPanes.get(3).getKey().getKey(), new Integer(1));
+    Assert.assertEquals(windowPanes.get(3).getKey().getPaneId(), "1000");
+    Assert.assertEquals((windowPanes.get(3).getMessage()).size(), 1);
+
+    // a message past the allowed lateness of its window is dropped
+    task.processAsync(new IncomingMessageEnvelope(ssp, null, 1, 800), messageCollector, taskCoordinator, taskCallback);
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 4);
+  }
+
   private StreamApplicationDescriptorImpl getKeyedTumblingWindowStreamGraph(AccumulationMode mode,
       Duration duration, Trigger<KV<Integer, Integer>> earlyTrigger) throws IOException {
 
@@ -545,6 +597,24 @@ public class TestWindowOperator {
     return new StreamApplicationDescriptorImpl(userApp, config);
   }
 
+  private StreamApplicationDescriptorImpl getKeyedEventTimeTumblingWindowStreamGraph(AccumulationMode mode,
+      Duration duration, Duration allowedLateness) throws IOException {
+    StreamApplication userApp = appDesc -> {
+      KVSerde<Integer, Integer> kvSerde = KVSerde.of(new IntegerSerde(), new IntegerSerde());
+      GenericSystemDescriptor sd = new GenericSystemDescriptor("kafka", "mockFactoryClass");
+      GenericInputDescriptor<KV<Integer, Integer>> inputDescriptor = sd.getInputDescriptor("integers", kvSerde);
+      appDesc.getInputStream(inputDescriptor)
+          .window(Windows.keyedEventTimeTumblingWindow(KV::getKey, kv -> (long) kv.getValue(), duration,
+              new IntegerSerde(), kvSerde).setAllowedLateness(allowedLateness).setAccumulationMode(mode), "w1")
+          .sink((message, messageCollector, taskCoordinator) -> {
+            SystemStream outputSystemStream = new SystemStream("outputSystem", "outputStream");
+            messageCollector.send(new OutgoingMessageEnvelope(outputSystemStream, message));
+          });
+    };
+
+    return new StreamApplicationDescriptorImpl(userApp, config);
+  }
+
   private StreamApplicationDescriptorImpl getTumblingWindowStreamGraph(AccumulationMode mode,
       Duration duration, Trigger<KV<Integer, Integer>> earlyTrigger) throws IOException {
     StreamApplication userApp = appDesc -> {
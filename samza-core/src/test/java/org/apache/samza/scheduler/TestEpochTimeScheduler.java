@@ -20,6 +20,8 @@
 package org.apache.samza.scheduler;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -295,4 +297,99 @@ public class TestEpochTimeScheduler {
 
     assertTrue(results.size() == 1);
   }
+
+  @Test
+  public void testTimersInStore() {
+    EpochTimeScheduler scheduler = EpochTimeScheduler.create(createExecutorService());
+    KeyValueTimerStore<String> timerStore = TestKeyValueTimerStore.createTimerStore(10);
+    scheduler.setTimerStore(timerStore);
+    List<String> wakeups = new ArrayList<>();
+    scheduler.registerListener(() -> wakeups.add("wakeup"));
+    List<String> results = new ArrayList<>();
+
+    ScheduledCallback<String> callback = (key, collector, coordinator) -> results.add(key);
+    scheduler.setTimer("timer-1", 1, callback);
+    scheduler.setTimer("timer-2", 2, callback);
+    scheduler.setTimer("timer-3", 3, callback);
+    scheduler.deleteTimer("timer-3");
+    assertTrue(scheduler.getScheduledFutures().isEmpty());
+    assertEquals(1, wakeups.size());
+
+    fireTimers(scheduler);
+
+    assertEquals(2, results.size());
+    assertEquals("timer-1", results.get(0));
+    assertEquals("timer-2", results.get(1));
+    assertEquals(Long.MAX_VALUE, timerStore.nextTime());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTimerInStoreWithAnotherCallbackIsRejected() {
+    EpochTimeScheduler scheduler = EpochTimeScheduler.create(createExecutorService());
+    scheduler.setTimerStore(TestKeyValueTimerStore.createTimerStore(10));
+    scheduler.setDurableCallback((key, collector, coordinator) -> { });
+
+    scheduler.setTimer("timer-1", 1, (key, collector, coordinator) -> { });
+  }
+
+  @Test
+  public void testTimedCallbacks() {
+    EpochTimeScheduler scheduler = EpochTimeScheduler.create(createExecutorService());
+    verifyTimedCallbacks(scheduler);
+  }
+
+  @Test
+  public void testTimedCallbacksInStore() {
+    EpochTimeScheduler scheduler = EpochTimeScheduler.create(createExecutorService());
+    scheduler.setTimerStore(TestKeyValueTimerStore.createTimerStore(10));
+    verifyTimedCallbacks(scheduler);
+  }
+
+  private void verifyTimedCallbacks(EpochTimeScheduler scheduler) {
+    List<String> results = new ArrayList<>();
+    scheduler.registerListener(() -> { });
+    scheduler.setTimedCallback("op-1",
+        (String key, long time, MessageCollector collector, TaskCoordinator coordinator) ->
+            results.add("op-1:" + key + ":" + time));
+    scheduler.setTimedCallback("op-2",
+        (String key, long time, MessageCollector collector, TaskCoordinator coordinator) ->
+            results.add("op-2:" + key + ":" + time));
+
+    // the same keys of different callbacks don't replace each other
+    scheduler.setTimer("op-1", "a", 1);
+    scheduler.setTimer("op-1", "b", 2);
+    scheduler.setTimer("op-2", "a", 3);
+    scheduler.setTimer("op-2", "b", 4);
+
+    fireTimers(scheduler);
+
+    Collections.sort(results);
+    assertEquals(Arrays.asList("op-1:a:1", "op-1:b:2", "op-2:a:3", "op-2:b:4"), results);
+  }
+
+  @Test
+  public void testTimersInStoreAfterRestart() {
+    KeyValueTimerStore<String> timerStore = TestKeyValueTimerStore.createTimerStore(10);
+    timerStore.put("timer-1", 1);
+    timerStore.put("timer-2", 2);
+
+    EpochTimeScheduler scheduler = EpochTimeScheduler.create(createExecutorService());
+    scheduler.setTimerStore(timerStore);
+    List<String> wakeups = new ArrayList<>();
+    scheduler.registerListener(() -> wakeups.add("wakeup"));
+    // timers set before the restart wait for their callback
+    assertTrue(scheduler.removeReadyTimers().isEmpty());
+    assertTrue(wakeups.isEmpty());
+
+    List<String> results = new ArrayList<>();
+    ScheduledCallback<String> callback = (key, collector, coordinator) -> results.add(key);
+    scheduler.setDurableCallback(callback);
+    assertEquals(1, wakeups.size());
+
+    fireTimers(scheduler);
+
+    assertEquals(2, results.size());
+    assertEquals("timer-1", results.get(0));
+    assertEquals("timer-2", results.get(1));
+  }
 }
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.scheduler;
+
+import java.util.List;
+import org.apache.samza.operators.impl.store.TestInMemoryStore;
+import org.apache.samza.serializers.ByteSerde;
+import org.apache.samza.serializers.StringSerde;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestKeyValueTimerStore {
+
+  @Test
+  public void testRemoveDueInTimeOrder() {
+    KeyValueTimerStore<String> timerStore = createTimerStore(10);
+    timerStore.put("c", 300);
+    timerStore.put("a", -100);
+    timerStore.put("b", 200);
+    timerStore.put("d", Long.MAX_VALUE);
+    assertEquals(-100, timerStore.nextTime());
+
+    List<EpochTimeScheduler.TimerKey<String>> timers = timerStore.removeDue(250);
+    assertEquals(2, timers.size());
+    assertEquals(EpochTimeScheduler.TimerKey.of("a", -100), timers.get(0));
+    assertEquals(EpochTimeScheduler.TimerKey.of("b", 200), timers.get(1));
+    assertTrue(timerStore.removeDue(250).isEmpty());
+    assertEquals(300, timerStore.nextTime());
+
+    timers = timerStore.removeDue(Long.MAX_VALUE);
+    assertEquals(2, timers.size());
+    assertEquals(EpochTimeScheduler.TimerKey.of("d", Long.MAX_VALUE), timers.get(1));
+    assertEquals(Long.MAX_VALUE, timerStore.nextTime());
+  }
+
+  @Test
+  public void testReplaceAndDelete() {
+    KeyValueTimerStore<String> timerStore = createTimerStore(10);
+    timerStore.put("a", 100);
+    timerStore.put("a", 500);
+    timerStore.put("b", 200);
+
+    assertTrue(timerStore.delete("b"));
+    assertFalse(timerStore.delete("b"));
+    assertTrue(timerStore.removeDue(400).isEmpty());
+
+    List<EpochTimeScheduler.TimerKey<String>> timers = timerStore.removeDue(500);
+    assertEquals(1, timers.size());
+    assertEquals(EpochTimeScheduler.TimerKey.of("a", 500), timers.get(0));
+    // the key can be set again after its timer fired
+    assertFalse(timerStore.delete("a"));
+  }
+
+  @Test
+  public void testRemoveDueInBatches() {
+    KeyValueTimerStore<String> timerStore = createTimerStore(3);
+    for (int i = 0; i < 7; i++) {
+      timerStore.put("key" + i, 100 + i);
+    }
+
+    assertEquals(3, timerStore.removeDue(1000).size());
+    assertEquals(3, timerStore.removeDue(1000).size());
+    List<EpochTimeScheduler.TimerKey<String>> timers = timerStore.removeDue(1000);
+    assertEquals(1, timers.size());
+    assertEquals(EpochTimeScheduler.TimerKey.of("key6", 106), timers.get(0));
+  }
+
+  @Test
+  public void testTimersOfDifferentCallbacks() {
+    KeyValueTimerStore<String> timerStore = createTimerStore(10);
+    timerStore.put("op-1", "a", 100);
+    timerStore.put("op-2", "a", 200);
+    timerStore.put("a", 300);
+
+    assertTrue(timerStore.delete("op-1", "a"));
+    assertFalse(timerStore.delete("op-1", "a"));
+
+    List<EpochTimeScheduler.TimerKey<String>> timers = timerStore.removeDue(1000);
+    assertEquals(2, timers.size());
+    assertEquals(EpochTimeScheduler.TimerKey.of("op-2", "a", 200), timers.get(0));
+    assertEquals(EpochTimeScheduler.TimerKey.of("a", 300), timers.get(1));
+  }
+
+  static KeyValueTimerStore<String> createTimerStore(int batchSize) {
+    return new KeyValueTimerStore<>(new TestInMemoryStore<>(new ByteSerde(), new ByteSerde()), new StringSerde(),
+        batchSize);
+  }
+}
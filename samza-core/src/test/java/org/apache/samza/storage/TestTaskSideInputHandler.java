@@ -18,7 +18,9 @@
  */
 package org.apache.samza.storage;
 
+import com.google.common.collect.ImmutableList;
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -30,6 +32,8 @@ import java.util.stream.IntStream;
 import org.apache.samza.Partition;
 import org.apache.samza.container.TaskName;
 import org.apache.samza.job.model.TaskMode;
+import org.apache.samza.storage.kv.Entry;
+import org.apache.samza.storage.kv.KeyValueStore;
 import org.apache.samza.system.StreamMetadataCache;
 import org.apache.samza.system.SystemAdmin;
 import org.apache.samza.system.SystemAdmins;
@@ -40,6 +44,7 @@ import org.apache.samza.util.Clock;
 import org.apache.samza.util.ScalaJavaUtil;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -48,8 +53,10 @@ import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 
 public class TestTaskSideInputHandler {
@@ -132,6 +139,26 @@ public class TestTaskSideInputHandler {
     });
   }
 
+  @Test
+  public void testWriteEntriesBatchesConsecutivePutsAndDeletes() {
+    TaskSideInputHandler handler = new MockTaskSideInputHandlerBuilder("test-write-entries-task", TaskMode.Active)
+        .addStore(TEST_STORE, Collections.emptySet())
+        .build();
+    KeyValueStore store = mock(KeyValueStore.class);
+
+    Entry<?, ?> put1 = new Entry<>("k1", "v1");
+    Entry<?, ?> put2 = new Entry<>("k2", "v2");
+    Entry<?, ?> put3 = new Entry<>("k1", "v3");
+    handler.writeEntries(store, ImmutableList.of(put1, put2, new Entry<>(null, "ignored"), new Entry<>("k1", null),
+        new Entry<>("k2", null), put3));
+
+    InOrder inOrder = inOrder(store);
+    inOrder.verify(store).putAll(Arrays.asList(put1, put2));
+    inOrder.verify(store).deleteAll(Arrays.asList("k1", "k2"));
+    inOrder.verify(store).putAll(Collections.singletonList(put3));
+    verifyNoMoreInteractions(store);
+  }
+
   private static final class MockTaskSideInputHandlerBuilder {
     final TaskName taskName;
     final TaskMode taskMode;
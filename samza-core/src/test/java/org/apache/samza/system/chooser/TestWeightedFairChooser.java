@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.system.chooser;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.common.collect.ImmutableMap;
+import org.apache.samza.Partition;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.metrics.Gauge;
+import org.apache.samza.metrics.MetricGroup;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemStreamPartition;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+
+public class TestWeightedFairChooser {
+  private static final SystemStreamPartition SSP_A = new SystemStreamPartition("kafka", "a", new Partition(0));
+  private static final SystemStreamPartition SSP_A1 = new SystemStreamPartition("kafka", "a", new Partition(1));
+  private static final SystemStreamPartition SSP_B = new SystemStreamPartition("kafka", "b", new Partition(0));
+
+  @Test
+  public void testChoosesStreamsInProportionToTheirWeights() {
+    Config config = new MapConfig(ImmutableMap.of("streams.a.samza.system", "kafka",
+        "streams.a.samza.chooser.weight", "3"));
+    WeightedFairChooser chooser = new WeightedFairChooser(config, new MetricsRegistryMap(), () -> 0L);
+    chooser.register(SSP_A, "0");
+    chooser.register(SSP_B, "0");
+
+    Map<SystemStreamPartition, Integer> chosen = chooseWithBacklog(chooser, 400, 100, 100);
+    assertEquals(300, chosen.get(SSP_A), 1);
+    assertEquals(100, chosen.get(SSP_B), 1);
+  }
+
+  @Test
+  public void testSharesBytesAndDoesNotGiveCreditForIdleTime() {
+    WeightedFairChooser chooser = new WeightedFairChooser(new MapConfig(), new MetricsRegistryMap(), () -> 0L);
+    assertNull(chooser.choose());
+
+    // stream a has a backlog while stream b is idle
+    for (int i = 0; i < 100; i++) {
+      chooser.update(envelope(SSP_A, 100));
+      assertEquals(SSP_A, chooser.choose().getSystemStreamPartition());
+    }
+
+    // once stream b has messages, both share the bytes, although messages of stream b are twice as large
+    Map<SystemStreamPartition, Integer> chosen = chooseWithBacklog(chooser, 300, 100, 200);
+    assertEquals(200, chosen.get(SSP_A), 1);
+    assertEquals(100, chosen.get(SSP_B), 1);
+  }
+
+  @Test
+  public void testBoostsLaggingPartitions() {
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    Gauge<Long> lag = newKafkaLagGauge(registry, SSP_A, 20000L);
+    AtomicLong now = new AtomicLong(0);
+    Config config = new MapConfig(ImmutableMap.of("task.chooser.lag.threshold", "10000"));
+    WeightedFairChooser chooser = new WeightedFairChooser(config, registry, now::get);
+    chooser.register(SSP_A, "0");
+    chooser.register(SSP_B, "0");
+
+    Map<SystemStreamPartition, Integer> chosen = chooseWithBacklog(chooser, 300, 100, 100);
+    assertEquals(2.0, chooser.getLagBoost(SSP_A), 0.0);
+    assertEquals(1.0, chooser.getLagBoost(SSP_B), 0.0);
+    assertEquals(200, chosen.get(SSP_A), 1);
+    assertEquals(100, chosen.get(SSP_B), 1);
+
+    // the lag is only read again after the refresh interval
+    lag.set(5000L);
+    chooseWithBacklog(chooser, 1, 100, 100);
+    assertEquals(2.0, chooser.getLagBoost(SSP_A), 0.0);
+    now.addAndGet(WeightedFairChooser.LAG_REFRESH_INTERVAL_MS);
+    chooseWithBacklog(chooser, 1, 100, 100);
+    assertEquals(1.5, chooser.getLagBoost(SSP_A), 0.0);
+
+    lag.set(0L);
+    now.addAndGet(WeightedFairChooser.LAG_REFRESH_INTERVAL_MS);
+    chooseWithBacklog(chooser, 1, 100, 100);
+    assertEquals(1.0, chooser.getLagBoost(SSP_A), 0.0);
+  }
+
+  @Test
+  public void testBoostsLaggingPartitionsWithinTheirStream() {
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    newKafkaLagGauge(registry, SSP_A1, 20000L);
+    Config config = new MapConfig(ImmutableMap.of("task.chooser.lag.threshold", "10000"));
+    WeightedFairChooser chooser = new WeightedFairChooser(config, registry, () -> 0L);
+    chooser.register(SSP_A, "0");
+    chooser.register(SSP_A1, "0");
+
+    Map<SystemStreamPartition, Integer> chosen = chooseWithBacklog(chooser, 300, SSP_A, 100, SSP_A1, 100);
+    assertEquals(100, chosen.get(SSP_A), 1);
+    assertEquals(200, chosen.get(SSP_A1), 1);
+  }
+
+  @Test
+  public void testLooksUpMissingLagGaugesAfterTheLookupInterval() {
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    AtomicLong now = new AtomicLong(0);
+    WeightedFairChooser chooser = new WeightedFairChooser(new MapConfig(), registry, now::get);
+    chooser.register(SSP_A, "0");
+    chooser.register(SSP_B, "0");
+    chooseWithBacklog(chooser, 1, 100, 100);
+
+    // the consumer registers the gauge after the first lookup
+    newKafkaLagGauge(registry, SSP_A, 20000L);
+    now.addAndGet(WeightedFairChooser.LAG_REFRESH_INTERVAL_MS);
+    chooseWithBacklog(chooser, 1, 100, 100);
+    assertEquals(1.0, chooser.getLagBoost(SSP_A), 0.0);
+
+    now.set(WeightedFairChooser.LAG_GAUGE_LOOKUP_INTERVAL_MS);
+    chooseWithBacklog(chooser, 1, 100, 100);
+    assertEquals(2.0, chooser.getLagBoost(SSP_A), 0.0);
+  }
+
+  /**
+   * Register the lag gauge of the partition the way the Kafka consumer metrics do.
+   */
+  private static Gauge<Long> newKafkaLagGauge(MetricsRegistryMap registry, SystemStreamPartition ssp, long lag) {
+    MetricGroup metricGroup =
+        new MetricGroup("org.apache.samza.system.kafka.KafkaSystemConsumerMetrics", ssp.getSystem() + "-", registry);
+    return metricGroup.newGauge(String.format("%s-%s-messages-behind-high-watermark", ssp.getStream(),
+        ssp.getPartition().getPartitionId()), lag);
+  }
+
+  private static Map<SystemStreamPartition, Integer> chooseWithBacklog(WeightedFairChooser chooser, int count,
+      int sizeA, int sizeB) {
+    return chooseWithBacklog(chooser, count, SSP_A, sizeA, SSP_B, sizeB);
+  }
+
+  /**
+   * Choose messages while both partitions always have a message available, like SystemConsumers does for partitions
+   * with a backlog, and count the chosen messages of each partition.
+   */
+  private static Map<SystemStreamPartition, Integer> chooseWithBacklog(WeightedFairChooser chooser, int count,
+      SystemStreamPartition sspA, int sizeA, SystemStreamPartition sspB, int sizeB) {
+    Map<SystemStreamPartition, Integer> chosen = new HashMap<>();
+    chosen.put(sspA, 0);
+    chosen.put(sspB, 0);
+    chooser.update(envelope(sspA, sizeA));
+    chooser.update(envelope(sspB, sizeB));
+    for (int i = 0; i < count; i++) {
+      SystemStreamPartition ssp = chooser.choose().getSystemStreamPartition();
+      chosen.merge(ssp, 1, Integer::sum);
+      chooser.update(envelope(ssp, ssp.equals(sspA) ? sizeA : sizeB));
+    }
+    // drain the remaining message of each stream
+    assertNotNull(chooser.choose());
+    assertNotNull(chooser.choose());
+    assertNull(chooser.choose());
+    return chosen;
+  }
+
+  private static IncomingMessageEnvelope envelope(SystemStreamPartition ssp, int size) {
+    return new IncomingMessageEnvelope(ssp, "0", null, null, size);
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.table.batching;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class TestAdaptiveBatchPolicy {
+  private final AtomicLong now = new AtomicLong();
+
+  private AdaptiveBatchPolicy createPolicy() {
+    return new AdaptiveBatchPolicy(10, 110, Duration.ofMillis(10), Duration.ofMillis(110),
+        Duration.ofMillis(50), now::get);
+  }
+
+  private void completeBatch(AdaptiveBatchPolicy policy, boolean isFull, long latencyMs) {
+    long ts = policy.onBatchClosed(isFull);
+    now.addAndGet(Duration.ofMillis(latencyMs).toNanos());
+    policy.onBatchCompleted(ts, isFull);
+  }
+
+  @Test
+  public void testStartsAtUpperBounds() {
+    AdaptiveBatchPolicy policy = createPolicy();
+    Assert.assertEquals(110, policy.getBatchSize());
+    Assert.assertEquals(Duration.ofMillis(110), policy.getBatchDelay());
+  }
+
+  @Test
+  public void testSlowBatchDecreasesBatchSize() {
+    AdaptiveBatchPolicy policy = createPolicy();
+    completeBatch(policy, true, 100);
+    Assert.assertEquals(55, policy.getBatchSize());
+    completeBatch(policy, true, 100);
+    completeBatch(policy, true, 100);
+    completeBatch(policy, true, 100);
+    // Bounded by the min batch size
+    Assert.assertEquals(10, policy.getBatchSize());
+  }
+
+  @Test
+  public void testFastFullBatchIncreasesBatchSize() {
+    AdaptiveBatchPolicy policy = createPolicy();
+    completeBatch(policy, true, 100);
+    Assert.assertEquals(55, policy.getBatchSize());
+    completeBatch(policy, true, 10);
+    Assert.assertEquals(65, policy.getBatchSize());
+    // A batch closed by the timer does not grow the batch size
+    completeBatch(policy, false, 10);
+    Assert.assertEquals(65, policy.getBatchSize());
+  }
+
+  @Test
+  public void testQueuedBatchesIncreaseBatchSize() {
+    AdaptiveBatchPolicy policy = createPolicy();
+    completeBatch(policy, true, 100);
+    Assert.assertEquals(55, policy.getBatchSize());
+
+    long ts1 = policy.onBatchClosed(false);
+    long ts2 = policy.onBatchClosed(false);
+    policy.onBatchCompleted(ts1, false);
+    Assert.assertEquals(65, policy.getBatchSize());
+    policy.onBatchCompleted(ts2, false);
+    Assert.assertEquals(65, policy.getBatchSize());
+  }
+
+  @Test
+  public void testBatchDelay() {
+    AdaptiveBatchPolicy policy = createPolicy();
+    policy.onBatchClosed(false);
+    Assert.assertEquals(Duration.ofMillis(55), policy.getBatchDelay());
+    policy.onBatchClosed(false);
+    policy.onBatchClosed(false);
+    policy.onBatchClosed(false);
+    Assert.assertEquals(Duration.ofMillis(10), policy.getBatchDelay());
+    policy.onBatchClosed(true);
+    Assert.assertEquals(Duration.ofMillis(20), policy.getBatchDelay());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBounds() {
+    new AdaptiveBatchPolicy(100, 10, Duration.ofMillis(10), Duration.ofMillis(110), Duration.ofMillis(50), now::get);
+  }
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.function.Supplier;
 import org.apache.samza.table.ReadWriteTable;
 import org.junit.Assert;
@@ -33,7 +34,11 @@ import org.junit.Test;
 import static java.lang.Thread.sleep;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyList;
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -147,6 +152,96 @@ public class TestBatchProcessor {
     }
   }
 
+  public static class TestAdaptiveBatching {
+    @Test
+    public void testBatchSizeDecreasedBySlowTable() throws Exception {
+      final ReadWriteTable<Integer, Integer> table = mock(ReadWriteTable.class);
+      // Every batch takes longer than the target latency
+      when(table.putAllAsync(anyList())).thenAnswer(invocation -> CompletableFuture.runAsync(() -> {
+        try {
+          sleep(50);
+        } catch (InterruptedException e) {
+          // ignore
+        }
+      }));
+      final BatchProvider<Integer, Integer> batchProvider = new CompactBatchProvider<Integer, Integer>()
+          .withMaxBatchSize(8).withMaxBatchDelay(Duration.ofMillis(Integer.MAX_VALUE))
+          .withAdaptiveBatching(1, Duration.ofMillis(1), Duration.ofMillis(10));
+      final BatchMetrics batchMetrics = mock(BatchMetrics.class);
+      final BatchProcessor<Integer, Integer> batchProcessor = new BatchProcessor<>(batchMetrics,
+          new TableBatchHandler<>(table), batchProvider, System::nanoTime, Executors.newSingleThreadScheduledExecutor());
+
+      // The first two batches are created with the max size before any batch completes
+      for (int i = 0; i < 8; i++) {
+        batchProcessor.processUpdateOperation(new PutOperation<>(i, i));
+      }
+      Assert.assertEquals(0, batchProcessor.size());
+      sleep(200);
+      for (int i = 0; i < 8; i++) {
+        batchProcessor.processUpdateOperation(new PutOperation<>(i, i));
+      }
+      Assert.assertEquals(0, batchProcessor.size());
+
+      // The first batch exceeded the target latency, so the third batch is closed at half the size
+      for (int i = 0; i < 3; i++) {
+        batchProcessor.processUpdateOperation(new PutOperation<>(i, i));
+      }
+      Assert.assertEquals(3, batchProcessor.size());
+      batchProcessor.processUpdateOperation(new PutOperation<>(3, 3));
+      Assert.assertEquals(0, batchProcessor.size());
+      verify(batchMetrics).updateBatchSize(4);
+      batchProcessor.stop();
+    }
+
+    @Test
+    public void testIdleTableDoesNotCloseEmptyBatches() throws Exception {
+      final ReadWriteTable<Integer, Integer> table = mock(ReadWriteTable.class);
+      when(table.putAllAsync(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+      final BatchProvider<Integer, Integer> batchProvider = new CompactBatchProvider<Integer, Integer>()
+          .withMaxBatchSize(8).withMaxBatchDelay(Duration.ofMillis(40))
+          .withAdaptiveBatching(1, Duration.ofMillis(1), Duration.ofMillis(1000));
+      final BatchMetrics batchMetrics = mock(BatchMetrics.class);
+      final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+      final BatchProcessor<Integer, Integer> batchProcessor = new BatchProcessor<>(batchMetrics,
+          new TableBatchHandler<>(table), batchProvider, System::nanoTime, executor);
+
+      // The timer of a batch is set by its first operation, and closes the batch once
+      batchProcessor.processUpdateOperation(new PutOperation<>(1, 1));
+      sleep(100);
+      Assert.assertEquals(0, batchProcessor.size());
+      verify(table).putAllAsync(anyList());
+
+      // The table is idle, so no timer is set for the next batch, and its delay is only halved once
+      sleep(200);
+      Assert.assertEquals(1, executor.getTaskCount());
+      verify(batchMetrics, times(1)).updateBatchLatency(anyLong());
+      verify(batchMetrics).updateBatchDelay(20L);
+      verify(batchMetrics, never()).updateBatchDelay(1L);
+      batchProcessor.stop();
+      executor.shutdown();
+    }
+
+    @Test
+    public void testDefaultAdaptiveBatch() {
+      // A provider which only creates batches with its configured size
+      final BatchProvider<Integer, Integer> batchProvider = new BatchProvider<Integer, Integer>() {
+        @Override
+        public Batch<Integer, Integer> getBatch() {
+          return new CompleteBatch<>(getMaxBatchSize(), getMaxBatchDelay());
+        }
+      }.withMaxBatchSize(8).withMaxBatchDelay(Duration.ofMillis(100));
+
+      final Batch<Integer, Integer> batch = batchProvider.getBatch(2, Duration.ofMillis(10));
+      Assert.assertEquals(2, batch.getMaxBatchSize());
+      Assert.assertEquals(Duration.ofMillis(10), batch.getMaxBatchDelay());
+      batch.addOperation(new PutOperation<>(1, 1));
+      Assert.assertFalse(batch.isClosed());
+      batch.addOperation(new PutOperation<>(2, 2));
+      Assert.assertTrue(batch.isClosed());
+      Assert.assertEquals(2, batch.getOperations().size());
+    }
+  }
+
   private static BatchProcessor<Integer, Integer> createBatchProcessor(ReadWriteTable<Integer, Integer> table,
       int maxSize, int maxDelay) {
     final BatchProvider<Integer, Integer> batchProvider = new CompactBatchProvider<Integer, Integer>()
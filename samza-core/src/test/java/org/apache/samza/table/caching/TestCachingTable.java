@@ -19,6 +19,7 @@
 
 package org.apache.samza.table.caching;
 
+import com.google.common.base.Ticker;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import org.apache.commons.lang3.tuple.Pair;
@@ -56,6 +57,8 @@ import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -134,6 +137,13 @@ public class TestCachingTable {
       return cacheStore.remove(key);
     }).when(cacheTable).delete(any());
 
+    doAnswer(invocation -> {
+      List<String> keys = invocation.getArgumentAt(0, List.class);
+      Map<String, String> records = new HashMap<>();
+      keys.stream().filter(cacheStore::containsKey).forEach(k -> records.put(k, cacheStore.get(k)));
+      return records;
+    }).when(cacheTable).getAll(any());
+
     return Pair.of(cacheTable, cacheStore);
   }
 
@@ -269,6 +279,155 @@ public class TestCachingTable {
     verify(table, times(2)).getAsync(any());
   }
 
+  @Test
+  public void testSerializeRefreshAndNegativeTtl() {
+    CachingTableDescriptor desc = new CachingTableDescriptor("1", createDummyTableDescriptor("2"))
+        .withReadTtl(Duration.ofMinutes(3))
+        .withWriteTtl(Duration.ofMinutes(4))
+        .withRefreshAfterWrite(Duration.ofMinutes(2))
+        .withNegativeTtl(Duration.ofSeconds(30))
+        .withTtlJitter(0.1);
+    Map<String, String> tableConfig = desc.toConfig(new MapConfig());
+    assertEquals("120000", CachingTableDescriptor.REFRESH_AFTER_WRITE_MS, "1", tableConfig);
+    assertEquals("30000", CachingTableDescriptor.NEGATIVE_TTL_MS, "1", tableConfig);
+    assertEquals("0.1", CachingTableDescriptor.TTL_JITTER, "1", tableConfig);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRefreshAfterWriteLongerThanWriteTtl() {
+    new CachingTableDescriptor("1", createDummyTableDescriptor("2"))
+        .withReadTtl(Duration.ofMinutes(3))
+        .withWriteTtl(Duration.ofMinutes(4))
+        .withRefreshAfterWrite(Duration.ofMinutes(5))
+        .toConfig(new MapConfig());
+  }
+
+  @Test
+  public void testRefreshAhead() {
+    AtomicLong nowNs = new AtomicLong();
+    ReadWriteTable<String, String> table = mock(ReadWriteTable.class);
+    CompletableFuture<String> refreshFuture = new CompletableFuture<>();
+    when(table.getAsync(any())).thenReturn(CompletableFuture.completedFuture("v1"), refreshFuture);
+    Pair<ReadWriteTable<String, String>, Map<String, String>> cachePair = getMockCache();
+    CachingTable<String, String> cachingTable = new CachingTable<>("myTable", table, cachePair.getLeft(), false,
+        1000, -1, 0.0, -1);
+    cachingTable.setTicker(createTicker(nowNs));
+    initTables(cachingTable);
+
+    Assert.assertEquals("v1", cachingTable.get("foo"));
+    verify(table, times(1)).getAsync(any());
+
+    // Still fresh, no refresh
+    nowNs.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    Assert.assertEquals("v1", cachingTable.get("foo"));
+    verify(table, times(1)).getAsync(any());
+
+    // Stale, serve cached value and refresh only once while the refresh is in flight
+    nowNs.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+    Assert.assertEquals("v1", cachingTable.get("foo"));
+    Assert.assertEquals("v1", cachingTable.get("foo"));
+    verify(table, times(2)).getAsync(any());
+
+    refreshFuture.complete("v2");
+    Assert.assertEquals("v2", cachePair.getRight().get("foo"));
+    Assert.assertEquals("v2", cachingTable.get("foo"));
+    verify(table, times(2)).getAsync(any());
+  }
+
+  @Test
+  public void testNegativeCaching() {
+    AtomicLong nowNs = new AtomicLong();
+    ReadWriteTable<String, String> table = mock(ReadWriteTable.class);
+    doReturn(CompletableFuture.completedFuture(null)).when(table).getAsync(any());
+    doReturn(CompletableFuture.completedFuture(null)).when(table).putAsync(any(), any());
+    ReadWriteTable<String, String> cache = getMockCache().getLeft();
+    CachingTable<String, String> cachingTable = new CachingTable<>("myTable", table, cache, false,
+        -1, 1000, 0.0, 100);
+    cachingTable.setTicker(createTicker(nowNs));
+    initTables(cachingTable);
+
+    Assert.assertNull(cachingTable.get("foo"));
+    Assert.assertNull(cachingTable.get("foo"));
+    verify(table, times(1)).getAsync(any());
+
+    // Negative entry expired
+    nowNs.addAndGet(TimeUnit.MILLISECONDS.toNanos(1001));
+    Assert.assertNull(cachingTable.get("foo"));
+    verify(table, times(2)).getAsync(any());
+
+    // Write invalidates the negative entry
+    cachingTable.put("foo", "bar");
+    Assert.assertEquals("bar", cachingTable.get("foo"));
+  }
+
+  @Test
+  public void testRefreshDroppedAfterWrite() {
+    AtomicLong nowNs = new AtomicLong();
+    ReadWriteTable<String, String> table = mock(ReadWriteTable.class);
+    CompletableFuture<String> refreshFuture = new CompletableFuture<>();
+    when(table.getAsync(any())).thenReturn(CompletableFuture.completedFuture("v1"), refreshFuture);
+    doReturn(CompletableFuture.completedFuture(null)).when(table).putAsync(any(), any());
+    Pair<ReadWriteTable<String, String>, Map<String, String>> cachePair = getMockCache();
+    CachingTable<String, String> cachingTable = new CachingTable<>("myTable", table, cachePair.getLeft(), false,
+        1000, -1, 0.0, -1);
+    cachingTable.setTicker(createTicker(nowNs));
+    initTables(cachingTable);
+
+    Assert.assertEquals("v1", cachingTable.get("foo"));
+    nowNs.addAndGet(TimeUnit.MILLISECONDS.toNanos(1001));
+    // Stale hit issues a refresh, which completes after a newer write
+    Assert.assertEquals("v1", cachingTable.get("foo"));
+    cachingTable.put("foo", "v3");
+    refreshFuture.complete("v2");
+    Assert.assertEquals("v3", cachePair.getRight().get("foo"));
+    Assert.assertEquals("v3", cachingTable.get("foo"));
+  }
+
+  @Test
+  public void testNegativeCachingGetAll() {
+    ReadWriteTable<String, String> table = mock(ReadWriteTable.class);
+    doReturn(CompletableFuture.completedFuture(Collections.singletonMap("foo", "bar")))
+        .when(table).getAllAsync(any());
+    ReadWriteTable<String, String> cache = getMockCache().getLeft();
+    CachingTable<String, String> cachingTable = new CachingTable<>("myTable", table, cache, false,
+        -1, 1000, 0.0, -1);
+    initTables(cachingTable);
+
+    Assert.assertEquals(Collections.singletonMap("foo", "bar"), cachingTable.getAll(Arrays.asList("foo", "baz")));
+    verify(table, times(1)).getAllAsync(any());
+    Assert.assertEquals(2, cachingTable.requestCount());
+    Assert.assertEquals(0.0, cachingTable.hitRate(), 0.0);
+
+    // "foo" is cached and "baz" is negatively cached, both are counted as hits
+    Assert.assertEquals(Collections.singletonMap("foo", "bar"), cachingTable.getAll(Arrays.asList("foo", "baz")));
+    verify(table, times(1)).getAllAsync(any());
+    Assert.assertEquals(4, cachingTable.requestCount());
+    Assert.assertEquals(0.5, cachingTable.hitRate(), 0.0);
+  }
+
+  @Test
+  public void testGetAllRefreshPassesArgs() {
+    AtomicLong nowNs = new AtomicLong();
+    ReadWriteTable<String, String> table = mock(ReadWriteTable.class);
+    doReturn(CompletableFuture.completedFuture(Collections.singletonMap("foo", "v1")))
+        .when(table).getAllAsync(any(), any());
+    doReturn(new CompletableFuture<>()).when(table).getAsync(any(), any());
+    ReadWriteTable<String, String> cache = new GuavaCacheTable<>("myTable-cache", CacheBuilder.newBuilder().build());
+    CachingTable<String, String> cachingTable = new CachingTable<>("myTable", table, cache, false,
+        1000, -1, 0.0, -1);
+    cachingTable.setTicker(createTicker(nowNs));
+    initTables(cachingTable);
+
+    Assert.assertEquals(Collections.singletonMap("foo", "v1"),
+        cachingTable.getAll(Collections.singletonList("foo"), "arg"));
+    nowNs.addAndGet(TimeUnit.MILLISECONDS.toNanos(1001));
+    // the refresh of the stale key is issued with the arguments of the getAll
+    Assert.assertEquals(Collections.singletonMap("foo", "v1"),
+        cachingTable.getAll(Collections.singletonList("foo"), "arg"));
+    verify(table).getAsync("foo", "arg");
+    Assert.assertEquals(0.5, cachingTable.hitRate(), 0.0);
+  }
+
   /**
    * Testing caching in a more realistic scenario with Guava cache + remote table
    */
@@ -431,6 +590,15 @@ public class TestCachingTable {
     cachingTable.deleteAllAsync(Collections.emptyList());
   }
 
+  private static Ticker createTicker(AtomicLong nowNs) {
+    return new Ticker() {
+      @Override
+      public long read() {
+        return nowNs.get();
+      }
+    };
+  }
+
   private TableDescriptor createDummyTableDescriptor(String tableId) {
     BaseTableDescriptor tableDescriptor = mock(BaseTableDescriptor.class);
     when(tableDescriptor.getTableId()).thenReturn(tableId);
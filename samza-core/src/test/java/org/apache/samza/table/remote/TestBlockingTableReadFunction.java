@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.table.remote;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.samza.context.Context;
+import org.apache.samza.table.AsyncReadWriteTable;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class TestBlockingTableReadFunction {
+
+  private static class SquareReadFunction extends BlockingTableReadFunction<Integer, Integer> {
+    private final CountDownLatch started;
+    private final CountDownLatch release;
+
+    SquareReadFunction(int fallbackThreadPoolSize, CountDownLatch started, CountDownLatch release) {
+      super(fallbackThreadPoolSize);
+      this.started = started;
+      this.release = release;
+    }
+
+    @Override
+    public Integer get(Integer key) {
+      if (key < 0) {
+        throw new IllegalArgumentException("negative key " + key);
+      }
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      return key * key;
+    }
+
+    @Override
+    public boolean isRetriable(Throwable exception) {
+      return false;
+    }
+  }
+
+  @Test
+  public void testGetAsyncRunsBlockingGetsConcurrently() throws Exception {
+    CountDownLatch started = new CountDownLatch(4);
+    CountDownLatch release = new CountDownLatch(1);
+    SquareReadFunction readFn = new SquareReadFunction(4, started, release);
+    readFn.init(mock(Context.class), mock(AsyncReadWriteTable.class));
+
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int key = 1; key <= 4; key++) {
+      futures.add(readFn.getAsync(key));
+    }
+    // all the gets block at the same time, without blocking the caller
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertTrue(futures.stream().noneMatch(CompletableFuture::isDone));
+
+    release.countDown();
+    for (int key = 1; key <= 4; key++) {
+      assertEquals(key * key, (int) futures.get(key - 1).get(10, TimeUnit.SECONDS));
+    }
+    readFn.close();
+  }
+
+  @Test
+  public void testGetAllAsyncAndFailure() throws Exception {
+    SquareReadFunction readFn = new SquareReadFunction(2, new CountDownLatch(0), new CountDownLatch(0));
+    readFn.init(mock(Context.class), mock(AsyncReadWriteTable.class));
+
+    Map<Integer, Integer> values = readFn.getAllAsync(Arrays.asList(2, 3)).get(10, TimeUnit.SECONDS);
+    assertEquals(4, (int) values.get(2));
+    assertEquals(9, (int) values.get(3));
+    assertEquals(16, (int) readFn.get(4));
+
+    try {
+      readFn.getAsync(-1).get(10, TimeUnit.SECONDS);
+      fail("Expected the get to fail");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+    readFn.close();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testGetAsyncBeforeInit() {
+    new SquareReadFunction(1, new CountDownLatch(0), new CountDownLatch(0)).getAsync(1);
+  }
+}
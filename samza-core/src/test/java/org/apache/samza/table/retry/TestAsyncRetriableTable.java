@@ -119,6 +119,36 @@ public class TestAsyncRetriableTable {
     table.close();
   }
 
+  @Test
+  public void testGetWithHedging() {
+    TableRetryPolicy policy = new TableRetryPolicy();
+    policy.withFixedBackoff(Duration.ofMillis(100));
+    policy.withHedging(Duration.ofMillis(10), 0.1);
+    TableReadFunction<String, String> readFn = mock(TableReadFunction.class);
+    CompletableFuture<String> slowFuture = new CompletableFuture<>();
+    AtomicInteger count = new AtomicInteger();
+    doAnswer(invocation -> {
+      // The 1st request after the latency window is filled never completes
+      return count.incrementAndGet() == 1025 ? slowFuture : CompletableFuture.completedFuture("bar");
+    }).when(readFn).getAsync(any());
+    AsyncReadWriteTable delegate = new AsyncRemoteTable(readFn, null);
+    AsyncRetriableTable table = new AsyncRetriableTable("t1", delegate, policy, null, schedExec, readFn, null);
+    table.init(TestRemoteTable.getMockContext());
+
+    for (int i = 0; i < 1024; i++) {
+      assertEquals("bar", table.getAsync("foo").join());
+    }
+    assertEquals(0, table.readRetryMetrics.hedgeCount.getCount());
+    assertEquals(Duration.ofMillis(10).toNanos(), table.hedgedReadExecutor.getHedgeDelayNs());
+
+    // The hedged request completes the slow request
+    assertEquals("bar", table.getAsync("foo").join());
+    verify(readFn, times(1026)).getAsync(any());
+    assertEquals(1, table.readRetryMetrics.hedgeCount.getCount());
+    assertEquals(1, table.readRetryMetrics.hedgeWinCount.getCount());
+    assertTrue(slowFuture.isCancelled());
+  }
+
   @Test
   public void testGetWithoutRetry() {
     TableRetryPolicy policy = new TableRetryPolicy();
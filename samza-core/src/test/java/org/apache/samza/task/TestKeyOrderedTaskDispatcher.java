@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.samza.Partition;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemStreamPartition;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class TestKeyOrderedTaskDispatcher {
+  private static final SystemStreamPartition SSP = new SystemStreamPartition("system", "stream", new Partition(0));
+
+  /**
+   * An {@link AsyncStreamTask} which keeps the messages and callbacks, for the test to complete them.
+   */
+  private static class PendingTask implements AsyncStreamTask {
+    private final List<IncomingMessageEnvelope> envelopes = new ArrayList<>();
+    private final List<TaskCallback> callbacks = new ArrayList<>();
+
+    @Override
+    public void processAsync(IncomingMessageEnvelope envelope, MessageCollector collector, TaskCoordinator coordinator,
+        TaskCallback callback) {
+      envelopes.add(envelope);
+      callbacks.add(callback);
+    }
+
+    List<Object> getProcessedMessages() {
+      return envelopes.stream().map(IncomingMessageEnvelope::getMessage).collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * A {@link TaskCallback} which counts completions.
+   */
+  private static class CountingCallback implements TaskCallback {
+    private final AtomicInteger completions;
+
+    CountingCallback(AtomicInteger completions) {
+      this.completions = completions;
+    }
+
+    @Override
+    public void complete() {
+      completions.incrementAndGet();
+    }
+
+    @Override
+    public void failure(Throwable t) {
+      completions.incrementAndGet();
+    }
+  }
+
+  @Test
+  public void testMessagesWithSameKeyAreProcessedInOrder() {
+    KeyOrderedTaskDispatcher dispatcher = new KeyOrderedTaskDispatcher();
+    PendingTask task = new PendingTask();
+    AtomicInteger completions = new AtomicInteger();
+
+    dispatch(dispatcher, task, "a", "m1", completions);
+    dispatch(dispatcher, task, "b", "m2", completions);
+    dispatch(dispatcher, task, "a", "m3", completions);
+    dispatch(dispatcher, task, new byte[] {1}, "m4", completions);
+    dispatch(dispatcher, task, new byte[] {1}, "m5", completions);
+    dispatch(dispatcher, task, null, "m6", completions);
+    dispatch(dispatcher, task, null, "m7", completions);
+    // messages with a key in flight wait, and byte array keys are compared by contents
+    assertEquals(Arrays.asList("m1", "m2", "m4", "m6"), task.getProcessedMessages());
+    assertEquals(4, dispatcher.getKeysInFlight());
+
+    task.callbacks.get(0).complete();
+    assertEquals(Arrays.asList("m1", "m2", "m4", "m6", "m3"), task.getProcessedMessages());
+    task.callbacks.get(2).failure(new Exception("failed"));
+    task.callbacks.get(3).complete();
+    assertEquals(Arrays.asList("m1", "m2", "m4", "m6", "m3", "m5", "m7"), task.getProcessedMessages());
+
+    // completing a callback again doesn't process another message
+    dispatch(dispatcher, task, "a", "m8", completions);
+    task.callbacks.get(0).complete();
+    assertEquals(7, task.getProcessedMessages().size());
+
+    new ArrayList<>(task.callbacks).forEach(TaskCallback::complete);
+    assertEquals(Arrays.asList("m1", "m2", "m4", "m6", "m3", "m5", "m7", "m8"), task.getProcessedMessages());
+    task.callbacks.get(7).complete();
+    assertEquals(0, dispatcher.getKeysInFlight());
+    // all completions are passed to the callbacks of the messages
+    assertEquals(12, completions.get());
+  }
+
+  @Test
+  public void testMessagesCompletedSynchronously() {
+    KeyOrderedTaskDispatcher dispatcher = new KeyOrderedTaskDispatcher();
+    List<Object> processed = new ArrayList<>();
+    AsyncStreamTask task = (envelope, collector, coordinator, callback) -> {
+      processed.add(envelope.getMessage());
+      callback.complete();
+    };
+    AtomicInteger completions = new AtomicInteger();
+
+    dispatch(dispatcher, task, "a", "m1", completions);
+    dispatch(dispatcher, task, "a", "m2", completions);
+    assertEquals(Arrays.asList("m1", "m2"), processed);
+    assertEquals(2, completions.get());
+    assertEquals(0, dispatcher.getKeysInFlight());
+  }
+
+  private static void dispatch(KeyOrderedTaskDispatcher dispatcher, AsyncStreamTask task, Object key, String message,
+      AtomicInteger completions) {
+    dispatcher.dispatch(task, new IncomingMessageEnvelope(SSP, "0", key, message), null, null,
+        new CountingCallback(completions));
+  }
+}
@@ -23,7 +23,7 @@ import java.util
 import java.util.function.BiConsumer
 
 import com.google.common.collect.ImmutableMap
-import org.apache.samza.config.MapConfig
+import org.apache.samza.config.{MapConfig, TaskConfig}
 import org.apache.samza.container.TaskName
 import org.apache.samza.startpoint.{Startpoint, StartpointManagerTestUtil, StartpointOldest, StartpointSpecific, StartpointUpcoming}
 import org.apache.samza.system.SystemStreamMetadata.{OffsetType, SystemStreamPartitionMetadata}
@@ -252,6 +252,41 @@ class TestOffsetManager {
     startpointManagerUtil.stop
   }
 
+  @Test
+  def testSkipUnchangedAndBatchedCheckpoints {
+    val taskName = new TaskName("c")
+    val systemStream = new SystemStream("test-system", "test-stream")
+    val partition = new Partition(0)
+    val systemStreamPartition = new SystemStreamPartition(systemStream, partition)
+    val testStreamMetadata = new SystemStreamMetadata(systemStream.getStream, Map(partition -> new SystemStreamPartitionMetadata("0", "1", "2")).asJava)
+    val systemStreamMetadata = Map(systemStream -> testStreamMetadata)
+    val config = new MapConfig(Map(
+      TaskConfig.CHECKPOINT_SKIP_UNCHANGED -> "true",
+      TaskConfig.CHECKPOINT_BATCH_MAX_WAIT_MS -> "0").asJava)
+    val checkpointManager = mock(classOf[CheckpointManager])
+    val systemAdmins = mock(classOf[SystemAdmins])
+    when(systemAdmins.getSystemAdmin("test-system")).thenReturn(getSystemAdmin)
+    val offsetManagerMetrics = new OffsetManagerMetrics
+    val offsetManager = OffsetManager(systemStreamMetadata, config, checkpointManager, null, systemAdmins, Map(), offsetManagerMetrics)
+    offsetManager.register(taskName, Set(systemStreamPartition))
+    offsetManager.start
+
+    offsetManager.update(taskName, systemStreamPartition, "46")
+    checkpoint(offsetManager, taskName)
+    // nothing was processed since the last checkpoint
+    checkpoint(offsetManager, taskName)
+    offsetManager.update(taskName, systemStreamPartition, "47")
+    checkpoint(offsetManager, taskName)
+
+    val inOrder = Mockito.inOrder(checkpointManager)
+    inOrder.verify(checkpointManager).writeCheckpoints(ImmutableMap.of(taskName, new Checkpoint(Map(systemStreamPartition -> "46").asJava)))
+    inOrder.verify(checkpointManager).writeCheckpoints(ImmutableMap.of(taskName, new Checkpoint(Map(systemStreamPartition -> "47").asJava)))
+    Mockito.verify(checkpointManager, Mockito.never).writeCheckpoint(any(), any())
+    assertEquals(1, offsetManagerMetrics.checkpointsSkipped.getCount)
+    assertEquals(2, offsetManagerMetrics.checkpointBatches.getCount)
+    assertEquals("47", offsetManagerMetrics.checkpointedOffsets.get(systemStreamPartition).getValue)
+  }
+
   @Test
   def testShouldResetStreams {
     val taskName = new TaskName("c")
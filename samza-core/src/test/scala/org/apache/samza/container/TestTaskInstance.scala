@@ -27,7 +27,7 @@ import org.apache.samza.checkpoint.{Checkpoint, CheckpointedChangelogOffset, Off
 import org.apache.samza.config.MapConfig
 import org.apache.samza.context.{TaskContext => _, _}
 import org.apache.samza.job.model.TaskModel
-import org.apache.samza.metrics.Counter
+import org.apache.samza.metrics.{Counter, Timer}
 import org.apache.samza.storage.NonTransactionalStateTaskStorageManager
 import org.apache.samza.system.{IncomingMessageEnvelope, StreamMetadataCache, SystemAdmin, SystemConsumers, SystemStream, SystemStreamMetadata, _}
 import org.apache.samza.table.TableManager
@@ -99,6 +99,9 @@ class TestTaskInstance extends AssertionsForJUnit with MockitoSugar {
       .thenReturn(this.applicationTaskContext)
     when(this.systemAdmins.getSystemAdmin(SYSTEM_NAME)).thenReturn(this.systemAdmin)
     when(this.jobContext.getConfig).thenReturn(new MapConfig(Collections.singletonMap("task.commit.ms", "-1")))
+    when(this.metrics.commitFlushNs).thenReturn(mock[Timer])
+    when(this.metrics.commitCheckpointNs).thenReturn(mock[Timer])
+    when(this.metrics.commitCleanupNs).thenReturn(mock[Timer])
     setupTaskInstance(Some(this.applicationTaskContextFactory))
   }
 
@@ -251,6 +254,32 @@ class TestTaskInstance extends AssertionsForJUnit with MockitoSugar {
     verify(commitsCounter).inc()
   }
 
+  @Test
+  def testCommitListenerSendsMessagesCompletedAfterOffsetsAreCaptured() {
+    when(this.metrics.commits).thenReturn(mock[Counter])
+    val bufferingTask = new BufferingTask
+    setupTaskInstance(Some(this.applicationTaskContextFactory), bufferingTask)
+    val inputOffsets = new Checkpoint(Map(SYSTEM_STREAM_PARTITION -> "4").asJava)
+    val partialAggregate = new OutgoingMessageEnvelope(new SystemStream(SYSTEM_NAME, "test-output-stream"), "partial")
+    // with task.async.commit, a message completes after the input offsets are captured, and its offset is checkpointed
+    when(this.offsetManager.buildCheckpoint(TASK_NAME)).thenAnswer(new Answer[Checkpoint] {
+      override def answer(invocation: InvocationOnMock): Checkpoint = {
+        bufferingTask.buffer.add(partialAggregate)
+        inputOffsets
+      }
+    })
+    when(this.taskStorageManager.flush()).thenReturn(Map[SystemStreamPartition, Option[String]]())
+    taskInstance.commit
+
+    // the messages buffered for it must be flushed before the checkpoint is written
+    val mockOrder = inOrder(this.offsetManager, this.collector)
+    mockOrder.verify(this.offsetManager).buildCheckpoint(TASK_NAME)
+    mockOrder.verify(this.collector).send(partialAggregate)
+    mockOrder.verify(this.collector).flush
+    mockOrder.verify(this.offsetManager).writeCheckpoint(Matchers.eq(TASK_NAME), any())
+    assertTrue(bufferingTask.buffer.isEmpty)
+  }
+
   @Test
   def testEmptyChangelogSSPOffsetInCommit() { // e.g. if changelog topic is empty
     val commitsCounter = mock[Counter]
@@ -418,8 +447,9 @@ class TestTaskInstance extends AssertionsForJUnit with MockitoSugar {
   }
 
   private def setupTaskInstance(
-    applicationTaskContextFactory: Option[ApplicationTaskContextFactory[ApplicationTaskContext]]): Unit = {
-    this.taskInstance = new TaskInstance(this.task,
+    applicationTaskContextFactory: Option[ApplicationTaskContextFactory[ApplicationTaskContext]],
+    task: Any = this.task): Unit = {
+    this.taskInstance = new TaskInstance(task,
       this.taskModel,
       this.metrics,
       this.systemAdmins,
@@ -442,6 +472,21 @@ class TestTaskInstance extends AssertionsForJUnit with MockitoSugar {
     */
   trait AllTask extends AsyncStreamTask with InitableTask with ClosableTask with WindowableTask {}
 
+  /**
+    * Task which buffers the messages it sends until the commit.
+    */
+  class BufferingTask extends AsyncStreamTask with CommitListenerTask {
+    val buffer = new java.util.ArrayList[OutgoingMessageEnvelope]()
+
+    override def processAsync(envelope: IncomingMessageEnvelope, collector: MessageCollector,
+      coordinator: TaskCoordinator, callback: TaskCallback): Unit = callback.complete()
+
+    override def beforeCommit(collector: MessageCollector): Unit = {
+      buffer.asScala.foreach(collector.send)
+      buffer.clear()
+    }
+  }
+
   /**
     * Mock version of [TaskInstanceExceptionHandler] which just does a passthrough execution and keeps track of the
     * number of times it is called. This is used to verify that the handler does get used to wrap the actual processing.
@@ -45,4 +45,55 @@ class TestMetricsSnapshotSerde {
     val bytes = serde.toBytes(snapshot)
     assertTrue(serde.fromBytes(bytes).equals(metrics))
   }
+
+  @Test
+  def testBinarySerdeShouldSerializeAndDeserializeMetrics {
+    val header = new MetricsHeader("test-jobName", "testjobid", "samza-container-0", "test exec env container id", "test source", "version", "samzaversion", "host", 1L, 2L)
+    val metricsMap = new HashMap[String, Object]()
+    metricsMap.put("long", 1L: java.lang.Long)
+    metricsMap.put("int", 2: Integer)
+    metricsMap.put("double", 3.5: java.lang.Double)
+    metricsMap.put("boolean", true: java.lang.Boolean)
+    metricsMap.put("string", "foo")
+    metricsMap.put("null", null)
+    metricsMap.put("list", java.util.Arrays.asList("a", "b"))
+    val metricsGroupMap = new HashMap[String, Map[String, Object]]()
+    metricsGroupMap.put("test", metricsMap)
+    val snapshot = new MetricsSnapshot(header, Metrics.fromMap(metricsGroupMap))
+
+    val serde = new MetricsSnapshotBinarySerde()
+    val deserialized = serde.fromBytes(serde.toBytes(snapshot))
+
+    assertEquals(header.getAsMap, deserialized.getHeader.getAsMap)
+    assertEquals(metricsMap, deserialized.getMetrics.get("test"))
+  }
+
+  @Test
+  def testBinarySerdeShouldSerializeNullHeaderFields {
+    val header = new MetricsHeader("test-jobName", "testjobid", "samza-container-0", null, "test source", "version", "samzaversion", null, 1L, 2L)
+    val snapshot = new MetricsSnapshot(header, Metrics.fromMap(new HashMap[String, Map[String, Object]]()))
+
+    val serde = new MetricsSnapshotBinarySerde()
+    val deserialized = serde.fromBytes(serde.toBytes(snapshot))
+
+    assertNull(deserialized.getHeader.getExecEnvironmentContainerId)
+    assertNull(deserialized.getHeader.getHost)
+    assertEquals(header.getAsMap, deserialized.getHeader.getAsMap)
+  }
+
+  @Test
+  def testSerdesShouldSerializeDeltaReportMarker {
+    val header = new MetricsHeader("test-jobName", "testjobid", "samza-container-0", "test exec env container id", "test source", "version", "samzaversion", "host", 1L, 2L, false)
+    val snapshot = new MetricsSnapshot(header, Metrics.fromMap(new HashMap[String, Map[String, Object]]()))
+
+    val jsonSerde = new MetricsSnapshotSerde()
+    assertFalse(jsonSerde.fromBytes(jsonSerde.toBytes(snapshot)).getHeader.getFullReport)
+    val binarySerde = new MetricsSnapshotBinarySerde()
+    assertFalse(binarySerde.fromBytes(binarySerde.toBytes(snapshot)).getHeader.getFullReport)
+
+    // headers without the marker are full reports
+    val headerMap = new HashMap[String, Object](header.getAsMap)
+    headerMap.remove("full-report")
+    assertTrue(MetricsHeader.fromMap(headerMap).getFullReport)
+  }
 }
@@ -20,9 +20,12 @@ package org.apache.samza.storage;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.samza.Partition;
 import org.apache.samza.checkpoint.Checkpoint;
 import org.apache.samza.checkpoint.CheckpointManager;
@@ -38,8 +41,13 @@ import org.apache.samza.context.JobContext;
 import org.apache.samza.job.model.ContainerModel;
 import org.apache.samza.job.model.TaskModel;
 import org.apache.samza.metrics.Gauge;
+import org.apache.samza.metrics.MetricsRegistry;
+import org.apache.samza.metrics.MetricsRegistryMap;
 import org.apache.samza.serializers.Serde;
 import org.apache.samza.serializers.StringSerdeFactory;
+import org.apache.samza.storage.kv.Entry;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.SSPMetadataCache;
 import org.apache.samza.system.StreamMetadataCache;
 import org.apache.samza.system.SystemAdmin;
@@ -258,4 +266,139 @@ public class TestContainerStorageManager {
     Assert.assertTrue("systemConsumerStopCount count should be 1", this.systemConsumerStopCount == 1);
     Assert.assertTrue("systemConsumerStartCount count should be 1", this.systemConsumerStartCount == 1);
   }
+
+  @Test(timeout = 60000)
+  public void testContainerSharedSideInputStore() throws InterruptedException {
+    String sideInputStoreName = "side-input-store";
+    SystemStream sideInputStream = new SystemStream(SYSTEM_NAME, "side-input-stream");
+
+    // Two tasks, each with one partition of the side input stream
+    Map<TaskName, TaskModel> sideInputTasks = new HashMap<>();
+    for (int i = 0; i < 2; i++) {
+      TaskName taskName = new TaskName("task " + i);
+      sideInputTasks.put(taskName, new TaskModel(taskName,
+          Collections.singleton(new SystemStreamPartition(sideInputStream, new Partition(i))), new Partition(i)));
+    }
+
+    // Count the side input stores created, and the task directory of the last one
+    AtomicInteger storeCreationCount = new AtomicInteger();
+    File[] storeDirectory = new File[1];
+    StorageEngine sideInputStore = mock(StorageEngine.class);
+    when(sideInputStore.getStoreProperties())
+        .thenReturn(new StoreProperties.StorePropertiesBuilder().setLoggedStore(false).setPersistedToDisk(false).build());
+    StorageEngineFactory<Object, Object> storageEngineFactory = mock(StorageEngineFactory.class);
+    doAnswer(invocation -> {
+      storeCreationCount.incrementAndGet();
+      storeDirectory[0] = invocation.getArgumentAt(1, File.class);
+      return sideInputStore;
+    }).when(storageEngineFactory).getStorageEngine(anyString(), any(), any(), any(), any(),
+        any(), any(), any(), any(), any());
+
+    Map<String, String> configMap = new HashMap<>();
+    configMap.put("stores." + sideInputStoreName + ".key.serde", "stringserde");
+    configMap.put("stores." + sideInputStoreName + ".msg.serde", "stringserde");
+    configMap.put("stores." + sideInputStoreName + ".side.inputs", SYSTEM_NAME + "." + sideInputStream.getStream());
+    configMap.put("stores." + sideInputStoreName + ".side.inputs.processor.factory",
+        MockSideInputsProcessorFactory.class.getName());
+    configMap.put("stores." + sideInputStoreName + ".side.inputs.container.shared", "true");
+    configMap.put("serializers.registry.stringserde.class", StringSerdeFactory.class.getName());
+
+    SystemConsumer systemConsumer = mock(SystemConsumer.class);
+    SystemFactory systemFactory = mock(SystemFactory.class);
+    when(systemFactory.getConsumer(anyString(), any(), any())).thenReturn(systemConsumer);
+
+    // The side input stream is empty, so the side inputs are caught up at their starting offset
+    SystemAdmin systemAdmin = mock(SystemAdmin.class);
+    when(systemAdmin.offsetComparator(anyString(), anyString())).thenReturn(0);
+    SystemAdmins systemAdmins = mock(SystemAdmins.class);
+    when(systemAdmins.getSystemAdmin(SYSTEM_NAME)).thenReturn(systemAdmin);
+    SystemStreamMetadata.SystemStreamPartitionMetadata sspMetadata =
+        new SystemStreamMetadata.SystemStreamPartitionMetadata("0", null, "0");
+    Map<Partition, SystemStreamMetadata.SystemStreamPartitionMetadata> partitionMetadata = new HashMap<>();
+    partitionMetadata.put(new Partition(0), sspMetadata);
+    partitionMetadata.put(new Partition(1), sspMetadata);
+    SystemStreamMetadata systemStreamMetadata = new SystemStreamMetadata(sideInputStream.getStream(), partitionMetadata);
+    StreamMetadataCache streamMetadataCache = mock(StreamMetadataCache.class);
+    when(streamMetadataCache.getStreamMetadata(any(), anyBoolean()))
+        .thenReturn(new scala.collection.immutable.Map.Map1(sideInputStream, systemStreamMetadata));
+    when(streamMetadataCache.getSystemStreamMetadata(any(), anyBoolean())).thenReturn(systemStreamMetadata);
+
+    SamzaContainerMetrics containerMetrics = mock(SamzaContainerMetrics.class);
+    when(containerMetrics.registry()).thenReturn(new MetricsRegistryMap());
+    when(containerMetrics.source()).thenReturn("samza-container-test");
+    Map<TaskName, Gauge<Object>> restoreGauges = new HashMap<>();
+    sideInputTasks.keySet().forEach(taskName -> restoreGauges.put(taskName, mock(Gauge.class)));
+    when(containerMetrics.taskStoreRestorationMetrics()).thenReturn(restoreGauges);
+    Map<TaskName, TaskInstanceMetrics> sideInputTaskInstanceMetrics = new HashMap<>();
+    sideInputTasks.keySet().forEach(taskName -> sideInputTaskInstanceMetrics.put(taskName, mock(TaskInstanceMetrics.class)));
+
+    Map<String, Serde<Object>> serdes = new HashMap<>();
+    serdes.put("stringserde", mock(Serde.class));
+
+    ContainerStorageManager sideInputStorageManager = new ContainerStorageManager(
+        mock(CheckpointManager.class),
+        new ContainerModel("samza-container-test", sideInputTasks),
+        streamMetadataCache,
+        mock(SSPMetadataCache.class),
+        systemAdmins,
+        new HashMap<>(),
+        Collections.singletonMap(sideInputStoreName, Collections.singleton(sideInputStream)),
+        Collections.singletonMap(sideInputStoreName, storageEngineFactory),
+        Collections.singletonMap(SYSTEM_NAME, systemFactory),
+        serdes,
+        new MapConfig(configMap),
+        sideInputTaskInstanceMetrics,
+        containerMetrics,
+        mock(JobContext.class),
+        mock(ContainerContext.class),
+        mock(Map.class),
+        DEFAULT_LOGGED_STORE_BASE_DIR,
+        DEFAULT_STORE_BASE_DIR,
+        2,
+        null,
+        new SystemClock());
+
+    // The store is created once, for the shared side inputs task, instead of once per task
+    Assert.assertEquals(1, storeCreationCount.get());
+    Assert.assertEquals("SharedSideInputs", storeDirectory[0].getName());
+
+    // Both tasks get the same read-only view of the shared store
+    StorageEngine task0Store = sideInputStorageManager.getStore(new TaskName("task 0"), sideInputStoreName).get();
+    StorageEngine task1Store = sideInputStorageManager.getStore(new TaskName("task 1"), sideInputStoreName).get();
+    Assert.assertTrue(task0Store instanceof ReadOnlySideInputStore);
+    Assert.assertSame(task0Store, task1Store);
+    Assert.assertSame(task0Store,
+        sideInputStorageManager.getAllStores(new TaskName("task 1")).get(sideInputStoreName));
+    try {
+      ((KeyValueStore<Object, Object>) task0Store).put("key", "value");
+      Assert.fail("Writes to a shared side input store should be rejected");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+
+    // start returns once the shared side inputs task has caught up, from one consumer for both partitions
+    sideInputStorageManager.start();
+    verify(systemConsumer).register(new SystemStreamPartition(sideInputStream, new Partition(0)), "0");
+    verify(systemConsumer).register(new SystemStreamPartition(sideInputStream, new Partition(1)), "0");
+
+    // The shared store is stopped once, by the shared side inputs task, and not through the tasks' views
+    sideInputStorageManager.shutdown();
+    task0Store.stop();
+    verify(sideInputStore, times(1)).stop();
+  }
+
+  /**
+   * A side inputs processor factory whose processors do not write any entries.
+   */
+  public static class MockSideInputsProcessorFactory implements SideInputsProcessorFactory {
+    @Override
+    public SideInputsProcessor getSideInputsProcessor(Config config, MetricsRegistry metricsRegistry) {
+      return new SideInputsProcessor() {
+        @Override
+        public Collection<Entry<?, ?>> process(IncomingMessageEnvelope message, KeyValueStore store) {
+          return Collections.emptyList();
+        }
+      };
+    }
+  }
 }
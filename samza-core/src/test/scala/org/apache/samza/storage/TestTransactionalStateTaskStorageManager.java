@@ -78,9 +78,10 @@ public class TestTransactionalStateTaskStorageManager {
     // invoke flush
     tsm.flush();
 
-    // ensure that stores are flushed before we get newest changelog offsets
-    InOrder inOrder = inOrder(mockStore, tsm);
+    // ensure that stores and their changelog messages are flushed before we get newest changelog offsets
+    InOrder inOrder = inOrder(mockStore, csm, tsm);
     inOrder.verify(mockStore).flush();
+    inOrder.verify(csm).flushChangelogs(any());
     inOrder.verify(tsm).getNewestChangelogSSPOffsets(any(), any(), any(), any());
   }
 
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.system.kafka;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.system.OutgoingMessageEnvelope;
+import org.apache.samza.system.SystemStream;
+import org.apache.samza.util.ExponentialSleepStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import scala.runtime.AbstractFunction0;
+
+/**
+ * Measures the overhead of {@link KafkaSystemProducer#send} for messages with and without a partition key, on a
+ * producer which completes every send immediately, so that only the work done by the {@link KafkaSystemProducer} is
+ * measured. Running it with the GC profiler reports the bytes allocated per message, which is what matters for jobs
+ * producing a high rate of messages. The end to end throughput against a Kafka cluster can be compared with
+ * {@code org.apache.samza.tools.benchmark.SystemProducerBench}.
+ * <p>
+ * Run with ./gradlew :samza-kafka_2.11:jmh -PjmhInclude=KafkaSystemProducerBenchmark -PjmhArgs="-prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KafkaSystemProducerBenchmark {
+  private static final String SOURCE = "benchmark-source";
+  private static final SystemStream SYSTEM_STREAM = new SystemStream("kafka", "benchmark-topic");
+  private static final int NUM_PARTITIONS = 8;
+  private static final int NUM_ENVELOPES = 1024;
+
+  private final OutgoingMessageEnvelope[] envelopes = new OutgoingMessageEnvelope[NUM_ENVELOPES];
+  private final OutgoingMessageEnvelope[] partitionKeyEnvelopes = new OutgoingMessageEnvelope[NUM_ENVELOPES];
+  private KafkaSystemProducer systemProducer;
+  private int next = 0;
+
+  @Setup
+  public void setup() {
+    // envelopes are serialized by the SerdeManager before they are sent, so they are created with serialized messages
+    for (int i = 0; i < NUM_ENVELOPES; i++) {
+      byte[] key = ("key-" + i).getBytes();
+      byte[] message = new byte[100];
+      envelopes[i] = new OutgoingMessageEnvelope(SYSTEM_STREAM, key, message);
+      partitionKeyEnvelopes[i] = new OutgoingMessageEnvelope(SYSTEM_STREAM, "partition-" + i, key, message);
+    }
+
+    final Producer<byte[], byte[]> producer = new CompletingProducer();
+    systemProducer = new KafkaSystemProducer("kafka", new ExponentialSleepStrategy(2.0, 200, 10000),
+      new AbstractFunction0<Producer<byte[], byte[]>>() {
+        @Override
+        public Producer<byte[], byte[]> apply() {
+          return producer;
+        }
+      }, new KafkaSystemProducerMetrics("kafka", new MetricsRegistryMap()), new AbstractFunction0<Object>() {
+        @Override
+        public Object apply() {
+          return System.nanoTime();
+        }
+      }, false);
+    systemProducer.register(SOURCE);
+    systemProducer.start();
+  }
+
+  @TearDown
+  public void tearDown() {
+    systemProducer.stop();
+  }
+
+  @Benchmark
+  public void send() {
+    systemProducer.send(SOURCE, envelopes[nextIndex()]);
+  }
+
+  @Benchmark
+  public void sendWithPartitionKey() {
+    systemProducer.send(SOURCE, partitionKeyEnvelopes[nextIndex()]);
+  }
+
+  private int nextIndex() {
+    next = (next + 1) & (NUM_ENVELOPES - 1);
+    return next;
+  }
+
+  /**
+   * A {@link Producer} which completes every send successfully, without sending it anywhere.
+   */
+  private static class CompletingProducer implements Producer<byte[], byte[]> {
+    private static final Future<RecordMetadata> COMPLETED = CompletableFuture.completedFuture(null);
+
+    private final List<PartitionInfo> partitions = new ArrayList<>();
+
+    CompletingProducer() {
+      for (int i = 0; i < NUM_PARTITIONS; i++) {
+        partitions.add(new PartitionInfo(SYSTEM_STREAM.getStream(), i, null, null, null));
+      }
+    }
+
+    @Override
+    public Future<RecordMetadata> send(ProducerRecord<byte[], byte[]> record) {
+      return send(record, null);
+    }
+
+    @Override
+    public Future<RecordMetadata> send(ProducerRecord<byte[], byte[]> record, Callback callback) {
+      if (callback != null) {
+        callback.onCompletion(null, null);
+      }
+      return COMPLETED;
+    }
+
+    @Override
+    public List<PartitionInfo> partitionsFor(String topic) {
+      return partitions;
+    }
+
+    @Override
+    public Map<MetricName, ? extends Metric> metrics() {
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void close(long timeout, TimeUnit unit) {
+    }
+
+    @Override
+    public void initTransactions() {
+    }
+
+    @Override
+    public void beginTransaction() {
+    }
+
+    @Override
+    public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets, String consumerGroupId) {
+    }
+
+    @Override
+    public void commitTransaction() {
+    }
+
+    @Override
+    public void abortTransaction() {
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.checkpoint.kafka;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.samza.Partition;
+import org.apache.samza.SamzaException;
+import org.apache.samza.checkpoint.Checkpoint;
+import org.apache.samza.serializers.CheckpointSerde;
+import org.apache.samza.serializers.Serde;
+import org.apache.samza.system.SystemStreamPartition;
+
+/**
+ * A serde for {@link Checkpoint}s in the Kafka checkpoint log, which reads both the JSON format of
+ * {@link CheckpointSerde} and a compact binary format, and writes either of them.
+ *
+ * <p> The binary format starts with a magic byte, which can't start a JSON checkpoint, followed by a version, a table
+ * of the distinct system and stream names of the checkpoint, and the partition and offset of each
+ * {@link SystemStreamPartition} with indexes into the table. Since the system and stream names are only written once,
+ * the binary format of a checkpoint with many partitions of a stream is several times smaller than its JSON format, and
+ * is read without parsing JSON.
+ *
+ * <p> Jobs should only write the binary format once all containers which read the checkpoints can read it, since older
+ * versions only read the JSON format.
+ */
+public class CompactCheckpointSerde implements Serde<Checkpoint> {
+  static final byte MAGIC = (byte) 0xC5;
+  static final byte VERSION = 1;
+
+  private final CheckpointSerde jsonSerde = new CheckpointSerde();
+  private final boolean writeBinary;
+
+  /**
+   * @param writeBinary whether to write checkpoints in the binary format, instead of the JSON format
+   */
+  public CompactCheckpointSerde(boolean writeBinary) {
+    this.writeBinary = writeBinary;
+  }
+
+  @Override
+  public Checkpoint fromBytes(byte[] bytes) {
+    if (bytes == null || bytes.length == 0 || bytes[0] != MAGIC) {
+      return jsonSerde.fromBytes(bytes);
+    }
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      in.readByte();
+      byte version = in.readByte();
+      if (version != VERSION) {
+        throw new SamzaException(String.format("Unsupported checkpoint format version %d", version));
+      }
+
+      int nameCount = in.readInt();
+      List<String> names = new ArrayList<>(nameCount);
+      for (int i = 0; i < nameCount; i++) {
+        names.add(in.readUTF());
+      }
+
+      int offsetCount = in.readInt();
+      Map<SystemStreamPartition, String> offsets = new HashMap<>(offsetCount * 2);
+      for (int i = 0; i < offsetCount; i++) {
+        String system = names.get(in.readInt());
+        String stream = names.get(in.readInt());
+        Partition partition = new Partition(in.readInt());
+        String offset = in.readBoolean() ? in.readUTF() : null;
+        offsets.put(new SystemStreamPartition(system, stream, partition), offset);
+      }
+      return new Checkpoint(offsets);
+    } catch (IOException | IndexOutOfBoundsException e) {
+      throw new SamzaException("Exception while deserializing binary checkpoint", e);
+    }
+  }
+
+  @Override
+  public byte[] toBytes(Checkpoint checkpoint) {
+    if (!writeBinary) {
+      return jsonSerde.toBytes(checkpoint);
+    }
+    Map<String, Integer> nameIndexes = new HashMap<>();
+    List<String> names = new ArrayList<>();
+    for (SystemStreamPartition ssp : checkpoint.getOffsets().keySet()) {
+      addName(ssp.getSystem(), nameIndexes, names);
+      addName(ssp.getStream(), nameIndexes, names);
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(MAGIC);
+      out.writeByte(VERSION);
+      out.writeInt(names.size());
+      for (String name : names) {
+        out.writeUTF(name);
+      }
+      out.writeInt(checkpoint.getOffsets().size());
+      for (Map.Entry<SystemStreamPartition, String> entry : checkpoint.getOffsets().entrySet()) {
+        SystemStreamPartition ssp = entry.getKey();
+        out.writeInt(nameIndexes.get(ssp.getSystem()));
+        out.writeInt(nameIndexes.get(ssp.getStream()));
+        out.writeInt(ssp.getPartition().getPartitionId());
+        out.writeBoolean(entry.getValue() != null);
+        if (entry.getValue() != null) {
+          out.writeUTF(entry.getValue());
+        }
+      }
+    } catch (IOException e) {
+      throw new SamzaException("Exception while serializing checkpoint " + checkpoint, e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void addName(String name, Map<String, Integer> nameIndexes, List<String> names) {
+    if (!nameIndexes.containsKey(name)) {
+      nameIndexes.put(name, names.size());
+      names.add(name);
+    }
+  }
+}
@@ -19,6 +19,7 @@
 
 package org.apache.samza.checkpoint.kafka
 
+import java.nio.ByteBuffer
 import java.util.Collections
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicReference
@@ -30,12 +31,12 @@ import org.apache.samza.config.{Config, JobConfig, TaskConfig}
 import org.apache.samza.container.TaskName
 import org.apache.samza.serializers.Serde
 import org.apache.samza.metrics.MetricsRegistry
-import org.apache.samza.serializers.CheckpointSerde
 import org.apache.samza.system._
 import org.apache.samza.system.kafka.KafkaStreamSpec
 import org.apache.samza.util.{ExponentialSleepStrategy, Logging}
 import org.apache.samza.{Partition, SamzaException}
 
+import scala.collection.JavaConverters._
 import scala.collection.mutable
 
 /**
@@ -53,7 +54,7 @@ class KafkaCheckpointManager(checkpointSpec: KafkaStreamSpec,
                              validateCheckpoint: Boolean,
                              config: Config,
                              metricsRegistry: MetricsRegistry,
-                             checkpointMsgSerde: Serde[Checkpoint] = new CheckpointSerde,
+                             checkpointMsgSerde: Serde[Checkpoint] = new CompactCheckpointSerde(false),
                              checkpointKeySerde: Serde[KafkaCheckpointLogKey] = new KafkaCheckpointLogKeySerde) extends CheckpointManager with Logging {
 
   var MaxRetryDurationInMillis: Long = TimeUnit.MINUTES.toMillis(15)
@@ -73,6 +74,9 @@ class KafkaCheckpointManager(checkpointSpec: KafkaStreamSpec,
   var taskNames: Set[TaskName] = Set[TaskName]()
   var taskNamesToCheckpoints: Map[TaskName, Checkpoint] = _
 
+  // keys of the checkpoint log, decoded once for each distinct key
+  private val decodedKeys = mutable.Map[ByteBuffer, Option[KafkaCheckpointLogKey]]()
+
   val producerRef: AtomicReference[SystemProducer] = new AtomicReference[SystemProducer](getSystemProducer())
   val producerCreationLock: Object = new Object
 
@@ -154,6 +158,20 @@ class KafkaCheckpointManager(checkpointSpec: KafkaStreamSpec,
     * @inheritdoc
     */
   override def writeCheckpoint(taskName: TaskName, checkpoint: Checkpoint) {
+    writeEnvelopes(Seq(taskName -> toEnvelope(taskName, checkpoint)), s"checkpoint: $checkpoint for task: $taskName")
+  }
+
+  /**
+    * Sends the checkpoints of all tasks before flushing the producer once, instead of flushing it for each task.
+    */
+  override def writeCheckpoints(checkpoints: java.util.Map[TaskName, Checkpoint]) {
+    if (!checkpoints.isEmpty) {
+      val envelopes = checkpoints.asScala.toSeq.map { case (taskName, checkpoint) => taskName -> toEnvelope(taskName, checkpoint) }
+      writeEnvelopes(envelopes, s"checkpoints for ${checkpoints.size} tasks: ${checkpoints.keySet}")
+    }
+  }
+
+  private def toEnvelope(taskName: TaskName, checkpoint: Checkpoint): OutgoingMessageEnvelope = {
     val key = new KafkaCheckpointLogKey(KafkaCheckpointLogKey.CHECKPOINT_KEY_TYPE, taskName, expectedGrouperFactory)
     val keyBytes = try {
       checkpointKeySerde.toBytes(key)
@@ -166,8 +184,13 @@ class KafkaCheckpointManager(checkpointSpec: KafkaStreamSpec,
       case e: Exception => throw new SamzaException(s"Exception when writing checkpoint for $taskName: $checkpoint", e)
     }
 
-    val envelope = new OutgoingMessageEnvelope(checkpointSsp, keyBytes, msgBytes)
+    new OutgoingMessageEnvelope(checkpointSsp, keyBytes, msgBytes)
+  }
 
+  /**
+    * Sends the envelopes and flushes the producer, retrying with a new producer on failure.
+    */
+  private def writeEnvelopes(envelopes: Seq[(TaskName, OutgoingMessageEnvelope)], description: String) {
     // Used for exponential backoff retries on failure in sending messages through producer.
     val startTimeInMillis: Long = System.currentTimeMillis()
     var sleepTimeInMillis: Long = 1000
@@ -176,14 +199,15 @@ class KafkaCheckpointManager(checkpointSpec: KafkaStreamSpec,
     while ((System.currentTimeMillis() - startTimeInMillis) <= MaxRetryDurationInMillis) {
       val currentProducer = producerRef.get()
       try {
-        currentProducer.send(taskName.getTaskName, envelope)
-        currentProducer.flush(taskName.getTaskName) // make sure it is written
-        debug(s"Wrote checkpoint: $checkpoint for task: $taskName")
+        envelopes.foreach { case (taskName, envelope) => currentProducer.send(taskName.getTaskName, envelope) }
+        // the producer for the checkpoint topic is shared by all tasks, so flushing it for one source writes all
+        currentProducer.flush(envelopes.head._1.getTaskName) // make sure it is written
+        debug(s"Wrote $description")
         return
       } catch {
         case exception: Exception => {
           producerException = exception
-          warn(s"Retrying failed checkpoint write to key: $key, checkpoint: $checkpoint for task: $taskName", exception)
+          warn(s"Retrying failed write of $description", exception)
           // TODO: Remove this producer recreation logic after SAMZA-1393.
           val newProducer: SystemProducer = getSystemProducer()
           producerCreationLock.synchronized {
@@ -209,7 +233,7 @@ class KafkaCheckpointManager(checkpointSpec: KafkaStreamSpec,
       sleepTimeInMillis = Math.min(sleepTimeInMillis * 2, maxSleepTimeInMillis)
       Thread.sleep(sleepTimeInMillis)
     }
-    throw new SamzaException(s"Exception when writing checkpoint: $checkpoint for task: $taskName.", producerException)
+    throw new SamzaException(s"Exception when writing $description.", producerException)
   }
 
   /**
@@ -245,9 +269,13 @@ class KafkaCheckpointManager(checkpointSpec: KafkaStreamSpec,
     *
     * <p> The underlying [[SystemConsumer]] is stateful and tracks its offsets. Hence, each invocation of this method
     * will read the log from where it left off previously. This allows for multiple efficient calls to [[readLastCheckpoint()]]
+    *
+    * <p> The log holds many checkpoints of each task until it is compacted, so only the newest checkpoint of each task
+    * is deserialized, after the log is read. Keys are decoded once for each distinct key, since the key of a task is
+    * the same in all of its checkpoints.
     */
   private def readCheckpoints(): Map[TaskName, Checkpoint] = {
-    val checkpoints = mutable.Map[TaskName, Checkpoint]()
+    val checkpointBytes = mutable.LinkedHashMap[TaskName, (Array[Byte], String)]()
 
     val iterator = new SystemStreamPartitionIterator(systemConsumer, checkpointSsp)
     var numMessagesRead = 0
@@ -267,45 +295,56 @@ class KafkaCheckpointManager(checkpointSpec: KafkaStreamSpec,
           s"Offset:$offset")
       }
 
-      val checkpointKey = try {
-        checkpointKeySerde.fromBytes(keyBytes)
-      } catch {
-        case e: Exception => if (validateCheckpoint) {
-          throw new SamzaException(s"Exception while serializing checkpoint-key. " +
-            s"Topic: $checkpointTopic Offset: $offset", e)
-        } else {
-          warn(s"Ignoring exception while serializing checkpoint-key. Topic: $checkpointTopic Offset: $offset", e)
-          null
-        }
+      val checkpointKey = decodedKeys.getOrElseUpdate(ByteBuffer.wrap(keyBytes), decodeKey(keyBytes, offset)).orNull
+
+      // If the type of the key is not KafkaCheckpointLogKey.CHECKPOINT_KEY_TYPE, it can safely be ignored.
+      if (checkpointKey != null && KafkaCheckpointLogKey.CHECKPOINT_KEY_TYPE.equals(checkpointKey.getType)) {
+        checkpointBytes.put(checkpointKey.getTaskName, (checkpointEnvelope.getMessage.asInstanceOf[Array[Byte]], offset))
       }
+    }
 
-      if (checkpointKey != null) {
-        // If the grouper in the key is not equal to the configured grouper, error out.
-        val actualGrouperFactory = checkpointKey.getGrouperFactoryClassName
-        if (!expectedGrouperFactory.equals(actualGrouperFactory)) {
-          warn(s"Grouper mismatch. Configured: $expectedGrouperFactory Actual: $actualGrouperFactory ")
-          if (validateCheckpoint) {
-            throw new SamzaException("SSPGrouperFactory in the checkpoint topic does not match the configured value" +
-              s"Configured value: $expectedGrouperFactory; Actual value: $actualGrouperFactory Offset: $offset")
-          }
-        }
+    val checkpoints = checkpointBytes.map { case (taskName, (bytes, offset)) =>
+      val checkpoint = try {
+        checkpointMsgSerde.fromBytes(bytes)
+      } catch {
+        case e: Exception => throw new SamzaException(s"Exception while serializing checkpoint-message. " +
+          s"Topic: $checkpointTopic Offset: $offset", e)
+      }
+      taskName -> checkpoint
+    }
+    info(s"Read $numMessagesRead messages from system:$checkpointSystem topic:$checkpointTopic, " +
+      s"with the checkpoints of ${checkpoints.size} tasks")
+    checkpoints.toMap
+  }
 
-        // If the type of the key is not KafkaCheckpointLogKey.CHECKPOINT_KEY_TYPE, it can safely be ignored.
-        if (KafkaCheckpointLogKey.CHECKPOINT_KEY_TYPE.equals(checkpointKey.getType)) {
-          val checkpointBytes = checkpointEnvelope.getMessage.asInstanceOf[Array[Byte]]
-          val checkpoint = try {
-            checkpointMsgSerde.fromBytes(checkpointBytes)
-          } catch {
-            case e: Exception => throw new SamzaException(s"Exception while serializing checkpoint-message. " +
-              s"Topic: $checkpointTopic Offset: $offset", e)
-          }
+  /**
+    * Decodes and validates a checkpoint key, or returns None if the key is invalid and validation is disabled.
+    */
+  private def decodeKey(keyBytes: Array[Byte], offset: String): Option[KafkaCheckpointLogKey] = {
+    val checkpointKey = try {
+      checkpointKeySerde.fromBytes(keyBytes)
+    } catch {
+      case e: Exception => if (validateCheckpoint) {
+        throw new SamzaException(s"Exception while serializing checkpoint-key. " +
+          s"Topic: $checkpointTopic Offset: $offset", e)
+      } else {
+        warn(s"Ignoring exception while serializing checkpoint-key. Topic: $checkpointTopic Offset: $offset", e)
+        null
+      }
+    }
 
-          checkpoints.put(checkpointKey.getTaskName, checkpoint)
+    if (checkpointKey != null) {
+      // If the grouper in the key is not equal to the configured grouper, error out.
+      val actualGrouperFactory = checkpointKey.getGrouperFactoryClassName
+      if (!expectedGrouperFactory.equals(actualGrouperFactory)) {
+        warn(s"Grouper mismatch. Configured: $expectedGrouperFactory Actual: $actualGrouperFactory ")
+        if (validateCheckpoint) {
+          throw new SamzaException("SSPGrouperFactory in the checkpoint topic does not match the configured value" +
+            s"Configured value: $expectedGrouperFactory; Actual value: $actualGrouperFactory Offset: $offset")
         }
       }
     }
-    info(s"Read $numMessagesRead messages from system:$checkpointSystem topic:$checkpointTopic")
-    checkpoints.toMap
+    Option(checkpointKey)
   }
 
   /**
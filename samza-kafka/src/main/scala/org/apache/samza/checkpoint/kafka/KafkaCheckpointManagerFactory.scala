@@ -54,6 +54,6 @@ class KafkaCheckpointManagerFactory extends CheckpointManagerFactory with Loggin
         .copyWithProperties(kafkaConfig.getCheckpointTopicProperties)
 
     new KafkaCheckpointManager(checkpointSpec, checkpointSystemFactory, jobConfig.failOnCheckpointValidation, config,
-      new NoOpMetricsRegistry)
+      new NoOpMetricsRegistry, new CompactCheckpointSerde(kafkaConfig.getCheckpointBinaryFormatEnabled))
   }
 }
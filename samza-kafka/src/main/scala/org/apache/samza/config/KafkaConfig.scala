@@ -49,6 +49,8 @@ object KafkaConfig {
   val CHECKPOINT_REPLICATION_FACTOR = "task.checkpoint." + TOPIC_REPLICATION_FACTOR
   val CHECKPOINT_SEGMENT_BYTES = "task.checkpoint." + SEGMENT_BYTES
   val CHECKPOINT_MAX_MESSAGE_BYTES = "task.checkpoint." + MAX_MESSAGE_BYTES
+  // write checkpoints in the binary format of CompactCheckpointSerde instead of JSON
+  val CHECKPOINT_BINARY_FORMAT_ENABLED = "task.checkpoint.binary.format.enabled"
 
   val CHANGELOG_STREAM_REPLICATION_FACTOR = "stores.%s.changelog." + TOPIC_REPLICATION_FACTOR
   val DEFAULT_CHANGELOG_STREAM_REPLICATION_FACTOR = CHANGELOG_STREAM_REPLICATION_FACTOR format "default"
@@ -151,6 +153,8 @@ class KafkaConfig(config: Config) extends ScalaMapConfig(config) {
     getInt(KafkaConfig.CHECKPOINT_SEGMENT_BYTES, defaultsegBytes)
   }
 
+  def getCheckpointBinaryFormatEnabled = getBoolean(KafkaConfig.CHECKPOINT_BINARY_FORMAT_ENABLED, false)
+
   /**
     * Gets the max message bytes for the coordinator topic. Uses the following precedence.
     *
@@ -21,6 +21,7 @@ package org.apache.samza.system.kafka
 
 
 import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.TimeUnit
 
 import org.apache.kafka.clients.producer.Callback
@@ -47,6 +48,8 @@ class KafkaSystemProducer(systemName: String,
   val fatalException: AtomicReference[SystemProducerException] = new AtomicReference[SystemProducerException]()
   val producerRef: AtomicReference[Producer[Array[Byte], Array[Byte]]] = new AtomicReference[Producer[Array[Byte], Array[Byte]]]()
   val producerCreationLock: Object = new Object
+  // Send callbacks of the current producer, which are reused for every send with the same source, topic and partition
+  val sendCallbacksRef: AtomicReference[SendCallbacks] = new AtomicReference[SendCallbacks]()
   @volatile var stopped = false
 
   def start(): Unit = {
@@ -58,6 +61,7 @@ class KafkaSystemProducer(systemName: String,
 
     stopped = true
     val currentProducer = producerRef.getAndSet(null)
+    sendCallbacksRef.set(null)
     try {
       if (currentProducer != null) {
         currentProducer.close // Also performs the equivalent of a flush()
@@ -93,26 +97,19 @@ class KafkaSystemProducer(systemName: String,
 
     // Java-based Kafka producer API requires an "Integer" type partitionKey and does not allow custom overriding of Partitioners
     // Any kind of custom partitioning has to be done on the client-side
-    val partitions: java.util.List[PartitionInfo] = currentProducer.partitionsFor(topicName)
-    val partitionKey = if (envelope.getPartitionKey != null) KafkaUtil.getIntegerPartitionKey(envelope, partitions) else null
-    val record = new ProducerRecord(envelope.getSystemStream.getStream,
+    val partitionKey = if (envelope.getPartitionKey != null) {
+      val partitions: java.util.List[PartitionInfo] = currentProducer.partitionsFor(topicName)
+      KafkaUtil.getIntegerPartitionKey(envelope, partitions)
+    } else {
+      null
+    }
+    val record = new ProducerRecord(topicName,
                                     partitionKey,
                                     envelope.getKey.asInstanceOf[Array[Byte]],
                                     envelope.getMessage.asInstanceOf[Array[Byte]])
 
     try {
-      currentProducer.send(record, new Callback {
-        def onCompletion(metadata: RecordMetadata, exception: Exception): Unit = {
-          if (exception == null) {
-            metrics.sendSuccess.inc
-          } else {
-            val producerException = new SystemProducerException("Failed to send message for Source: %s on System:%s Topic:%s Partition:%s"
-              .format(source, systemName, topicName, partitionKey), exception)
-
-            handleFatalSendException(currentProducer, producerException)
-          }
-        }
-      })
+      currentProducer.send(record, getSendCallbacks(currentProducer).get(source, topicName, partitionKey))
       metrics.sends.inc
     } catch {
       case originalException : Exception =>
@@ -209,6 +206,75 @@ class KafkaSystemProducer(systemName: String,
     }
   }
 
+  /**
+    * @return the send callbacks of the given producer, replacing the cached callbacks if the producer was recreated.
+    */
+  private def getSendCallbacks(currentProducer: Producer[Array[Byte], Array[Byte]]) = {
+    val sendCallbacks = sendCallbacksRef.get
+    if (sendCallbacks != null && (sendCallbacks.producer eq currentProducer)) {
+      sendCallbacks
+    } else {
+      val newSendCallbacks = new SendCallbacks(currentProducer)
+      sendCallbacksRef.set(newSendCallbacks)
+      newSendCallbacks
+    }
+  }
+
+  /**
+    * Callbacks for the sends on a producer, keyed by source, topic and partition. Since a callback only depends on
+    * these, it's created once and reused, instead of allocating a callback for every message.
+    */
+  class SendCallbacks(val producer: Producer[Array[Byte], Array[Byte]]) {
+    private val sourceCallbacks = new ConcurrentHashMap[String, ConcurrentHashMap[String, TopicCallbacks]]()
+
+    def get(source: String, topicName: String, partitionKey: Integer): Callback = {
+      var topicCallbacks = sourceCallbacks.get(source)
+      if (topicCallbacks == null) {
+        sourceCallbacks.putIfAbsent(source, new ConcurrentHashMap[String, TopicCallbacks]())
+        topicCallbacks = sourceCallbacks.get(source)
+      }
+      var callbacks = topicCallbacks.get(topicName)
+      if (callbacks == null) {
+        topicCallbacks.putIfAbsent(topicName, new TopicCallbacks(source, topicName))
+        callbacks = topicCallbacks.get(topicName)
+      }
+      callbacks.get(partitionKey)
+    }
+
+    private class TopicCallbacks(source: String, topicName: String) {
+      // used when the partition is chosen by the Kafka producer
+      val defaultCallback: Callback = new SendCallback(producer, source, topicName, null)
+      val partitionCallbacks = new ConcurrentHashMap[Integer, Callback]()
+
+      def get(partitionKey: Integer): Callback = {
+        if (partitionKey == null) {
+          defaultCallback
+        } else {
+          var callback = partitionCallbacks.get(partitionKey)
+          if (callback == null) {
+            partitionCallbacks.putIfAbsent(partitionKey, new SendCallback(producer, source, topicName, partitionKey))
+            callback = partitionCallbacks.get(partitionKey)
+          }
+          callback
+        }
+      }
+    }
+  }
+
+  private class SendCallback(currentProducer: Producer[Array[Byte], Array[Byte]], source: String, topicName: String,
+                             partitionKey: Integer) extends Callback {
+    def onCompletion(metadata: RecordMetadata, exception: Exception): Unit = {
+      if (exception == null) {
+        metrics.sendSuccess.inc
+      } else {
+        val producerException = new SystemProducerException("Failed to send message for Source: %s on System:%s Topic:%s Partition:%s"
+          .format(source, systemName, topicName, partitionKey), exception)
+
+        handleFatalSendException(currentProducer, producerException)
+      }
+    }
+  }
+
   /**
     * @return the current producer. Never returns null.
     */
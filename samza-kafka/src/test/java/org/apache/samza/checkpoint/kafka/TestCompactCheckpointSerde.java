@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.checkpoint.kafka;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.samza.Partition;
+import org.apache.samza.SamzaException;
+import org.apache.samza.checkpoint.Checkpoint;
+import org.apache.samza.serializers.CheckpointSerde;
+import org.apache.samza.system.SystemStreamPartition;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestCompactCheckpointSerde {
+  @Test
+  public void testBinaryRoundTrip() {
+    Checkpoint checkpoint = newCheckpoint();
+    byte[] bytes = new CompactCheckpointSerde(true).toBytes(checkpoint);
+
+    assertEquals(CompactCheckpointSerde.MAGIC, bytes[0]);
+    assertTrue(bytes.length < new CheckpointSerde().toBytes(checkpoint).length / 3);
+    // the serde reads the binary format even if it writes JSON
+    assertEquals(checkpoint, new CompactCheckpointSerde(false).fromBytes(bytes));
+  }
+
+  @Test
+  public void testReadsJsonFormat() {
+    Checkpoint checkpoint = newCheckpoint();
+    byte[] bytes = new CompactCheckpointSerde(false).toBytes(checkpoint);
+
+    assertEquals(checkpoint, new CheckpointSerde().fromBytes(bytes));
+    assertEquals(checkpoint, new CompactCheckpointSerde(true).fromBytes(bytes));
+  }
+
+  @Test(expected = SamzaException.class)
+  public void testUnsupportedVersion() {
+    byte[] bytes = new CompactCheckpointSerde(true).toBytes(newCheckpoint());
+    bytes[1] = CompactCheckpointSerde.VERSION + 1;
+    new CompactCheckpointSerde(true).fromBytes(bytes);
+  }
+
+  private static Checkpoint newCheckpoint() {
+    Map<SystemStreamPartition, String> offsets = new HashMap<>();
+    for (int partition = 0; partition < 32; partition++) {
+      offsets.put(new SystemStreamPartition("kafka", "input-topic", new Partition(partition)),
+          Integer.toString(1000000 + partition));
+    }
+    // e.g. the offset of a changelog partition without any messages
+    offsets.put(new SystemStreamPartition("kafka", "changelog-topic", new Partition(0)), null);
+    return new Checkpoint(offsets);
+  }
+}
@@ -32,6 +32,7 @@ import org.apache.samza.container.grouper.stream.GroupByPartitionFactory;
 import org.apache.samza.metrics.MetricsRegistry;
 import org.apache.samza.serializers.CheckpointSerde;
 import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.OutgoingMessageEnvelope;
 import org.apache.samza.system.StreamValidationException;
 import org.apache.samza.system.SystemAdmin;
 import org.apache.samza.system.SystemConsumer;
@@ -47,6 +48,7 @@ import org.mockito.stubbing.OngoingStubbing;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -215,6 +217,61 @@ public class TestKafkaCheckpointManagerJava {
     Assert.assertEquals(checkpoint.getOffsets(), ImmutableMap.of(ssp, Integer.toString(newestOffset)));
   }
 
+  @Test
+  public void testOnlyNewestCheckpointOfTaskIsDeserialized() throws Exception {
+    KafkaStreamSpec checkpointSpec = new KafkaStreamSpec(CHECKPOINT_TOPIC, CHECKPOINT_TOPIC,
+        CHECKPOINT_SYSTEM, 1);
+    Config mockConfig = mock(Config.class);
+    when(mockConfig.get(JobConfig.SSP_GROUPER_FACTORY)).thenReturn(GROUPER_FACTORY_CLASS);
+
+    SystemStreamPartition ssp = new SystemStreamPartition("system-1", "input-topic", new Partition(0));
+    TaskName task2 = new TaskName("task2");
+    List<List<IncomingMessageEnvelope>> pollOutputs = new ArrayList<>();
+    for (int offset = 0; offset <= 10; offset++) {
+      pollOutputs.add(ImmutableList.of(newCheckpointEnvelope(TASK1, ssp, Integer.toString(offset)),
+          newCheckpointEnvelope(task2, ssp, Integer.toString(offset + 100))));
+    }
+    SystemFactory factory = newFactory(mock(SystemProducer.class), newConsumer(pollOutputs), newAdmin("0", "21"));
+
+    CompactCheckpointSerde checkpointSerde = spy(new CompactCheckpointSerde(false));
+    KafkaCheckpointLogKeySerde keySerde = spy(new KafkaCheckpointLogKeySerde());
+    KafkaCheckpointManager checkpointManager = new KafkaCheckpointManager(checkpointSpec, factory,
+        true, mockConfig, mock(MetricsRegistry.class), checkpointSerde, keySerde);
+    checkpointManager.register(TASK1);
+    checkpointManager.register(task2);
+    checkpointManager.start();
+
+    Assert.assertEquals(ImmutableMap.of(ssp, "10"), checkpointManager.readLastCheckpoint(TASK1).getOffsets());
+    Assert.assertEquals(ImmutableMap.of(ssp, "110"), checkpointManager.readLastCheckpoint(task2).getOffsets());
+    // one key and one checkpoint of each task is deserialized
+    verify(keySerde, times(2)).fromBytes(any(byte[].class));
+    verify(checkpointSerde, times(2)).fromBytes(any(byte[].class));
+  }
+
+  @Test
+  public void testWriteCheckpointsFlushesOnce() {
+    KafkaStreamSpec checkpointSpec = new KafkaStreamSpec(CHECKPOINT_TOPIC, CHECKPOINT_TOPIC,
+        CHECKPOINT_SYSTEM, 1);
+    Config mockConfig = mock(Config.class);
+    when(mockConfig.get(JobConfig.SSP_GROUPER_FACTORY)).thenReturn(GROUPER_FACTORY_CLASS);
+
+    SystemProducer mockProducer = mock(SystemProducer.class);
+    SystemFactory factory = newFactory(mockProducer, mock(SystemConsumer.class), newAdmin("0", "10"));
+    KafkaCheckpointManager checkpointManager = new KafkaCheckpointManager(checkpointSpec, factory,
+        true, mockConfig, mock(MetricsRegistry.class), new CheckpointSerde(), new KafkaCheckpointLogKeySerde());
+
+    SystemStreamPartition ssp = new SystemStreamPartition("system-1", "input-topic", new Partition(0));
+    TaskName task2 = new TaskName("task2");
+    Map<TaskName, Checkpoint> checkpoints = new LinkedHashMap<>();
+    checkpoints.put(TASK1, new Checkpoint(ImmutableMap.of(ssp, "1")));
+    checkpoints.put(task2, new Checkpoint(ImmutableMap.of(ssp, "2")));
+    checkpointManager.writeCheckpoints(checkpoints);
+
+    verify(mockProducer).send(eq(TASK1.getTaskName()), any(OutgoingMessageEnvelope.class));
+    verify(mockProducer).send(eq(task2.getTaskName()), any(OutgoingMessageEnvelope.class));
+    verify(mockProducer, times(1)).flush(anyString());
+  }
+
   /**
    * Create a new {@link SystemConsumer} that returns a list of messages sequentially at each subsequent poll.
    *
@@ -45,6 +45,41 @@ class TestKafkaSystemProducer {
     systemProducer.stop
   }
 
+  @Test
+  def testKafkaProducerReusesCallbacks {
+    val callbacks = new java.util.ArrayList[Callback]()
+    var partitionsForCalls = 0
+    val mockProducer = new MockProducer[Array[Byte], Array[Byte]](true, new MockSerializer, new MockSerializer) {
+      override def send(record: ProducerRecord[Array[Byte], Array[Byte]], callback: Callback) = {
+        callbacks.add(callback)
+        super.send(record, callback)
+      }
+
+      override def partitionsFor(topic: String) = {
+        partitionsForCalls += 1
+        super.partitionsFor(topic)
+      }
+    }
+    val metrics = new KafkaSystemProducerMetrics
+    val systemProducer = new KafkaSystemProducer(systemName = "test",
+                                                 getProducer = () => mockProducer,
+                                                 metrics = metrics)
+    systemProducer.register("test1")
+    systemProducer.register("test2")
+    systemProducer.start
+    systemProducer.send("test1", someMessage)
+    systemProducer.send("test1", someMessage)
+    systemProducer.send("test2", someMessage)
+
+    assertEquals(3, mockProducer.history().size())
+    assertEquals(3, metrics.sendSuccess.getCount)
+    // the partition is only looked up for messages with a partition key
+    assertEquals(0, partitionsForCalls)
+    assertTrue(callbacks.get(0) eq callbacks.get(1))
+    assertFalse(callbacks.get(0) eq callbacks.get(2))
+    systemProducer.stop
+  }
+
   @Test
   def testKafkaProducerUsingMockKafkaProducer {
     val mockProducer = new MockKafkaProducer(1, "test", 1)
@@ -123,7 +123,7 @@ public abstract class BaseKeyValueStorageEngineFactory<K, V> implements StorageE
     KeyValueStore<byte[], byte[]> rawStore =
         getKVStore(storeName, storeDir, registry, changelogSSP, jobContext, containerContext, storeMode);
     KeyValueStore<byte[], byte[]> maybeLoggedStore = buildMaybeLoggedStore(changelogSSP,
-        storeName, registry, storePropertiesBuilder, rawStore, changelogCollector);
+        storeName, registry, storePropertiesBuilder, rawStore, changelogCollector, storageConfig);
     // this also applies serialization and caching layers
     KeyValueStore<K, V> toBeAccessLoggedStore = buildStoreWithLargeMessageHandling(storeName, registry,
         maybeLoggedStore, storageConfig, cacheSize, batchSize, keySerde, msgSerde);
@@ -142,19 +142,23 @@ public abstract class BaseKeyValueStorageEngineFactory<K, V> implements StorageE
   /**
    * Wraps {@code storeToWrap} into a {@link LoggedStore} if {@code changelogSSP} is defined.
    * Otherwise, returns the original {@code storeToWrap}.
+   * If "changelog.coalesce.writes" is enabled, the changes sent to the changelog are coalesced per key until flush.
    */
   private static KeyValueStore<byte[], byte[]> buildMaybeLoggedStore(SystemStreamPartition changelogSSP,
       String storeName,
       MetricsRegistry registry,
       StoreProperties.StorePropertiesBuilder storePropertiesBuilder,
       KeyValueStore<byte[], byte[]> storeToWrap,
-      MessageCollector changelogCollector) {
+      MessageCollector changelogCollector,
+      StorageConfig storageConfig) {
     if (changelogSSP == null) {
       return storeToWrap;
     } else {
       LoggedStoreMetrics loggedStoreMetrics = new LoggedStoreMetrics(storeName, registry);
       storePropertiesBuilder.setLoggedStore(true);
-      return new LoggedStore<>(storeToWrap, changelogSSP, changelogCollector, loggedStoreMetrics);
+      int coalesceMaxEntries = storageConfig.getChangelogCoalesceWrites(storeName)
+          ? storageConfig.getChangelogCoalesceMaxEntries(storeName) : 0;
+      return new LoggedStore<>(storeToWrap, changelogSSP, changelogCollector, loggedStoreMetrics, coalesceMaxEntries);
     }
   }
 
@@ -19,7 +19,9 @@
 
 package org.apache.samza.storage.kv
 
+import java.nio.ByteBuffer
 import java.nio.file.Path
+import java.util
 import java.util.Optional
 
 import com.google.common.annotations.VisibleForTesting
@@ -29,17 +31,32 @@ import org.apache.samza.system.{OutgoingMessageEnvelope, SystemStreamPartition}
 import org.apache.samza.task.MessageCollector
 
 /**
-  * A key/value store decorator that adds a changelog for any changes made to the underlying store
+  * A key/value store decorator that adds a changelog for any changes made to the underlying store.
+  *
+  * If coalesceMaxEntries is positive, changes are buffered per key and sent to the changelog on flush, so only the
+  * last write to each key within a commit interval is sent. At most coalesceMaxEntries keys are buffered, after which
+  * the buffered changes are sent before the next flush. Buffered changes are only written to the changelog once the
+  * changelog producer is flushed after the store, which the task storage managers do before reading the newest
+  * changelog offsets on commit. The buffer is synchronized, since stores may be written concurrently by tasks with
+  * task.max.concurrency > 1.
   */
 class LoggedStore[K, V](
   val store: KeyValueStore[K, V],
   val systemStreamPartition: SystemStreamPartition,
   val collector: MessageCollector,
-  val metrics: LoggedStoreMetrics = new LoggedStoreMetrics) extends KeyValueStore[K, V] with Logging {
+  val metrics: LoggedStoreMetrics = new LoggedStoreMetrics,
+  val coalesceMaxEntries: Int = 0) extends KeyValueStore[K, V] with Logging {
+
+  def this(store: KeyValueStore[K, V], systemStreamPartition: SystemStreamPartition, collector: MessageCollector,
+    metrics: LoggedStoreMetrics) = this(store, systemStreamPartition, collector, metrics, 0)
 
   val systemStream = systemStreamPartition.getSystemStream
   val partitionId = systemStreamPartition.getPartition.getPartitionId
 
+  /* changes not yet sent to the changelog, indexed by key, if coalescing is enabled */
+  private val pendingWrites = new util.LinkedHashMap[Any, Entry[K, V]]()
+  private var loggedWrites = 0L
+
   /* pass through methods */
   def get(key: K) = {
     metrics.gets.inc
@@ -66,7 +83,7 @@ class LoggedStore[K, V](
     */
   def put(key: K, value: V) {
     metrics.puts.inc
-    collector.send(new OutgoingMessageEnvelope(systemStream, partitionId, key, value))
+    log(key, value)
     store.put(key, value)
   }
 
@@ -78,7 +95,7 @@ class LoggedStore[K, V](
     val iter = entries.iterator
     while (iter.hasNext) {
       val curr = iter.next
-      collector.send(new OutgoingMessageEnvelope(systemStream, partitionId, curr.getKey, curr.getValue))
+      log(curr.getKey, curr.getValue)
     }
     store.putAll(entries)
   }
@@ -88,7 +105,7 @@ class LoggedStore[K, V](
     */
   def delete(key: K) {
     metrics.deletes.inc
-    collector.send(new OutgoingMessageEnvelope(systemStream, partitionId, key, null))
+    log(key, null.asInstanceOf[V])
     store.delete(key)
   }
 
@@ -99,7 +116,7 @@ class LoggedStore[K, V](
     metrics.deletes.inc(keys.size)
     val keysIterator = keys.iterator
     while (keysIterator.hasNext) {
-      collector.send(new OutgoingMessageEnvelope(systemStream, partitionId, keysIterator.next, null))
+      log(keysIterator.next, null.asInstanceOf[V])
     }
     store.deleteAll(keys)
   }
@@ -109,6 +126,7 @@ class LoggedStore[K, V](
 
     metrics.flushes.inc
 
+    sendPendingWrites
     store.flush
     trace("Flushed store.")
   }
@@ -116,6 +134,7 @@ class LoggedStore[K, V](
   def close {
     trace("Closing.")
 
+    sendPendingWrites
     store.close
   }
 
@@ -127,6 +146,52 @@ class LoggedStore[K, V](
     store.checkpoint(id)
   }
 
+  /**
+    * Log a change to the changelog, or buffer it until the next flush if coalescing is enabled.
+    * A null value logs a delete.
+    */
+  private def log(key: K, value: V) {
+    if (coalesceMaxEntries <= 0) {
+      collector.send(new OutgoingMessageEnvelope(systemStream, partitionId, key, value))
+    } else {
+      pendingWrites.synchronized {
+        loggedWrites += 1
+        val previous = pendingWrites.put(coalescingKey(key), new Entry(key, value))
+        if (previous != null) {
+          metrics.coalescedWrites.inc
+          metrics.coalescedBytes.inc(sizeOf(previous.getKey) + sizeOf(previous.getValue))
+        }
+        if (pendingWrites.size >= coalesceMaxEntries) {
+          sendPendingWrites
+        }
+      }
+    }
+  }
+
+  private def sendPendingWrites: Unit = pendingWrites.synchronized {
+    if (!pendingWrites.isEmpty) {
+      trace("Sending %s coalesced changes to the changelog." format pendingWrites.size)
+      val iter = pendingWrites.values.iterator
+      while (iter.hasNext) {
+        val curr = iter.next
+        collector.send(new OutgoingMessageEnvelope(systemStream, partitionId, curr.getKey, curr.getValue))
+      }
+      pendingWrites.clear
+      metrics.coalescingRatio.set(metrics.coalescedWrites.getCount.toDouble / loggedWrites)
+    }
+  }
+
+  // byte array keys are compared by content
+  private def coalescingKey(key: K): Any = key match {
+    case bytes: Array[Byte] => ByteBuffer.wrap(bytes)
+    case _ => key
+  }
+
+  private def sizeOf(value: Any): Long = value match {
+    case bytes: Array[Byte] => bytes.length
+    case _ => 0
+  }
+
   @VisibleForTesting
   private[kv] def getStore: KeyValueStore[K, V] = {
     store
@@ -33,6 +33,9 @@ class LoggedStoreMetrics(
   val puts = newCounter("puts")
   val deletes = newCounter("deletes")
   val flushes = newCounter("flushes")
+  val coalescedWrites = newCounter("changelog-coalesced-writes")
+  val coalescedBytes = newCounter("changelog-coalesced-bytes")
+  val coalescingRatio = newGauge("changelog-coalescing-ratio", 0.0)
 
   override def getPrefix = storeName + "-"
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.samza.Partition;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.system.OutgoingMessageEnvelope;
+import org.apache.samza.system.SystemStreamPartition;
+import org.apache.samza.task.MessageCollector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestLoggedStore {
+
+  @Mock
+  KeyValueStore<byte[], byte[]> store;
+  SystemStreamPartition changelogSSP = new SystemStreamPartition("system", "changelog", new Partition(0));
+  List<OutgoingMessageEnvelope> sent = new ArrayList<>();
+  MessageCollector collector = envelope -> sent.add(envelope);
+  LoggedStoreMetrics metrics = new LoggedStoreMetrics("testStore", new MetricsRegistryMap());
+
+  @Before
+  public void setup() {
+    sent.clear();
+  }
+
+  @Test
+  public void testChangesAreSentImmediatelyByDefault() {
+    LoggedStore<byte[], byte[]> loggedStore = new LoggedStore<>(store, changelogSSP, collector, metrics);
+
+    byte[] key = new byte[] {1};
+    loggedStore.put(key, new byte[] {2});
+    loggedStore.put(key, new byte[] {3});
+    loggedStore.delete(key);
+
+    Assert.assertEquals(3, sent.size());
+    Assert.assertNull(sent.get(2).getMessage());
+    Mockito.verify(store).delete(key);
+  }
+
+  @Test
+  public void testCoalescedChangesAreSentOnFlush() {
+    LoggedStore<byte[], byte[]> loggedStore = new LoggedStore<>(store, changelogSSP, collector, metrics, 100);
+
+    loggedStore.put(new byte[] {1}, new byte[] {1, 1});
+    // a different array with the same content overwrites the buffered change
+    loggedStore.put(new byte[] {1}, new byte[] {2, 2});
+    loggedStore.putAll(Arrays.asList(new Entry<>(new byte[] {2}, new byte[] {3}), new Entry<>(new byte[] {3}, new byte[] {4})));
+    loggedStore.delete(new byte[] {3});
+
+    // the local store is still updated immediately
+    Mockito.verify(store, Mockito.times(2)).put(Mockito.any(), Mockito.any());
+    Assert.assertTrue(sent.isEmpty());
+
+    loggedStore.flush();
+
+    Assert.assertEquals(3, sent.size());
+    Assert.assertArrayEquals(new byte[] {2, 2}, (byte[]) sent.get(0).getMessage());
+    Assert.assertArrayEquals(new byte[] {3}, (byte[]) sent.get(1).getMessage());
+    Assert.assertArrayEquals(new byte[] {3}, (byte[]) sent.get(2).getKey());
+    Assert.assertNull(sent.get(2).getMessage());
+
+    Assert.assertEquals(2, metrics.coalescedWrites().getCount());
+    // key and value of the two overwritten changes
+    Assert.assertEquals(5, metrics.coalescedBytes().getCount());
+    Assert.assertEquals(0.4, (double) metrics.coalescingRatio().getValue(), 0.0001);
+  }
+
+  @Test
+  public void testCoalescedChangesAreSentWhenBufferIsFull() {
+    LoggedStore<byte[], byte[]> loggedStore = new LoggedStore<>(store, changelogSSP, collector, metrics, 2);
+
+    loggedStore.put(new byte[] {1}, new byte[] {1});
+    loggedStore.put(new byte[] {1}, new byte[] {2});
+    Assert.assertTrue(sent.isEmpty());
+
+    loggedStore.put(new byte[] {2}, new byte[] {3});
+    Assert.assertEquals(2, sent.size());
+
+    loggedStore.flush();
+    Assert.assertEquals(2, sent.size());
+  }
+}
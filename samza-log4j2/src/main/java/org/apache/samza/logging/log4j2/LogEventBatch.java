@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.logging.log4j2;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.apache.samza.SamzaException;
+
+
+/**
+ * The format of the messages sent by a {@link StreamAppender} which batches log events. A batch consists of a version
+ * byte, a flags byte, and a body which is deflated if the flags have {@link #FLAG_DEFLATED}. The body is a sequence
+ * of serialized log events, each prefixed by its length as a 4-byte big-endian int.
+ * <p>
+ * Consumers of the log stream can use {@link #decode(byte[])} to get the serialized events of a batch. An encoder is
+ * used by the single transfer thread of an appender, and reuses its compression buffers across batches.
+ */
+public final class LogEventBatch {
+  public static final byte VERSION = 1;
+  public static final byte FLAG_DEFLATED = 1;
+  static final int HEADER_BYTES = 2;
+
+  private final Deflater deflater;
+  private byte[] deflateBuffer;
+
+  /**
+   * @param compress whether batches are deflated, if this makes them smaller
+   * @param maxBodyBytes the expected maximum size of a batch body
+   */
+  LogEventBatch(boolean compress, int maxBodyBytes) {
+    this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+    this.deflateBuffer = compress ? new byte[maxBodyBytes] : null;
+  }
+
+  /**
+   * Encode the events in body into a batch.
+   *
+   * @param body the events, each prefixed by its length
+   * @param offset the offset of the events in body
+   * @param length the number of bytes of the events
+   * @return the batch
+   */
+  byte[] encode(byte[] body, int offset, int length) {
+    if (deflater != null) {
+      if (deflateBuffer.length < length) {
+        deflateBuffer = new byte[length];
+      }
+      deflater.reset();
+      deflater.setInput(body, offset, length);
+      deflater.finish();
+      int deflatedLength = 0;
+      while (!deflater.finished() && deflatedLength < deflateBuffer.length) {
+        deflatedLength += deflater.deflate(deflateBuffer, deflatedLength, deflateBuffer.length - deflatedLength);
+      }
+      // events which don't compress are sent as they are
+      if (deflater.finished() && deflatedLength < length) {
+        return toBatch(FLAG_DEFLATED, deflateBuffer, 0, deflatedLength);
+      }
+    }
+    return toBatch((byte) 0, body, offset, length);
+  }
+
+  void close() {
+    if (deflater != null) {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Decode a batch into its serialized log events.
+   *
+   * @param batch the batch
+   * @return the serialized log events in the batch
+   */
+  public static List<byte[]> decode(byte[] batch) {
+    if (batch.length < HEADER_BYTES || batch[0] != VERSION) {
+      throw new SamzaException("Unsupported log event batch with version " + (batch.length > 0 ? batch[0] : "none"));
+    }
+    byte[] body = (batch[1] & FLAG_DEFLATED) != 0 ? inflate(batch) : Arrays.copyOfRange(batch, HEADER_BYTES, batch.length);
+    List<byte[]> events = new ArrayList<>();
+    ByteBuffer buffer = ByteBuffer.wrap(body);
+    while (buffer.hasRemaining()) {
+      byte[] event = new byte[buffer.getInt()];
+      buffer.get(event);
+      events.add(event);
+    }
+    return events;
+  }
+
+  /**
+   * Count the events in a batch body.
+   */
+  static int countEvents(byte[] body, int offset, int length) {
+    ByteBuffer buffer = ByteBuffer.wrap(body, offset, length);
+    int count = 0;
+    while (buffer.hasRemaining()) {
+      buffer.position(buffer.position() + LogEventRingBuffer.LENGTH_BYTES + buffer.getInt(buffer.position()));
+      count++;
+    }
+    return count;
+  }
+
+  private static byte[] toBatch(byte flags, byte[] body, int offset, int length) {
+    byte[] batch = new byte[HEADER_BYTES + length];
+    batch[0] = VERSION;
+    batch[1] = flags;
+    System.arraycopy(body, offset, batch, HEADER_BYTES, length);
+    return batch;
+  }
+
+  private static byte[] inflate(byte[] batch) {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(batch, HEADER_BYTES, batch.length - HEADER_BYTES);
+      byte[] body = new byte[Math.max(batch.length * 4, 64)];
+      int length = 0;
+      while (!inflater.finished()) {
+        if (length == body.length) {
+          body = Arrays.copyOf(body, body.length * 2);
+        }
+        int inflated = inflater.inflate(body, length, body.length - length);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new SamzaException("Truncated log event batch");
+        }
+        length += inflated;
+      }
+      return Arrays.copyOf(body, length);
+    } catch (DataFormatException e) {
+      throw new SamzaException("Invalid deflated log event batch", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.logging.log4j2;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * A ring buffer of serialized log events, bounded by bytes rather than by the number of events. Events are copied into
+ * a single byte array allocated upfront, each prefixed by its length, so buffering doesn't allocate.
+ * <p>
+ * Offering an event never waits for space: if the buffer is too full, the {@link OverflowPolicy} drops either the
+ * oldest events or the new event, and the dropped events and bytes are counted in the {@link StreamAppenderMetrics}.
+ * Events are drained by a single thread. The fill percentage of the buffer is kept in
+ * {@link StreamAppenderMetrics#bufferFillPct}.
+ */
+final class LogEventRingBuffer {
+  static final int LENGTH_BYTES = 4;
+
+  /**
+   * What to do with an event which doesn't fit in the buffer.
+   */
+  enum OverflowPolicy {
+    /**
+     * Drop the oldest events until the new event fits.
+     */
+    DROP_OLDEST("drop-oldest"),
+    /**
+     * Once the buffer is half full, keep new events with a probability proportional to the remaining space, and drop
+     * new events which don't fit. This samples events during a log storm, instead of keeping only its most recent
+     * events.
+     */
+    SAMPLE("sample");
+
+    private final String name;
+
+    OverflowPolicy(String name) {
+      this.name = name;
+    }
+
+    static OverflowPolicy fromName(String name) {
+      for (OverflowPolicy policy : values()) {
+        if (policy.name.equals(name)) {
+          return policy;
+        }
+      }
+      throw new IllegalArgumentException(
+          String.format("Unknown overflow policy %s, expected %s or %s", name, DROP_OLDEST.name, SAMPLE.name));
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private final byte[] buffer;
+  private final OverflowPolicy overflowPolicy;
+  private final StreamAppenderMetrics metrics;
+  // position of the oldest event, and the number of bytes used by events and their lengths
+  private int head = 0;
+  private int size = 0;
+
+  LogEventRingBuffer(int capacityBytes, OverflowPolicy overflowPolicy, StreamAppenderMetrics metrics) {
+    if (capacityBytes <= LENGTH_BYTES) {
+      throw new IllegalArgumentException("Ring buffer capacity must be greater than " + LENGTH_BYTES);
+    }
+    this.buffer = new byte[capacityBytes];
+    this.overflowPolicy = overflowPolicy;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Add a serialized event to the buffer, dropping events according to the overflow policy if it doesn't fit.
+   *
+   * @param event the serialized event
+   * @return true if the event was added, false if it was dropped
+   */
+  synchronized boolean offer(byte[] event) {
+    int recordBytes = LENGTH_BYTES + event.length;
+    if (recordBytes > buffer.length || (overflowPolicy == OverflowPolicy.SAMPLE && !sample(recordBytes))) {
+      drop(event.length);
+      updateFillPercent();
+      return false;
+    }
+    while (buffer.length - size < recordBytes) {
+      dropOldest();
+    }
+    int tail = wrap(head + size);
+    writeLength(tail, event.length);
+    write(wrap(tail + LENGTH_BYTES), event, 0, event.length);
+    size += recordBytes;
+    updateFillPercent();
+    return true;
+  }
+
+  /**
+   * Remove the oldest event from the buffer.
+   *
+   * @return the oldest event, or null if the buffer is empty
+   */
+  synchronized byte[] poll() {
+    if (size == 0) {
+      return null;
+    }
+    int length = readLength(head);
+    byte[] event = new byte[length];
+    read(wrap(head + LENGTH_BYTES), event, 0, length);
+    remove(length);
+    updateFillPercent();
+    return event;
+  }
+
+  /**
+   * Move the oldest events which fit in maxBytes, each prefixed by its length, to dest.
+   *
+   * @param dest the destination array
+   * @param offset the offset in dest
+   * @param maxBytes the maximum number of bytes to move
+   * @return the number of bytes moved, which is 0 if the buffer is empty or its oldest event doesn't fit in maxBytes
+   */
+  synchronized int drainTo(byte[] dest, int offset, int maxBytes) {
+    int moved = 0;
+    while (size > 0) {
+      int recordBytes = LENGTH_BYTES + readLength(head);
+      if (moved + recordBytes > maxBytes) {
+        break;
+      }
+      read(head, dest, offset + moved, recordBytes);
+      moved += recordBytes;
+      remove(recordBytes - LENGTH_BYTES);
+    }
+    updateFillPercent();
+    return moved;
+  }
+
+  synchronized boolean isEmpty() {
+    return size == 0;
+  }
+
+
+  private boolean sample(int recordBytes) {
+    int free = buffer.length - size;
+    if (free < recordBytes) {
+      return false;
+    }
+    int halfCapacity = buffer.length / 2;
+    return free >= halfCapacity || ThreadLocalRandom.current().nextInt(halfCapacity) < free;
+  }
+
+  private void dropOldest() {
+    int length = readLength(head);
+    remove(length);
+    drop(length);
+  }
+
+  private void drop(int eventLength) {
+    metrics.logMessagesDropped.inc();
+    metrics.logMessagesBytesDropped.inc(eventLength);
+  }
+
+  private void updateFillPercent() {
+    metrics.bufferFillPct.set((int) (100L * size / buffer.length));
+  }
+
+  private void remove(int eventLength) {
+    head = wrap(head + LENGTH_BYTES + eventLength);
+    size -= LENGTH_BYTES + eventLength;
+    if (size == 0) {
+      head = 0;
+    }
+  }
+
+  private int wrap(int position) {
+    return position >= buffer.length ? position - buffer.length : position;
+  }
+
+  private void writeLength(int position, int length) {
+    for (int i = 0; i < LENGTH_BYTES; i++) {
+      buffer[wrap(position + i)] = (byte) (length >>> (8 * (LENGTH_BYTES - 1 - i)));
+    }
+  }
+
+  private int readLength(int position) {
+    int length = 0;
+    for (int i = 0; i < LENGTH_BYTES; i++) {
+      length = (length << 8) | (buffer[wrap(position + i)] & 0xff);
+    }
+    return length;
+  }
+
+  private void write(int position, byte[] src, int offset, int length) {
+    int firstPart = Math.min(length, buffer.length - position);
+    System.arraycopy(src, offset, buffer, position, firstPart);
+    System.arraycopy(src, offset + firstPart, buffer, 0, length - firstPart);
+  }
+
+  private void read(int position, byte[] dest, int offset, int length) {
+    int firstPart = Math.min(length, buffer.length - position);
+    System.arraycopy(buffer, position, dest, offset, firstPart);
+    System.arraycopy(buffer, 0, dest, offset + firstPart, length - firstPart);
+  }
+}
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
@@ -81,6 +82,7 @@ public class StreamAppender extends AbstractAppender {
   private static final String CREATE_STREAM_ENABLED = "task.log4j.create.stream.enabled";
 
   private static final long DEFAULT_QUEUE_TIMEOUT_S = 2; // Abitrary choice
+  private static final long RING_BUFFER_IDLE_MS = 10;
   private final BlockingQueue<byte[]> logQueue = new LinkedBlockingQueue<>(DEFAULT_QUEUE_SIZE);
 
   private SystemStream systemStream = null;
@@ -96,6 +98,9 @@ public class StreamAppender extends AbstractAppender {
   private Config config = null;
   private String streamName = null;
   private final boolean usingAsyncLogger;
+  private LogEventRingBuffer ringBuffer = null;
+  private LogEventBatch batch = null;
+  private byte[] batchBuffer = null;
 
   /**
    * used to detect if this thread is called recursively
@@ -106,6 +111,12 @@ public class StreamAppender extends AbstractAppender {
   protected static volatile boolean systemInitialized = false;
   protected StreamAppenderMetrics metrics;
   protected long queueTimeoutS = DEFAULT_QUEUE_TIMEOUT_S;
+  // If positive, events are buffered in a ring buffer of this many bytes instead of the blocking queue
+  protected int ringBufferSizeBytes = 0;
+  protected String overflowPolicy = LogEventRingBuffer.OverflowPolicy.DROP_OLDEST.toString();
+  // If positive and the ring buffer is used, events are sent in batches of up to this many bytes
+  protected int batchMaxBytes = 0;
+  protected boolean compressBatches = false;
 
   protected StreamAppender(String name, Filter filter, Layout<? extends Serializable> layout, boolean ignoreExceptions,
       boolean usingAsyncLogger, String streamName) {
@@ -114,6 +125,16 @@ public class StreamAppender extends AbstractAppender {
     this.usingAsyncLogger = usingAsyncLogger;
   }
 
+  protected StreamAppender(String name, Filter filter, Layout<? extends Serializable> layout, boolean ignoreExceptions,
+      boolean usingAsyncLogger, String streamName, int ringBufferSizeBytes, String overflowPolicy, int batchMaxBytes,
+      boolean compressBatches) {
+    this(name, filter, layout, ignoreExceptions, usingAsyncLogger, streamName);
+    this.ringBufferSizeBytes = ringBufferSizeBytes;
+    this.overflowPolicy = overflowPolicy;
+    this.batchMaxBytes = batchMaxBytes;
+    this.compressBatches = compressBatches;
+  }
+
   @Override
   public void start() {
     super.start();
@@ -143,7 +164,7 @@ public class StreamAppender extends AbstractAppender {
   }
 
   /**
-   * Getter for the StreamName parameter. See also {@link #createAppender(String, Filter, Layout, boolean, boolean, String)} for when this is called.
+   * Getter for the StreamName parameter. See also {@link #createAppender(String, Filter, Layout, boolean, boolean, String, int, String, int, boolean)} for when this is called.
    * Example: {@literal <param name="StreamName" value="ExampleStreamName"/>}
    * @return The configured stream name.
    */
@@ -162,7 +183,7 @@ public class StreamAppender extends AbstractAppender {
   }
 
   /**
-   * Getter for the number of partitions to create on a new StreamAppender stream. See also {@link #createAppender(String, Filter, Layout, boolean, boolean, String)} for when this is called.
+   * Getter for the number of partitions to create on a new StreamAppender stream. See also {@link #createAppender(String, Filter, Layout, boolean, boolean, String, int, String, int, boolean)} for when this is called.
    * Example: {@literal <param name="PartitionCount" value="4"/>}
    * @return The configured partition count of the StreamAppender stream. If not set, returns {@link JobConfig#getContainerCount()}.
    */
@@ -174,7 +195,7 @@ public class StreamAppender extends AbstractAppender {
   }
 
   /**
-   * Setter for the number of partitions to create on a new StreamAppender stream. See also {@link #createAppender(String, Filter, Layout, boolean, boolean, String)} for when this is called.
+   * Setter for the number of partitions to create on a new StreamAppender stream. See also {@link #createAppender(String, Filter, Layout, boolean, boolean, String, int, String, int, boolean)} for when this is called.
    * Example: {@literal <param name="PartitionCount" value="4"/>}
    * @param partitionCount Configurable partition count.
    */
@@ -190,8 +211,13 @@ public class StreamAppender extends AbstractAppender {
       @PluginElement("Layout") Layout layout,
       @PluginAttribute(value = "ignoreExceptions", defaultBoolean = true) final boolean ignoreExceptions,
       @PluginAttribute(value = "usingAsyncLogger", defaultBoolean = false) final boolean usingAsyncLogger,
-      @PluginAttribute("streamName") String streamName) {
-    return new StreamAppender(name, filter, layout, ignoreExceptions, usingAsyncLogger, streamName);
+      @PluginAttribute("streamName") String streamName,
+      @PluginAttribute(value = "ringBufferSizeBytes", defaultInt = 0) final int ringBufferSizeBytes,
+      @PluginAttribute(value = "overflowPolicy", defaultString = "drop-oldest") final String overflowPolicy,
+      @PluginAttribute(value = "batchMaxBytes", defaultInt = 0) final int batchMaxBytes,
+      @PluginAttribute(value = "compressBatches", defaultBoolean = false) final boolean compressBatches) {
+    return new StreamAppender(name, filter, layout, ignoreExceptions, usingAsyncLogger, streamName, ringBufferSizeBytes,
+        overflowPolicy, batchMaxBytes, compressBatches);
   }
 
   @Override
@@ -227,7 +253,8 @@ public class StreamAppender extends AbstractAppender {
 
   /**
    * If async-Logger is enabled, the log-event is sent directly to the systemProducer. Else, the event is serialized
-   * and added to a bounded blocking queue, before returning to the "synchronous" caller.
+   * and added to the ring buffer if it's enabled, or to a bounded blocking queue, before returning to the "synchronous"
+   * caller. Adding to the ring buffer never waits for space, since its overflow policy drops events instead.
    * @param event the log event to append
    * @throws InterruptedException
    */
@@ -237,6 +264,11 @@ public class StreamAppender extends AbstractAppender {
       return;
     }
 
+    if (ringBuffer != null) {
+      ringBuffer.offer(encodeLogEventToBytes(event));
+      return;
+    }
+
     // Serialize the event before adding to the queue to leverage the caller thread
     // and ensure that the transferThread can keep up.
     if (!logQueue.offer(encodeLogEventToBytes(event), queueTimeoutS, TimeUnit.SECONDS)) {
@@ -310,6 +342,20 @@ public class StreamAppender extends AbstractAppender {
       Thread.currentThread().interrupt();
     }
 
+    if (ringBuffer != null) {
+      // send the events which are still buffered
+      try {
+        while (!ringBuffer.isEmpty()) {
+          sendFromRingBuffer();
+        }
+      } catch (Throwable t) {
+        System.err.println("Error sending buffered " + getName() + " events to SystemProducer " + t);
+      }
+      if (batch != null) {
+        batch.close();
+      }
+    }
+
     flushSystemProducer();
     if (systemProducer !=  null) {
       systemProducer.stop();
@@ -411,10 +457,35 @@ public class StreamAppender extends AbstractAppender {
     System.out.println(SOURCE + " has been registered in " + systemName + ". So all the logs will be sent to " + streamName
         + " in " + systemName + ". Logs are partitioned by " + key);
 
+    if (ringBufferSizeBytes > 0) {
+      ringBuffer = new LogEventRingBuffer(ringBufferSizeBytes,
+          LogEventRingBuffer.OverflowPolicy.fromName(overflowPolicy), metrics);
+      if (batchMaxBytes > 0) {
+        batch = new LogEventBatch(compressBatches, batchMaxBytes);
+        batchBuffer = new byte[batchMaxBytes];
+      }
+    }
+
     startTransferThread();
   }
 
   private void startTransferThread() {
+    Runnable transferFromRingBufferToSystem = () -> {
+      while (!Thread.currentThread().isInterrupted()) {
+        try {
+          if (!sendFromRingBuffer()) {
+            Thread.sleep(RING_BUFFER_IDLE_MS);
+          }
+        } catch (InterruptedException e) {
+          // Preserve the interrupted status for the loop condition.
+          Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+          metrics.logMessagesErrors.inc();
+          System.err.println("Error sending " + getName() + " event to SystemProducer " + t);
+        }
+      }
+    };
+
     Runnable transferFromQueueToSystem = () -> {
       while (!Thread.currentThread().isInterrupted()) {
         try {
@@ -429,7 +500,7 @@ public class StreamAppender extends AbstractAppender {
       }
     };
 
-    transferThread = new Thread(transferFromQueueToSystem);
+    transferThread = new Thread(ringBuffer != null ? transferFromRingBufferToSystem : transferFromQueueToSystem);
     transferThread.setDaemon(true);
     transferThread.setName("Samza " + getName() + " Producer " + transferThread.getName());
     transferThread.start();
@@ -445,6 +516,48 @@ public class StreamAppender extends AbstractAppender {
     systemProducer.send(SOURCE, new OutgoingMessageEnvelope(systemStream, keyBytes, serializedLogEvent));
   }
 
+  /**
+   * Send the oldest events in the ring buffer to the systemProducer, in a batch if batching is enabled.
+   * @return false if the ring buffer was empty
+   */
+  private boolean sendFromRingBuffer() {
+    if (batch != null) {
+      int length = ringBuffer.drainTo(batchBuffer, 0, batchBuffer.length);
+      if (length > 0) {
+        sendBatchToSystemProducer(batchBuffer, 0, length);
+        return true;
+      }
+    }
+
+    byte[] serializedLogEvent = ringBuffer.poll();
+    if (serializedLogEvent == null) {
+      return false;
+    }
+    if (batch == null) {
+      sendEventToSystemProducer(serializedLogEvent);
+    } else {
+      // the event is larger than batchMaxBytes, so it's sent in a batch of its own
+      byte[] body = ByteBuffer.allocate(LogEventRingBuffer.LENGTH_BYTES + serializedLogEvent.length)
+          .putInt(serializedLogEvent.length)
+          .put(serializedLogEvent)
+          .array();
+      sendBatchToSystemProducer(body, 0, body.length);
+    }
+    return true;
+  }
+
+  /**
+   * Helper method to send a batch of serialized log-events, each prefixed by its length, to the systemProducer.
+   */
+  private void sendBatchToSystemProducer(byte[] body, int offset, int length) {
+    int count = LogEventBatch.countEvents(body, offset, length);
+    byte[] encodedBatch = batch.encode(body, offset, length);
+    metrics.logMessagesBytesSent.inc(encodedBatch.length);
+    metrics.logMessagesCountSent.inc(count);
+    metrics.logBatchesSent.inc();
+    systemProducer.send(SOURCE, new OutgoingMessageEnvelope(systemStream, keyBytes, encodedBatch));
+  }
+
   protected String getStreamName(String jobName, String jobId) {
     if (jobName == null) {
       throw new SamzaException("job name is null. Please specify job.name");
@@ -34,6 +34,9 @@ public class StreamAppenderMetrics extends MetricsBase {
   /** The number of log messages dropped e.g. because of buffer overflow. Does not include recursive calls. */
   public final Counter logMessagesDropped;
 
+  /** The size of log messages dropped by the ring buffer, because of its overflow policy. */
+  public final Counter logMessagesBytesDropped;
+
   /** The number of log messages cannot be sent out due to errors e.g. serialization errors, system producer send errors. */
   public final Counter logMessagesErrors;
 
@@ -43,13 +46,18 @@ public class StreamAppenderMetrics extends MetricsBase {
   /** The number of log messages sent out to SystemProducer. */
   public final Counter logMessagesCountSent;
 
+  /** The number of batches of log messages sent out to SystemProducer, if batching is enabled. */
+  public final Counter logBatchesSent;
+
   public StreamAppenderMetrics(String prefix, MetricsRegistry registry) {
     super(prefix + "-", registry);
     bufferFillPct = newGauge("buffer-fill-percent", 0);
     recursiveCalls = newCounter("recursive-calls");
     logMessagesDropped = newCounter("log-messages-dropped");
+    logMessagesBytesDropped = newCounter("log-messages-bytes-dropped");
     logMessagesErrors = newCounter("log-messages-errors");
     logMessagesBytesSent = newCounter("log-messages-bytes-sent");
     logMessagesCountSent = newCounter("log-messages-count-sent");
+    logBatchesSent = newCounter("log-batches-sent");
   }
 }
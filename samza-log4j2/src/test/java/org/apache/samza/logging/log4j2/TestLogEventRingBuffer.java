@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.logging.log4j2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestLogEventRingBuffer {
+  private final StreamAppenderMetrics metrics = new StreamAppenderMetrics("test", new MetricsRegistryMap());
+
+  @Test
+  public void testDropOldest() {
+    // room for 4 events of 3 bytes
+    LogEventRingBuffer ringBuffer = new LogEventRingBuffer(30, LogEventRingBuffer.OverflowPolicy.DROP_OLDEST, metrics);
+    for (int i = 0; i < 6; i++) {
+      assertTrue(ringBuffer.offer(bytes("ev" + i)));
+    }
+
+    assertEquals(2, metrics.logMessagesDropped.getCount());
+    assertEquals(6, metrics.logMessagesBytesDropped.getCount());
+    assertEquals(Integer.valueOf(93), metrics.bufferFillPct.getValue());
+    assertEquals(Arrays.asList("ev2", "ev3", "ev4", "ev5"), pollAll(ringBuffer));
+    assertEquals(Integer.valueOf(0), metrics.bufferFillPct.getValue());
+  }
+
+  @Test
+  public void testSampleDropsNewEventsWhenFull() {
+    LogEventRingBuffer ringBuffer = new LogEventRingBuffer(30, LogEventRingBuffer.OverflowPolicy.SAMPLE, metrics);
+    int added = 0;
+    for (int i = 0; i < 100; i++) {
+      if (ringBuffer.offer(bytes("ev" + i))) {
+        added++;
+      }
+    }
+
+    // the first two events are always kept, since the buffer is less than half full
+    List<String> events = pollAll(ringBuffer);
+    assertEquals(added, events.size());
+    assertTrue(added >= 2 && added <= 4);
+    assertEquals(Arrays.asList("ev0", "ev1"), events.subList(0, 2));
+    assertEquals(100 - added, metrics.logMessagesDropped.getCount());
+  }
+
+  @Test
+  public void testEventLargerThanBufferIsDropped() {
+    LogEventRingBuffer ringBuffer = new LogEventRingBuffer(10, LogEventRingBuffer.OverflowPolicy.DROP_OLDEST, metrics);
+    assertTrue(ringBuffer.offer(bytes("a")));
+    assertFalse(ringBuffer.offer(bytes("abcdefg")));
+
+    assertEquals(1, metrics.logMessagesDropped.getCount());
+    assertEquals(7, metrics.logMessagesBytesDropped.getCount());
+    assertEquals(Arrays.asList("a"), pollAll(ringBuffer));
+  }
+
+  @Test
+  public void testDrainToBatchAcrossWrapAround() {
+    LogEventRingBuffer ringBuffer = new LogEventRingBuffer(20, LogEventRingBuffer.OverflowPolicy.DROP_OLDEST, metrics);
+    ringBuffer.offer(bytes("first"));
+    ringBuffer.offer(bytes("second"));
+    assertEquals("first", new String(ringBuffer.poll(), StandardCharsets.UTF_8));
+    // wraps around the end of the buffer
+    ringBuffer.offer(bytes("third"));
+
+    byte[] body = new byte[100];
+    // only the first event fits
+    int length = ringBuffer.drainTo(body, 0, 12);
+    assertEquals(10, length);
+    length += ringBuffer.drainTo(body, length, 100 - length);
+    assertEquals(19, length);
+    assertTrue(ringBuffer.isEmpty());
+    assertEquals(0, ringBuffer.drainTo(body, 0, 100));
+
+    LogEventBatch batch = new LogEventBatch(true, 100);
+    List<byte[]> events = LogEventBatch.decode(batch.encode(body, 0, length));
+    assertEquals(2, events.size());
+    assertArrayEquals(bytes("second"), events.get(0));
+    assertArrayEquals(bytes("third"), events.get(1));
+    assertEquals(2, LogEventBatch.countEvents(body, 0, length));
+  }
+
+  @Test
+  public void testCompressedBatch() {
+    StringBuilder message = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      message.append("repeated log message ");
+    }
+    byte[] event = bytes(message.toString());
+    byte[] body = new byte[2 * (LogEventRingBuffer.LENGTH_BYTES + event.length)];
+    LogEventRingBuffer ringBuffer = new LogEventRingBuffer(body.length, LogEventRingBuffer.OverflowPolicy.DROP_OLDEST, metrics);
+    ringBuffer.offer(event);
+    ringBuffer.offer(event);
+    int length = ringBuffer.drainTo(body, 0, body.length);
+
+    byte[] encoded = new LogEventBatch(true, body.length).encode(body, 0, length);
+    assertEquals(LogEventBatch.FLAG_DEFLATED, encoded[1]);
+    assertTrue(encoded.length < length / 10);
+    List<byte[]> events = LogEventBatch.decode(encoded);
+    assertEquals(2, events.size());
+    assertArrayEquals(event, events.get(1));
+
+    byte[] uncompressed = new LogEventBatch(false, body.length).encode(body, 0, length);
+    assertEquals(0, uncompressed[1]);
+    assertEquals(LogEventBatch.HEADER_BYTES + length, uncompressed.length);
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static List<String> pollAll(LogEventRingBuffer ringBuffer) {
+    List<String> events = new ArrayList<>();
+    byte[] event;
+    while ((event = ringBuffer.poll()) != null) {
+      events.add(new String(event, StandardCharsets.UTF_8));
+    }
+    assertNull(ringBuffer.poll());
+    return events;
+  }
+}
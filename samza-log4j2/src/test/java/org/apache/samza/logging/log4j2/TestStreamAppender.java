@@ -330,6 +330,41 @@ public class TestStreamAppender {
     systemProducerAppender.stop();
   }
 
+  @Test
+  public void testRingBufferWithCompressedBatches() {
+    System.setProperty("samza.container.name", "samza-container-1");
+
+    PatternLayout layout = PatternLayout.newBuilder().withPattern("%m").build();
+    MockSystemProducerAppender systemProducerAppender =
+        MockSystemProducerAppender.createAppender("testName", null, layout, false, false, null, null);
+    systemProducerAppender.ringBufferSizeBytes = 1024 * 1024;
+    systemProducerAppender.batchMaxBytes = 4096;
+    systemProducerAppender.compressBatches = true;
+    systemProducerAppender.start();
+    log.addAppender(systemProducerAppender);
+    log.setLevel(Level.INFO);
+
+    List<String> messages = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      messages.add("message " + i);
+    }
+    messages.forEach((message) -> log.info(message));
+    // stopping the appender sends the events which are still buffered
+    systemProducerAppender.stop();
+
+    List<byte[]> events = new ArrayList<>();
+    for (Object batch : MockSystemProducer.messagesReceived) {
+      events.addAll(LogEventBatch.decode((byte[]) batch));
+    }
+    assertEquals(messages.size(), events.size());
+    for (int i = 0; i < messages.size(); i++) {
+      assertTrue("Message mismatch at index " + i,
+          new String(events.get(i)).contains(asJsonMessageSegment(messages.get(i))));
+    }
+    assertEquals(MockSystemProducer.messagesReceived.size(), systemProducerAppender.metrics.logBatchesSent.getCount());
+    assertEquals(0, systemProducerAppender.metrics.logMessagesDropped.getCount());
+  }
+
   private void logAndVerifyMessages(List<String> messages) throws InterruptedException {
     // Set up latch
     final CountDownLatch allMessagesSent = new CountDownLatch(messages.size());
@@ -33,6 +33,7 @@ import org.apache.samza.operators.OutputStream;
 import org.apache.samza.operators.functions.AsyncFlatMapFunction;
 import org.apache.samza.operators.functions.FilterFunction;
 import org.apache.samza.operators.functions.FlatMapFunction;
+import org.apache.samza.operators.functions.FoldLeftFunction;
 import org.apache.samza.operators.functions.JoinFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.SinkFunction;
@@ -202,6 +203,13 @@ class MessageStreamCollector implements MessageStream<SamzaSqlRelMessage>, Seria
     throw new IllegalStateException("Not valid state");
   }
 
+  @Override
+  public <K, V> MessageStream<KV<K, V>> partitionBy(MapFunction<? super SamzaSqlRelMessage, ? extends K> keyExtractor,
+      MapFunction<? super SamzaSqlRelMessage, ? extends V> valueExtractor, FoldLeftFunction<? super V, V> combiner,
+      KVSerde<K, V> serde, String id) {
+    throw new IllegalStateException("Not valid state");
+  }
+
   @Override
   public <K, V> MessageStream<KV<K, V>> sendTo(Table<KV<K, V>> table, Object... args) {
     throw new IllegalStateException("Not valid state");